@@ -19,9 +19,15 @@
 
 package org.exoplatform.commons.cache.future;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
@@ -49,6 +55,17 @@ import org.gatein.common.logging.LoggerFactory;
  * is to decouple the cache from the object source.
  * </p>
  *
+ * <p>
+ * A future cache created with a {@link RefreshAhead} policy keeps serving a stale value while a single reload runs in the
+ * background, the {@link #refresh(Object, Object)} method performs that reload. Only a value that reached the hard time to
+ * live of the policy makes a lookup wait for the value to be loaded again. The load time is attached to the value instance
+ * and weakly references it, so it is discarded once the value is evicted from the cache and collected. A value that is
+ * not the instance that was loaded, for instance a copy unmarshalled by the cache, is considered as fresh. The reloads are
+ * performed with the context class loader of the lookup that found the stale value, when the executor of the policy does
+ * not accept more reloads the stale value is served until a later lookup schedules its reload. A reload that runs while
+ * a value is removed from the cache is not cached.
+ * </p>
+ *
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  * @version $Revision$
  * @param <K> the key type parameter
@@ -66,9 +83,179 @@ public abstract class FutureCache<K, V, C> {
     /** . */
     private final Logger log = LoggerFactory.getLogger(FutureCache.class);
 
+    /** . */
+    private final Counter hits;
+
+    /** . */
+    private final Counter misses;
+
+    /** . */
+    final AtomicLong loads;
+
+    /** The cumulated load time in nanoseconds. */
+    final AtomicLong loadTime;
+
+    /** The refresh ahead policy or null. */
+    private final RefreshAhead refreshAhead;
+
+    /** The load time of the cached values, only when refresh ahead is enabled. */
+    private final ConcurrentMap<K, Stamp<K, V>> timestamps;
+
+    /** The stamps of the values collected by the garbage collector. */
+    private final ReferenceQueue<V> collected;
+
+    /** Incremented by each invalidation, a stale value reloaded across an invalidation is not cached. */
+    final AtomicLong invalidations;
+
     public FutureCache(Loader<K, V, C> loader) {
+        this(loader, null);
+    }
+
+    public FutureCache(Loader<K, V, C> loader, RefreshAhead refreshAhead) {
         this.loader = loader;
+        this.refreshAhead = refreshAhead;
+        this.timestamps = refreshAhead != null ? new ConcurrentHashMap<K, Stamp<K, V>>() : null;
+        this.collected = refreshAhead != null ? new ReferenceQueue<V>() : null;
         this.futureEntries = new ConcurrentHashMap<K, Retrieval<K, V, C>>();
+        this.hits = new Counter();
+        this.misses = new Counter();
+        this.loads = new AtomicLong();
+        this.loadTime = new AtomicLong();
+        this.invalidations = new AtomicLong();
+    }
+
+    /**
+     * Returns the number of lookups that found a value in the cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that did not find a value in the cache, those lookups either loaded the value or waited
+     * for a concurrent load of the same value.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of values loaded.
+     *
+     * @return the load count
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * Returns the cumulated time spent by the loader in milliseconds.
+     *
+     * @return the load time
+     */
+    public long getLoadTime() {
+        return loadTime.get() / 1000000;
+    }
+
+    public RefreshAhead getRefreshAhead() {
+        return refreshAhead;
+    }
+
+    /**
+     * Reloads a stale value on a thread of the refresh ahead executor. The default implementation uses the loader with the
+     * context of the lookup that found the stale value, a subclass whose context cannot be used outside of the thread of the
+     * lookup should override this method and provide a context of its own.
+     *
+     * @param context the context of the lookup that found the stale value
+     * @param key the key
+     * @return the value or null when the value does not exist anymore
+     * @throws Exception any exception that would prevent the value to be loaded
+     */
+    protected V refresh(C context, K key) throws Exception {
+        return loader.retrieve(context, key);
+    }
+
+    /**
+     * Removes a value from the cache, it is invoked when the reload of a stale value does not find the value anymore. The
+     * default implementation does nothing and the stale value is served until it expires.
+     *
+     * @param key the key
+     */
+    protected void remove(K key) {
+    }
+
+    /**
+     * Returns the current time in milliseconds.
+     *
+     * @return the current time
+     */
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Stop the executor of the refresh ahead policy, the stale values are not reloaded anymore and are served until they
+     * expire.
+     */
+    public void shutdown() {
+        if (refreshAhead != null) {
+            refreshAhead.shutdown();
+        }
+    }
+
+    /**
+     * Records the load time of a value.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    void loaded(K key, V value) {
+        if (timestamps != null) {
+            purge();
+            timestamps.put(key, new Stamp<K, V>(key, value, now(), collected));
+        }
+    }
+
+    /**
+     * Discards the load time of the values collected by the garbage collector.
+     */
+    private void purge() {
+        for (Reference<? extends V> ref = collected.poll(); ref != null; ref = collected.poll()) {
+            Stamp<?, ?> stamp = (Stamp<?, ?>) ref;
+            timestamps.remove(stamp.key, stamp);
+        }
+    }
+
+    /**
+     * Discards the load time of a value removed from the cache.
+     *
+     * @param key the key
+     */
+    void forget(K key) {
+        if (timestamps != null) {
+            timestamps.remove(key);
+        }
+    }
+
+    /**
+     * Records that a value or all values were removed from the cache, the reloads of stale values in progress are then not
+     * cached since they may have read the data before it was modified.
+     */
+    void invalidate() {
+        invalidations.incrementAndGet();
+    }
+
+    /**
+     * Discards the load time of all values.
+     */
+    void forgetAll() {
+        if (timestamps != null) {
+            timestamps.clear();
+        }
     }
 
     /**
@@ -100,9 +287,31 @@ public abstract class FutureCache<K, V, C> {
         // First we try a simple cache get
         V value = get(key);
 
+        // Check the age of the value
+        if (timestamps != null) {
+            if (value != null) {
+                Stamp<K, V> stamp = timestamps.get(key);
+                if (stamp == null || stamp.get() != value) {
+                    // The value was not loaded by us or was replaced, it is fresh
+                    loaded(key, value);
+                } else {
+                    long age = now() - stamp.time;
+                    if (refreshAhead.isExpired(age)) {
+                        value = null;
+                    } else if (refreshAhead.isStale(age)) {
+                        scheduleRefresh(context, key);
+                    }
+                }
+            } else {
+                timestamps.remove(key);
+            }
+        }
+
         // If it does not succeed then we go through a process that will avoid to load
         // the same resource concurrently
         if (value == null) {
+            misses.increment();
+
             // Create our future
             Retrieval<K, V, C> retrieval = new Retrieval<K, V, C>(context, key, this);
 
@@ -135,6 +344,9 @@ public abstract class FutureCache<K, V, C> {
                 } else {
                     try {
                         value = retrieval.future.get();
+                    } catch (CancellationException e) {
+                        // A reload that could not be scheduled, perform the lookup again
+                        return get(context, key);
                     } catch (ExecutionException e) {
                         log.error("Computing of resource " + key + " threw an exception", e.getCause());
                     } catch (InterruptedException e) {
@@ -148,9 +360,70 @@ public abstract class FutureCache<K, V, C> {
                     futureEntries.remove(key, retrieval);
                 }
             }
+        } else {
+            hits.increment();
         }
 
         //
         return value;
     }
+
+    /**
+     * Schedule the reload of a stale value unless the value is already being loaded.
+     *
+     * @param context the context
+     * @param key the key
+     */
+    private void scheduleRefresh(C context, final K key) {
+        final Retrieval<K, V, C> retrieval = new Retrieval<K, V, C>(context, key, this, true);
+        if (futureEntries.putIfAbsent(key, retrieval) == null) {
+            final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            Runnable task = new Runnable() {
+                public void run() {
+                    Thread thread = Thread.currentThread();
+                    ClassLoader previous = thread.getContextClassLoader();
+                    try {
+                        thread.setContextClassLoader(loader);
+                        retrieval.current = thread;
+                        retrieval.future.run();
+                        retrieval.future.get();
+                    } catch (ExecutionException e) {
+                        log.error("Refresh of resource " + key + " threw an exception", e.getCause());
+                    } catch (InterruptedException e) {
+                        log.error("Refresh of resource " + key + " was interrupted", e);
+                    } finally {
+                        retrieval.current = null;
+                        futureEntries.remove(key, retrieval);
+                        thread.setContextClassLoader(previous);
+                    }
+                }
+            };
+            try {
+                refreshAhead.getExecutor().execute(task);
+            } catch (RejectedExecutionException e) {
+                // Too many pending reloads or shutdown, the stale value is served until a later lookup reloads it and
+                // a lookup waiting for this reload retries
+                futureEntries.remove(key, retrieval);
+                retrieval.future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * The load time of a value, it is discarded once the value is garbage collected.
+     */
+    private static final class Stamp<K, V> extends WeakReference<V> {
+
+        /** . */
+        private final K key;
+
+        /** . */
+        private final long time;
+
+        private Stamp(K key, V value, long time, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+            this.time = time;
+        }
+    }
 }
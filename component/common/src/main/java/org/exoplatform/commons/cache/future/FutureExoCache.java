@@ -33,18 +33,27 @@ public class FutureExoCache<K extends Serializable, V, C> extends FutureCache<K,
     private final ExoCache<K, V> cache;
 
     public FutureExoCache(Loader<K, V, C> loader, ExoCache<K, V> cache) {
-        super(loader);
+        this(loader, cache, null);
+    }
+
+    public FutureExoCache(Loader<K, V, C> loader, ExoCache<K, V> cache, RefreshAhead refreshAhead) {
+        super(loader, refreshAhead);
 
         //
         this.cache = cache;
     }
 
     public void clear() {
+        invalidate();
         cache.clearCache();
+        forgetAll();
     }
 
+    @Override
     public void remove(K key) {
+        invalidate();
         cache.remove(key);
+        forget(key);
     }
 
     @Override
@@ -20,11 +20,31 @@
 package org.exoplatform.commons.cache.future;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * <p>
+ * A future cache backed by a concurrent map.
+ * </p>
+ *
+ * <p>
+ * The map is unbounded unless it is created with a maximum size or a maximum weight, the least recently used entries are
+ * then evicted when an insertion makes the map exceed one of its bounds. The weight of an entry is given by the
+ * {@link #weigh(Object)} method, by default every entry weighs one unit. Lookups remain lock free, only the eviction is
+ * serialized.
+ * </p>
+ *
+ * <p>
+ * The eviction sorts the entries by access time, to amortize its cost over many insertions it frees one sixteenth of the
+ * exceeded bound more than needed. The access time is read from the system nano time rather than a shared counter so the
+ * concurrent lookups do not contend on it.
+ * </p>
+ *
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  * @version $Revision$
  */
@@ -33,28 +53,235 @@ public class FutureMap<K extends Serializable, V, C> extends FutureCache<K, V, C
     /** . */
     final Map<K, V> data;
 
+    /** The usage of the entries when the map is bounded. */
+    private final ConcurrentHashMap<K, Usage> usages;
+
+    /** The maximum number of entries or zero when the number of entries is not bounded. */
+    private final int maxSize;
+
+    /** The maximum weight or zero when the weight is not bounded. */
+    private final long maxWeight;
+
+    /** . */
+    private final AtomicLong weight;
+
+    /** . */
+    private final AtomicLong evictions;
+
+    /** . */
+    private final Object evictionLock;
+
     public FutureMap(Loader<K, V, C> loader) {
-        super(loader);
+        this(loader, 0, 0);
+    }
+
+    /**
+     * Create a bounded future map, a zero bound means no limit.
+     *
+     * @param loader the loader
+     * @param maxSize the maximum number of entries
+     * @param maxWeight the maximum weight of the entries
+     * @throws IllegalArgumentException if a bound is negative
+     */
+    public FutureMap(Loader<K, V, C> loader, int maxSize, long maxWeight) throws IllegalArgumentException {
+        this(loader, maxSize, maxWeight, null);
+    }
+
+    /**
+     * Create a bounded future map with an optional refresh ahead policy, a zero bound means no limit.
+     *
+     * @param loader the loader
+     * @param maxSize the maximum number of entries
+     * @param maxWeight the maximum weight of the entries
+     * @param refreshAhead the refresh ahead policy or null
+     * @throws IllegalArgumentException if a bound is negative
+     */
+    public FutureMap(Loader<K, V, C> loader, int maxSize, long maxWeight, RefreshAhead refreshAhead)
+            throws IllegalArgumentException {
+        super(loader, refreshAhead);
+
+        //
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Invalid maximum size " + maxSize);
+        }
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Invalid maximum weight " + maxWeight);
+        }
 
         //
         this.data = new ConcurrentHashMap<K, V>();
+        this.usages = maxSize > 0 || maxWeight > 0 ? new ConcurrentHashMap<K, Usage>() : null;
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        this.weight = new AtomicLong();
+        this.evictions = new AtomicLong();
+        this.evictionLock = new Object();
+    }
+
+    /**
+     * Returns the weight of a value, it must be a positive number.
+     *
+     * @param value the value
+     * @return the value weight
+     */
+    protected long weigh(V value) {
+        return 1;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public int getSize() {
+        return data.size();
+    }
+
+    /**
+     * Returns the weight of the entries, it is only maintained when the map is bounded.
+     *
+     * @return the weight
+     */
+    public long getWeight() {
+        return weight.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
     }
 
     public void clear() {
-        data.clear();
+        invalidate();
+        if (usages != null) {
+            synchronized (evictionLock) {
+                data.clear();
+                usages.clear();
+                weight.set(0);
+            }
+        } else {
+            data.clear();
+        }
+        forgetAll();
     }
 
+    @Override
     public void remove(K key) {
-        data.remove(key);
+        invalidate();
+        if (usages != null) {
+            synchronized (evictionLock) {
+                data.remove(key);
+                Usage usage = usages.remove(key);
+                if (usage != null) {
+                    weight.addAndGet(-usage.weight);
+                }
+            }
+        } else {
+            data.remove(key);
+        }
+        forget(key);
     }
 
     @Override
     protected V get(K key) {
-        return data.get(key);
+        V value = data.get(key);
+        if (value != null && usages != null) {
+            Usage usage = usages.get(key);
+            if (usage != null) {
+                usage.access = System.nanoTime();
+            }
+        }
+        return value;
     }
 
     @Override
     protected void put(K key, V value) {
-        data.put(key, value);
+        if (usages != null) {
+            Usage usage = new Usage(weigh(value), System.nanoTime());
+            synchronized (evictionLock) {
+                data.put(key, value);
+                Usage previous = usages.put(key, usage);
+                weight.addAndGet(previous != null ? usage.weight - previous.weight : usage.weight);
+                if ((maxSize > 0 && data.size() > maxSize) || (maxWeight > 0 && weight.get() > maxWeight)) {
+                    evict(key);
+                }
+            }
+        } else {
+            data.put(key, value);
+        }
+    }
+
+    /**
+     * Evict the least recently used entries until the map fits below the low water marks of its bounds, the entry just
+     * inserted is kept.
+     *
+     * @param inserted the key of the inserted entry
+     */
+    private void evict(K inserted) {
+        int size = maxSize - maxSize / 16;
+        long weight = maxWeight - maxWeight / 16;
+
+        // Snapshot the access times as they keep changing during the sort
+        List<Candidate<K>> candidates = new ArrayList<Candidate<K>>(usages.size());
+        for (Map.Entry<K, Usage> entry : usages.entrySet()) {
+            candidates.add(new Candidate<K>(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(candidates);
+        for (Candidate<K> candidate : candidates) {
+            if ((maxSize == 0 || data.size() <= size) && (maxWeight == 0 || this.weight.get() <= weight)) {
+                break;
+            }
+            if (!candidate.key.equals(inserted)) {
+                data.remove(candidate.key);
+                usages.remove(candidate.key);
+                forget(candidate.key);
+                this.weight.addAndGet(-candidate.usage.weight);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * An eviction candidate.
+     */
+    private static class Candidate<K> implements Comparable<Candidate<K>> {
+
+        /** . */
+        private final K key;
+
+        /** . */
+        private final Usage usage;
+
+        /** . */
+        private final long access;
+
+        private Candidate(K key, Usage usage) {
+            this.key = key;
+            this.usage = usage;
+            this.access = usage.access;
+        }
+
+        public int compareTo(Candidate<K> o) {
+            return access < o.access ? -1 : (access == o.access ? 0 : 1);
+        }
+    }
+
+    /**
+     * The usage of an entry.
+     */
+    private static class Usage {
+
+        /** . */
+        private final long weight;
+
+        /** The logical time of the last access. */
+        private volatile long access;
+
+        private Usage(long weight, long access) {
+            this.weight = weight;
+            this.access = access;
+        }
     }
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.cache.future;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.exoplatform.commons.utils.PropertyManager;
+import org.gatein.common.logging.Logger;
+import org.gatein.common.logging.LoggerFactory;
+
+/**
+ * <p>
+ * The refresh ahead policy of a future cache. A value older than the soft time to live is still served while a single
+ * reload of the value runs on the executor of the policy, a value older than the hard time to live is not served anymore
+ * and the lookup waits for the value to be loaded again.
+ * </p>
+ *
+ * <p>
+ * A policy is usually created with {@link #create(String)} from properties named after the cache, the refresh ahead is
+ * enabled only when the <code>name.refresh.soft-ttl</code> property is set.
+ * </p>
+ */
+public class RefreshAhead {
+
+    /** . */
+    private static final Logger log = LoggerFactory.getLogger(RefreshAhead.class);
+
+    /** The number of pending reloads above which a stale value is left to its hard expiration. */
+    private static final int MAX_PENDING = 1000;
+
+    /**
+     * Create the policy configured by the following properties:
+     * <ul>
+     * <li><code>name.refresh.soft-ttl</code>: the soft time to live in seconds, the policy is not created when the property
+     * is not set</li>
+     * <li><code>name.refresh.hard-ttl</code>: the hard time to live in seconds, defaulting to no hard expiration</li>
+     * <li><code>name.refresh.threads</code>: the number of reloading threads, defaulting to one thread</li>
+     * </ul>
+     *
+     * @param name the cache name
+     * @return the policy or null when the refresh ahead is not enabled
+     */
+    public static RefreshAhead create(String name) {
+        long softTTL = getLongProperty(name + ".refresh.soft-ttl", -1);
+        if (softTTL < 0) {
+            return null;
+        }
+        long hardTTL = getLongProperty(name + ".refresh.hard-ttl", 0);
+        int threads = (int) getLongProperty(name + ".refresh.threads", 1);
+        return new RefreshAhead(softTTL * 1000, hardTTL * 1000, createExecutor(name, threads));
+    }
+
+    /**
+     * Create a bounded pool of daemon threads for reloading values.
+     *
+     * @param name the name prefix of the threads
+     * @param threads the number of threads
+     * @return the executor
+     */
+    public static ThreadPoolExecutor createExecutor(final String name, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads " + threads);
+        }
+        final AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-refresh-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(
+                MAX_PENDING), factory);
+    }
+
+    private static long getLongProperty(String name, long defaultValue) {
+        String value = PropertyManager.getProperty(name);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("The " + name + " property is not set properly.");
+            }
+        }
+        return defaultValue;
+    }
+
+    /** . */
+    private final long softTTL;
+
+    /** . */
+    private final long hardTTL;
+
+    /** . */
+    private final Executor executor;
+
+    /**
+     * Create a new policy.
+     *
+     * @param softTTL the soft time to live in milliseconds
+     * @param hardTTL the hard time to live in milliseconds or zero for no hard expiration
+     * @param executor the executor running the reloads
+     * @throws NullPointerException if the executor is null
+     * @throws IllegalArgumentException if a time to live is negative or the hard time to live is lower than the soft one
+     */
+    public RefreshAhead(long softTTL, long hardTTL, Executor executor) throws NullPointerException,
+            IllegalArgumentException {
+        if (executor == null) {
+            throw new NullPointerException("No null executor accepted");
+        }
+        if (softTTL < 0) {
+            throw new IllegalArgumentException("Invalid soft time to live " + softTTL);
+        }
+        if (hardTTL < 0 || (hardTTL > 0 && hardTTL < softTTL)) {
+            throw new IllegalArgumentException("Invalid hard time to live " + hardTTL);
+        }
+
+        //
+        this.softTTL = softTTL;
+        this.hardTTL = hardTTL;
+        this.executor = executor;
+    }
+
+    public long getSoftTTL() {
+        return softTTL;
+    }
+
+    public long getHardTTL() {
+        return hardTTL;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Stop the executor when it is an executor service, the pending reloads are discarded.
+     */
+    public void shutdown() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    boolean isStale(long age) {
+        return age >= softTTL;
+    }
+
+    boolean isExpired(long age) {
+        return hardTTL > 0 && age >= hardTTL;
+    }
+}
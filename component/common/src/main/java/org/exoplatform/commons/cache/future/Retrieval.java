@@ -19,10 +19,18 @@ class Retrieval<K, V, C> implements Callable<V> {
     /** . */
     final FutureTask<V> future;
 
+    /** Whether the retrieval reloads a stale value. */
+    private final boolean refresh;
+
     /** Avoid reentrancy. */
     transient Thread current;
 
     public Retrieval(C context, K key, FutureCache<K, V, C> cache) {
+        this(context, key, cache, false);
+    }
+
+    public Retrieval(C context, K key, FutureCache<K, V, C> cache, boolean refresh) {
+        this.refresh = refresh;
         this.key = key;
         this.context = context;
         this.future = new FutureTask<V>(this);
@@ -32,16 +40,43 @@ class Retrieval<K, V, C> implements Callable<V> {
 
     public V call() throws Exception {
         // Retrieve the value from the loader
-        V value = cache.loader.retrieve(context, key);
+        V value;
+        long invalidations = cache.invalidations.get();
+        long time = System.nanoTime();
+        try {
+            value = refresh ? cache.refresh(context, key) : cache.loader.retrieve(context, key);
+        } finally {
+            cache.loads.incrementAndGet();
+            cache.loadTime.addAndGet(System.nanoTime() - time);
+        }
 
         //
         if (value != null) {
+            if (refresh && invalidations != cache.invalidations.get()) {
+                // The value may have been read before an invalidation, it is returned but not cached
+                return value;
+            }
+
+            // Record its age
+            cache.loaded(key, value);
+
             // Cache it, it is made available to other threads (unless someone removes it)
             cache.put(key, value);
 
+            // Lost the race with an invalidation, discard what was just cached
+            if (refresh && invalidations != cache.invalidations.get()) {
+                cache.forget(key);
+                cache.remove(key);
+            }
+
             // Return value
             return value;
         } else {
+            if (refresh) {
+                // The stale value does not exist anymore
+                cache.forget(key);
+                cache.remove(key);
+            }
             return null;
         }
     }
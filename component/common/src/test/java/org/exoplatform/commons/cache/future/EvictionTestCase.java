@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.cache.future;
+
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+public class EvictionTestCase extends TestCase {
+
+    private static Callable<String> value(final String value) {
+        return new Callable<String>() {
+            public String call() throws Exception {
+                return value;
+            }
+        };
+    }
+
+    public void testMaxSize() {
+        FutureMap<String, String, Callable<String>> futureCache = new FutureMap<String, String, Callable<String>>(
+                new StringLoader(), 2, 0);
+        futureCache.get(value("a_value"), "a");
+        futureCache.get(value("b_value"), "b");
+
+        // Make a the most recently used
+        assertEquals("a_value", futureCache.get(value("fail"), "a"));
+        futureCache.get(value("c_value"), "c");
+        assertEquals(2, futureCache.getSize());
+        assertTrue(futureCache.data.containsKey("a"));
+        assertFalse(futureCache.data.containsKey("b"));
+        assertTrue(futureCache.data.containsKey("c"));
+        assertEquals(1, futureCache.getEvictionCount());
+    }
+
+    public void testAmortizedEviction() {
+        FutureMap<String, String, Callable<String>> futureCache = new FutureMap<String, String, Callable<String>>(
+                new StringLoader(), 32, 0);
+        for (int i = 0; i < 32; i++) {
+            futureCache.get(value("value"), "key" + i);
+        }
+        assertEquals(32, futureCache.getSize());
+        assertEquals(0, futureCache.getEvictionCount());
+
+        // Exceeding the bound frees one sixteenth of it, the least recently used entries first
+        futureCache.get(value("value"), "key32");
+        assertEquals(30, futureCache.getSize());
+        assertEquals(3, futureCache.getEvictionCount());
+        assertFalse(futureCache.data.containsKey("key0"));
+        assertFalse(futureCache.data.containsKey("key2"));
+        assertTrue(futureCache.data.containsKey("key3"));
+        assertTrue(futureCache.data.containsKey("key32"));
+
+        // The next insertions do not evict until the bound is exceeded again
+        futureCache.get(value("value"), "key33");
+        futureCache.get(value("value"), "key34");
+        assertEquals(32, futureCache.getSize());
+        assertEquals(3, futureCache.getEvictionCount());
+    }
+
+    public void testMaxWeight() {
+        FutureMap<String, String, Callable<String>> futureCache = new FutureMap<String, String, Callable<String>>(
+                new StringLoader(), 0, 10) {
+            @Override
+            protected long weigh(String value) {
+                return value.length();
+            }
+        };
+        futureCache.get(value("aaaa"), "a");
+        futureCache.get(value("bbbb"), "b");
+        assertEquals(8, futureCache.getWeight());
+        futureCache.get(value("cccccc"), "c");
+        assertEquals(10, futureCache.getWeight());
+        assertFalse(futureCache.data.containsKey("a"));
+        assertTrue(futureCache.data.containsKey("b"));
+        assertTrue(futureCache.data.containsKey("c"));
+
+        // An entry heavier than the bound is kept alone
+        futureCache.get(value("dddddddddddd"), "d");
+        assertEquals(1, futureCache.getSize());
+        assertEquals(12, futureCache.getWeight());
+        assertEquals(3, futureCache.getEvictionCount());
+
+        //
+        futureCache.remove("d");
+        assertEquals(0, futureCache.getWeight());
+        futureCache.get(value("aaaa"), "a");
+        futureCache.clear();
+        assertEquals(0, futureCache.getSize());
+        assertEquals(0, futureCache.getWeight());
+    }
+
+    public void testCounters() {
+        FutureMap<String, String, Callable<String>> futureCache = new FutureMap<String, String, Callable<String>>(
+                new StringLoader());
+        futureCache.get(value("a_value"), "a");
+        futureCache.get(value("a_value"), "a");
+        futureCache.get(value("a_value"), "a");
+        futureCache.get(value(null), "b");
+        assertEquals(2, futureCache.getHitCount());
+        assertEquals(2, futureCache.getMissCount());
+        assertEquals(2, futureCache.getLoadCount());
+        assertEquals(0, futureCache.getEvictionCount());
+    }
+}
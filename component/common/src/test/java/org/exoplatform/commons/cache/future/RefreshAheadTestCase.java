@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.commons.cache.future;
+
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import junit.framework.TestCase;
+
+public class RefreshAheadTestCase extends TestCase {
+
+    /** . */
+    private final LinkedList<Runnable> tasks = new LinkedList<Runnable>();
+
+    /** . */
+    private long time;
+
+    /** . */
+    private boolean rejecting;
+
+    private static Callable<String> value(final String value) {
+        return new Callable<String>() {
+            public String call() throws Exception {
+                return value;
+            }
+        };
+    }
+
+    private FutureMap<String, String, Callable<String>> create(long softTTL, long hardTTL) {
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+                if (rejecting) {
+                    throw new RejectedExecutionException();
+                }
+                tasks.add(command);
+            }
+        };
+        return new FutureMap<String, String, Callable<String>>(new StringLoader(), 0, 0, new RefreshAhead(softTTL, hardTTL,
+                executor)) {
+            @Override
+            long now() {
+                return time;
+            }
+        };
+    }
+
+    public void testStaleWhileRevalidate() {
+        FutureMap<String, String, Callable<String>> futureCache = create(10, 100);
+        assertEquals("foo_value", futureCache.get(value("foo_value"), "foo"));
+        assertEquals(1, futureCache.getLoadCount());
+
+        // Fresh
+        time = 5;
+        assertEquals("foo_value", futureCache.get(value("bar_value"), "foo"));
+        assertEquals(0, tasks.size());
+
+        // Stale, a single reload is scheduled
+        time = 15;
+        assertEquals("foo_value", futureCache.get(value("bar_value"), "foo"));
+        assertEquals("foo_value", futureCache.get(value("juu_value"), "foo"));
+        assertEquals(1, tasks.size());
+        assertEquals(1, futureCache.getLoadCount());
+
+        // Reload
+        tasks.removeFirst().run();
+        assertEquals(2, futureCache.getLoadCount());
+        assertEquals("bar_value", futureCache.data.get("foo"));
+
+        // Fresh again
+        time = 20;
+        assertEquals("bar_value", futureCache.get(value("juu_value"), "foo"));
+        assertEquals(0, tasks.size());
+    }
+
+    public void testHardExpiration() {
+        FutureMap<String, String, Callable<String>> futureCache = create(10, 100);
+        assertEquals("foo_value", futureCache.get(value("foo_value"), "foo"));
+
+        // Expired, the value is loaded again by the lookup
+        time = 100;
+        assertEquals("bar_value", futureCache.get(value("bar_value"), "foo"));
+        assertEquals(0, tasks.size());
+        assertEquals(2, futureCache.getLoadCount());
+    }
+
+    public void testRefreshRemoves() {
+        FutureMap<String, String, Callable<String>> futureCache = create(10, 0);
+        assertEquals("foo_value", futureCache.get(value("foo_value"), "foo"));
+
+        // No hard expiration
+        time = 1000;
+        assertEquals("foo_value", futureCache.get(value(null), "foo"));
+        assertEquals(1, tasks.size());
+
+        // The value does not exist anymore
+        tasks.removeFirst().run();
+        assertFalse(futureCache.data.containsKey("foo"));
+        assertEquals(null, futureCache.get(value(null), "foo"));
+    }
+
+    public void testRefreshFailure() {
+        FutureMap<String, String, Callable<String>> futureCache = create(10, 0);
+        assertEquals("foo_value", futureCache.get(value("foo_value"), "foo"));
+
+        // A failing reload keeps the stale value
+        time = 20;
+        assertEquals("foo_value", futureCache.get(new Callable<String>() {
+            public String call() throws Exception {
+                throw new Exception("Expected");
+            }
+        }, "foo"));
+        tasks.removeFirst().run();
+        assertEquals("foo_value", futureCache.get(value("bar_value"), "foo"));
+        assertEquals(1, tasks.size());
+    }
+
+    public void testRefreshAcrossInvalidation() {
+        final FutureMap<String, String, Callable<String>> futureCache = create(10, 0);
+        assertEquals("foo_value", futureCache.get(value("foo_value"), "foo"));
+
+        // The value is invalidated while it is reloaded
+        time = 15;
+        assertEquals("foo_value", futureCache.get(new Callable<String>() {
+            public String call() throws Exception {
+                futureCache.remove("foo");
+                return "bar_value";
+            }
+        }, "foo"));
+        tasks.removeFirst().run();
+
+        // The reloaded value may predate the invalidation, it is not cached
+        assertFalse(futureCache.data.containsKey("foo"));
+        assertEquals("juu_value", futureCache.get(value("juu_value"), "foo"));
+    }
+
+    public void testRejectedRefresh() {
+        FutureMap<String, String, Callable<String>> futureCache = create(10, 100);
+        assertEquals("foo_value", futureCache.get(value("foo_value"), "foo"));
+
+        // The reload is dropped and the stale value is served
+        time = 15;
+        rejecting = true;
+        assertEquals("foo_value", futureCache.get(value("bar_value"), "foo"));
+        assertEquals(1, futureCache.getLoadCount());
+
+        // A later lookup schedules the reload
+        rejecting = false;
+        assertEquals("foo_value", futureCache.get(value("bar_value"), "foo"));
+        assertEquals(1, tasks.size());
+    }
+
+    public void testReplacedValueIsFresh() {
+        FutureMap<String, String, Callable<String>> futureCache = create(10, 100);
+        assertEquals("foo_value", futureCache.get(value("foo_value"), "foo"));
+
+        // A value put in the cache by another mean has its own age
+        time = 15;
+        String replaced = new String("bar_value");
+        futureCache.data.put("foo", replaced);
+        assertSame(replaced, futureCache.get(value("juu_value"), "foo"));
+        assertEquals(0, tasks.size());
+
+        // And becomes stale after the soft time to live
+        time = 30;
+        assertSame(replaced, futureCache.get(value("juu_value"), "foo"));
+        assertEquals(1, tasks.size());
+    }
+
+    public void testRefreshContextClassLoader() throws Exception {
+        FutureMap<String, String, Callable<String>> futureCache = create(10, 0);
+        assertEquals("foo_value", futureCache.get(value("foo_value"), "foo"));
+
+        // The reload uses the context class loader of the lookup
+        ClassLoader lookupLoader = new ClassLoader(getClass().getClassLoader()) {
+        };
+        final ClassLoader[] refreshLoader = new ClassLoader[1];
+        time = 15;
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        thread.setContextClassLoader(lookupLoader);
+        try {
+            futureCache.get(new Callable<String>() {
+                public String call() throws Exception {
+                    refreshLoader[0] = Thread.currentThread().getContextClassLoader();
+                    return "bar_value";
+                }
+            }, "foo");
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+        tasks.removeFirst().run();
+        assertSame(lookupLoader, refreshLoader[0]);
+        assertSame(previous, thread.getContextClassLoader());
+    }
+}
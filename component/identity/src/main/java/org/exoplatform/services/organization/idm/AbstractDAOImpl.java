@@ -73,4 +73,46 @@ public class AbstractDAOImpl {
     protected IdentitySession getIdentitySession() throws Exception {
         return service_.getIdentitySession();
     }
+
+    /**
+     * Returns the integration cache or null when it is not configured.
+     *
+     * @return the integration cache
+     */
+    protected IntegrationCache getIntegrationCache() {
+        // TODO: refactor to remove cast. For now to avoid adding new config option and share existing cache instannce
+        // TODO: it should be there.
+        return ((PicketLinkIDMServiceImpl) service_).getIntegrationCache();
+    }
+
+    /**
+     * Returns namespace to be used with integration cache
+     *
+     * @return
+     */
+    protected String getCacheNS() {
+        // TODO: refactor to remove cast. For now to avoid adding new config option and share existing cache instannce
+        // TODO: it should be there.
+        return ((PicketLinkIDMServiceImpl) service_).getRealmName();
+    }
+
+    /**
+     * Invalidate the cached memberships and groups of a user.
+     *
+     * @param userName the user name
+     */
+    protected void invalidateUser(String userName) {
+        if (getIntegrationCache() != null) {
+            getIntegrationCache().invalidateUser(getCacheNS(), userName);
+        }
+    }
+
+    /**
+     * Invalidate the cached memberships and groups of all users.
+     */
+    protected void invalidateUsers() {
+        if (getIntegrationCache() != null) {
+            getIntegrationCache().invalidateUsers(getCacheNS());
+        }
+    }
 }
@@ -145,6 +145,7 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
             preSave(group, false);
         }
         persistGroup(group);
+        invalidateUsers();
         if (broadcast) {
             postSave(group, false);
         }
@@ -219,6 +220,8 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
             handleException("Cannot remove group: " + plGroupName + "; ", e);
         }
 
+        invalidateUsers();
+
         if (broadcast) {
             postDelete(group);
         }
@@ -422,6 +425,29 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
             return Collections.emptyList();
         }
 
+        IntegrationCache cache = getIntegrationCache();
+
+        // Read before the lookup so that an invalidation racing with the load below is detected
+        long generation = cache != null ? cache.getUserGeneration(getCacheNS(), user) : 0;
+
+        if (cache != null) {
+            List<ExtGroup> cachedGroups = cache.getGroupsOfUser(getCacheNS(), user);
+
+            if (cachedGroups != null) {
+                // Copy the cached groups as callers may modify the returned ones
+                List<Group> exoGroups = new LinkedList<Group>();
+                for (ExtGroup cachedGroup : cachedGroups) {
+                    exoGroups.add(copyGroup(cachedGroup));
+                }
+
+                if (log.isTraceEnabled()) {
+                    Tools.logMethodOut(log, LogLevel.TRACE, "findGroupsOfUser", exoGroups);
+                }
+
+                return exoGroups;
+            }
+        }
+
         Collection<org.picketlink.idm.api.Group> allGroups = new HashSet();
 
         try {
@@ -436,9 +462,23 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
 
         List<Group> exoGroups = new LinkedList<Group>();
 
+        ArrayList<ExtGroup> cachedGroups = cache != null ? new ArrayList<ExtGroup>(allGroups.size()) : null;
+
         for (org.picketlink.idm.api.Group group : allGroups) {
-            exoGroups.add(convertGroup(group));
+            Group exoGroup = convertGroup(group);
+            exoGroups.add(exoGroup);
+            if (cachedGroups != null) {
+                if (exoGroup instanceof ExtGroup) {
+                    cachedGroups.add(copyGroup((ExtGroup) exoGroup));
+                } else {
+                    cachedGroups = null;
+                }
+            }
+
+        }
 
+        if (cachedGroups != null) {
+            cache.putGroupsOfUser(getCacheNS(), user, cachedGroups, generation);
         }
 
         if (log.isTraceEnabled()) {
@@ -766,23 +806,6 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
         return jbidGroup;
     }
 
-    private IntegrationCache getIntegrationCache() {
-        // TODO: refactor to remove cast. For now to avoid adding new config option and share existing cache instannce
-        // TODO: it should be there.
-        return ((PicketLinkIDMServiceImpl) service_).getIntegrationCache();
-    }
-
-    /**
-     * Returns namespace to be used with integration cache
-     *
-     * @return
-     */
-    private String getCacheNS() {
-        // TODO: refactor to remove cast. For now to avoid adding new config option and share existing cache instannce
-        // TODO: it should be there.
-        return ((PicketLinkIDMServiceImpl) service_).getRealmName();
-    }
-
     /**
      * Returns mock of PLIDM group representing "/" group. This method uses cache and delegates to obtainRootGroup().
      *
@@ -837,6 +860,15 @@ public class GroupDAOImpl extends AbstractDAOImpl implements GroupHandler {
         return rootGroup;
     }
 
+    private ExtGroup copyGroup(ExtGroup group) {
+        ExtGroup copy = new ExtGroup(group.getGroupName());
+        copy.setId(group.getId());
+        copy.setParentId(group.getParentId());
+        copy.setLabel(group.getLabel());
+        copy.setDescription(group.getDescription());
+        return copy;
+    }
+
     public String getPLIDMGroupName(String gtnGroupName) {
         return orgService.getConfiguration().getPLIDMGroupName(gtnGroupName);
     }
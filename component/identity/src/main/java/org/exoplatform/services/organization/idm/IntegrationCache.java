@@ -1,5 +1,9 @@
 package org.exoplatform.services.organization.idm;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.exoplatform.services.organization.Query;
 import org.gatein.common.NotYetImplemented;
 import org.gatein.common.logging.Logger;
@@ -49,6 +53,24 @@ public class IntegrationCache extends AbstractInfinispanCacheProvider {
 
     public static final String NODE_OBJECT_KEY = "object";
 
+    public static final String NODE_GTN_USER_MEMBERSHIPS = "NODE_GTN_USER_MEMBERSHIPS";
+
+    public static final String NODE_GTN_USER_GROUPS = "NODE_GTN_USER_GROUPS";
+
+    public static final String NODE_GTN_USER_GENERATION = "NODE_GTN_USER_GENERATION";
+
+    /** The key of the counter bumped by any user invalidation, stored in the generation root node. */
+    private static final String NODE_COUNTER_KEY = "counter";
+
+    /** The key of the counter value at the last invalidation of all users, stored in the generation root node. */
+    private static final String NODE_USERS_GENERATION_KEY = "users";
+
+    /** The number of membership and group lookups by user found in the cache. */
+    private final AtomicLong userHits = new AtomicLong();
+
+    /** The number of membership and group lookups by user not found in the cache. */
+    private final AtomicLong userMisses = new AtomicLong();
+
     @Override
     protected String getRootNode() {
         return MAIN_ROOT;
@@ -216,4 +238,197 @@ public class IntegrationCache extends AbstractInfinispanCacheProvider {
 
         return sb.toString();
     }
+
+    /**
+     * Store the ids of the memberships of a user, unless the user was invalidated since the given generation was read
+     *
+     * @param ns
+     * @param userName
+     * @param membershipIds
+     * @param generation the generation read with {@link #getUserGeneration(String, String)} before loading the memberships
+     */
+    void putMembershipIds(String ns, String userName, ArrayList<String> membershipIds, long generation) {
+        putUserEntry(ns, NODE_GTN_USER_MEMBERSHIPS, userName, membershipIds, generation);
+    }
+
+    /**
+     * Retrieve the ids of the memberships of a user
+     *
+     * @param ns
+     * @param userName
+     * @return the membership ids or null
+     */
+    List<String> getMembershipIds(String ns, String userName) {
+        return (List<String>) getUserEntry(ns, NODE_GTN_USER_MEMBERSHIPS, userName);
+    }
+
+    /**
+     * Store the groups of a user, unless the user was invalidated since the given generation was read
+     *
+     * @param ns
+     * @param userName
+     * @param groups
+     * @param generation the generation read with {@link #getUserGeneration(String, String)} before loading the groups
+     */
+    void putGroupsOfUser(String ns, String userName, ArrayList<ExtGroup> groups, long generation) {
+        putUserEntry(ns, NODE_GTN_USER_GROUPS, userName, groups, generation);
+    }
+
+    /**
+     * Retrieve the groups of a user
+     *
+     * @param ns
+     * @param userName
+     * @return the groups or null
+     */
+    List<ExtGroup> getGroupsOfUser(String ns, String userName) {
+        return (List<ExtGroup>) getUserEntry(ns, NODE_GTN_USER_GROUPS, userName);
+    }
+
+    /**
+     * Returns the generation of the entries of a user. It must be read before loading the entries to store and then
+     * passed to the put methods, so that entries loaded concurrently with {@link #invalidateUser(String, String)} or
+     * {@link #invalidateUsers(String)} are not cached. The generation only grows: each invalidation sets it to a fresh
+     * value of a counter shared by all the users of the namespace.
+     *
+     * @param ns
+     * @param userName
+     * @return the generation
+     */
+    long getUserGeneration(String ns, String userName) {
+        long users = 0;
+        Node root = getNode(getFqn(ns, NODE_GTN_USER_GENERATION));
+        if (root != null) {
+            Long value = (Long) root.get(NODE_USERS_GENERATION_KEY);
+            users = value != null ? value : 0;
+        }
+        long user = 0;
+        Node node = getNode(getFqn(ns, NODE_GTN_USER_GENERATION, userName));
+        if (node != null) {
+            Long value = (Long) node.get(NODE_OBJECT_KEY);
+            user = value != null ? value : 0;
+        }
+        return Math.max(users, user);
+    }
+
+    private synchronized long nextGeneration(String ns) {
+        Node root = addNode(getFqn(ns, NODE_GTN_USER_GENERATION));
+        if (root == null) {
+            return 0;
+        }
+        Long counter = (Long) root.get(NODE_COUNTER_KEY);
+        long next = (counter != null ? counter : 0) + 1;
+        root.put(NODE_COUNTER_KEY, next);
+        return next;
+    }
+
+    private void putUserEntry(String ns, String type, String userName, Object entry, long generation) {
+        if (getUserGeneration(ns, userName) != generation) {
+            return;
+        }
+
+        Node ioNode = addNode(getFqn(ns, type, userName));
+
+        if (ioNode != null) {
+            ioNode.put(NODE_OBJECT_KEY, entry);
+
+            // The invalidation bumps the generation before removing the entries, so an invalidation that ran between
+            // the check above and the put is seen here and the entry it missed is removed
+            if (getUserGeneration(ns, userName) != generation) {
+                ioNode.remove(NODE_OBJECT_KEY);
+                return;
+            }
+
+            if (log.isTraceEnabled()) {
+                log.trace(this.toString() + "GateIn user entry cached. User: " + userName + ";type=" + type + ";namespace=" + ns);
+            }
+        }
+    }
+
+    private Object getUserEntry(String ns, String type, String userName) {
+        Node node = getNode(getFqn(ns, type, userName));
+
+        Object entry = node != null ? node.get(NODE_OBJECT_KEY) : null;
+
+        if (entry != null) {
+            userHits.incrementAndGet();
+
+            if (log.isTraceEnabled()) {
+                log.trace(this.toString() + "GateIn user entry found in cache. User: " + userName + ";type=" + type
+                        + ";namespace=" + ns);
+            }
+        } else {
+            userMisses.incrementAndGet();
+        }
+
+        return entry;
+    }
+
+    /**
+     * Invalidate the memberships and groups of a user
+     *
+     * @param ns
+     * @param userName
+     */
+    void invalidateUser(String ns, String userName) {
+        Node generationNode = addNode(getFqn(ns, NODE_GTN_USER_GENERATION, userName));
+        if (generationNode != null) {
+            generationNode.put(NODE_OBJECT_KEY, nextGeneration(ns));
+        }
+
+        for (String type : new String[] { NODE_GTN_USER_MEMBERSHIPS, NODE_GTN_USER_GROUPS }) {
+            Node node = getNode(getFqn(ns, type, userName));
+
+            if (node != null) {
+                node.remove(NODE_OBJECT_KEY);
+            }
+        }
+
+        if (log.isTraceEnabled()) {
+            log.trace(this.toString() + "GateIn user entries invalidated. User: " + userName + ";namespace=" + ns);
+        }
+    }
+
+    /**
+     * Invalidate the memberships and groups of all users
+     *
+     * @param ns
+     */
+    void invalidateUsers(String ns) {
+        long generation = nextGeneration(ns);
+        Node root = getNode(getFqn(ns, NODE_GTN_USER_GENERATION));
+        if (root != null) {
+            root.put(NODE_USERS_GENERATION_KEY, generation);
+        }
+
+        for (String type : new String[] { NODE_GTN_USER_MEMBERSHIPS, NODE_GTN_USER_GROUPS }) {
+            Node node = getNode(getFqn(ns, type));
+
+            if (node != null) {
+                node.removeChildren();
+            }
+        }
+
+        if (log.isTraceEnabled()) {
+            log.trace(this.toString() + "GateIn user entries invalidated;namespace=" + ns);
+        }
+    }
+
+    /**
+     * Returns the number of membership and group lookups by user found in the cache
+     *
+     * @return the hit count
+     */
+    public long getUserHitCount() {
+        return userHits.get();
+    }
+
+    /**
+     * Returns the number of membership and group lookups by user not found in the cache
+     *
+     * @return the miss count
+     */
+    public long getUserMissCount() {
+        return userMisses.get();
+    }
 }
@@ -19,6 +19,7 @@
 
 package org.exoplatform.services.organization.idm;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -145,6 +146,8 @@ public class MembershipDAOImpl extends AbstractDAOImpl implements MembershipHand
             getIdentitySession().getRoleManager().createRole(mt.getName(), user.getUserName(), groupId);
         }
 
+        invalidateUser(user.getUserName());
+
         if (broadcast) {
             postSave(membership, true);
         }
@@ -201,6 +204,8 @@ public class MembershipDAOImpl extends AbstractDAOImpl implements MembershipHand
             }
         }
 
+        invalidateUser(m.getUserName());
+
         if (broadcast) {
             postSave(m, false);
         }
@@ -270,6 +275,8 @@ public class MembershipDAOImpl extends AbstractDAOImpl implements MembershipHand
             }
         }
 
+        invalidateUser(m.getUserName());
+
         if (broadcast) {
             postDelete(m);
         }
@@ -344,6 +351,8 @@ public class MembershipDAOImpl extends AbstractDAOImpl implements MembershipHand
 
         }
 
+        invalidateUser(userName);
+
         // TODO: Exo UI has hardcoded casts to List
         return new LinkedList(memberships);
 
@@ -489,6 +498,28 @@ public class MembershipDAOImpl extends AbstractDAOImpl implements MembershipHand
             Tools.logMethodIn(log, LogLevel.TRACE, "findMembershipsByUser", new Object[] { "userName", userName });
         }
 
+        IntegrationCache cache = getIntegrationCache();
+
+        // Read before the lookup so that an invalidation racing with the load below is detected
+        long generation = cache != null ? cache.getUserGeneration(getCacheNS(), userName) : 0;
+
+        if (cache != null) {
+            List<String> membershipIds = cache.getMembershipIds(getCacheNS(), userName);
+
+            if (membershipIds != null) {
+                Collection result = new LinkedList();
+                for (String membershipId : membershipIds) {
+                    result.add(new MembershipImpl(membershipId));
+                }
+
+                if (log.isTraceEnabled()) {
+                    Tools.logMethodOut(log, LogLevel.TRACE, "findMembershipsByUser", result);
+                }
+
+                return result;
+            }
+        }
+
         orgService.flush();
 
         Collection<Role> roles = new HashSet();
@@ -546,6 +577,14 @@ public class MembershipDAOImpl extends AbstractDAOImpl implements MembershipHand
 
         Collection result = new LinkedList(memberships);
 
+        if (cache != null) {
+            ArrayList<String> membershipIds = new ArrayList<String>(memberships.size());
+            for (MembershipImpl membership : memberships) {
+                membershipIds.add(membership.getId());
+            }
+            cache.putMembershipIds(getCacheNS(), userName, membershipIds, generation);
+        }
+
         if (log.isTraceEnabled()) {
             Tools.logMethodOut(log, LogLevel.TRACE, "findMembershipsByUser", result);
         }
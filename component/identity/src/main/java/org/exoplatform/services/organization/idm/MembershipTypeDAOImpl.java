@@ -173,6 +173,8 @@ public class MembershipTypeDAOImpl extends AbstractDAOImpl implements Membership
                 handleException("Error occured when removing membership type", e);
             }
 
+            invalidateUsers();
+
             if (broadcast) {
                 postDelete(mt);
             }
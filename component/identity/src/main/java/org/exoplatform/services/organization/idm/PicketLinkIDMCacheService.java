@@ -108,6 +108,37 @@ public class PicketLinkIDMCacheService {
         }
     }
 
+    @Managed
+    @ManagedDescription("The number of memberships and groups of user lookups found in the integration caches")
+    @Impact(ImpactType.READ)
+    public long getUserCacheHitCount() {
+        long count = 0;
+        for (IntegrationCache cacheProvider : integrationCache) {
+            count += cacheProvider.getUserHitCount();
+        }
+        return count;
+    }
+
+    @Managed
+    @ManagedDescription("The number of memberships and groups of user lookups not found in the integration caches")
+    @Impact(ImpactType.READ)
+    public long getUserCacheMissCount() {
+        long count = 0;
+        for (IntegrationCache cacheProvider : integrationCache) {
+            count += cacheProvider.getUserMissCount();
+        }
+        return count;
+    }
+
+    @Managed
+    @ManagedDescription("The ratio of memberships and groups of user lookups found in the integration caches")
+    @Impact(ImpactType.READ)
+    public double getUserCacheHitRatio() {
+        long hits = getUserCacheHitCount();
+        long total = hits + getUserCacheMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
     @Managed
     @ManagedDescription("Print content of all caches")
     @Impact(ImpactType.READ)
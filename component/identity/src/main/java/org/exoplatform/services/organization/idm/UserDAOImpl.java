@@ -651,23 +651,6 @@ public class UserDAOImpl extends AbstractDAOImpl implements UserHandler {
         return orgService;
     }
 
-    private IntegrationCache getIntegrationCache() {
-        // TODO: refactor to remove cast. For now to avoid adding new config option and share existing cache instannce
-        // TODO: it should be there.
-        return ((PicketLinkIDMServiceImpl) service_).getIntegrationCache();
-    }
-
-    /**
-     * Returns namespace to be used with integration cache
-     *
-     * @return
-     */
-    private String getCacheNS() {
-        // TODO: refactor to remove cast. For now to avoid adding new config option and share existing cache instannce
-        // TODO: it should be there.
-        return ((PicketLinkIDMServiceImpl) service_).getRealmName();
-    }
-
     // Field displayName is not mandatory. We need to handle situation when user deleted displayName, which had been set
     // previously.
     // We need to ask if current User has displayName set previously and if yes, it needs to be removed.
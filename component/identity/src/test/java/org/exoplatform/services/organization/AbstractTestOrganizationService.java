@@ -497,6 +497,61 @@ public class AbstractTestOrganizationService {
         mtHandler_.removeMembershipType("membershipType3", true);
     }
 
+    @Test
+    public void testMembershipsOfUserCache() throws Exception {
+        String Benj = "BC";
+        User userBenj = createUser(Benj);
+
+        Group group1 = groupHandler_.createGroupInstance();
+        group1.setGroupName("GC1");
+        groupHandler_.addChild(null, group1, true);
+        Group group2 = groupHandler_.createGroupInstance();
+        group2.setGroupName("GC2");
+        groupHandler_.addChild(null, group2, true);
+
+        MembershipType mt = mtHandler_.createMembershipTypeInstance();
+        mt.setName("cachemembership");
+        mtHandler_.createMembershipType(mt, true);
+
+        membershipHandler_.linkMembership(userBenj, group1, mt, true);
+
+        // Lookups done twice, the second one is served by the cache when it is enabled
+        for (int i = 0; i < 2; i++) {
+            assertEquals(2, membershipHandler_.findMembershipsByUser(Benj).size());
+            assertEquals(2, groupHandler_.findGroupsOfUser(Benj).size());
+        }
+
+        // Modifying a returned group does not change the next lookups
+        for (Object o : groupHandler_.findGroupsOfUser(Benj)) {
+            ((Group) o).setLabel("modified");
+        }
+        for (Object o : groupHandler_.findGroupsOfUser(Benj)) {
+            assertFalse("modified".equals(((Group) o).getLabel()));
+        }
+
+        // A new membership is visible
+        membershipHandler_.linkMembership(userBenj, group2, mt, true);
+        assertEquals(3, membershipHandler_.findMembershipsByUser(Benj).size());
+        assertEquals(3, groupHandler_.findGroupsOfUser(Benj).size());
+
+        // A removed membership is not visible anymore
+        String memId = membershipHandler_.findMembershipByUserGroupAndType(Benj, group1.getId(), "cachemembership").getId();
+        membershipHandler_.removeMembership(memId, true);
+        assertEquals(2, membershipHandler_.findMembershipsByUser(Benj).size());
+        assertEquals(2, groupHandler_.findGroupsOfUser(Benj).size());
+
+        // A removed group is not visible anymore
+        groupHandler_.removeGroup(group2, true);
+        assertEquals(1, groupHandler_.findGroupsOfUser(Benj).size());
+
+        membershipHandler_.removeMembershipByUser(Benj, true);
+        assertTrue(membershipHandler_.findMembershipsByUser(Benj).isEmpty());
+
+        mtHandler_.removeMembershipType("cachemembership", true);
+        userHandler_.removeUser(Benj, true);
+        groupHandler_.removeGroup(group1, true);
+    }
+
     @Test
     public void testRemoveMembershipByUser() throws Exception {
         String Benj = "B";
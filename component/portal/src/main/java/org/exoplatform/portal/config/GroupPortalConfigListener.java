@@ -65,6 +65,19 @@ public class GroupPortalConfigListener extends GroupEventListener {
         }
     }
 
+    @Override
+    public void postDelete(Group group) throws Exception {
+        // The groups having a navigation shared by the users may have changed
+        portalConfigService.getGroupNavigationCache().clear();
+    }
+
+    @Override
+    public void postSave(Group group, boolean isNew) throws Exception {
+        if (isNew) {
+            portalConfigService.getGroupNavigationCache().clear();
+        }
+    }
+
     @Override
     public void preSave(Group group, boolean isNew) throws Exception {
         if (!isNew) {
@@ -23,8 +23,11 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.exoplatform.container.xml.InitParams;
 import org.exoplatform.container.xml.ValueParam;
@@ -72,6 +75,16 @@ public class UserACL {
 
     private String adminMSType;
 
+    /** The maximum number of compiled permission expressions kept. */
+    private static final int MAX_EXPRESSIONS = 10000;
+
+    /** The compiled permission expressions. */
+    private final ConcurrentHashMap<String, PermissionExpression> expressions =
+            new ConcurrentHashMap<String, PermissionExpression>();
+
+    /** The decisions of the current request. */
+    private final ThreadLocal<Decisions> decisions = new ThreadLocal<Decisions>();
+
     @SuppressWarnings("unchecked")
     public UserACL(InitParams params) {
         UserACLMetaData md = new UserACLMetaData(params);
@@ -433,6 +446,47 @@ public class UserACL {
         return id;
     }
 
+    /**
+     * Begin to remember the permission decisions of the current thread until {@link #endRequest()} is called. The decisions
+     * made for the current identity are then computed once per permission expression, the memberships of the identity are
+     * therefore not expected to change until the end of the request. Calls can be nested, only the outermost end forgets the
+     * decisions.
+     */
+    public void beginRequest() {
+        Decisions current = decisions.get();
+        if (current == null) {
+            decisions.set(new Decisions());
+        } else {
+            current.depth++;
+        }
+    }
+
+    /**
+     * Forget the permission decisions remembered so far by the current thread, the remembering goes on. It is called once
+     * the action phase of a request is done as an action may change the memberships checked during the render phase.
+     */
+    public void clearDecisions() {
+        Decisions current = decisions.get();
+        if (current != null) {
+            current.identity = null;
+            current.granted.clear();
+        }
+    }
+
+    /**
+     * Stop to remember the permission decisions of the current thread.
+     */
+    public void endRequest() {
+        Decisions current = decisions.get();
+        if (current != null) {
+            if (current.depth == 0) {
+                decisions.remove();
+            } else {
+                current.depth--;
+            }
+        }
+    }
+
     public boolean hasPermission(Identity identity, String expPerm) {
         String currentUser = identity.getUserId();
         if (superUser_.equals(currentUser)) {
@@ -444,14 +498,43 @@ public class UserACL {
         if (EVERYONE.equals(expPerm)) {
             return true;
         }
-        Permission permission = new Permission();
-        permission.setPermissionExpression(expPerm);
-        String groupId = permission.getGroupId();
-        if ((currentUser == null || currentUser.equals(IdentityConstants.ANONIM)) && groupId.equals(guestGroup_)) {
+        Decisions current = decisions.get();
+        if (current == null) {
+            return isGranted(identity, expPerm);
+        }
+        if (current.identity != identity) {
+            current.identity = identity;
+            current.granted.clear();
+        }
+        Boolean granted = current.granted.get(expPerm);
+        if (granted == null) {
+            granted = isGranted(identity, expPerm);
+            current.granted.put(expPerm, granted);
+        }
+        return granted;
+    }
+
+    private boolean isGranted(Identity identity, String expPerm) {
+        PermissionExpression expression = compile(expPerm);
+        String currentUser = identity.getUserId();
+        if ((currentUser == null || currentUser.equals(IdentityConstants.ANONIM)) && expression.groupId.equals(guestGroup_)) {
             return true;
         }
-        String membership = permission.getMembership();
-        return identity.isMemberOf(groupId, membership);
+        return identity.isMemberOf(expression.groupId, expression.membership);
+    }
+
+    private PermissionExpression compile(String expPerm) {
+        PermissionExpression expression = expressions.get(expPerm);
+        if (expression == null) {
+            Permission permission = new Permission();
+            permission.setPermissionExpression(expPerm);
+            expression = new PermissionExpression(permission.getMembership(), permission.getGroupId());
+            if (expressions.size() >= MAX_EXPRESSIONS) {
+                expressions.clear();
+            }
+            expressions.put(expPerm, expression);
+        }
+        return expression;
     }
 
     private List<String> defragmentPermission(String permission) {
@@ -469,6 +552,38 @@ public class UserACL {
         return result;
     }
 
+    /**
+     * A parsed permission expression, the strings are interned as the same groups are used by many expressions.
+     */
+    private static final class PermissionExpression {
+
+        /** . */
+        private final String membership;
+
+        /** . */
+        private final String groupId;
+
+        private PermissionExpression(String membership, String groupId) {
+            this.membership = membership.intern();
+            this.groupId = groupId.intern();
+        }
+    }
+
+    /**
+     * The permission decisions made for an identity during a request.
+     */
+    private static final class Decisions {
+
+        /** . */
+        private Identity identity;
+
+        /** . */
+        private final Map<String, Boolean> granted = new HashMap<String, Boolean>();
+
+        /** The number of nested requests. */
+        private int depth;
+    }
+
     public static class Permission implements Serializable {
 
         private String name_;
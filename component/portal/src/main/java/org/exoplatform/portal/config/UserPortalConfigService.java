@@ -48,8 +48,14 @@ import org.exoplatform.portal.mop.navigation.NavigationState;
 import org.exoplatform.portal.mop.page.PageContext;
 import org.exoplatform.portal.mop.page.PageKey;
 import org.exoplatform.portal.mop.page.PageService;
+import org.exoplatform.portal.mop.EventType;
+import org.exoplatform.portal.mop.user.GroupNavigationCache;
 import org.exoplatform.portal.mop.user.UserNavigation;
 import org.exoplatform.portal.mop.user.UserPortalContext;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.listener.Event;
+import org.exoplatform.services.listener.Listener;
+import org.exoplatform.services.listener.ListenerService;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
 import org.exoplatform.services.organization.Group;
@@ -87,11 +93,14 @@ public class UserPortalConfigService implements Startable {
     /** . */
     private final ImportMode defaultImportMode;
 
+    /** The group navigations shared by users. */
+    private final GroupNavigationCache groupNavigationCache;
+
     private Log log = ExoLogger.getLogger("Portal:UserPortalConfigService");
 
     public UserPortalConfigService(UserACL userACL, DataStorage storage, OrganizationService orgService,
-            NavigationService navService, DescriptionService descriptionService, PageService pageService, InitParams params)
-            throws Exception {
+            NavigationService navService, DescriptionService descriptionService, PageService pageService,
+            ListenerService listenerService, CacheService cacheService, InitParams params) throws Exception {
 
         //
         ValueParam createUserPortalParam = params == null ? null : params.getValueParam("create.user.portal");
@@ -108,6 +117,26 @@ public class UserPortalConfigService implements Startable {
         ImportMode defaultImportMode = defaultImportModeParam == null ? ImportMode.CONSERVE : ImportMode
                 .valueOf(defaultImportModeParam.getValue().toUpperCase().trim());
 
+        //
+        ValueParam groupNavigationCacheSizeParam = params == null ? null : params
+                .getValueParam("group.navigation.cache.size");
+        int groupNavigationCacheSize = groupNavigationCacheSizeParam == null ? 0 : Integer
+                .parseInt(groupNavigationCacheSizeParam.getValue().trim());
+
+        // The creation, the update or the destruction of a group navigation changes the shared group navigations
+        final GroupNavigationCache groupNavigationCache = new GroupNavigationCache(cacheService, groupNavigationCacheSize);
+        Listener<?, SiteKey> invalidator = new Listener<Object, SiteKey>() {
+            @Override
+            public void onEvent(Event<Object, SiteKey> event) throws Exception {
+                if (event.getData().getType() == SiteType.GROUP) {
+                    groupNavigationCache.clear();
+                }
+            }
+        };
+        listenerService.addListener(EventType.NAVIGATION_CREATED, invalidator);
+        listenerService.addListener(EventType.NAVIGATION_UPDATED, invalidator);
+        listenerService.addListener(EventType.NAVIGATION_DESTROYED, invalidator);
+
         //
         this.storage_ = storage;
         this.orgService_ = orgService;
@@ -118,6 +147,7 @@ public class UserPortalConfigService implements Startable {
         this.createUserPortal = createUserPortal;
         this.destroyUserPortal = destroyUserPortal;
         this.defaultImportMode = defaultImportMode;
+        this.groupNavigationCache = groupNavigationCache;
     }
 
     public PageService getPageService() {
@@ -161,6 +191,10 @@ public class UserPortalConfigService implements Startable {
         return descriptionService;
     }
 
+    public GroupNavigationCache getGroupNavigationCache() {
+        return groupNavigationCache;
+    }
+
     public UserACL getUserACL() {
         return userACL_;
     }
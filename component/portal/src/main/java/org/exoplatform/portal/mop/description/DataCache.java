@@ -19,10 +19,18 @@
 
 package org.exoplatform.portal.mop.description;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
 import org.exoplatform.portal.mop.Described;
 import org.exoplatform.portal.mop.i18n.I18NAdapter;
 import org.exoplatform.portal.mop.i18n.Resolution;
 import org.exoplatform.portal.pom.config.POMSession;
+import org.gatein.mop.api.workspace.ObjectType;
 import org.gatein.mop.api.workspace.WorkspaceObject;
 
 /**
@@ -30,10 +38,96 @@ import org.gatein.mop.api.workspace.WorkspaceObject;
  */
 abstract class DataCache {
 
-    protected abstract void removeState(CacheKey key);
-
     protected abstract Described.State getState(POMSession session, CacheKey key);
 
+    /**
+     * Remove all the states of an object whatever their locale.
+     *
+     * @param id the object id
+     */
+    protected abstract void removeStates(String id);
+
+    /**
+     * Remove the states of an object resolved with a locale, that is the state of the locale and the states of the more
+     * specific locales falling back to it.
+     *
+     * @param id the object id
+     * @param locale the locale
+     */
+    protected abstract void removeStates(String id, Locale locale);
+
+    /**
+     * Returns true when a locale is resolved with an origin locale, that is when the origin locale is the locale or one of
+     * its parents.
+     *
+     * @param locale the locale
+     * @param origin the origin locale
+     * @return true when the locale is resolved with the origin locale
+     */
+    static boolean isResolvedWith(Locale locale, Locale origin) {
+        if (!locale.getLanguage().equals(origin.getLanguage())) {
+            return false;
+        } else if (origin.getCountry().length() == 0) {
+            return true;
+        } else if (!locale.getCountry().equals(origin.getCountry())) {
+            return false;
+        } else {
+            return origin.getVariant().length() == 0 || locale.getVariant().equals(origin.getVariant());
+        }
+    }
+
+    /**
+     * Returns the cached value of a key or null when the key is not cached.
+     *
+     * @param key the key
+     * @return the value
+     */
+    protected abstract CacheValue peekValue(CacheKey key);
+
+    /**
+     * Resolve the states of several objects for a locale, the cached values are looked up first and then the missing values
+     * are loaded together with the session.
+     *
+     * @param session the session
+     * @param locale the locale
+     * @param ids the object ids
+     * @return the resolved states keyed by object id, the objects having no state for the locale are not present
+     */
+    protected final Map<String, Described.State> getStates(POMSession session, Locale locale, Collection<String> ids) {
+        Map<String, Described.State> states = new HashMap<String, Described.State>(ids.size());
+        List<CacheKey> missing = null;
+        for (String id : ids) {
+            CacheKey key = new CacheKey(locale, id);
+            CacheValue value = peekValue(key);
+            if (value == null) {
+                if (missing == null) {
+                    missing = new ArrayList<CacheKey>();
+                }
+                missing.add(key);
+            } else if (value.state != null) {
+                states.put(id, value.state);
+            }
+        }
+        if (missing != null) {
+            if (missing.size() > 1) {
+                // Load the missing objects with a single query, they are the nodes of a navigation most of the time, the
+                // objects of other types are still found one by one
+                List<String> missingIds = new ArrayList<String>(missing.size());
+                for (CacheKey key : missing) {
+                    missingIds.add(key.id);
+                }
+                session.findObjectsById(ObjectType.NAVIGATION, missingIds);
+            }
+            for (CacheKey key : missing) {
+                CacheValue value = getValue(session, key);
+                if (value.state != null) {
+                    states.put(key.id, value.state);
+                }
+            }
+        }
+        return states;
+    }
+
     protected final CacheValue getValue(POMSession session, CacheKey key) {
         WorkspaceObject obj = session.findObjectById(key.id);
         I18NAdapter able = obj.adapt(I18NAdapter.class);
@@ -52,8 +146,12 @@ abstract class DataCache {
                 putValue(key, foo);
                 return foo;
             }
+        } else {
+            // Remember that the object has no state for this locale
+            CacheValue none = new CacheValue((Described.State) null);
+            putValue(key, none);
+            return none;
         }
-        return null;
     }
 
     protected abstract void putValue(CacheKey key, CacheValue value);
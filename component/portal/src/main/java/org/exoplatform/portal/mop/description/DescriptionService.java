@@ -19,6 +19,7 @@
 
 package org.exoplatform.portal.mop.description;
 
+import java.util.Collection;
 import java.util.Locale;
 import java.util.Map;
 
@@ -68,6 +69,26 @@ public interface DescriptionService {
      */
     Described.State resolveDescription(String id, Locale locale2, Locale locale1) throws NullPointerException;
 
+    /**
+     * <p>
+     * Resolve the descriptions of several objects with the same rules than
+     * {@link #resolveDescription(String, java.util.Locale, java.util.Locale)}, the descriptions missing from the cache are
+     * loaded at once. The absence of a description is cached as well, so resolving again objects having no description
+     * does not access the repository. The descriptions are cached per object and locale rather than per navigation and
+     * locale, so that saving the description of a node or moving it to another navigation only invalidates the entries of
+     * that node.
+     * </p>
+     *
+     * @param ids the object ids
+     * @param locale2 the first locale
+     * @param locale1 the second locale
+     * @return the descriptions keyed by object id, the objects that do not resolve are not present in the map
+     * @throws NullPointerException if the <code>ids</code> argument, one of the ids or the <code>locale1</code> argument is
+     *         null
+     */
+    Map<String, Described.State> resolveDescriptions(Collection<String> ids, Locale locale2, Locale locale1)
+            throws NullPointerException;
+
     /**
      * Returns the default description or null if it does not exist.
      *
@@ -19,8 +19,10 @@
 
 package org.exoplatform.portal.mop.description;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -80,6 +82,35 @@ public class DescriptionServiceImpl implements DescriptionService {
         return cache.getState(session, new CacheKey(locale, id));
     }
 
+    public Map<String, Described.State> resolveDescriptions(Collection<String> ids, Locale locale2, Locale locale1)
+            throws NullPointerException {
+        if (ids == null) {
+            throw new NullPointerException("No null ids accepted");
+        }
+        if (locale1 == null) {
+            throw new NullPointerException("No null locale accepted");
+        }
+        for (String id : ids) {
+            if (id == null) {
+                throw new NullPointerException("No null id accepted");
+            }
+        }
+
+        //
+        POMSession session = manager.getSession();
+        Map<String, Described.State> states = cache.getStates(session, locale1, ids);
+        if (locale2 != null && states.size() < ids.size()) {
+            List<String> missing = new ArrayList<String>(ids.size() - states.size());
+            for (String id : ids) {
+                if (!states.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            states.putAll(cache.getStates(session, locale2, missing));
+        }
+        return states;
+    }
+
     public Described.State getDescription(String id, Locale locale) {
         if (id == null) {
             throw new NullPointerException("No null id accepted");
@@ -105,7 +136,7 @@ public class DescriptionServiceImpl implements DescriptionService {
         WorkspaceObject obj = session.findObjectById(id);
         I18NAdapter able = obj.adapt(I18NAdapter.class);
         Described desc = able.getI18NMixin(Described.class, locale, true);
-        cache.removeState(new CacheKey(locale, id));
+        cache.removeStates(id, locale);
         desc.setState(description);
     }
 
@@ -160,10 +191,8 @@ public class DescriptionServiceImpl implements DescriptionService {
         POMSession session = manager.getSession();
         WorkspaceObject obj = session.findObjectById(id);
         I18NAdapter able = obj.adapt(I18NAdapter.class);
-        Collection<Locale> locales = able.removeI18NMixin(Described.class);
-        for (Locale locale : locales) {
-            cache.removeState(new CacheKey(locale, id));
-        }
+        able.removeI18NMixin(Described.class);
+        cache.removeStates(id);
 
         // Interface specifies it allows a null description map
         if (descriptions != null) {
@@ -19,24 +19,39 @@
 
 package org.exoplatform.portal.mop.description;
 
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.exoplatform.commons.cache.future.FutureExoCache;
 import org.exoplatform.commons.cache.future.Loader;
 import org.exoplatform.portal.mop.Described;
 import org.exoplatform.portal.pom.config.POMSession;
 import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.CachedObjectSelector;
 import org.exoplatform.services.cache.ExoCache;
+import org.exoplatform.services.cache.ObjectCacheInfo;
+import org.gatein.common.logging.Logger;
+import org.gatein.common.logging.LoggerFactory;
 
 /**
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  */
 public class ExoDataCache extends DataCache {
 
+    /** . */
+    private static final Logger log = LoggerFactory.getLogger(ExoDataCache.class);
+
     /** . */
     protected ExoCache<CacheKey, CacheValue> cache;
 
     /** . */
     protected FutureExoCache<CacheKey, CacheValue, POMSession> values;
 
+    /** The locales of the values cached by this node. */
+    private final Set<Locale> locales = Collections.newSetFromMap(new ConcurrentHashMap<Locale, Boolean>());
+
     /** . */
     private Loader<CacheKey, CacheValue, POMSession> valueLoader = new Loader<CacheKey, CacheValue, POMSession>() {
         public CacheValue retrieve(POMSession session, CacheKey key) throws Exception {
@@ -56,19 +71,48 @@ public class ExoDataCache extends DataCache {
         };
     }
 
-    @Override
-    protected void removeState(CacheKey key) {
-        cache.remove(key);
-    }
-
     @Override
     protected Described.State getState(POMSession session, CacheKey key) {
         CacheValue value = values.get(session, key);
         return value != null ? value.state : null;
     }
 
+    @Override
+    protected void removeStates(final String id) {
+        try {
+            cache.select(new CachedObjectSelector<CacheKey, CacheValue>() {
+                public boolean select(CacheKey key, ObjectCacheInfo<? extends CacheValue> ocinfo) {
+                    return key.id.equals(id);
+                }
+
+                public void onSelect(ExoCache<? extends CacheKey, ? extends CacheValue> exoCache, CacheKey key,
+                        ObjectCacheInfo<? extends CacheValue> ocinfo) throws Exception {
+                    cache.remove(key);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Unexpected error when removing the descriptions of " + id, e);
+        }
+    }
+
+    @Override
+    protected void removeStates(String id, Locale locale) {
+        cache.remove(new CacheKey(locale, id));
+        for (Locale cached : locales) {
+            if (!cached.equals(locale) && isResolvedWith(cached, locale)) {
+                cache.remove(new CacheKey(cached, id));
+            }
+        }
+    }
+
+    @Override
+    protected CacheValue peekValue(CacheKey key) {
+        return cache.get(key);
+    }
+
     @Override
     protected void putValue(CacheKey key, CacheValue value) {
+        locales.add(key.locale);
         cache.put(key, value);
     }
 }
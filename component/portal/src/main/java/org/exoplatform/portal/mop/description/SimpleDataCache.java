@@ -19,6 +19,8 @@
 
 package org.exoplatform.portal.mop.description;
 
+import java.util.Iterator;
+import java.util.Locale;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.exoplatform.commons.serialization.MarshalledObject;
@@ -43,20 +45,36 @@ public class SimpleDataCache extends DataCache {
         MarshalledObject<CacheValue> marshalledValue = map.get(marshalledKey);
         if (marshalledValue == null) {
             CacheValue value = getValue(session, key);
-            if (value != null) {
-                map.put(marshalledKey, MarshalledObject.marshall(value));
-                return value.state;
-            } else {
-                return null;
-            }
+            map.put(marshalledKey, MarshalledObject.marshall(value));
+            return value.state;
         } else {
             return marshalledValue.unmarshall().state;
         }
     }
 
     @Override
-    protected void removeState(CacheKey key) {
-        map.remove(MarshalledObject.marshall(key));
+    protected void removeStates(String id) {
+        for (Iterator<MarshalledObject<CacheKey>> i = map.keySet().iterator(); i.hasNext();) {
+            if (i.next().unmarshall().id.equals(id)) {
+                i.remove();
+            }
+        }
+    }
+
+    @Override
+    protected void removeStates(String id, Locale locale) {
+        for (Iterator<MarshalledObject<CacheKey>> i = map.keySet().iterator(); i.hasNext();) {
+            CacheKey key = i.next().unmarshall();
+            if (key.id.equals(id) && isResolvedWith(key.locale, locale)) {
+                i.remove();
+            }
+        }
+    }
+
+    @Override
+    protected CacheValue peekValue(CacheKey key) {
+        MarshalledObject<CacheValue> marshalledValue = map.get(MarshalledObject.marshall(key));
+        return marshalledValue != null ? marshalledValue.unmarshall() : null;
     }
 
     @Override
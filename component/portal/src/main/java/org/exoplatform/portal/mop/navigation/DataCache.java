@@ -22,6 +22,8 @@ package org.exoplatform.portal.mop.navigation;
 import static org.exoplatform.portal.mop.Utils.objectType;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.exoplatform.portal.mop.SiteKey;
 import org.exoplatform.portal.pom.config.POMSession;
@@ -41,12 +43,38 @@ abstract class DataCache {
 
     protected abstract NodeData getNode(POMSession session, String key);
 
+    /**
+     * Returns the data of several nodes, the nodes that do not exist are not present in the returned map. The default
+     * implementation retrieves the node one by one, subclasses should override it to load the missing nodes with
+     * {@link #loadNodes(POMSession, Collection)}.
+     *
+     * @param session the session
+     * @param keys the node keys
+     * @return the node data map
+     */
+    protected Map<String, NodeData> getNodes(POMSession session, Collection<String> keys) {
+        Map<String, NodeData> nodes = new HashMap<String, NodeData>(keys.size());
+        for (String key : keys) {
+            NodeData node = getNode(session, key);
+            if (node != null) {
+                nodes.put(key, node);
+            }
+        }
+        return nodes;
+    }
+
     protected abstract NavigationData getNavigation(POMSession session, SiteKey key);
 
     protected abstract void removeNavigation(SiteKey key);
 
     protected abstract void clear();
 
+    /**
+     * Release the resources of the cache when the service stops, the default implementation does nothing.
+     */
+    protected void stop() {
+    }
+
     final NodeData getNodeData(POMSession session, String nodeId) {
         NodeData data;
         if (session.isModified()) {
@@ -57,6 +85,16 @@ abstract class DataCache {
         return data;
     }
 
+    final Map<String, NodeData> getNodeData(POMSession session, Collection<String> nodeIds) {
+        Map<String, NodeData> data;
+        if (session.isModified()) {
+            data = loadNodes(session, nodeIds);
+        } else {
+            data = getNodes(session, nodeIds);
+        }
+        return data;
+    }
+
     final NavigationData getNavigationData(POMSession session, SiteKey key) {
         NavigationData data;
         if (session.isModified()) {
@@ -86,6 +124,31 @@ abstract class DataCache {
         }
     }
 
+    /**
+     * Load several nodes, the nodes are found with a single query instead of being looked up one by one. A query does not
+     * see the pending changes of a modified session, the nodes are then looked up one by one.
+     *
+     * @param session the session
+     * @param nodeIds the node ids
+     * @return the loaded nodes
+     */
+    protected final Map<String, NodeData> loadNodes(POMSession session, Collection<String> nodeIds) {
+        Map<String, NodeData> nodes = new HashMap<String, NodeData>(nodeIds.size());
+        if (nodeIds.size() == 1 || session.isModified()) {
+            for (String nodeId : nodeIds) {
+                NodeData node = loadNode(session, nodeId);
+                if (node != null) {
+                    nodes.put(nodeId, node);
+                }
+            }
+        } else {
+            for (Navigation navigation : session.findObjectsById(ObjectType.NAVIGATION, nodeIds)) {
+                nodes.put(navigation.getObjectId(), new NodeData(navigation));
+            }
+        }
+        return nodes;
+    }
+
     protected final NavigationData loadNavigation(POMSession session, SiteKey key) {
         Workspace workspace = session.getWorkspace();
         ObjectType<Site> objectType = objectType(key.getType());
@@ -20,13 +20,23 @@
 package org.exoplatform.portal.mop.navigation;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.exoplatform.commons.cache.future.FutureExoCache;
 import org.exoplatform.commons.cache.future.Loader;
+import org.exoplatform.commons.cache.future.RefreshAhead;
 import org.exoplatform.commons.scope.ScopedKey;
+import org.exoplatform.container.ExoContainer;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.container.component.RequestLifeCycle;
 import org.exoplatform.portal.mop.SiteKey;
 import org.exoplatform.portal.pom.config.POMSession;
+import org.exoplatform.portal.pom.config.POMSessionManager;
 import org.exoplatform.services.cache.CacheService;
 import org.exoplatform.services.cache.ExoCache;
 
@@ -43,6 +53,9 @@ public class ExoDataCache extends DataCache {
     /** . */
     protected FutureExoCache<ScopedKey<?>, Serializable, POMSession> objects;
 
+    /** Incremented by each invalidation, a batch loaded before an invalidation is not cached. */
+    private final AtomicLong generation = new AtomicLong();
+
     /** . */
     private Loader<ScopedKey<?>, Serializable, POMSession> navigationLoader = new Loader<ScopedKey<?>, Serializable, POMSession>() {
         public Serializable retrieve(POMSession session, ScopedKey<?> scopedKey) throws Exception {
@@ -57,14 +70,34 @@ public class ExoDataCache extends DataCache {
     };
 
     public ExoDataCache(CacheService cacheService) {
+        final ExoContainer container = ExoContainerContext.getCurrentContainer();
         this.cache = cacheService.getCacheInstance(NavigationService.class.getSimpleName());
-        this.objects = new FutureExoCache<ScopedKey<?>, Serializable, POMSession>(navigationLoader, cache);
+        this.objects = new FutureExoCache<ScopedKey<?>, Serializable, POMSession>(navigationLoader, cache,
+                RefreshAhead.create("gatein.navigation.cache")) {
+            @Override
+            protected Serializable refresh(POMSession session, ScopedKey<?> key) throws Exception {
+                // The session of the request cannot be used by the refreshing thread
+                POMSessionManager manager = session.getManager();
+                RequestLifeCycle.begin(container);
+                try {
+                    POMSession refreshSession = manager.openSession();
+                    try {
+                        return navigationLoader.retrieve(refreshSession, key);
+                    } finally {
+                        refreshSession.close();
+                    }
+                } finally {
+                    RequestLifeCycle.end();
+                }
+            }
+        };
     }
 
     @Override
     protected void removeNodes(Collection<String> keys) {
+        generation.incrementAndGet();
         for (String key : keys) {
-            cache.remove(ScopedKey.create(key));
+            objects.remove(ScopedKey.create(key));
         }
     }
 
@@ -73,9 +106,43 @@ public class ExoDataCache extends DataCache {
         return (NodeData) objects.get(session, ScopedKey.create(key));
     }
 
+    @Override
+    protected Map<String, NodeData> getNodes(POMSession session, Collection<String> keys) {
+        Map<String, NodeData> nodes = new HashMap<String, NodeData>(keys.size());
+        List<String> missing = new ArrayList<String>();
+        for (String key : keys) {
+            NodeData node = (NodeData) cache.get(ScopedKey.create(key));
+            if (node == null) {
+                missing.add(key);
+            } else {
+                nodes.put(key, node);
+            }
+        }
+        if (missing.size() > 0) {
+            // The nodes are loaded outside of the future cache, when an invalidation happens meanwhile they may be stale
+            // so they are returned but not cached
+            long loadGeneration = generation.get();
+            Map<String, NodeData> loaded = loadNodes(session, missing);
+            if (loadGeneration == generation.get()) {
+                for (Map.Entry<String, NodeData> entry : loaded.entrySet()) {
+                    cache.put(ScopedKey.create(entry.getKey()), entry.getValue());
+                }
+                if (loadGeneration != generation.get()) {
+                    // Lost the race with an invalidation, discard what was just cached
+                    for (String key : loaded.keySet()) {
+                        cache.remove(ScopedKey.create(key));
+                    }
+                }
+            }
+            nodes.putAll(loaded);
+        }
+        return nodes;
+    }
+
     @Override
     protected void removeNavigation(SiteKey key) {
-        cache.remove(ScopedKey.create(key));
+        generation.incrementAndGet();
+        objects.remove(ScopedKey.create(key));
     }
 
     @Override
@@ -83,8 +150,14 @@ public class ExoDataCache extends DataCache {
         return (NavigationData) objects.get(session, ScopedKey.create(key));
     }
 
+    @Override
+    protected void stop() {
+        objects.shutdown();
+    }
+
     @Override
     protected void clear() {
-        cache.clearCache();
+        generation.incrementAndGet();
+        objects.clear();
     }
 }
@@ -72,6 +72,37 @@ class FederatingVisitor<N> implements Scope.Visitor {
         return visit;
     }
 
+    /**
+     * Returns the visit mode of a node when it can be determined without entering the node: the visit mode of the
+     * federated scope can be determined only when it is a tree shaped scope.
+     *
+     * @param depth the node depth
+     * @param id the node id
+     * @param name the node name
+     * @param state the node state
+     * @param federated true when the node is the federation root or one of its descendants
+     * @return the visit mode or null when it cannot be determined
+     */
+    VisitMode peek(int depth, String id, String name, NodeState state, boolean federated) {
+        if (visitor.enter(depth, id, name, state) == VisitMode.ALL_CHILDREN) {
+            return VisitMode.ALL_CHILDREN;
+        } else if (!federated) {
+            return VisitMode.NO_CHILDREN;
+        } else if (federatedScope instanceof GenericScope.Tree) {
+            return federatedScope.get().enter(depth - federationDepth, id, name, state);
+        } else {
+            return null;
+        }
+    }
+
+    String getFederationRootId() {
+        return federationRoot.handle;
+    }
+
+    int getFederationDepth() {
+        return federationDepth;
+    }
+
     public void leave(int depth, String id, String name, NodeState state) {
         if (federationRoot.handle.equals(id)) {
             federated = null;
@@ -19,13 +19,15 @@
 
 package org.exoplatform.portal.mop.navigation;
 
+import java.io.Serializable;
+
 import org.exoplatform.portal.mop.SiteKey;
 
 /**
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  * @version $Revision$
  */
-public class NavigationContext {
+public class NavigationContext implements Serializable {
 
     /** . */
     final SiteKey key;
@@ -275,7 +275,7 @@ public class NavigationServiceImpl implements NavigationService {
         try {
 
             TreeUpdate.perform(tree, NodeContextUpdateAdapter.<N> create(), data,
-                    NodeDataUpdateAdapter.create(dataCache, session), listener, visitor);
+                    NodeDataUpdateAdapter.create(dataCache, session, visitor), listener, visitor);
         } finally {
             // Disable edit mode
             tree.editMode = false;
@@ -359,7 +359,7 @@ public class NavigationServiceImpl implements NavigationService {
 
         //
         TreeUpdate.perform(rebased, NodeContextUpdateAdapter.<N> create(), data,
-                NodeDataUpdateAdapter.create(dataCache, session), null, visitor);
+                NodeDataUpdateAdapter.create(dataCache, session, visitor), null, visitor);
 
         //
         NodeChangeQueue<NodeContext<N>> changes = tree.getChanges();
@@ -420,10 +420,17 @@ public class NavigationServiceImpl implements NavigationService {
         }
     }
 
+    /**
+     * The node data adapter prefetches the children of the nodes by level: the first expanded node of a level has its
+     * children loaded, as soon as a second node of the same level is expanded the children of the nodes of the level that
+     * the scope will expand are loaded in a single batch. Loading a tree with a tree shaped scope costs a few cache round
+     * trips per level instead of a round trip per node. When the scope cannot tell which nodes it will expand without
+     * visiting them, the nodes are loaded when they are expanded.
+     */
     private static class NodeDataUpdateAdapter implements TreeUpdateAdapter<NodeData> {
 
-        static NodeDataUpdateAdapter create(DataCache dataCache, POMSession session) {
-            return new NodeDataUpdateAdapter(dataCache, session);
+        static NodeDataUpdateAdapter create(DataCache dataCache, POMSession session, Scope.Visitor visitor) {
+            return new NodeDataUpdateAdapter(dataCache, session, visitor);
         }
 
         /** . */
@@ -432,9 +439,21 @@ public class NavigationServiceImpl implements NavigationService {
         /** . */
         private final POMSession session;
 
-        private NodeDataUpdateAdapter(DataCache dataCache, POMSession session) {
+        /** The visitor of the update, the visitors that do not federate a scope are stateless. */
+        private final Scope.Visitor visitor;
+
+        /** The nodes loaded so far, a null value means the node does not exist. */
+        private final Map<String, NodeData> nodes;
+
+        /** The level of the nodes loaded so far. */
+        private final Map<String, Level> levels;
+
+        private NodeDataUpdateAdapter(DataCache dataCache, POMSession session, Scope.Visitor visitor) {
             this.dataCache = dataCache;
             this.session = session;
+            this.visitor = visitor;
+            this.nodes = new HashMap<String, NodeData>();
+            this.levels = new HashMap<String, Level>();
         }
 
         public String getHandle(NodeData node) {
@@ -442,18 +461,99 @@ public class NavigationServiceImpl implements NavigationService {
         }
 
         public String[] getChildren(NodeData node) {
+            Level level = levels.get(node.id);
+            if (level == null) {
+                level = new Level(0);
+                level.nodes.add(node);
+                levels.put(node.id, level);
+                nodes.put(node.id, node);
+            }
+            List<String> ids = new ArrayList<String>(node.children.length);
+            collect(node, ids);
+            if (++level.expanded > 1) {
+                for (int i = level.prefetched; i < level.nodes.size(); i++) {
+                    NodeData sibling = level.nodes.get(i);
+                    if (sibling != node && isExpanded(level.depth, sibling)) {
+                        collect(sibling, ids);
+                    }
+                }
+                level.prefetched = level.nodes.size();
+            }
+            load(level, ids);
             return node.children;
         }
 
+        /**
+         * Returns true when the visitor will expand a node that is not yet visited.
+         *
+         * @param depth the node depth
+         * @param node the node
+         * @return true when the node will be expanded
+         */
+        private boolean isExpanded(int depth, NodeData node) {
+            if (visitor instanceof FederatingVisitor<?>) {
+                FederatingVisitor<?> federating = (FederatingVisitor<?>) visitor;
+                boolean federated = isDescendant(node, federating.getFederationRootId(),
+                        depth - federating.getFederationDepth());
+                return federating.peek(depth, node.id, node.name, node.state, federated) == VisitMode.ALL_CHILDREN;
+            } else {
+                return visitor.enter(depth, node.id, node.name, node.state) == VisitMode.ALL_CHILDREN;
+            }
+        }
+
+        private boolean isDescendant(NodeData node, String ancestorId, int distance) {
+            for (NodeData current = node; current != null && distance >= 0; distance--) {
+                if (current.id.equals(ancestorId)) {
+                    return true;
+                }
+                current = current.parentId != null ? nodes.get(current.parentId) : null;
+            }
+            return false;
+        }
+
+        private void collect(NodeData node, List<String> ids) {
+            for (String child : node.children) {
+                if (!nodes.containsKey(child)) {
+                    ids.add(child);
+                }
+            }
+        }
+
+        private void load(Level level, List<String> ids) {
+            if (ids.size() > 0) {
+                Map<String, NodeData> loaded = dataCache.getNodeData(session, ids);
+                if (level.next == null) {
+                    level.next = new Level(level.depth + 1);
+                }
+                for (String id : ids) {
+                    NodeData data = loaded.get(id);
+                    nodes.put(id, data);
+                    if (data != null) {
+                        level.next.nodes.add(data);
+                        levels.put(id, level.next);
+                    }
+                }
+            }
+        }
+
+        private NodeData get(String id) {
+            NodeData data = nodes.get(id);
+            if (data == null && !nodes.containsKey(id)) {
+                data = dataCache.getNodeData(session, id);
+                nodes.put(id, data);
+            }
+            return data;
+        }
+
         public NodeData getDescendant(NodeData node, String handle) {
-            NodeData data = dataCache.getNodeData(session, handle);
+            NodeData data = get(handle);
             NodeData current = data;
             while (current != null) {
                 if (node.id.equals(current.id)) {
                     return data;
                 } else {
                     if (current.parentId != null) {
-                        current = dataCache.getNodeData(session, current.parentId);
+                        current = get(current.parentId);
                     } else {
                         current = null;
                     }
@@ -473,6 +573,28 @@ public class NavigationServiceImpl implements NavigationService {
         public String getName(NodeData node) {
             return null;
         }
+
+        private static class Level {
+
+            /** The depth of the nodes of the level. */
+            private final int depth;
+
+            /** The nodes of the level. */
+            private final List<NodeData> nodes = new ArrayList<NodeData>();
+
+            /** The number of nodes whose children were prefetched with the whole level. */
+            private int prefetched;
+
+            /** The number of expanded nodes. */
+            private int expanded;
+
+            /** The next level. */
+            private Level next;
+
+            private Level(int depth) {
+                this.depth = depth;
+            }
+        }
     }
 
     private static class NavigationPersister<N> extends NodeChangeListener.Base<NodeContext<N>> {
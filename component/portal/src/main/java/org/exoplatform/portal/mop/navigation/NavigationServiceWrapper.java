@@ -65,6 +65,9 @@ public class NavigationServiceWrapper implements NavigationService, Startable {
     /** . */
     private final InvalidationBridge bridge;
 
+    /** . */
+    private final DataCache cache;
+
     public NavigationServiceWrapper(RepositoryService repositoryService, POMSessionManager manager,
             ListenerService listenerService) {
         SimpleDataCache cache = new SimpleDataCache();
@@ -75,6 +78,7 @@ public class NavigationServiceWrapper implements NavigationService, Startable {
         this.service = new NavigationServiceImpl(manager, cache);
         this.listenerService = listenerService;
         this.bridge = new InvalidationBridge(cache);
+        this.cache = cache;
     }
 
     public NavigationServiceWrapper(RepositoryService repositoryService, POMSessionManager manager,
@@ -87,6 +91,7 @@ public class NavigationServiceWrapper implements NavigationService, Startable {
         this.service = new NavigationServiceImpl(manager, cache);
         this.listenerService = listenerService;
         this.bridge = new InvalidationBridge(cache);
+        this.cache = cache;
     }
 
     public NavigationContext loadNavigation(SiteKey key) {
@@ -175,5 +180,6 @@ public class NavigationServiceWrapper implements NavigationService, Startable {
 
     public void stop() {
         bridge.stop();
+        cache.stop();
     }
 }
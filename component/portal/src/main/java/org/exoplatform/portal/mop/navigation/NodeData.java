@@ -19,6 +19,11 @@
 
 package org.exoplatform.portal.mop.navigation;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Date;
@@ -27,6 +32,7 @@ import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.exoplatform.portal.mop.Described;
+import org.exoplatform.portal.mop.SiteType;
 import org.exoplatform.portal.mop.Utils;
 import org.exoplatform.portal.mop.Visibility;
 import org.exoplatform.portal.mop.Visible;
@@ -39,7 +45,8 @@ import org.gatein.mop.api.workspace.link.Link;
 import org.gatein.mop.api.workspace.link.PageLink;
 
 /**
- * An immutable node data class.
+ * An immutable node data class. The ids and the names are shared with a {@link StringPool} and the serialized form is a
+ * compact {@link Externalizable} encoding where the JCR UUIDs are written as two longs.
  *
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  * @version $Revision$
@@ -122,11 +129,11 @@ class NodeData implements Serializable {
         }
 
         //
-        this.parentId = parentId;
-        this.id = navigation.getObjectId();
-        this.name = navigation.getName();
+        this.parentId = StringPool.NODE.get(parentId);
+        this.id = StringPool.NODE.get(navigation.getObjectId());
+        this.name = StringPool.NODE.get(navigation.getName());
         this.state = state;
-        this.children = children;
+        this.children = StringPool.NODE.get(children);
     }
 
     NodeData(NodeContext<?> context) {
@@ -207,6 +214,10 @@ class NodeData implements Serializable {
         return id;
     }
 
+    private Object writeReplace() throws ObjectStreamException {
+        return new Serial(this);
+    }
+
     public String getName() {
         return name;
     }
@@ -219,4 +230,189 @@ class NodeData implements Serializable {
     public String toString() {
         return "NodeData[id=" + id + ",name=" + name + ",state=" + state + ",children=" + Arrays.asList(children) + "]";
     }
+
+    /**
+     * The serialized form of a node data.
+     */
+    static final class Serial implements Externalizable {
+
+        /** . */
+        private static final int NULL = 0;
+
+        /** . */
+        private static final int UUID = 1;
+
+        /** . */
+        private static final int STRING = 2;
+
+        /** . */
+        private static final Visibility[] VISIBILITIES = Visibility.values();
+
+        /** . */
+        private static final SiteType[] SITE_TYPES = SiteType.values();
+
+        /** . */
+        private NodeData data;
+
+        public Serial() {
+        }
+
+        private Serial(NodeData data) {
+            this.data = data;
+        }
+
+        public void writeExternal(ObjectOutput out) throws IOException {
+            writeId(out, data.parentId);
+            writeId(out, data.id);
+            writeString(out, data.name);
+            out.writeInt(data.children.length);
+            for (String child : data.children) {
+                writeId(out, child);
+            }
+            NodeState state = data.state;
+            if (state != null) {
+                out.writeBoolean(true);
+                writeString(out, state.getLabel());
+                writeString(out, state.getIcon());
+                out.writeLong(state.getStartPublicationTime());
+                out.writeLong(state.getEndPublicationTime());
+                Visibility visibility = state.getVisibility();
+                out.writeByte(visibility != null ? visibility.ordinal() : -1);
+                PageKey pageRef = state.getPageRef();
+                if (pageRef != null) {
+                    out.writeByte(pageRef.getSite().getType().ordinal());
+                    out.writeUTF(pageRef.getSite().getName());
+                    out.writeUTF(pageRef.getName());
+                } else {
+                    out.writeByte(-1);
+                }
+            } else {
+                out.writeBoolean(false);
+            }
+        }
+
+        public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+            String parentId = readId(in);
+            String id = readId(in);
+            String name = readString(in);
+            String[] children = new String[in.readInt()];
+            for (int i = 0; i < children.length; i++) {
+                children[i] = readId(in);
+            }
+            NodeState state;
+            if (in.readBoolean()) {
+                String label = readString(in);
+                String icon = readString(in);
+                long startPublicationTime = in.readLong();
+                long endPublicationTime = in.readLong();
+                int visibility = in.readByte();
+                int siteType = in.readByte();
+                PageKey pageRef;
+                if (siteType != -1) {
+                    pageRef = SITE_TYPES[siteType].key(in.readUTF()).page(in.readUTF());
+                } else {
+                    pageRef = null;
+                }
+                state = new NodeState(label, icon, startPublicationTime, endPublicationTime,
+                        visibility != -1 ? VISIBILITIES[visibility] : null, pageRef);
+            } else {
+                state = null;
+            }
+            data = new NodeData(parentId, id, StringPool.NODE.get(name), state, children);
+        }
+
+        private Object readResolve() throws ObjectStreamException {
+            return data;
+        }
+
+        private static void writeString(ObjectOutput out, String s) throws IOException {
+            if (s != null) {
+                out.writeBoolean(true);
+                out.writeUTF(s);
+            } else {
+                out.writeBoolean(false);
+            }
+        }
+
+        private static String readString(ObjectInput in) throws IOException {
+            return in.readBoolean() ? in.readUTF() : null;
+        }
+
+        private static void writeId(ObjectOutput out, String id) throws IOException {
+            if (id == null) {
+                out.writeByte(NULL);
+            } else if (isUUID(id)) {
+                out.writeByte(UUID);
+                out.writeLong(parseHex(id, 0, 8) << 32 | parseHex(id, 9, 13) << 16 | parseHex(id, 14, 18));
+                out.writeLong(parseHex(id, 19, 23) << 48 | parseHex(id, 24, 36));
+            } else {
+                out.writeByte(STRING);
+                out.writeUTF(id);
+            }
+        }
+
+        private static String readId(ObjectInput in) throws IOException {
+            switch (in.readByte()) {
+                case NULL:
+                    return null;
+                case UUID:
+                    long high = in.readLong();
+                    long low = in.readLong();
+                    char[] chars = new char[36];
+                    formatHex(chars, 0, 8, high >>> 32);
+                    chars[8] = '-';
+                    formatHex(chars, 9, 13, high >>> 16);
+                    chars[13] = '-';
+                    formatHex(chars, 14, 18, high);
+                    chars[18] = '-';
+                    formatHex(chars, 19, 23, low >>> 48);
+                    chars[23] = '-';
+                    formatHex(chars, 24, 36, low);
+                    return StringPool.NODE.get(new String(chars));
+                case STRING:
+                    return StringPool.NODE.get(in.readUTF());
+                default:
+                    throw new IOException("Corrupted node data");
+            }
+        }
+
+        /**
+         * Returns true when the id is a lower case JCR UUID, the only form that can be restored exactly from its binary
+         * value.
+         *
+         * @param id the id
+         * @return true if the id is a lower case UUID
+         */
+        static boolean isUUID(String id) {
+            if (id.length() != 36) {
+                return false;
+            }
+            for (int i = 0; i < 36; i++) {
+                char c = id.charAt(i);
+                if (i == 8 || i == 13 || i == 18 || i == 23) {
+                    if (c != '-') {
+                        return false;
+                    }
+                } else if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long parseHex(String s, int from, int to) {
+            long value = 0;
+            for (int i = from; i < to; i++) {
+                value = value << 4 | Character.digit(s.charAt(i), 16);
+            }
+            return value;
+        }
+
+        private static void formatHex(char[] chars, int from, int to, long value) {
+            for (int i = to - 1; i >= from; i--) {
+                chars[i] = Character.forDigit((int) (value & 0xF), 16);
+                value >>>= 4;
+            }
+        }
+    }
 }
@@ -19,7 +19,10 @@
 
 package org.exoplatform.portal.mop.navigation;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -69,6 +72,27 @@ public class SimpleDataCache extends DataCache {
         }
     }
 
+    @Override
+    protected Map<String, NodeData> getNodes(POMSession session, Collection<String> keys) {
+        Map<String, NodeData> nodes = new HashMap<String, NodeData>(keys.size());
+        List<String> missing = new ArrayList<String>();
+        for (String key : keys) {
+            MarshalledObject<NodeData> marshalledNode = this.nodes.get(MarshalledObject.marshall(key));
+            if (marshalledNode == null) {
+                missing.add(key);
+            } else {
+                nodes.put(key, marshalledNode.unmarshall());
+            }
+        }
+        if (missing.size() > 0) {
+            for (Map.Entry<String, NodeData> entry : loadNodes(session, missing).entrySet()) {
+                this.nodes.put(MarshalledObject.marshall(entry.getKey()), MarshalledObject.marshall(entry.getValue()));
+                nodes.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return nodes;
+    }
+
     @Override
     protected void removeNavigation(SiteKey key) {
         navigations.remove(MarshalledObject.marshall(key));
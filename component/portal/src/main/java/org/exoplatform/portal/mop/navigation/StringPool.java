@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.mop.navigation;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * A pool of canonical strings weakly referenced: the ids and the names of the navigation nodes are repeated in the parent
+ * node children, in the child node parent id and in every copy unmarshalled from the cache, pooling them let the cached
+ * nodes share the same string instances. Unlike {@link String#intern()} the pooled strings can be garbage collected.
+ *
+ * The pool is striped by string hash code: each stripe is a weak hash map guarded by its own lock, so the threads
+ * unmarshalling nodes concurrently rarely contend on the same lock.
+ */
+final class StringPool {
+
+    /** The pool for node ids and names. */
+    static final StringPool NODE = new StringPool(16);
+
+    /** . */
+    private final WeakHashMap<String, WeakReference<String>>[] stripes;
+
+    /** . */
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    StringPool(int concurrency) {
+        int size = 1;
+        while (size < concurrency) {
+            size <<= 1;
+        }
+        this.stripes = new WeakHashMap[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new WeakHashMap<String, WeakReference<String>>();
+        }
+    }
+
+    /**
+     * Returns the canonical instance of a string.
+     *
+     * @param s the string
+     * @return the canonical string or null if the string argument is null
+     */
+    String get(String s) {
+        if (s == null) {
+            return null;
+        }
+        int h = s.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        WeakHashMap<String, WeakReference<String>> stripe = stripes[h & mask];
+        synchronized (stripe) {
+            WeakReference<String> ref = stripe.get(s);
+            String canonical = ref != null ? ref.get() : null;
+            if (canonical == null) {
+                stripe.put(s, new WeakReference<String>(s));
+                canonical = s;
+            }
+            return canonical;
+        }
+    }
+
+    String[] get(String[] strings) {
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = get(strings[i]);
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,192 @@
+package org.exoplatform.portal.mop.page;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.exoplatform.portal.mop.SiteKey;
+import org.exoplatform.portal.mop.SiteType;
+
+/**
+ * <p>
+ * An in memory index of the page keys and titles used for searching pages without querying the repository. The pages
+ * are sorted by site type, site name and page name, this order is stable and allows to paginate with the key of the last
+ * returned page instead of an offset.
+ * </p>
+ *
+ * <p>
+ * The index is loaded once with all the pages and then maintained by the page service, an entry may become stale when a
+ * page is modified by another node or by another service, so the found pages must be checked by the caller against the
+ * actual page state.
+ * </p>
+ */
+class PageIndex {
+
+    /** The page order. */
+    static final Comparator<PageKey> ORDER = new Comparator<PageKey>() {
+        public int compare(PageKey o1, PageKey o2) {
+            int cmp = o1.getSite().getType().compareTo(o2.getSite().getType());
+            if (cmp == 0) {
+                cmp = o1.getSite().getName().compareTo(o2.getSite().getName());
+                if (cmp == 0) {
+                    cmp = o1.getName().compareTo(o2.getName());
+                }
+            }
+            return cmp;
+        }
+    };
+
+    /**
+     * Returns true when a page title matches a title criterion, the criterion matches the titles containing it ignoring the
+     * case like the repository query does.
+     *
+     * @param title the page title
+     * @param criterion the title criterion or null
+     * @return true when the title matches
+     */
+    static boolean matches(String title, String criterion) {
+        if (criterion == null) {
+            return true;
+        } else if (title == null) {
+            return false;
+        } else {
+            return title.toLowerCase().contains(criterion.trim().toLowerCase());
+        }
+    }
+
+    /** The lower cased titles keyed by page. */
+    private final ConcurrentSkipListMap<PageKey, String> pages = new ConcurrentSkipListMap<PageKey, String>(ORDER);
+
+    /** . */
+    private volatile boolean loaded;
+
+    /** True while a thread loads the index. */
+    private boolean loading;
+
+    /** Incremented when the index is cleared, a load started before is then ignored. */
+    private int generation;
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Start to load the index unless another thread is loading it.
+     *
+     * @return the generation to pass to {@link #setLoaded(int)} or -1 if the index is already being loaded
+     */
+    synchronized int startLoading() {
+        if (loading) {
+            return -1;
+        }
+        loading = true;
+        return generation;
+    }
+
+    /**
+     * Mark the index as loaded, it should be called after all the pages have been put in the index.
+     *
+     * @param generation the generation returned by {@link #startLoading()}
+     * @return false if the index was cleared during the load
+     */
+    synchronized boolean setLoaded(int generation) {
+        if (generation != this.generation) {
+            return false;
+        }
+        loading = false;
+        loaded = true;
+        return true;
+    }
+
+    /**
+     * Stop a load that did not complete.
+     *
+     * @param generation the generation returned by {@link #startLoading()}
+     */
+    synchronized void stopLoading(int generation) {
+        if (generation == this.generation) {
+            loading = false;
+        }
+    }
+
+    void put(PageKey key, String title) {
+        pages.put(key, title != null ? title.toLowerCase() : "");
+    }
+
+    void remove(PageKey key) {
+        pages.remove(key);
+    }
+
+    int size() {
+        return pages.size();
+    }
+
+    synchronized void clear() {
+        generation++;
+        loading = false;
+        loaded = false;
+        pages.clear();
+    }
+
+    /**
+     * Find the pages matching the criterions in the index order.
+     *
+     * @param after the key of the last page of the previous result or null to start from the first page
+     * @param skip the number of matching pages to skip
+     * @param limit the maximum number of returned pages
+     * @param siteType the site type or null for any site type
+     * @param siteName the site name or null for any site name
+     * @param title the title criterion or null for any title
+     * @return the matching page keys
+     */
+    List<PageKey> find(PageKey after, int skip, int limit, SiteType siteType, String siteName, String title) {
+        if (siteName != null) {
+            siteName = siteName.trim();
+            if (siteName.length() == 0) {
+                siteName = null;
+            }
+        }
+        if (title != null) {
+            title = title.trim().toLowerCase();
+        }
+
+        // Restrict the range to the site when possible
+        NavigableMap<PageKey, String> range = pages;
+        PageKey from = siteType != null ? siteType.key(siteName != null ? siteName : "").page("") : null;
+        if (after != null && (from == null || ORDER.compare(after, from) >= 0)) {
+            range = range.tailMap(after, false);
+        } else if (from != null) {
+            range = range.tailMap(from, true);
+        }
+
+        //
+        List<PageKey> found = new ArrayList<PageKey>(Math.min(limit, 100));
+        for (Map.Entry<PageKey, String> entry : range.entrySet()) {
+            if (found.size() >= limit) {
+                break;
+            }
+            SiteKey site = entry.getKey().getSite();
+            if (siteType != null && site.getType() != siteType) {
+                break;
+            }
+            if (siteName != null && !site.getName().equals(siteName)) {
+                if (siteType != null) {
+                    break;
+                } else {
+                    continue;
+                }
+            }
+            if (title == null || entry.getValue().contains(title)) {
+                if (skip > 0) {
+                    skip--;
+                } else {
+                    found.add(entry.getKey());
+                }
+            }
+        }
+        return found;
+    }
+}
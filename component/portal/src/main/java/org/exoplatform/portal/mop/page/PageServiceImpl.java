@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
+import org.exoplatform.container.ExoContainer;
 import org.exoplatform.portal.mop.Described;
 import org.exoplatform.portal.mop.ProtectedResource;
 import org.exoplatform.portal.mop.QueryResult;
@@ -39,6 +40,12 @@ public class PageServiceImpl implements PageService {
     /** . */
     private final DataCache dataCache;
 
+    /** The number of pages read at once by the repository queries walking through all the matching pages. */
+    private static final int BATCH_SIZE = 500;
+
+    /** The page index or null when the pages are searched in the repository. */
+    private final PageIndex index;
+
     /**
      * Create an instance that uses a simple data cache, such instance should be used for testing purposes.
      *
@@ -65,6 +72,7 @@ public class PageServiceImpl implements PageService {
         }
         this.manager = manager;
         this.dataCache = dataCache;
+        this.index = ExoContainer.getProfiles().contains("cluster") ? null : new PageIndex();
     }
 
     @Override
@@ -174,6 +182,11 @@ public class PageServiceImpl implements PageService {
         page.data = dataCache.getPageData(session, page.key);
         page.state = null;
 
+        //
+        if (index != null) {
+            index.put(page.key, dst.adapt(Described.class).getName());
+        }
+
         //
         return created;
     }
@@ -202,6 +215,9 @@ public class PageServiceImpl implements PageService {
         if (page != null) {
             page.destroy();
             dataCache.removePage(session, key);
+            if (index != null) {
+                index.remove(key);
+            }
             return true;
         } else {
             return false;
@@ -276,6 +292,9 @@ public class PageServiceImpl implements PageService {
 
         // Remove
         dataCache.removePage(session, dst);
+        if (index != null) {
+            index.put(dst, dstDescribed.getName());
+        }
 
         //
         return new PageContext(new PageData(dstPage));
@@ -351,22 +370,128 @@ public class PageServiceImpl implements PageService {
     @Override
     public QueryResult<PageContext> findPages(int from, int to, SiteType siteType, String siteName, String pageName,
             String pageTitle) {
+        if (index != null && loadIndex()) {
+            return find(null, from, to, siteType, siteName, pageTitle);
+        } else {
+            POMSession session = manager.getSession();
+            org.chromattic.api.query.QueryResult<Page> a = session.findObjects(ObjectType.PAGE, Utils.objectType(siteType),
+                    siteName, pageTitle, from, to);
+            int size = a.size();
+            PageContext[] array = new PageContext[size];
+            int ptr = 0;
+            while (a.hasNext()) {
+                Page page = a.next();
+                PageData data = new PageData(page);
+                dataCache.putPage(data);
+                array[ptr++] = new PageContext(data);
+            }
+            return new QueryResult<PageContext>(from, size, Arrays.asList(array));
+        }
+    }
+
+    /**
+     * <p>
+     * Find the pages following a specified page, the pages are sorted by site type, site name and page name. Unlike the
+     * offset of {@link #findPages(int, int, SiteType, String, String, String)} the key of the last page of a result can be
+     * used to obtain the next result without walking again through the previous pages.
+     * </p>
+     *
+     * <p>
+     * The pages are searched in the index. When the index is not available, in a cluster or while it is loaded, null is
+     * returned and the pages should be searched with an offset instead.
+     * </p>
+     *
+     * @param after the key of the last page of the previous result or null to obtain the first pages
+     * @param limit the maximum number of pages
+     * @param siteType the site type
+     * @param siteName the site name
+     * @param pageName the page name
+     * @param pageTitle the page title
+     * @return the query result or null when the index is not available
+     * @throws PageServiceException anything that would prevent the operation to succeed
+     */
+    public QueryResult<PageContext> findPages(PageKey after, int limit, SiteType siteType, String siteName, String pageName,
+            String pageTitle) throws PageServiceException {
+        if (index != null && loadIndex()) {
+            return find(after, 0, limit, siteType, siteName, pageTitle);
+        } else {
+            return null;
+        }
+    }
+
+    private QueryResult<PageContext> find(PageKey after, int from, int limit, SiteType siteType, String siteName,
+            String pageTitle) {
         POMSession session = manager.getSession();
-        org.chromattic.api.query.QueryResult<Page> a = session.findObjects(ObjectType.PAGE, Utils.objectType(siteType),
-                siteName, pageTitle, from, to);
-        int size = a.size();
-        PageContext[] array = new PageContext[size];
-        int ptr = 0;
-        while (a.hasNext()) {
-            Page page = a.next();
-            PageData data = new PageData(page);
-            dataCache.putPage(data);
-            array[ptr++] = new PageContext(data);
+
+        // The index entries are checked against the actual page, the stale entries are updated and replaced by the
+        // following pages of the index
+        List<PageContext> list = new ArrayList<PageContext>();
+        int skip = from;
+        while (list.size() < limit) {
+            List<PageKey> keys = index.find(after, skip, limit - list.size(), siteType, siteName, pageTitle);
+            if (keys.isEmpty()) {
+                break;
+            }
+            for (PageKey key : keys) {
+                PageData data = dataCache.getPageData(session, key);
+                if (data == null || data == PageData.EMPTY) {
+                    index.remove(key);
+                } else if (!PageIndex.matches(data.state.displayName, pageTitle)) {
+                    index.put(key, data.state.displayName);
+                } else {
+                    list.add(new PageContext(data));
+                }
+            }
+            after = keys.get(keys.size() - 1);
+            skip = 0;
         }
-        return new QueryResult<PageContext>(from, size, Arrays.asList(array));
+        return new QueryResult<PageContext>(from, list.size(), list);
+    }
+
+    /**
+     * Load the index unless it is already loaded. A single thread loads the index, in batches of pages, the other threads
+     * do not wait for it and search the repository meanwhile.
+     *
+     * @return true if the index is loaded
+     */
+    private boolean loadIndex() {
+        if (index.isLoaded()) {
+            return true;
+        }
+        int generation = index.startLoading();
+        if (generation == -1) {
+            return false;
+        }
+        boolean loaded = false;
+        try {
+            POMSession session = manager.getSession();
+            for (int offset = 0;; offset += BATCH_SIZE) {
+                org.chromattic.api.query.QueryResult<Page> pages = session.findObjects(ObjectType.PAGE, null, null, null,
+                        offset, BATCH_SIZE);
+                int size = pages.size();
+                while (pages.hasNext()) {
+                    Page page = pages.next();
+                    Site site = page.getSite();
+                    PageKey key = new SiteKey(Utils.siteType(site.getObjectType()), site.getName()).page(page.getName());
+                    index.put(key, page.adapt(Described.class).getName());
+                }
+                if (size < BATCH_SIZE) {
+                    break;
+                }
+            }
+            loaded = index.setLoaded(generation);
+        } finally {
+            if (!loaded) {
+                index.stopLoading(generation);
+            }
+        }
+        return loaded;
     }
 
     public void clearCache() {
         dataCache.clear();
+        if (index != null) {
+            index.clear();
+        }
     }
 }
@@ -106,6 +106,17 @@ public class PageServiceWrapper implements PageService {
     @Override
     public QueryResult<PageContext> findPages(int offset, int limit, SiteType siteType, String siteName, String pageName,
             String pageTitle) {
+        sync();
+        return service.findPages(offset, limit, siteType, siteName, pageName, pageTitle);
+    }
+
+    public QueryResult<PageContext> findPages(PageKey after, int limit, SiteType siteType, String siteName, String pageName,
+            String pageTitle) throws PageServiceException {
+        sync();
+        return service.findPages(after, limit, siteType, siteName, pageName, pageTitle);
+    }
+
+    private void sync() {
         try {
             JTAUserTransactionLifecycleService jtaUserTransactionLifecycleService = (JTAUserTransactionLifecycleService) PortalContainer
                     .getInstance().getComponentInstanceOfType(JTAUserTransactionLifecycleService.class);
@@ -126,7 +137,6 @@ public class PageServiceWrapper implements PageService {
         } catch (Exception e) {
             log.warn("Error during sync of JTA transaction", e);
         }
-        return service.findPages(offset, limit, siteType, siteName, pageName, pageTitle);
     }
 
     private void notify(String name, PageKey key) {
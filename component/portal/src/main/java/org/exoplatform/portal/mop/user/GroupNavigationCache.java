@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.mop.user;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.exoplatform.commons.cache.future.FutureExoCache;
+import org.exoplatform.commons.cache.future.Loader;
+import org.exoplatform.portal.config.UserACL;
+import org.exoplatform.portal.config.UserPortalConfigService;
+import org.exoplatform.portal.mop.SiteKey;
+import org.exoplatform.portal.mop.navigation.NavigationContext;
+import org.exoplatform.services.cache.CacheService;
+import org.exoplatform.services.cache.ExoCache;
+import org.exoplatform.services.security.ConversationState;
+import org.exoplatform.services.security.Identity;
+import org.exoplatform.services.security.MembershipEntry;
+
+/**
+ * <p>
+ * The group navigations of the users shared by the users having the same groups and memberships. The cache retains the
+ * immutable list of the group navigations of a user sorted by priority, the navigations having the same priority are
+ * kept in the order of the groups of the user. Whether a navigation can be edited depends on the memberships of the
+ * user, so they are part of the key and a lookup is a single cache access.
+ * </p>
+ *
+ * <p>
+ * The list is stored in the <code>GroupNavigationCache</code> cache of the cache service, it is distributed when the
+ * cluster profile is active and it must be cleared when a group navigation is created, updated or destroyed or when a
+ * group is created or removed.
+ * </p>
+ */
+public class GroupNavigationCache {
+
+    /** . */
+    private static final Comparator<GroupNavigation> PRIORITY_COMPARATOR = new Comparator<GroupNavigation>() {
+        public int compare(GroupNavigation o1, GroupNavigation o2) {
+            return o1.getPriority() - o2.getPriority();
+        }
+    };
+
+    /** . */
+    private final ExoCache<Key, List<GroupNavigation>> cache;
+
+    /** . */
+    private final FutureExoCache<Key, List<GroupNavigation>, UserPortalConfigService> navigations;
+
+    /** . */
+    private final Loader<Key, List<GroupNavigation>, UserPortalConfigService> loader = new Loader<Key, List<GroupNavigation>, UserPortalConfigService>() {
+        public List<GroupNavigation> retrieve(UserPortalConfigService service, Key key) throws Exception {
+            UserACL userACL = service.getUserACL();
+            ArrayList<GroupNavigation> list = new ArrayList<GroupNavigation>();
+            for (String groupId : key.groups) {
+                SiteKey siteKey = SiteKey.group(groupId);
+                NavigationContext navigation = service.getNavigationService().loadNavigation(siteKey);
+                if (navigation != null && navigation.getState() != null) {
+                    list.add(new GroupNavigation(navigation, userACL.hasEditPermissionOnNavigation(siteKey)));
+                }
+            }
+
+            // The sort is stable and keeps the order of the groups for the same priority
+            Collections.sort(list, PRIORITY_COMPARATOR);
+            list.trimToSize();
+            return Collections.unmodifiableList(list);
+        }
+    };
+
+    public GroupNavigationCache(CacheService cacheService, int maxSize) {
+        this.cache = cacheService.getCacheInstance(GroupNavigationCache.class.getSimpleName());
+        if (maxSize > 0) {
+            cache.setMaxSize(maxSize);
+        }
+        this.navigations = new FutureExoCache<Key, List<GroupNavigation>, UserPortalConfigService>(loader, cache);
+    }
+
+    /**
+     * Returns the group navigations of the current user.
+     *
+     * @param service the user portal config service
+     * @param groupIds the groups of the user
+     * @return the immutable sorted group navigations
+     */
+    List<GroupNavigation> get(UserPortalConfigService service, List<String> groupIds) {
+        ConversationState state = ConversationState.getCurrent();
+        Identity identity = state != null ? state.getIdentity() : null;
+        Collection<MembershipEntry> memberships = identity != null ? identity.getMemberships() : Collections
+                .<MembershipEntry> emptyList();
+        return navigations.get(service, new Key(groupIds, memberships));
+    }
+
+    /**
+     * Returns the number of shared group navigation lists.
+     *
+     * @return the size
+     */
+    public int getSize() {
+        return cache.getCacheSize();
+    }
+
+    public void clear() {
+        navigations.clear();
+    }
+
+    /**
+     * The group navigation of a user.
+     */
+    static class GroupNavigation implements Serializable {
+
+        /** . */
+        final NavigationContext navigation;
+
+        /** . */
+        final boolean modifiable;
+
+        private GroupNavigation(NavigationContext navigation, boolean modifiable) {
+            this.navigation = navigation;
+            this.modifiable = modifiable;
+        }
+
+        int getPriority() {
+            Integer priority = navigation.getState().getPriority();
+            return priority != null ? priority : 1;
+        }
+    }
+
+    private static class Key implements Serializable {
+
+        /** The group ids in the order of the user groups. */
+        private final List<String> groups;
+
+        /** The sorted memberships. */
+        private final Set<String> memberships;
+
+        private Key(List<String> groupIds, Collection<MembershipEntry> entries) {
+            this.groups = new ArrayList<String>(groupIds);
+            this.memberships = new TreeSet<String>();
+            for (MembershipEntry entry : entries) {
+                memberships.add(entry.getMembershipType() + ":" + entry.getGroup());
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof Key) {
+                Key that = (Key) obj;
+                return groups.equals(that.groups) && memberships.equals(that.memberships);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return groups.hashCode() ^ memberships.hashCode();
+        }
+    }
+}
@@ -21,7 +21,9 @@ package org.exoplatform.portal.mop.user;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 import org.exoplatform.commons.utils.ExpressionUtil;
@@ -174,10 +176,7 @@ public class UserNode {
                 ResourceBundle bundle = owner.navigation.getBundle();
                 resolvedLabel = ExpressionUtil.getExpressionValue(bundle, context.getState().getLabel());
             } else if (id != null) {
-                Locale userLocale = owner.navigation.portal.context.getUserLocale();
-                Locale portalLocale = owner.navigation.portal.getLocale();
-                DescriptionService descriptionService = owner.navigation.portal.service.getDescriptionService();
-                Described.State description = descriptionService.resolveDescription(id, portalLocale, userLocale);
+                Described.State description = resolveDescriptions().get(id);
                 if (description != null) {
                     resolvedLabel = description.getName();
                 }
@@ -194,6 +193,43 @@ public class UserNode {
         return resolvedLabel;
     }
 
+    /**
+     * Resolve the descriptions of this node and of its siblings in a single call since the siblings are usually rendered
+     * together, the resolved labels of the siblings are updated.
+     *
+     * @return the descriptions keyed by node id
+     */
+    private Map<String, Described.State> resolveDescriptions() {
+        UserNode parent = context.getParentNode();
+        Map<String, UserNode> nodes = new LinkedHashMap<String, UserNode>();
+        if (parent != null) {
+            for (UserNode sibling : parent.getChildren()) {
+                if (sibling != this && sibling.resolvedLabel == null && sibling.getId() != null
+                        && sibling.context.getState().getLabel() == null) {
+                    nodes.put(sibling.getId(), sibling);
+                }
+            }
+        }
+        nodes.put(getId(), this);
+
+        //
+        Locale userLocale = owner.navigation.portal.context.getUserLocale();
+        Locale portalLocale = owner.navigation.portal.getLocale();
+        DescriptionService descriptionService = owner.navigation.portal.service.getDescriptionService();
+        Map<String, Described.State> descriptions = descriptionService.resolveDescriptions(nodes.keySet(), portalLocale,
+                userLocale);
+
+        //
+        for (UserNode node : nodes.values()) {
+            if (node != this) {
+                Described.State description = descriptions.get(node.getId());
+                String label = description != null ? description.getName() : null;
+                node.resolvedLabel = label != null ? label : node.getName();
+            }
+        }
+        return descriptions;
+    }
+
     public void setResolvedLabel(String label) {
         String id = context.getId();
         Locale userLocale = owner.navigation.portal.context.getUserLocale();
@@ -38,6 +38,7 @@ import org.exoplatform.portal.mop.navigation.NodeContext;
 import org.exoplatform.portal.mop.navigation.NodeState;
 import org.exoplatform.portal.mop.navigation.Scope;
 import org.exoplatform.portal.mop.navigation.VisitMode;
+import org.exoplatform.portal.mop.user.GroupNavigationCache.GroupNavigation;
 import org.exoplatform.services.organization.Group;
 
 /**
@@ -46,6 +47,13 @@ import org.exoplatform.services.organization.Group;
  */
 public class UserPortalImpl implements UserPortal {
 
+    /** . */
+    private static final Comparator<UserNavigation> PRIORITY_COMPARATOR = new Comparator<UserNavigation>() {
+        public int compare(UserNavigation nav1, UserNavigation nav2) {
+            return nav1.getPriority() - nav2.getPriority();
+        }
+    };
+
     /** . */
     final UserPortalConfigService service;
 
@@ -99,6 +107,7 @@ public class UserPortalImpl implements UserPortal {
     public List<UserNavigation> getNavigations() throws UserPortalException, NavigationServiceException {
         if (navigations == null) {
             List<UserNavigation> navigations = new ArrayList<UserNavigation>(userName == null ? 1 : 10);
+            List<GroupNavigation> groupNavigations = null;
             NavigationContext portalNav = service.getNavigationService().loadNavigation(
                     new SiteKey(SiteType.PORTAL, portalName));
             if (portalNav != null && portalNav.getState() != null) {
@@ -129,26 +138,24 @@ public class UserPortalImpl implements UserPortal {
                     }
 
                     //
+                    List<String> groupIds = new ArrayList<String>(groups.size());
                     for (Object group : groups) {
                         Group m = (Group) group;
                         String groupId = m.getId().trim();
                         if (!groupId.equals(service.getUserACL().getGuestsGroup())) {
-                            NavigationContext groupNavigation = service.getNavigationService().loadNavigation(
-                                    SiteKey.group(groupId));
-                            if (groupNavigation != null && groupNavigation.getState() != null) {
-                                navigations.add(new UserNavigation(this, groupNavigation, service.getUserACL()
-                                        .hasEditPermissionOnNavigation(groupNavigation.getKey())));
-                            }
+                            groupIds.add(groupId);
                         }
                     }
+
+                    // The sorted group navigations are shared by the users having the same groups
+                    groupNavigations = service.getGroupNavigationCache().get(service, groupIds);
                 }
 
                 // Sort the list finally
-                Collections.sort(navigations, new Comparator<UserNavigation>() {
-                    public int compare(UserNavigation nav1, UserNavigation nav2) {
-                        return nav1.getPriority() - nav2.getPriority();
-                    }
-                });
+                Collections.sort(navigations, PRIORITY_COMPARATOR);
+                if (groupNavigations != null) {
+                    navigations = merge(navigations, groupNavigations);
+                }
             }
 
             //
@@ -157,6 +164,29 @@ public class UserPortalImpl implements UserPortal {
         return navigations;
     }
 
+    /**
+     * Merges the sorted group navigations into a sorted list of navigations, a navigation of the list comes before the group
+     * navigations having the same priority.
+     *
+     * @param navigations the sorted navigations
+     * @param groupNavigations the sorted group navigations
+     * @return the merged navigations
+     */
+    private List<UserNavigation> merge(List<UserNavigation> navigations, List<GroupNavigation> groupNavigations) {
+        List<UserNavigation> merged = new ArrayList<UserNavigation>(navigations.size() + groupNavigations.size());
+        int index = 0;
+        for (GroupNavigation groupNavigation : groupNavigations) {
+            while (index < navigations.size() && navigations.get(index).getPriority() <= groupNavigation.getPriority()) {
+                merged.add(navigations.get(index++));
+            }
+            merged.add(new UserNavigation(this, groupNavigation.navigation, groupNavigation.modifiable));
+        }
+        while (index < navigations.size()) {
+            merged.add(navigations.get(index++));
+        }
+        return merged;
+    }
+
     public UserNavigation getNavigation(SiteKey key) throws NullPointerException, UserPortalException,
             NavigationServiceException {
         if (key == null) {
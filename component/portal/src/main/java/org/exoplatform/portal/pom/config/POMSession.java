@@ -20,6 +20,8 @@
 package org.exoplatform.portal.pom.config;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -177,6 +179,36 @@ public final class POMSession {
         return findObjectById(ObjectType.ANY, id);
     }
 
+    /**
+     * Find several objects of a type with a single query, the objects are then found by {@link #findObjectById(String)}
+     * without accessing the repository again. The ids that do not match an object of the type are ignored.
+     *
+     * @param type the object type, only the page and navigation types are supported
+     * @param ids the object ids
+     * @return the found objects
+     */
+    public <O extends WorkspaceObject> List<O> findObjectsById(ObjectType<O> type, Collection<String> ids) {
+        StringBuilder statement = new StringBuilder();
+        for (String id : ids) {
+            if (id.indexOf('\'') == -1) {
+                if (statement.length() > 0) {
+                    statement.append(" OR ");
+                }
+                statement.append("jcr:uuid = '").append(id).append('\'');
+            }
+        }
+        List<O> objects = new ArrayList<O>(ids.size());
+        if (statement.length() > 0) {
+            Class<O> mappedClass = (Class<O>) mapping.get(type);
+            QueryResult<O> result = context.getSession().createQueryBuilder(mappedClass).where(statement.toString()).get()
+                    .objects();
+            while (result.hasNext()) {
+                objects.add(result.next());
+            }
+        }
+        return objects;
+    }
+
     public Customization<?> findCustomizationById(String id) {
         Customization<?> customization = getModel().findCustomizationById(id);
         if (customization == null) {
@@ -19,9 +19,16 @@
 package org.exoplatform.portal.pom.config.cache;
 
 import java.io.Serializable;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
-import org.exoplatform.container.ExoContainer;
+import org.exoplatform.commons.scope.ScopedKey;
+import org.exoplatform.commons.utils.PropertyManager;
 import org.exoplatform.portal.pom.config.POMSession;
 import org.exoplatform.portal.pom.config.POMTask;
 import org.exoplatform.portal.pom.config.TaskExecutionDecorator;
@@ -30,11 +37,35 @@ import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
 
 /**
+ * <p>
+ * Caches the result of the {@link CacheableDataTask} read tasks, the cache has two tiers:
+ * <ul>
+ * <li>a near cache local to the node holding the loaded data, the data objects are immutable and are shared by the
+ * sessions without any copy</li>
+ * <li>the shared cache of the session manager holding a small {@link Version} stamp for each key instead of the data</li>
+ * </ul>
+ * A near cache entry is valid as long as the shared cache contains the version stamp the entry was loaded with. A write
+ * evicts the stamp from the shared cache when the session is saved, so in a cluster only the removal of the stamp is
+ * propagated to the other nodes, they reload the data from their own repository session on the next read.
+ * </p>
+ *
+ * <p>
+ * The near cache is bounded by the <code>gatein.portal.pom.near-cache.size</code> property, defaulting to
+ * {@link #DEFAULT_NEAR_CACHE_SIZE} entries. When the property is set to zero the near cache is disabled and the data is
+ * stored in the shared cache like it used to be.
+ * </p>
+ *
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  * @version $Revision$
  */
 public class DataCache extends TaskExecutionDecorator {
 
+    /** . */
+    public static final String NEAR_CACHE_SIZE = "gatein.portal.pom.near-cache.size";
+
+    /** . */
+    public static final int DEFAULT_NEAR_CACHE_SIZE = 5000;
+
     /** . */
     private final Logger log = LoggerFactory.getLogger(DataCache.class);
 
@@ -42,10 +73,36 @@ public class DataCache extends TaskExecutionDecorator {
     private final AtomicLong readCount = new AtomicLong();
 
     /** . */
-    private boolean cluster = ExoContainer.getProfiles().contains("cluster");
+    private final ConcurrentMap<ScopedKey<?>, Entry> nearCache;
+
+    /** . */
+    private final int nearCacheSize;
+
+    /** The statistics of each task type. */
+    private final ConcurrentMap<Class<?>, Statistics> statistics = new ConcurrentHashMap<Class<?>, Statistics>();
 
     public DataCache(TaskExecutor next) {
+        this(next, nearCacheSizeProperty());
+    }
+
+    public DataCache(TaskExecutor next, int nearCacheSize) {
         super(next);
+
+        //
+        this.nearCacheSize = nearCacheSize;
+        this.nearCache = nearCacheSize > 0 ? new ConcurrentHashMap<ScopedKey<?>, Entry>() : null;
+    }
+
+    private static int nearCacheSizeProperty() {
+        String value = PropertyManager.getProperty(NEAR_CACHE_SIZE);
+        if (value != null) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                LoggerFactory.getLogger(DataCache.class).warn("The " + NEAR_CACHE_SIZE + " property is not set properly.");
+            }
+        }
+        return DEFAULT_NEAR_CACHE_SIZE;
     }
 
     public <V> V execute(POMSession session, POMTask<V> task) throws Exception {
@@ -97,6 +154,7 @@ public class DataCache extends TaskExecutionDecorator {
 
     private <K extends Serializable, V> V read(POMSession session, CacheableDataTask<K, V> task) throws Exception {
         K key = task.getKey();
+        Statistics stats = getStatistics(task.getClass());
 
         //
         if (!session.isModified()) {
@@ -105,12 +163,27 @@ public class DataCache extends TaskExecutionDecorator {
                 log.trace("Retrieved " + o + " for key " + key);
             }
 
+            // Resolve the version stamp with the near cache
+            ScopedKey<K> nearKey = null;
+            Version version = null;
+            if (nearCache != null) {
+                nearKey = ScopedKey.create(key);
+                if (o instanceof Version) {
+                    version = (Version) o;
+                    Entry entry = nearCache.get(nearKey);
+                    o = entry != null && entry.version.equals(version) ? entry.value : null;
+                } else {
+                    o = null;
+                }
+            }
+
             V v = null;
             if (o != null) {
                 if (o == NullObject.get()) {
                     if (log.isTraceEnabled()) {
                         log.trace("Returning null as found null object marker");
                     }
+                    stats.hits.incrementAndGet();
                     return null;
                 } else {
                     Class<V> type = task.getValueType();
@@ -127,6 +200,7 @@ public class DataCache extends TaskExecutionDecorator {
                 if (log.isTraceEnabled()) {
                     log.trace("Returning object " + v + " for key " + key);
                 }
+                stats.hits.incrementAndGet();
                 return v;
             } else {
                 readCount.incrementAndGet();
@@ -137,23 +211,36 @@ public class DataCache extends TaskExecutionDecorator {
                 }
 
                 //
+                long time = -System.nanoTime();
                 v = super.execute(session, task);
+                time += System.nanoTime();
+                stats.recordLoad(time);
                 if (log.isTraceEnabled()) {
                     log.trace("Retrieved object " + v + " key " + key + " that will be returned");
                 }
 
                 //
                 if (!session.isModified()) {
-                    if (v == null) {
+                    Object value = v != null ? v : NullObject.get();
+                    if (nearCache != null) {
+                        // Keep the stamp already published by another node or publish a new one, a stamp evicted
+                        // during the load invalidates the entry on the next read
+                        if (version == null) {
+                            version = new Version();
+                            session.putInCache(key, version);
+                        }
+                        if (nearCache.size() >= nearCacheSize) {
+                            nearCache.clear();
+                        }
                         if (log.isTraceEnabled()) {
-                            log.trace("Updating cache with null object for key " + key);
+                            log.trace("Updating near cache with object " + value + " version " + version + " for key " + key);
                         }
-                        session.putInCache(key, NullObject.get());
+                        nearCache.put(nearKey, new Entry(version, value));
                     } else {
                         if (log.isTraceEnabled()) {
-                            log.trace("Updating cache with object " + v + " for key " + key);
+                            log.trace("Updating cache with object " + value + " for key " + key);
                         }
-                        session.putInCache(key, v);
+                        session.putInCache(key, value);
                     }
                 }
 
@@ -166,11 +253,207 @@ public class DataCache extends TaskExecutionDecorator {
             }
 
             //
+            stats.bypasses.incrementAndGet();
             return super.execute(session, task);
         }
     }
 
+    private Statistics getStatistics(Class<?> taskType) {
+        Statistics stats = statistics.get(taskType);
+        if (stats == null) {
+            String name = taskType.getName();
+            stats = new Statistics(name.substring(name.lastIndexOf('.') + 1));
+            Statistics previous = statistics.putIfAbsent(taskType, stats);
+            if (previous != null) {
+                stats = previous;
+            }
+        }
+        return stats;
+    }
+
     public long getReadCount() {
         return readCount.longValue();
     }
+
+    /**
+     * Returns the number of entries of the near cache or -1 when the near cache is disabled.
+     *
+     * @return the near cache size
+     */
+    public int getNearCacheSize() {
+        return nearCache != null ? nearCache.size() : -1;
+    }
+
+    /**
+     * Clear the near cache of this node, the entries are reloaded on the next read.
+     */
+    public void clearNearCache() {
+        if (nearCache != null) {
+            nearCache.clear();
+        }
+    }
+
+    /**
+     * Returns the statistics of the read tasks keyed by task type name.
+     *
+     * @return the statistics
+     */
+    public Map<String, Statistics> getStatistics() {
+        Map<String, Statistics> map = new HashMap<String, Statistics>();
+        for (Statistics stats : statistics.values()) {
+            map.put(stats.name, stats);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * The read statistics of a task type.
+     */
+    public static class Statistics {
+
+        /** . */
+        private final String name;
+
+        /** . */
+        private final AtomicLong hits = new AtomicLong();
+
+        /** . */
+        private final AtomicLong bypasses = new AtomicLong();
+
+        /** . */
+        private final AtomicLong loads = new AtomicLong();
+
+        /** The sum of the load times in nanoseconds. */
+        private final AtomicLong loadTime = new AtomicLong();
+
+        /** The greatest load time in nanoseconds. */
+        private final AtomicLong maxLoadTime = new AtomicLong();
+
+        private Statistics(String name) {
+            this.name = name;
+        }
+
+        private void recordLoad(long time) {
+            loads.incrementAndGet();
+            loadTime.addAndGet(time);
+            while (true) {
+                long max = maxLoadTime.get();
+                if (time <= max || maxLoadTime.compareAndSet(max, time)) {
+                    break;
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getHitCount() {
+            return hits.get();
+        }
+
+        /**
+         * Returns the number of reads that loaded the data because it was not cached.
+         *
+         * @return the miss count
+         */
+        public long getMissCount() {
+            return loads.get();
+        }
+
+        /**
+         * Returns the number of reads that did not use the cache because the session was modified.
+         *
+         * @return the bypass count
+         */
+        public long getBypassCount() {
+            return bypasses.get();
+        }
+
+        /**
+         * Returns the average load time in milliseconds or -1 when no data was loaded.
+         *
+         * @return the average load time
+         */
+        public double getAverageLoadTime() {
+            long count = loads.get();
+            return count == 0 ? -1 : loadTime.get() / (count * 1000000D);
+        }
+
+        /**
+         * Returns the greatest load time in milliseconds.
+         *
+         * @return the maximum load time
+         */
+        public double getMaxLoadTime() {
+            return maxLoadTime.get() / 1000000D;
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics[name=" + name + ",hits=" + hits + ",misses=" + loads + ",bypasses=" + bypasses + "]";
+        }
+    }
+
+    /**
+     * The version stamp of a key stored in the shared cache, a version is unique across the nodes of a cluster.
+     */
+    static final class Version implements Serializable {
+
+        /** . */
+        private static final long NODE = new SecureRandom().nextLong();
+
+        /** . */
+        private static final AtomicLong COUNTER = new AtomicLong();
+
+        /** . */
+        private final long node;
+
+        /** . */
+        private final long counter;
+
+        Version() {
+            this.node = NODE;
+            this.counter = COUNTER.incrementAndGet();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof Version) {
+                Version that = (Version) obj;
+                return node == that.node && counter == that.counter;
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (node ^ (node >>> 32)) * 31 + (int) (counter ^ (counter >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return "Version[" + Long.toHexString(node) + ":" + counter + "]";
+        }
+    }
+
+    /**
+     * A near cache entry.
+     */
+    private static final class Entry {
+
+        /** . */
+        private final Version version;
+
+        /** The data or the null object marker. */
+        private final Object value;
+
+        private Entry(Version version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
 }
@@ -561,6 +561,32 @@ public class TestUserPortalConfigService extends AbstractConfigTest {
         }.execute(null);
     }
 
+    public void testCacheStatistics() {
+        new UnitTest() {
+            public void execute() throws Exception {
+                mgr.clearCache();
+                DataCache cache = mgr.getDecorator(DataCache.class);
+                storage_.getPortalConfig(PortalConfig.PORTAL_TYPE, "classic");
+                DataCache.Statistics stats = cache.getStatistics().get("PortalConfigTask$Load");
+                assertNotNull(stats);
+                long misses = stats.getMissCount();
+                long hits = stats.getHitCount();
+                assertTrue(misses > 0);
+                assertTrue(stats.getAverageLoadTime() >= 0);
+
+                // Served by the near cache
+                storage_.getPortalConfig(PortalConfig.PORTAL_TYPE, "classic");
+                assertEquals(misses, stats.getMissCount());
+                assertEquals(hits + 1, stats.getHitCount());
+
+                // Clearing the shared cache removes the version stamps
+                mgr.clearCache();
+                storage_.getPortalConfig(PortalConfig.PORTAL_TYPE, "classic");
+                assertEquals(misses + 1, stats.getMissCount());
+            }
+        }.execute(null);
+    }
+
     private abstract class UnitTest {
 
         /** . */
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.portal.config.performance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.exoplatform.portal.config.UserACL;
+import org.exoplatform.portal.config.UserACLMetaData;
+import org.exoplatform.services.security.ConversationState;
+import org.exoplatform.services.security.Identity;
+import org.exoplatform.services.security.MembershipEntry;
+
+import com.sun.japex.JapexDriverBase;
+import com.sun.japex.TestCase;
+
+/**
+ * Measures the permission checks of a page rendering: an identity member of a realistic number of groups checks the
+ * permissions of the portal, the page and its portlets, with or without the decisions remembered for the request.
+ */
+public class PermissionDriver extends JapexDriverBase {
+
+    /** . */
+    private boolean decisions;
+
+    /** . */
+    private UserACL acl;
+
+    /** . */
+    private ConversationState state;
+
+    /** . */
+    private String[] permissions;
+
+    @Override
+    public void initializeDriver() {
+        UserACLMetaData md = new UserACLMetaData();
+        md.setSuperUser("root");
+        md.setGuestsGroups("/platform/guests");
+        md.setPortalCreateGroups("*:/platform/administrators");
+        md.setNavigationCreatorMembershipType("manager");
+
+        //
+        this.decisions = Boolean.parseBoolean(getParam("decisions"));
+        this.acl = new UserACL(md);
+    }
+
+    @Override
+    public void prepare(TestCase testCase) {
+        int membershipCount = testCase.getIntParam("memberships");
+        int portletCount = testCase.getIntParam("portlets");
+
+        //
+        Set<MembershipEntry> memberships = new HashSet<MembershipEntry>();
+        for (int i = 0; i < membershipCount; i++) {
+            memberships.add(new MembershipEntry("/organization/department" + i + "/team", i % 2 == 0 ? "member" : "manager"));
+        }
+        memberships.add(new MembershipEntry("/platform/users", "member"));
+
+        // The permissions of a page rendering, the portlets are mostly accessible by the same few groups
+        List<String> permissions = new ArrayList<String>();
+        permissions.add("*:/platform/administrators");
+        permissions.add("*:/platform/users");
+        for (int i = 0; i < portletCount; i++) {
+            permissions.add("manager:/organization/department" + (i % 5) + "/team");
+            permissions.add("*:/platform/users");
+        }
+
+        //
+        this.state = new ConversationState(new Identity("john", memberships, Collections.<String> emptySet()));
+        this.permissions = permissions.toArray(new String[permissions.size()]);
+    }
+
+    @Override
+    public void run(TestCase testCase) {
+        ConversationState.setCurrent(state);
+        if (decisions) {
+            acl.beginRequest();
+        }
+        try {
+            int granted = 0;
+            for (String permission : permissions) {
+                if (acl.hasPermission(permission)) {
+                    granted++;
+                }
+            }
+            if (granted == 0) {
+                throw new AssertionError("No permission granted");
+            }
+        } finally {
+            if (decisions) {
+                acl.endRequest();
+            }
+            ConversationState.setCurrent(null);
+        }
+    }
+
+    @Override
+    public void finish(TestCase testCase) {
+        this.state = null;
+        this.permissions = null;
+    }
+
+    @Override
+    public void terminateDriver() {
+        this.acl = null;
+    }
+}
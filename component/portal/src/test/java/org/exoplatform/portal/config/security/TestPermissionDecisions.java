@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.config.security;
+
+public class TestPermissionDecisions extends AbstractTestUserACL {
+
+    public void testOutsideOfRequest() {
+        assertFalse(hasPermission(manager, "editor:/manageable"));
+        manager.addMembership("editor", "/manageable");
+        assertTrue(hasPermission(manager, "editor:/manageable"));
+        manager.removeMembership("editor", "/manageable");
+        assertFalse(hasPermission(manager, "editor:/manageable"));
+    }
+
+    public void testRemembered() {
+        ua.beginRequest();
+        try {
+            assertFalse(hasPermission(manager, "editor:/manageable"));
+            manager.addMembership("editor", "/manageable");
+            assertFalse(hasPermission(manager, "editor:/manageable"));
+            assertTrue(hasPermission(manager, "*:/manageable"));
+        } finally {
+            ua.endRequest();
+        }
+        assertTrue(hasPermission(manager, "editor:/manageable"));
+    }
+
+    public void testCleared() {
+        ua.beginRequest();
+        try {
+            assertFalse(hasPermission(manager, "editor:/manageable"));
+            manager.addMembership("editor", "/manageable");
+            ua.clearDecisions();
+            assertTrue(hasPermission(manager, "editor:/manageable"));
+        } finally {
+            ua.endRequest();
+        }
+    }
+
+    public void testIdentities() {
+        ua.beginRequest();
+        try {
+            for (int i = 0; i < 2; i++) {
+                assertTrue(hasPermission(manager, "manager:/manageable"));
+                assertFalse(hasPermission(user, "manager:/manageable"));
+                assertTrue(hasPermission(administrator, "*:/platform/administrators"));
+                assertFalse(hasPermission(manager, "*:/platform/administrators"));
+                assertTrue(hasPermission(guest, "*:/platform/guests"));
+                assertFalse(hasPermission(guest, "manager:/manageable"));
+                assertTrue(hasPermission(root, "manager:/manageable"));
+            }
+        } finally {
+            ua.endRequest();
+        }
+    }
+
+    public void testNested() {
+        ua.beginRequest();
+        try {
+            assertFalse(hasPermission(manager, "editor:/manageable"));
+            ua.beginRequest();
+            ua.endRequest();
+            manager.addMembership("editor", "/manageable");
+            assertFalse(hasPermission(manager, "editor:/manageable"));
+        } finally {
+            ua.endRequest();
+        }
+        assertTrue(hasPermission(manager, "editor:/manageable"));
+    }
+
+    public void testInvalidExpression() {
+        assertFalse(hasPermission(manager, "manager"));
+        assertFalse(hasPermission(manager, ":/manageable"));
+        assertFalse(hasPermission(manager, ""));
+        assertTrue(hasPermission(manager, "manager:/manageable:foo"));
+    }
+
+    private boolean hasPermission(User user, final String expression) {
+        final boolean[] result = new boolean[1];
+        user.run(new Runnable() {
+            public void run() {
+                result[0] = ua.hasPermission(expression);
+            }
+        });
+        return result[0];
+    }
+}
@@ -19,8 +19,10 @@
 
 package org.exoplatform.portal.mop.description;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -148,6 +150,69 @@ public class TestDescriptionService extends AbstractPortalTest {
         assertEquals(new Described.State("name_en_GB", null), svc.resolveDescription(id, null, Locale.UK));
     }
 
+    public void testResolveDescriptions() throws Exception {
+        DescriptionService svc = new DescriptionServiceImpl(mgr);
+        MOPService mop = mgr.getPOMService();
+        Site portal = mop.getModel().getWorkspace().addSite(ObjectType.PORTAL_SITE, "foo");
+        Navigation nav = portal.getRootNavigation().addChild("default");
+        Navigation foo = nav.addChild("foo");
+        I18Nized i18nized = foo.adapt(I18Nized.class);
+        i18nized.getMixin(Described.class, Locale.ENGLISH, true).setName("foo_en");
+        i18nized.getMixin(Described.class, Locale.FRENCH, true).setName("foo_fr");
+        Navigation bar = nav.addChild("bar");
+        i18nized = bar.adapt(I18Nized.class);
+        i18nized.getMixin(Described.class, Locale.ENGLISH, true).setName("bar_en");
+        Navigation juu = nav.addChild("juu");
+        List<String> ids = Arrays.asList(foo.getObjectId(), bar.getObjectId(), juu.getObjectId());
+
+        //
+        Map<String, Described.State> descriptions = svc.resolveDescriptions(ids, null, Locale.FRENCH);
+        assertEquals(Collections.singleton(foo.getObjectId()), descriptions.keySet());
+        assertEquals(new Described.State("foo_fr", null), descriptions.get(foo.getObjectId()));
+
+        //
+        descriptions = svc.resolveDescriptions(ids, Locale.ENGLISH, Locale.FRENCH);
+        assertEquals(Tools.toSet(foo.getObjectId(), bar.getObjectId()), descriptions.keySet());
+        assertEquals(new Described.State("foo_fr", null), descriptions.get(foo.getObjectId()));
+        assertEquals(new Described.State("bar_en", null), descriptions.get(bar.getObjectId()));
+        for (String id : ids) {
+            assertEquals(descriptions.get(id), svc.resolveDescription(id, Locale.ENGLISH, Locale.FRENCH));
+        }
+
+        //
+        try {
+            svc.resolveDescriptions(Arrays.asList(foo.getObjectId(), null), null, Locale.FRENCH);
+            fail();
+        } catch (NullPointerException e) {
+        }
+    }
+
+    public void testResolveMissingDescription() throws Exception {
+        DescriptionService svc = new DescriptionServiceImpl(mgr);
+        MOPService mop = mgr.getPOMService();
+        Site portal = mop.getModel().getWorkspace().addSite(ObjectType.PORTAL_SITE, "foo");
+        Navigation nav = portal.getRootNavigation().addChild("default");
+        String id = nav.getObjectId();
+
+        // The missing description is cached
+        assertEquals(null, svc.resolveDescription(id, null, Locale.UK));
+        assertEquals(null, svc.resolveDescription(id, null, Locale.FRENCH));
+        nav.adapt(I18Nized.class).getMixin(Described.class, Locale.FRENCH, true).setName("name_fr");
+        assertEquals(null, svc.resolveDescription(id, null, Locale.FRENCH));
+
+        // Updating a description removes the cached descriptions of its locale and of the locales falling back to it
+        svc.setDescription(id, Locale.ENGLISH, new Described.State("name_en", null));
+        assertEquals(new Described.State("name_en", null), svc.resolveDescription(id, null, Locale.UK));
+        assertEquals(new Described.State("name_en", null), svc.resolveDescription(id, null, Locale.ENGLISH));
+
+        // Updating all the descriptions removes the cached descriptions of all the locales
+        Map<Locale, Described.State> descriptions = new HashMap<Locale, Described.State>();
+        descriptions.put(Locale.FRENCH, new Described.State("name_fr", null));
+        svc.setDescriptions(id, descriptions);
+        assertEquals(null, svc.resolveDescription(id, null, Locale.UK));
+        assertEquals(new Described.State("name_fr", null), svc.resolveDescription(id, null, Locale.FRENCH));
+    }
+
     public void testGetDefaultDescription() throws Exception {
         DescriptionService svc = new DescriptionServiceImpl(mgr);
         MOPService mop = mgr.getPOMService();
@@ -19,8 +19,10 @@
 
 package org.exoplatform.portal.mop.navigation;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.jcr.NodeIterator;
 import javax.jcr.Session;
@@ -29,6 +31,7 @@ import org.exoplatform.portal.mop.Described;
 import org.exoplatform.portal.mop.SiteKey;
 import org.exoplatform.portal.mop.SiteType;
 import org.exoplatform.portal.mop.Visibility;
+import org.exoplatform.portal.pom.config.POMSession;
 import org.exoplatform.portal.pom.data.MappedAttributes;
 import org.gatein.mop.api.workspace.Navigation;
 import org.gatein.mop.api.workspace.ObjectType;
@@ -131,6 +134,96 @@ public class TestNavigationService extends AbstractTestNavigationService {
         assertNull(d.getChild("e").getChildren());
     }
 
+    public void testBatchLoad() throws Exception {
+        MOPService mop = mgr.getPOMService();
+        Site portal = mop.getModel().getWorkspace().addSite(ObjectType.PORTAL_SITE, "batch_load");
+        Navigation root = portal.getRootNavigation().addChild("default");
+        for (int i = 0; i < 3; i++) {
+            Navigation a = root.addChild("" + i);
+            for (int j = 0; j < 3; j++) {
+                Navigation b = a.addChild("" + j);
+                for (int k = 0; k < 3; k++) {
+                    b.addChild("" + k);
+                }
+            }
+        }
+
+        //
+        sync(true);
+
+        //
+        final int[] batches = new int[1];
+        NavigationServiceImpl service = new NavigationServiceImpl(mgr, new SimpleDataCache() {
+            @Override
+            protected Map<String, NodeData> getNodes(POMSession session, Collection<String> keys) {
+                batches[0]++;
+                return super.getNodes(session, keys);
+            }
+        });
+        NavigationContext navigation = service.loadNavigation(SiteKey.portal("batch_load"));
+        Node node = service.loadNode(Node.MODEL, navigation, Scope.ALL, null).getNode();
+        assertEquals(3, node.getSize());
+        for (Node a : node.getChildren()) {
+            assertEquals(3, a.getSize());
+            for (Node b : a.getChildren()) {
+                assertEquals(3, b.getSize());
+                for (Node c : b.getChildren()) {
+                    assertEquals(0, c.getSize());
+                }
+            }
+        }
+
+        // 13 nodes were expanded but the children were loaded with at most two batches per level
+        assertTrue("Was expecting at most 6 batches instead of " + batches[0], batches[0] <= 6);
+    }
+
+    public void testBatchLoadScope() throws Exception {
+        MOPService mop = mgr.getPOMService();
+        Site portal = mop.getModel().getWorkspace().addSite(ObjectType.PORTAL_SITE, "batch_load_scope");
+        Navigation root = portal.getRootNavigation().addChild("default");
+        for (int i = 0; i < 3; i++) {
+            Navigation a = root.addChild("" + i);
+            for (int j = 0; j < 3; j++) {
+                Navigation b = a.addChild("" + j);
+                for (int k = 0; k < 3; k++) {
+                    b.addChild("" + k);
+                }
+            }
+        }
+
+        //
+        sync(true);
+
+        //
+        final int[] loaded = new int[1];
+        NavigationServiceImpl service = new NavigationServiceImpl(mgr, new SimpleDataCache() {
+            @Override
+            protected Map<String, NodeData> getNodes(POMSession session, Collection<String> keys) {
+                loaded[0] += keys.size();
+                return super.getNodes(session, keys);
+            }
+        });
+        NavigationContext navigation = service.loadNavigation(SiteKey.portal("batch_load_scope"));
+
+        // The grandchildren are not expanded, their children are not prefetched
+        Node node = service.loadNode(Node.MODEL, navigation, Scope.GRANDCHILDREN, null).getNode();
+        for (Node a : node.getChildren()) {
+            for (Node b : a.getChildren()) {
+                assertNull(b.getChildren());
+            }
+        }
+        assertEquals(12, loaded[0]);
+
+        // Only the children of the branch are loaded
+        service.clearCache();
+        loaded[0] = 0;
+        node = service.loadNode(Node.MODEL, navigation, GenericScope.branchShape(new String[] { "1" }), null).getNode();
+        assertEquals(3, node.getChild("1").getSize());
+        assertNull(node.getChild("0").getChildren());
+        assertNull(node.getChild("2").getChildren());
+        assertEquals(6, loaded[0]);
+    }
+
     public void testUpdateNode() throws Exception {
         NavigationContext nav = service.loadNavigation(SiteKey.portal("large"));
         Node root = service.loadNode(Node.MODEL, nav, Scope.CHILDREN, null).getNode();
@@ -19,7 +19,14 @@
 
 package org.exoplatform.portal.mop.navigation;
 
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.UUID;
 
 import org.exoplatform.component.test.AbstractGateInTest;
 import org.exoplatform.portal.mop.SiteKey;
@@ -47,6 +54,142 @@ public class TestSerialization extends AbstractGateInTest {
         assertEquals(copy.state, data.state);
     }
 
+    public void testNodeDataUUIDSerialization() throws Exception {
+        String parentId = UUID.randomUUID().toString();
+        String id = UUID.randomUUID().toString();
+        String[] children = { UUID.randomUUID().toString(), "not_an_uuid", "0A1B2C3D-0000-0000-0000-000000000000" };
+        NodeData data = new NodeData(parentId, id, "foo", NodeState.INITIAL, children);
+        NodeData copy = IOTools.clone(data);
+        assertEquals(parentId, copy.parentId);
+        assertEquals(id, copy.id);
+        assertEquals(Arrays.asList(children), Arrays.asList(copy.children));
+        assertEquals(NodeState.INITIAL, copy.state);
+    }
+
+    public void testNodeDataSharedStrings() throws Exception {
+        NodeData data = new NodeData(null, UUID.randomUUID().toString(), "foo", NodeState.INITIAL,
+                new String[] { UUID.randomUUID().toString() });
+        NodeData copy1 = IOTools.clone(data);
+        NodeData copy2 = IOTools.clone(data);
+        assertNotSame(copy1, copy2);
+        assertSame(copy1.id, copy2.id);
+        assertSame(copy1.name, copy2.name);
+        assertSame(copy1.children[0], copy2.children[0]);
+    }
+
+    public void testNodeDataFootprint() throws Exception {
+        assertFootprint(10000);
+        assertFootprint(100000);
+    }
+
+    private void assertFootprint(int size) throws Exception {
+        NodeData[] nodes = createNavigation(size);
+        long bytes = 0;
+        long plainBytes = 0;
+        for (NodeData data : nodes) {
+            bytes += serializedSize(data);
+            plainBytes += serializedSize(new PlainNodeData(data));
+        }
+
+        // The compact form must be smaller than the default serialized form of the same fields
+        assertTrue("Was expecting the compact form of a navigation of " + size + " nodes to be smaller than " + plainBytes
+                + " bytes instead of " + bytes, bytes < plainBytes);
+    }
+
+    public void testNodeDataHeapFootprint() throws Exception {
+        assertHeapFootprint(10000);
+        assertHeapFootprint(100000);
+    }
+
+    private void assertHeapFootprint(int size) throws Exception {
+        NodeData[] nodes = createNavigation(size);
+
+        // Unmarshall the nodes as the cache does and count the string instances they retain
+        Set<String> strings = Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+        Set<String> plainStrings = Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+        for (NodeData data : nodes) {
+            NodeData copy = IOTools.clone(data);
+            strings.add(copy.id);
+            strings.add(copy.name);
+            if (copy.parentId != null) {
+                strings.add(copy.parentId);
+            }
+            strings.addAll(Arrays.asList(copy.children));
+            PlainNodeData plainCopy = IOTools.clone(new PlainNodeData(data));
+            plainStrings.add(plainCopy.id);
+            plainStrings.add(plainCopy.name);
+            if (plainCopy.parentId != null) {
+                plainStrings.add(plainCopy.parentId);
+            }
+            plainStrings.addAll(Arrays.asList(plainCopy.children));
+        }
+
+        // Without sharing the id of a node is retained by the node, by the parent id of its children and by its entry in
+        // the parent children, with sharing they use a single instance
+        assertEquals(2 * size, strings.size());
+        assertEquals(4 * size - 2, plainStrings.size());
+    }
+
+    private static int serializedSize(Object o) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(o);
+        oos.close();
+        return baos.size();
+    }
+
+    /**
+     * The fields of a node data with the default serialized form, it is the reference the compact form is measured against.
+     */
+    private static class PlainNodeData implements Serializable {
+
+        /** . */
+        final String parentId;
+
+        /** . */
+        final String id;
+
+        /** . */
+        final String name;
+
+        /** . */
+        final NodeState state;
+
+        /** . */
+        final String[] children;
+
+        private PlainNodeData(NodeData data) {
+            this.parentId = data.parentId;
+            this.id = data.id;
+            this.name = data.name;
+            this.state = data.state;
+            this.children = data.children;
+        }
+    }
+
+    /**
+     * Build a navigation of size nodes where each node has at most 10 children.
+     */
+    private NodeData[] createNavigation(int size) {
+        String[] ids = new String[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = UUID.randomUUID().toString();
+        }
+        NodeData[] nodes = new NodeData[size];
+        for (int i = 0; i < size; i++) {
+            int first = i * 10 + 1;
+            int last = Math.min(first + 10, size);
+            String[] children = new String[Math.max(0, last - first)];
+            for (int j = 0; j < children.length; j++) {
+                children[j] = ids[first + j];
+            }
+            NodeState state = new NodeState.Builder().label("node " + i).pageRef(SiteKey.portal("classic").page("page" + i))
+                    .build();
+            nodes[i] = new NodeData(i == 0 ? null : ids[(i - 1) / 10], ids[i], "node" + i, state, children);
+        }
+        return nodes;
+    }
+
     public void testNavigationStateSerialization() throws Exception {
         NavigationState state = new NavigationState(5);
         NavigationState copy = IOTools.clone(state);
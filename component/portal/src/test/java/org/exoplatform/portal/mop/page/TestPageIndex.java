@@ -0,0 +1,119 @@
+package org.exoplatform.portal.mop.page;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.exoplatform.portal.mop.SiteKey;
+import org.exoplatform.portal.mop.SiteType;
+
+public class TestPageIndex extends TestCase {
+
+    /** . */
+    private static final PageKey CLASSIC_HOME = SiteKey.portal("classic").page("home");
+
+    /** . */
+    private static final PageKey CLASSIC_SITEMAP = SiteKey.portal("classic").page("sitemap");
+
+    /** . */
+    private static final PageKey INTRANET_HOME = SiteKey.portal("intranet").page("home");
+
+    /** . */
+    private static final PageKey USERS_ADMIN = SiteKey.group("/platform/users").page("admin");
+
+    /** . */
+    private static final PageKey ROOT_DASHBOARD = SiteKey.user("root").page("dashboard");
+
+    private PageIndex createIndex() {
+        PageIndex index = new PageIndex();
+        index.put(ROOT_DASHBOARD, "Root Dashboard");
+        index.put(INTRANET_HOME, "Intranet Home");
+        index.put(USERS_ADMIN, "Users Administration");
+        index.put(CLASSIC_SITEMAP, "Site Map");
+        index.put(CLASSIC_HOME, "Home Page");
+        index.setLoaded(index.startLoading());
+        return index;
+    }
+
+    public void testOrder() {
+        PageIndex index = createIndex();
+        assertEquals(Arrays.asList(CLASSIC_HOME, CLASSIC_SITEMAP, INTRANET_HOME, USERS_ADMIN, ROOT_DASHBOARD),
+                index.find(null, 0, 10, null, null, null));
+    }
+
+    public void testSite() {
+        PageIndex index = createIndex();
+        assertEquals(Arrays.asList(CLASSIC_HOME, CLASSIC_SITEMAP, INTRANET_HOME),
+                index.find(null, 0, 10, SiteType.PORTAL, null, null));
+        assertEquals(Arrays.asList(CLASSIC_HOME, CLASSIC_SITEMAP), index.find(null, 0, 10, SiteType.PORTAL, "classic", null));
+        assertEquals(Arrays.asList(CLASSIC_HOME, CLASSIC_SITEMAP), index.find(null, 0, 10, null, "  classic  ", null));
+        assertEquals(Arrays.asList(INTRANET_HOME), index.find(null, 0, 10, SiteType.PORTAL, "intranet", null));
+        assertEquals(Arrays.asList(ROOT_DASHBOARD), index.find(null, 0, 10, SiteType.USER, null, null));
+        assertEquals(0, index.find(null, 0, 10, SiteType.GROUP, "classic", null).size());
+    }
+
+    public void testTitle() {
+        PageIndex index = createIndex();
+        assertEquals(Arrays.asList(CLASSIC_HOME, INTRANET_HOME), index.find(null, 0, 10, null, null, "home"));
+        assertEquals(Arrays.asList(CLASSIC_HOME, INTRANET_HOME), index.find(null, 0, 10, null, null, " HOM "));
+        assertEquals(Arrays.asList(INTRANET_HOME), index.find(null, 0, 10, null, null, "intranet home"));
+        assertEquals(Arrays.asList(ROOT_DASHBOARD), index.find(null, 0, 10, null, null, "ashbo"));
+        assertEquals(0, index.find(null, 0, 10, null, null, "foo").size());
+        assertTrue(PageIndex.matches("Home Page", "home"));
+        assertFalse(PageIndex.matches(null, "home"));
+        assertTrue(PageIndex.matches(null, null));
+    }
+
+    public void testPagination() {
+        PageIndex index = createIndex();
+        List<PageKey> first = index.find(null, 0, 2, null, null, null);
+        assertEquals(Arrays.asList(CLASSIC_HOME, CLASSIC_SITEMAP), first);
+        List<PageKey> second = index.find(first.get(1), 0, 2, null, null, null);
+        assertEquals(Arrays.asList(INTRANET_HOME, USERS_ADMIN), second);
+        assertEquals(second, index.find(null, 2, 2, null, null, null));
+        assertEquals(Arrays.asList(ROOT_DASHBOARD), index.find(second.get(1), 0, 2, null, null, null));
+        assertEquals(0, index.find(ROOT_DASHBOARD, 0, 2, null, null, null).size());
+
+        // A key before the site starts from the site
+        assertEquals(Arrays.asList(INTRANET_HOME), index.find(CLASSIC_SITEMAP, 0, 10, SiteType.PORTAL, "intranet", null));
+        assertEquals(Arrays.asList(INTRANET_HOME), index.find(CLASSIC_HOME, 0, 10, SiteType.PORTAL, null, "home"));
+    }
+
+    public void testUpdate() {
+        PageIndex index = createIndex();
+        index.put(CLASSIC_SITEMAP, "Home Map");
+        assertEquals(Arrays.asList(CLASSIC_HOME, CLASSIC_SITEMAP, INTRANET_HOME), index.find(null, 0, 10, null, null, "home"));
+        index.remove(CLASSIC_HOME);
+        assertEquals(Arrays.asList(CLASSIC_SITEMAP, INTRANET_HOME), index.find(null, 0, 10, null, null, "home"));
+        assertEquals(4, index.size());
+        index.clear();
+        assertFalse(index.isLoaded());
+        assertEquals(0, index.size());
+    }
+
+    public void testLoading() {
+        PageIndex index = new PageIndex();
+        int generation = index.startLoading();
+        assertTrue(generation != -1);
+
+        // A single thread loads the index
+        assertEquals(-1, index.startLoading());
+        assertFalse(index.isLoaded());
+        assertTrue(index.setLoaded(generation));
+        assertTrue(index.isLoaded());
+
+        // A failed load can be retried
+        index.clear();
+        generation = index.startLoading();
+        index.stopLoading(generation);
+        generation = index.startLoading();
+        assertTrue(generation != -1);
+
+        // A load overlapping a clear is ignored
+        index.clear();
+        assertFalse(index.setLoaded(generation));
+        assertFalse(index.isLoaded());
+        assertTrue(index.setLoaded(index.startLoading()));
+    }
+}
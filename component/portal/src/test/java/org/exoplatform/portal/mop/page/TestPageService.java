@@ -247,6 +247,41 @@ public class TestPageService extends AbstractTestPageService {
         assertEquals(2, result.getSize());
     }
 
+    public void testFindAfter() throws Exception {
+        Page pages = mgr.getPOMService().getModel().getWorkspace().addSite(ObjectType.PORTAL_SITE, "find_pages_after")
+                .getRootPage().addChild("pages");
+        pages.addChild("foo").adapt(Described.class).setName("foo_name");
+        pages.addChild("bar").adapt(Described.class).setName("bar_name");
+        pages.addChild("juu").adapt(Described.class).setName("juu_name");
+        sync(true);
+
+        //
+        SiteKey site = SiteKey.portal("find_pages_after");
+        QueryResult<PageContext> result = service.findPages(null, 2, SiteType.PORTAL, "find_pages_after", null, null);
+        assertEquals(2, result.getSize());
+        Iterator<PageContext> i = result.iterator();
+        assertEquals(site.page("bar"), i.next().getKey());
+        assertEquals(site.page("foo"), i.next().getKey());
+        result = service.findPages(site.page("foo"), 2, SiteType.PORTAL, "find_pages_after", null, null);
+        assertEquals(1, result.getSize());
+        assertEquals(site.page("juu"), result.iterator().next().getKey());
+
+        // A destroyed page is not found anymore
+        assertTrue(service.destroyPage(site.page("bar")));
+        sync(true);
+        result = service.findPages(null, 10, SiteType.PORTAL, "find_pages_after", null, "name");
+        assertEquals(2, result.getSize());
+
+        // A page renamed without the service is found with its actual title once the cache is cleared
+        pages = mgr.getPOMService().getModel().getWorkspace().getSite(ObjectType.PORTAL_SITE, "find_pages_after").getRootPage()
+                .getChild("pages");
+        pages.getChild("foo").adapt(Described.class).setName("renamed");
+        sync(true);
+        service.clearCache();
+        result = service.findPages(null, 10, SiteType.PORTAL, "find_pages_after", null, "foo");
+        assertEquals(0, result.getSize());
+    }
+
     public void testClone() throws Exception {
         Page foo = mgr.getPOMService().getModel().getWorkspace().addSite(ObjectType.PORTAL_SITE, "clone_page").getRootPage()
                 .addChild("pages").addChild("foo");
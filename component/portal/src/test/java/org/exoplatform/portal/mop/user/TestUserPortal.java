@@ -43,6 +43,7 @@ import org.exoplatform.portal.config.model.PortalConfig;
 import org.exoplatform.portal.mop.SiteKey;
 import org.exoplatform.portal.mop.Visibility;
 import org.exoplatform.portal.mop.navigation.NavigationContext;
+import org.exoplatform.portal.mop.navigation.NavigationService;
 import org.exoplatform.portal.mop.navigation.NavigationServiceImpl;
 import org.exoplatform.portal.mop.navigation.NavigationState;
 import org.exoplatform.portal.mop.navigation.Scope;
@@ -51,6 +52,8 @@ import org.exoplatform.portal.pom.config.POMSessionManager;
 import org.exoplatform.services.listener.Event;
 import org.exoplatform.services.listener.Listener;
 import org.exoplatform.services.listener.ListenerService;
+import org.exoplatform.services.organization.Group;
+import org.exoplatform.services.organization.GroupHandler;
 import org.exoplatform.services.organization.OrganizationService;
 import org.exoplatform.services.security.Authenticator;
 import org.exoplatform.services.security.ConversationState;
@@ -228,6 +231,98 @@ public class TestUserPortal extends AbstractPortalTest {
         test.execute("root");
     }
 
+    public void testSharedGroupNavigations() {
+        new UnitTest() {
+            public void doExecute() throws Exception {
+                SiteKey key = SiteKey.group("/platform/users");
+                UserNavigation nav1 = userPortalConfigSer_.getUserPortalConfig("classic", getUserId()).getUserPortal()
+                        .getNavigation(key);
+                UserNavigation nav2 = userPortalConfigSer_.getUserPortalConfig("classic", getUserId()).getUserPortal()
+                        .getNavigation(key);
+                assertNotNull(nav1);
+                assertNotSame(nav1, nav2);
+
+                // The navigation contexts are shared between the user portals
+                assertSame(nav1.navigation, nav2.navigation);
+                int priority = nav1.getPriority();
+
+                // Updating the navigation clears the shared navigations
+                NavigationService service = userPortalConfigSer_.getNavigationService();
+                NavigationContext nav = service.loadNavigation(key);
+                nav.setState(new NavigationState(priority + 100));
+                service.saveNavigation(nav);
+                end(true);
+
+                //
+                begin();
+                UserNavigation nav3 = userPortalConfigSer_.getUserPortalConfig("classic", getUserId()).getUserPortal()
+                        .getNavigation(key);
+                assertNotSame(nav1.navigation, nav3.navigation);
+                assertEquals(priority + 100, nav3.getPriority());
+
+                //
+                nav = service.loadNavigation(key);
+                nav.setState(new NavigationState(priority));
+                service.saveNavigation(nav);
+                end(true);
+
+                //
+                begin();
+                UserNavigation nav4 = userPortalConfigSer_.getUserPortalConfig("classic", getUserId()).getUserPortal()
+                        .getNavigation(key);
+                assertEquals(priority, nav4.getPriority());
+            }
+        }.execute("john");
+    }
+
+    public void testSharedGroupNavigationsClearedByNavigation() {
+        new UnitTest() {
+            public void doExecute() throws Exception {
+                GroupNavigationCache cache = userPortalConfigSer_.getGroupNavigationCache();
+                cache.clear();
+                userPortalConfigSer_.getUserPortalConfig("classic", getUserId()).getUserPortal().getNavigations();
+                assertEquals(1, cache.getSize());
+
+                // Creating a group navigation clears the shared navigations
+                NavigationService service = userPortalConfigSer_.getNavigationService();
+                SiteKey key = SiteKey.group("/organization/management");
+                service.saveNavigation(new NavigationContext(key, new NavigationState(1)));
+                assertEquals(0, cache.getSize());
+
+                // Destroying it clears them again
+                userPortalConfigSer_.getUserPortalConfig("classic", getUserId()).getUserPortal().getNavigations();
+                assertEquals(1, cache.getSize());
+                service.destroyNavigation(service.loadNavigation(key));
+                assertEquals(0, cache.getSize());
+            }
+        }.execute("john");
+    }
+
+    public void testSharedGroupNavigationsClearedByGroup() {
+        new UnitTest() {
+            public void doExecute() throws Exception {
+                GroupNavigationCache cache = userPortalConfigSer_.getGroupNavigationCache();
+                cache.clear();
+                userPortalConfigSer_.getUserPortalConfig("classic", getUserId()).getUserPortal().getNavigations();
+                assertEquals(1, cache.getSize());
+
+                // Creating a group clears the shared navigations
+                GroupHandler groupHandler = orgService_.getGroupHandler();
+                Group group = groupHandler.createGroupInstance();
+                group.setGroupName("testSharedGroupNavigations");
+                group.setLabel("testSharedGroupNavigations");
+                groupHandler.addChild(null, group, true);
+                assertEquals(0, cache.getSize());
+
+                // Removing a group clears them too
+                userPortalConfigSer_.getUserPortalConfig("classic", getUserId()).getUserPortal().getNavigations();
+                assertEquals(1, cache.getSize());
+                groupHandler.removeGroup(group, true);
+                assertEquals(0, cache.getSize());
+            }
+        }.execute("john");
+    }
+
     public void testFilterWithVisibility() {
         class Test extends UnitTest {
 
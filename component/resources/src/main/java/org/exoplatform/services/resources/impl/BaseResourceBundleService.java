@@ -31,13 +31,16 @@ import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
-import org.exoplatform.commons.cache.future.FutureCache;
 import org.exoplatform.commons.cache.future.FutureExoCache;
 import org.exoplatform.commons.cache.future.Loader;
+import org.exoplatform.commons.cache.future.RefreshAhead;
 import org.exoplatform.commons.utils.IOUtil;
 import org.exoplatform.commons.utils.MapResourceBundle;
 import org.exoplatform.commons.utils.PageList;
 import org.exoplatform.commons.utils.PropertyManager;
+import org.exoplatform.container.ExoContainer;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.container.component.RequestLifeCycle;
 import org.exoplatform.container.xml.InitParams;
 import org.exoplatform.services.cache.ExoCache;
 import org.exoplatform.services.log.Log;
@@ -66,7 +69,7 @@ public abstract class BaseResourceBundleService implements ResourceBundleService
 
     protected ExoCache<String, ResourceBundle> cache_;
 
-    private volatile FutureCache<String, ResourceBundle, ResourceBundleContext> futureCache_;
+    private volatile FutureExoCache<String, ResourceBundle, ResourceBundleContext> futureCache_;
 
     private final Loader<String, ResourceBundle, ResourceBundleContext> loader_ = new Loader<String, ResourceBundle, ResourceBundleContext>() {
         /**
@@ -149,6 +152,9 @@ public abstract class BaseResourceBundleService implements ResourceBundleService
      * @see org.picocontainer.Startable#stop()
      */
     public void stop() {
+        if (futureCache_ != null) {
+            futureCache_.shutdown();
+        }
     }
 
     public ResourceBundle getResourceBundle(String[] name, Locale locale) {
@@ -334,7 +340,7 @@ public abstract class BaseResourceBundleService implements ResourceBundleService
      * @param name the bundle name
      */
     protected final void invalidate(String name) {
-        cache_.remove(name);
+        getFutureCache().remove(name);
     }
 
     public ResourceBundle getResourceBundle(String name, Locale locale, ClassLoader cl) {
@@ -395,11 +401,25 @@ public abstract class BaseResourceBundleService implements ResourceBundleService
         return getFutureCache().get(new GetResourceBundleContext(name, locale, cl), id);
     }
 
-    protected FutureCache<String, ResourceBundle, ResourceBundleContext> getFutureCache() {
+    protected FutureExoCache<String, ResourceBundle, ResourceBundleContext> getFutureCache() {
         if (futureCache_ == null) {
             synchronized (this) {
                 if (futureCache_ == null) {
-                    futureCache_ = new FutureExoCache<String, ResourceBundle, ResourceBundleContext>(loader_, cache_);
+                    final ExoContainer container = ExoContainerContext.getCurrentContainer();
+                    futureCache_ = new FutureExoCache<String, ResourceBundle, ResourceBundleContext>(loader_, cache_,
+                            RefreshAhead.create("gatein.resource-bundles.cache")) {
+                        @Override
+                        protected ResourceBundle refresh(ResourceBundleContext context, String key) throws Exception {
+                            // The refreshing thread is not serving a request, the bundles stored in the database
+                            // need a request life cycle to be loaded
+                            RequestLifeCycle.begin(container);
+                            try {
+                                return super.refresh(context, key);
+                            } finally {
+                                RequestLifeCycle.end();
+                            }
+                        }
+                    };
                 }
             }
         }
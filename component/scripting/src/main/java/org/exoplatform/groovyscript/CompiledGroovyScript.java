@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.groovyscript;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import groovy.lang.GroovySystem;
+
+import org.gatein.version.Version;
+
+/**
+ * <p>
+ * The compiled form of a Groovy script: the byte code of the classes generated by the Groovy compiler and the meta data
+ * needed to execute the script. A compiled script can be written to a stream and read back later to create the script
+ * without parsing and compiling the template again.
+ * </p>
+ *
+ * <p>
+ * The hash identifies the template text the script was compiled from, the version of the generated code and the portal
+ * and Groovy versions that compiled it, it should be compared with the {@link #hash(String)} of the current template
+ * text before using a compiled script that was read.
+ * </p>
+ */
+public class CompiledGroovyScript {
+
+    /** The version of the serialized format. */
+    private static final int FORMAT = 1;
+
+    /** The version of the code generated from a template, to increase when the generated code changes. */
+    private static final int GENERATOR = 1;
+
+    /** . */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Returns the hash of a template text.
+     *
+     * @param templateText the template text
+     * @return the hash
+     */
+    public static String hash(String templateText) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            String versions = FORMAT + ":" + GENERATOR + ":" + Version.implementationVersion + ":"
+                    + GroovySystem.getVersion() + ":";
+            digest.update(versions.getBytes("UTF-8"));
+            byte[] bytes = digest.digest(templateText.getBytes("UTF-8"));
+            char[] chars = new char[bytes.length * 2];
+            for (int i = 0; i < bytes.length; i++) {
+                chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+                chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /** . */
+    private final String templateId;
+
+    /** . */
+    private final String hash;
+
+    /** . */
+    private final String groovyText;
+
+    /** . */
+    private final String className;
+
+    /** The byte code keyed by class name. */
+    private final Map<String, byte[]> classes;
+
+    /** . */
+    private final Map<Integer, TextItem> lineTable;
+
+    public CompiledGroovyScript(String templateId, String hash, String groovyText, String className,
+            Map<String, byte[]> classes, Map<Integer, TextItem> lineTable) {
+        this.templateId = templateId;
+        this.hash = hash;
+        this.groovyText = groovyText;
+        this.className = className;
+        this.classes = classes;
+        this.lineTable = lineTable;
+    }
+
+    public String getTemplateId() {
+        return templateId;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public String getGroovyText() {
+        return groovyText;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Defines the script classes in a new class loader and returns the script.
+     *
+     * @return the script
+     * @throws TemplateCompilationException if the script class cannot be defined
+     */
+    public GroovyScript load() throws TemplateCompilationException {
+        return load(templateId);
+    }
+
+    /**
+     * Defines the script classes in a new class loader and returns the script of a template, a script compiled ahead of
+     * time may have been compiled with another id than the template rendering it.
+     *
+     * @param templateId the template id
+     * @return the script
+     * @throws TemplateCompilationException if the script class cannot be defined
+     */
+    public GroovyScript load(String templateId) throws TemplateCompilationException {
+        ScriptClassLoader loader = new ScriptClassLoader(GroovyScriptBuilder.prepareClassLoader(), classes);
+        Class<?> scriptClass;
+        try {
+            scriptClass = loader.loadClass(className);
+        } catch (ClassNotFoundException e) {
+            throw new GroovyCompilationException(e, null, groovyText);
+        } catch (ClassFormatError e) {
+            throw new GroovyCompilationException(e, null, groovyText);
+        }
+        return new GroovyScript(templateId, groovyText, scriptClass, lineTable);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(FORMAT);
+        writeString(data, templateId);
+        writeString(data, hash);
+        writeString(data, groovyText);
+        writeString(data, className);
+        data.writeInt(classes.size());
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            writeString(data, entry.getKey());
+            data.writeInt(entry.getValue().length);
+            data.write(entry.getValue());
+        }
+        data.writeInt(lineTable.size());
+        for (Map.Entry<Integer, TextItem> entry : lineTable.entrySet()) {
+            TextItem item = entry.getValue();
+            data.writeInt(entry.getKey());
+            data.writeInt(item.getPosition().getCol());
+            data.writeInt(item.getPosition().getLine());
+            writeString(data, item.getData());
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a compiled script written by {@link #writeTo(OutputStream)}.
+     *
+     * @param in the stream
+     * @return the compiled script
+     * @throws IOException if the stream cannot be read or was written with another format
+     */
+    public static CompiledGroovyScript read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        int format = data.readInt();
+        if (format != FORMAT) {
+            throw new IOException("Unsupported compiled script format " + format);
+        }
+        String templateId = readString(data);
+        String hash = readString(data);
+        String groovyText = readString(data);
+        String className = readString(data);
+        Map<String, byte[]> classes = new HashMap<String, byte[]>();
+        for (int size = data.readInt(); size > 0; size--) {
+            String name = readString(data);
+            byte[] bytes = new byte[data.readInt()];
+            data.readFully(bytes);
+            classes.put(name, bytes);
+        }
+        Map<Integer, TextItem> lineTable = new HashMap<Integer, TextItem>();
+        for (int size = data.readInt(); size > 0; size--) {
+            int lineNumber = data.readInt();
+            Position pos = new Position(data.readInt(), data.readInt());
+            lineTable.put(lineNumber, new TextItem(pos, readString(data)));
+        }
+        return new CompiledGroovyScript(templateId, hash, groovyText, className, classes,
+                Collections.unmodifiableMap(lineTable));
+    }
+
+    private static void writeString(DataOutputStream data, String s) throws IOException {
+        if (s == null) {
+            data.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes("UTF-8");
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length == -1) {
+            return null;
+        } else {
+            byte[] bytes = new byte[length];
+            data.readFully(bytes);
+            return new String(bytes, "UTF-8");
+        }
+    }
+
+    /**
+     * Defines the script classes from their byte code.
+     */
+    private static class ScriptClassLoader extends ClassLoader {
+
+        /** . */
+        private final Map<String, byte[]> classes;
+
+        private ScriptClassLoader(ClassLoader parent, Map<String, byte[]> classes) {
+            super(parent);
+
+            //
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -29,10 +29,12 @@ import java.util.List;
 import java.util.Map;
 
 import org.codehaus.groovy.control.CompilationFailedException;
+import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.tools.GroovyClass;
 
 import groovy.lang.GroovyClassLoader;
-import groovy.lang.GroovyCodeSource;
 import org.exoplatform.commons.utils.SecurityHelper;
 import org.gatein.common.classloader.DelegatingClassLoader;
 
@@ -152,6 +154,16 @@ public class GroovyScriptBuilder {
     }
 
     public GroovyScript build() throws TemplateCompilationException {
+        return compile().load();
+    }
+
+    /**
+     * Compiles the template to the byte code of a Groovy script.
+     *
+     * @return the compiled script
+     * @throws TemplateCompilationException if the template cannot be compiled
+     */
+    public CompiledGroovyScript compile() throws TemplateCompilationException {
         List<TemplateSection> sections = new TemplateParser().parse(templateText);
 
         //
@@ -180,22 +192,29 @@ public class GroovyScriptBuilder {
 
         //
         InputStream in = new ByteArrayInputStream(bytes);
-        GroovyCodeSource gcs = new GroovyCodeSource(in, templateName, "/groovy/shell");
         GroovyClassLoader loader = new GroovyClassLoader(prepareClassLoader(), config);
-        Class<?> scriptClass;
+        CompilationUnit unit = new CompilationUnit(config, null, loader);
+        unit.addSource(templateName, in);
         try {
-            scriptClass = loader.parseClass(gcs, false);
+            unit.compile(Phases.CLASS_GENERATION);
         } catch (CompilationFailedException e) {
             throw new GroovyCompilationException(e, templateText, groovyText);
-        } catch (ClassFormatError e) {
-            throw new GroovyCompilationException(e, templateText, groovyText);
         }
 
-        return new GroovyScript(templateId, script.toString(), scriptClass,
+        // Keep the byte code of the script class and of the constants class
+        Map<String, byte[]> classes = new HashMap<String, byte[]>();
+        for (Object o : unit.getClasses()) {
+            GroovyClass groovyClass = (GroovyClass) o;
+            classes.put(groovyClass.getName(), groovyClass.getBytes());
+        }
+
+        //
+        String className = unit.getFirstClassNode().getName();
+        return new CompiledGroovyScript(templateId, CompiledGroovyScript.hash(templateText), groovyText, className, classes,
                 Collections.unmodifiableMap(new HashMap<Integer, TextItem>(script.positionTable)));
     }
 
-    private ClassLoader prepareClassLoader() {
+    static ClassLoader prepareClassLoader() {
         final ClassLoader tccl = SecurityHelper.doPrivilegedAction(new PrivilegedAction<ClassLoader>() {
             public ClassLoader run() {
                 return Thread.currentThread().getContextClassLoader();
@@ -63,18 +63,26 @@ public class GroovyTemplate {
     }
 
     public GroovyTemplate(String templateId, String templateName, String templateText) throws TemplateCompilationException {
+        this(templateText, new GroovyScriptBuilder(templateId, scriptName(templateName), templateText).build());
+    }
+
+    public GroovyTemplate(String templateText, GroovyScript script) {
+        this.script = script;
+        this.templateText = templateText;
+    }
+
+    /**
+     * Returns the name of the script compiled from a template.
+     *
+     * @param templateName the template name or null
+     * @return the script name
+     */
+    static String scriptName(String templateName) {
         if (templateName == null) {
-            templateName = "fic";
+            return "fic";
         } else {
-            templateName = templateName.replaceAll("-", "_");
+            return templateName.replaceAll("-", "_");
         }
-
-        //
-        GroovyScriptBuilder compiler = new GroovyScriptBuilder(templateId, templateName, templateText);
-
-        //
-        this.script = compiler.build();
-        this.templateText = templateText;
     }
 
     public String getId() {
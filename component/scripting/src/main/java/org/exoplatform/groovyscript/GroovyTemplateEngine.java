@@ -26,4 +26,27 @@ public class GroovyTemplateEngine {
     public GroovyTemplate createTemplate(String id, String name, String text) throws TemplateCompilationException {
         return new GroovyTemplate(id, name, text);
     }
+
+    /**
+     * Compiles a template without loading it, the compiled script can be stored and later loaded with
+     * {@link #createTemplate(CompiledGroovyScript, String)}.
+     *
+     * @param id the template id
+     * @param name the template name
+     * @param text the template text
+     * @return the compiled script
+     * @throws TemplateCompilationException if the template cannot be compiled
+     */
+    public CompiledGroovyScript compileTemplate(String id, String name, String text) throws TemplateCompilationException {
+        return new GroovyScriptBuilder(id, GroovyTemplate.scriptName(name), text).compile();
+    }
+
+    public GroovyTemplate createTemplate(CompiledGroovyScript script, String text) throws TemplateCompilationException {
+        return new GroovyTemplate(text, script.load());
+    }
+
+    public GroovyTemplate createTemplate(String id, CompiledGroovyScript script, String text)
+            throws TemplateCompilationException {
+        return new GroovyTemplate(text, script.load(id));
+    }
 }
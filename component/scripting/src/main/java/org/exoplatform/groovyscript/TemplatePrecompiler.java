@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.groovyscript;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.exoplatform.commons.utils.IOUtil;
+
+/**
+ * <p>
+ * Compiles the templates of a directory ahead of time. The compiled templates are written as resources named after the
+ * path of the template, so they can be packaged in the <code>WEB-INF/classes</code> directory of a web application and
+ * looked up with {@link #getResourceName(String)} instead of compiling the template.
+ * </p>
+ *
+ * <p>
+ * The thread context classloader should give access to the classes used by the templates during the compilation.
+ * </p>
+ */
+public class TemplatePrecompiler {
+
+    /** The template file extension. */
+    public static final String EXTENSION = ".gtmpl";
+
+    /** . */
+    private static final String RESOURCE_PREFIX = "META-INF/gatein/templates";
+
+    /** . */
+    private static final String RESOURCE_SUFFIX = ".gtc";
+
+    /**
+     * Returns the name of the resource of a compiled template, the scheme of the template id is ignored so the resource
+     * of the <code>app:/groovy/foo.gtmpl</code> template is the resource of the <code>/groovy/foo.gtmpl</code> path.
+     *
+     * @param templateId the template id
+     * @return the resource name
+     */
+    public static String getResourceName(String templateId) {
+        String path = templateId.substring(templateId.indexOf(':') + 1);
+        if (!path.startsWith("/")) {
+            path = "/" + path;
+        }
+        return RESOURCE_PREFIX + path + RESOURCE_SUFFIX;
+    }
+
+    /**
+     * Returns the path of a compiled template packaged in the <code>WEB-INF/classes</code> directory of the web
+     * application of the template, the path keeps the scheme of the template id so it is resolved by the resource resolver
+     * of the template. The path of the <code>app:/groovy/foo.gtmpl</code> template is
+     * <code>app:/WEB-INF/classes/META-INF/gatein/templates/groovy/foo.gtmpl.gtc</code>.
+     *
+     * @param templateId the template id
+     * @return the path
+     */
+    public static String getWebResourcePath(String templateId) {
+        int index = templateId.indexOf(':');
+        String scheme = index == -1 ? "" : templateId.substring(0, index + 1);
+        return scheme + "/WEB-INF/classes/" + getResourceName(templateId);
+    }
+
+    /** . */
+    private final GroovyTemplateEngine engine;
+
+    /** . */
+    private final String encoding;
+
+    /**
+     * Create a precompiler.
+     *
+     * @param encoding the template encoding or null for the platform encoding
+     */
+    public TemplatePrecompiler(String encoding) {
+        this.engine = new GroovyTemplateEngine();
+        this.encoding = encoding;
+    }
+
+    /**
+     * Compiles the templates found in a directory and its sub directories. A template that cannot be compiled is not
+     * written and its compilation failure is added to the failures.
+     *
+     * @param sourceDir the template directory
+     * @param outputDir the directory of the compiled templates
+     * @param failures the compilation failures keyed by template path
+     * @return the number of compiled templates
+     * @throws IOException if a template cannot be read or written
+     */
+    public int precompile(File sourceDir, File outputDir, Map<String, TemplateCompilationException> failures)
+            throws IOException {
+        return precompile(sourceDir, "", outputDir, failures);
+    }
+
+    private int precompile(File dir, String path, File outputDir, Map<String, TemplateCompilationException> failures)
+            throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        Arrays.sort(files);
+
+        //
+        int count = 0;
+        for (File file : files) {
+            String filePath = path + "/" + file.getName();
+            if (file.isDirectory()) {
+                count += precompile(file, filePath, outputDir, failures);
+            } else if (file.getName().endsWith(EXTENSION)) {
+                String text = read(file);
+                CompiledGroovyScript script;
+                try {
+                    // The name is the one the template service gives to the template
+                    script = engine.compileTemplate(filePath, "/" + file.getName(), text);
+                } catch (TemplateCompilationException e) {
+                    failures.put(filePath, e);
+                    continue;
+                }
+                write(script, new File(outputDir, getResourceName(filePath)));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private String read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] bytes = IOUtil.getStreamContentAsBytes(in);
+            return encoding != null ? new String(bytes, encoding) : new String(bytes);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void write(CompiledGroovyScript script, File file) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create directory " + parent.getAbsolutePath());
+        }
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            script.writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+}
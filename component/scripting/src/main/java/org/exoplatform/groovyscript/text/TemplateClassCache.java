@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.groovyscript.text;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+import org.exoplatform.groovyscript.CompiledGroovyScript;
+import org.gatein.common.io.IOTools;
+import org.gatein.common.logging.Logger;
+import org.gatein.common.logging.LoggerFactory;
+
+/**
+ * <p>
+ * A directory of compiled templates that survives restarts. A compiled template is stored in a file named after the
+ * template id, the file records the hash of the template text it was compiled from, so a modified template simply misses
+ * the cache and its file is replaced when the new version is stored.
+ * </p>
+ *
+ * <p>
+ * The templates are resolved with the resource resolver of the request rendering them, so their text cannot be checked
+ * at startup. A compiled template is read when the template is first rendered, which is much cheaper than compiling it.
+ * Reading a compiled template marks its file as used, the files not used for some time, for instance the templates of
+ * an undeployed application, are pruned.
+ * </p>
+ */
+class TemplateClassCache {
+
+    /** . */
+    private static final String SUFFIX = ".gtc";
+
+    /** . */
+    private static final Logger log = LoggerFactory.getLogger(TemplateClassCache.class);
+
+    /** . */
+    private final File dir;
+
+    TemplateClassCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Delete the compiled templates that were not used for some time and the temporary files left by an interrupted write.
+     *
+     * @param maxAge the maximum age in milliseconds
+     * @return the number of files deleted
+     */
+    int prune(long maxAge) {
+        File[] files = dir.listFiles();
+        int count = 0;
+        if (files != null) {
+            long limit = System.currentTimeMillis() - maxAge;
+            for (File file : files) {
+                String name = file.getName();
+                if ((name.endsWith(SUFFIX) || name.endsWith(".tmp")) && file.lastModified() < limit && file.delete()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the compiled template or null when the template is not in the cache or has been compiled from another text.
+     *
+     * @param templateId the template id
+     * @param hash the hash of the template text
+     * @return the compiled template
+     */
+    CompiledGroovyScript get(String templateId, String hash) {
+        File file = new File(dir, getFileName(templateId));
+        if (file.exists()) {
+            CompiledGroovyScript script = read(file);
+            if (script != null && templateId.equals(script.getTemplateId()) && hash.equals(script.getHash())) {
+                // Mark the template as used, so it is not pruned
+                file.setLastModified(System.currentTimeMillis());
+                return script;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores a compiled template, it replaces the previous version of the same template.
+     *
+     * @param script the compiled template
+     */
+    void put(CompiledGroovyScript script) {
+        String name = getFileName(script.getTemplateId());
+        File file = new File(dir, name);
+        File tmp = null;
+        OutputStream out = null;
+        try {
+            // Write to a temporary file first so the file is never read partially written
+            tmp = File.createTempFile(name.substring(0, name.length() - SUFFIX.length()) + "-", ".tmp", dir);
+            out = new BufferedOutputStream(new FileOutputStream(tmp));
+            script.writeTo(out);
+            out.close();
+            out = null;
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                if (!tmp.renameTo(file)) {
+                    throw new IOException("Could not rename " + tmp.getAbsolutePath() + " to " + file.getAbsolutePath());
+                }
+            }
+            tmp = null;
+        } catch (IOException e) {
+            log.warn("Could not store compiled template " + script.getTemplateId() + " in " + dir.getAbsolutePath(), e);
+        } finally {
+            IOTools.safeClose(out);
+            if (tmp != null) {
+                tmp.delete();
+            }
+        }
+    }
+
+    private CompiledGroovyScript read(File file) {
+        InputStream in = null;
+        try {
+            in = new BufferedInputStream(new FileInputStream(file));
+            return CompiledGroovyScript.read(in);
+        } catch (IOException e) {
+            log.warn("Discarding unreadable compiled template " + file.getAbsolutePath(), e);
+            IOTools.safeClose(in);
+            in = null;
+            file.delete();
+            return null;
+        } finally {
+            IOTools.safeClose(in);
+        }
+    }
+
+    static String getFileName(String templateId) {
+        try {
+            return URLEncoder.encode(templateId, "UTF-8") + SUFFIX;
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
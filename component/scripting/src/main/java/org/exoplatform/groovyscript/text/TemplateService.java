@@ -19,16 +19,24 @@
 
 package org.exoplatform.groovyscript.text;
 
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Locale;
 
-import org.exoplatform.commons.cache.future.FutureCache;
 import org.exoplatform.commons.cache.future.FutureExoCache;
 import org.exoplatform.commons.cache.future.Loader;
+import org.exoplatform.commons.cache.future.RefreshAhead;
 import org.exoplatform.commons.utils.IOUtil;
+import org.exoplatform.commons.utils.PropertyManager;
+import org.exoplatform.groovyscript.CompiledGroovyScript;
 import org.exoplatform.groovyscript.GroovyTemplate;
 import org.exoplatform.groovyscript.GroovyTemplateEngine;
+import org.exoplatform.groovyscript.TemplateCompilationException;
+import org.exoplatform.groovyscript.TemplatePrecompiler;
 import org.exoplatform.management.annotations.Impact;
 import org.exoplatform.management.annotations.ImpactType;
 import org.exoplatform.management.annotations.Managed;
@@ -44,6 +52,7 @@ import org.exoplatform.services.cache.ExoCache;
 import org.gatein.common.io.IOTools;
 import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
+import org.picocontainer.Startable;
 
 import groovy.lang.Writable;
 import groovy.text.Template;
@@ -56,7 +65,7 @@ import groovy.text.Template;
         @Property(key = "type", value = "template") })
 @ManagedDescription("Template management service")
 @RESTEndpoint(path = "templateservice")
-public class TemplateService {
+public class TemplateService implements Startable {
 
     private GroovyTemplateEngine engine_;
 
@@ -84,15 +93,21 @@ public class TemplateService {
             }
             String name = key.getURL().substring(pos);
 
-            // Julien: it's a bit dangerious here, with respect to the file encoding...
-            String text = new String(bytes);
+            // Decode the template as the precompiler does, so the hash of the text matches the precompiled template
+            String text = new String(bytes, encoding);
 
             // Finally do the expensive template creation
-            return engine_.createTemplate(key.getURL(), name, text);
+            return createTemplate(context, key.getURL(), name, text);
         }
     };
 
-    private FutureCache<ResourceKey, GroovyTemplate, ResourceResolver> futureCache;
+    /** The compiled templates stored on disk or null when they are not stored. */
+    private final TemplateClassCache classCache;
+
+    /** The encoding of the templates. */
+    private final String encoding;
+
+    private FutureExoCache<ResourceKey, GroovyTemplate, ResourceResolver> futureCache;
 
     /** . */
     private final Logger log = LoggerFactory.getLogger(TemplateService.class);
@@ -101,7 +116,138 @@ public class TemplateService {
         this.engine_ = new GroovyTemplateEngine();
         this.statisticService = statisticService;
         this.templatesCache_ = cservice.getCacheInstance(TemplateService.class.getSimpleName());
-        this.futureCache = new FutureExoCache<ResourceKey, GroovyTemplate, ResourceResolver>(loader, templatesCache_);
+        this.futureCache = new FutureExoCache<ResourceKey, GroovyTemplate, ResourceResolver>(loader, templatesCache_,
+                RefreshAhead.create("gatein.templates.cache"));
+        this.classCache = createClassCache();
+        this.encoding = getEncoding();
+    }
+
+    /**
+     * Returns the encoding of the templates configured by the <code>gatein.templates.encoding</code> property, defaulting
+     * to UTF-8. It should be the encoding the templates are precompiled with, otherwise the templates with non ASCII
+     * characters are compiled again.
+     *
+     * @return the encoding
+     */
+    private String getEncoding() {
+        String encoding = PropertyManager.getProperty("gatein.templates.encoding");
+        if (encoding == null || encoding.trim().length() == 0) {
+            return "UTF-8";
+        } else if (!Charset.isSupported(encoding.trim())) {
+            log.warn("Unsupported template encoding " + encoding + ", the templates are read with UTF-8");
+            return "UTF-8";
+        } else {
+            return encoding.trim();
+        }
+    }
+
+    /**
+     * Create the cache of compiled templates in the directory configured by the <code>gatein.templates.classes.dir</code>
+     * property, defaulting to the <code>templates</code> directory of the <code>gatein.data.dir</code> directory. An empty
+     * value disables the cache. The compiled templates not used for the number of days of the
+     * <code>gatein.templates.classes.max-age</code> property, defaulting to 30, are pruned.
+     *
+     * @return the cache or null
+     */
+    private TemplateClassCache createClassCache() {
+        String path = PropertyManager.getProperty("gatein.templates.classes.dir");
+        if (path == null) {
+            String dataDir = PropertyManager.getProperty("gatein.data.dir");
+            if (dataDir == null) {
+                return null;
+            }
+            path = dataDir + File.separator + "templates";
+        } else if (path.trim().length() == 0) {
+            return null;
+        }
+
+        //
+        File dir = new File(path);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            log.warn("Could not create the compiled template directory " + dir.getAbsolutePath());
+            return null;
+        }
+
+        //
+        String maxAge = PropertyManager.getProperty("gatein.templates.classes.max-age");
+        long days = 30;
+        if (maxAge != null) {
+            try {
+                days = Long.parseLong(maxAge.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid compiled template max age " + maxAge + ", using " + days + " days");
+            }
+        }
+        TemplateClassCache cache = new TemplateClassCache(dir);
+        int count = cache.prune(days * 24 * 60 * 60 * 1000);
+        if (count > 0) {
+            log.debug("Pruned " + count + " unused compiled templates from " + dir.getAbsolutePath());
+        }
+        return cache;
+    }
+
+    private GroovyTemplate createTemplate(ResourceResolver resolver, String id, String name, String text)
+            throws TemplateCompilationException {
+        String hash = CompiledGroovyScript.hash(text);
+
+        // Prefer a template compiled when the application was built, then a template compiled before the restart
+        CompiledGroovyScript script = getPrecompiledTemplate(resolver, id, hash);
+        if (script == null && classCache != null) {
+            script = classCache.get(id, hash);
+        }
+        if (script != null) {
+            try {
+                return engine_.createTemplate(id, script, text);
+            } catch (TemplateCompilationException e) {
+                log.warn("Could not load the compiled template " + id + ", it will be compiled again", e);
+            } catch (LinkageError e) {
+                log.warn("Could not link the compiled template " + id + ", it will be compiled again", e);
+            }
+        }
+
+        //
+        script = engine_.compileTemplate(id, name, text);
+        if (classCache != null) {
+            classCache.put(script);
+        }
+        return engine_.createTemplate(script, text);
+    }
+
+    /**
+     * Returns the template compiled ahead of time by the {@link TemplatePrecompiler}, or null when there is no such
+     * template or when it has been compiled from another text. The compiled template is looked up in the web application
+     * of the template with the resource resolver of the template, then with the current thread context classloader for
+     * the templates that are not packaged in a web application.
+     *
+     * @param resolver the resource resolver of the template
+     * @param id the template id
+     * @param hash the hash of the template text
+     * @return the compiled template
+     */
+    private CompiledGroovyScript getPrecompiledTemplate(ResourceResolver resolver, String id, String hash) {
+        InputStream in = null;
+        try {
+            in = resolver.getInputStream(TemplatePrecompiler.getWebResourcePath(id));
+        } catch (Exception ignore) {
+            // The resolver cannot resolve the path, the template is not packaged in a web application
+        }
+        if (in == null) {
+            ClassLoader cl = Thread.currentThread().getContextClassLoader();
+            in = cl != null ? cl.getResourceAsStream(TemplatePrecompiler.getResourceName(id)) : null;
+        }
+        if (in != null) {
+            try {
+                CompiledGroovyScript script = CompiledGroovyScript.read(new BufferedInputStream(in));
+                if (hash.equals(script.getHash())) {
+                    return script;
+                }
+            } catch (IOException e) {
+                log.warn("Could not read the precompiled template " + id, e);
+            } finally {
+                IOTools.safeClose(in);
+            }
+        }
+        return null;
     }
 
     public void merge(String name, BindingContext context) throws Exception {
@@ -134,6 +280,13 @@ public class TemplateService {
         template.render(context.getWriter(), context, (Locale) context.get("locale"));
     }
 
+    public void start() {
+    }
+
+    public void stop() {
+        futureCache.shutdown();
+    }
+
     public final GroovyTemplate getTemplate(String name, ResourceResolver resolver) throws Exception {
         return getTemplate(name, resolver, cacheTemplate_);
     }
@@ -153,7 +306,7 @@ public class TemplateService {
 
     public final void invalidateTemplate(String name, ResourceResolver resolver) {
         ResourceKey resourceKey = resolver.createResourceKey(name);
-        getTemplatesCache().remove(resourceKey);
+        futureCache.remove(resourceKey);
     }
 
     public ExoCache<ResourceKey, GroovyTemplate> getTemplatesCache() {
@@ -167,7 +320,7 @@ public class TemplateService {
     @ManagedDescription("Clear the template cache")
     public void reloadTemplates() {
         try {
-            templatesCache_.clearCache();
+            futureCache.clear();
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
@@ -184,7 +337,7 @@ public class TemplateService {
             TemplateStatistic app = statisticService.apps.get(name);
             if (app != null) {
                 ResourceResolver resolver = app.getResolver();
-                templatesCache_.remove(resolver.createResourceKey(name));
+                futureCache.remove(resolver.createResourceKey(name));
             }
         } catch (Exception e) {
             log.error(e.getMessage(), e);
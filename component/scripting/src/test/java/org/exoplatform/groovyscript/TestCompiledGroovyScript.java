@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.groovyscript;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.exoplatform.component.test.AbstractGateInTest;
+
+public class TestCompiledGroovyScript extends AbstractGateInTest {
+
+    /** . */
+    private final GroovyTemplateEngine engine = new GroovyTemplateEngine();
+
+    private CompiledGroovyScript copy(CompiledGroovyScript script) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        script.writeTo(out);
+        return CompiledGroovyScript.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    public void testHash() {
+        assertEquals(CompiledGroovyScript.hash("a"), CompiledGroovyScript.hash("a"));
+        assertFalse(CompiledGroovyScript.hash("a").equals(CompiledGroovyScript.hash("b")));
+        assertEquals(40, CompiledGroovyScript.hash("").length());
+    }
+
+    public void testReadWrite() throws Exception {
+        String text = "a<%= 'b' %>\"c\"<% out.print('d'); %>";
+        CompiledGroovyScript script = engine.compileTemplate("/foo-bar.gtmpl", "foo-bar.gtmpl", text);
+        assertEquals("/foo-bar.gtmpl", script.getTemplateId());
+        assertEquals(CompiledGroovyScript.hash(text), script.getHash());
+        assertEquals("foo_bar", script.getClassName());
+
+        //
+        CompiledGroovyScript copy = copy(script);
+        assertEquals(script.getTemplateId(), copy.getTemplateId());
+        assertEquals(script.getHash(), copy.getHash());
+        assertEquals(script.getGroovyText(), copy.getGroovyText());
+        assertEquals(script.getClassName(), copy.getClassName());
+
+        //
+        GroovyTemplate template = engine.createTemplate(copy, text);
+        assertEquals("/foo-bar.gtmpl", template.getId());
+        assertEquals(text, template.getText());
+        assertEquals("ab\"c\"d", template.render());
+    }
+
+    public void testLineNumber() throws Exception {
+        String text = "<%\nthrow new Exception('e')%>";
+        GroovyTemplate template = engine.createTemplate(copy(engine.compileTemplate(null, null, text)), text);
+        try {
+            template.render();
+            fail();
+        } catch (TemplateRuntimeException e) {
+            assertEquals("throw new Exception('e')", e.getText());
+            assertEquals(2, (Object) e.getLineNumber());
+        }
+    }
+
+    public void testReadUnsupportedFormat() {
+        try {
+            CompiledGroovyScript.read(new ByteArrayInputStream(new byte[] { 0, 0, 0, 0 }));
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.groovyscript;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.exoplatform.component.test.AbstractGateInTest;
+
+public class TestTemplatePrecompiler extends AbstractGateInTest {
+
+    /** . */
+    private File sourceDir;
+
+    /** . */
+    private File outputDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        File dir = new File("target/template-precompiler");
+        sourceDir = new File(dir, "webapp");
+        outputDir = new File(dir, "classes");
+        delete(dir);
+    }
+
+    private void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private void create(String path, String text) throws IOException {
+        File file = new File(sourceDir, path);
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(text.getBytes("UTF-8"));
+        out.close();
+    }
+
+    private CompiledGroovyScript read(String templateId) throws IOException {
+        InputStream in = new FileInputStream(new File(outputDir, TemplatePrecompiler.getResourceName(templateId)));
+        try {
+            return CompiledGroovyScript.read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    public void testResourceName() {
+        assertEquals("META-INF/gatein/templates/groovy/foo.gtmpl.gtc",
+                TemplatePrecompiler.getResourceName("/groovy/foo.gtmpl"));
+        assertEquals("META-INF/gatein/templates/groovy/foo.gtmpl.gtc",
+                TemplatePrecompiler.getResourceName("app:/groovy/foo.gtmpl"));
+        assertEquals("META-INF/gatein/templates/groovy/foo.gtmpl.gtc",
+                TemplatePrecompiler.getResourceName("system:groovy/foo.gtmpl"));
+    }
+
+    public void testWebResourcePath() {
+        assertEquals("/WEB-INF/classes/META-INF/gatein/templates/groovy/foo.gtmpl.gtc",
+                TemplatePrecompiler.getWebResourcePath("/groovy/foo.gtmpl"));
+        assertEquals("system:/WEB-INF/classes/META-INF/gatein/templates/groovy/foo.gtmpl.gtc",
+                TemplatePrecompiler.getWebResourcePath("system:/groovy/foo.gtmpl"));
+    }
+
+    public void testPrecompile() throws Exception {
+        create("groovy/webui/UIFoo.gtmpl", "foo<%= 'bar' %>");
+        create("groovy/webui/UIBar-lt.gtmpl", "bar");
+        create("groovy/webui/UIJuu.gtmpl", "<% if ( %>");
+        create("groovy/webui/juu.txt", "<% if ( %>");
+
+        //
+        Map<String, TemplateCompilationException> failures = new HashMap<String, TemplateCompilationException>();
+        assertEquals(2, new TemplatePrecompiler("UTF-8").precompile(sourceDir, outputDir, failures));
+        assertEquals(1, failures.size());
+        assertTrue(failures.get("/groovy/webui/UIJuu.gtmpl") instanceof GroovyCompilationException);
+        assertFalse(new File(outputDir, TemplatePrecompiler.getResourceName("/groovy/webui/UIJuu.gtmpl")).exists());
+
+        //
+        CompiledGroovyScript foo = read("app:/groovy/webui/UIFoo.gtmpl");
+        assertEquals(CompiledGroovyScript.hash("foo<%= 'bar' %>"), foo.getHash());
+        assertEquals("UIFoo", foo.getClassName());
+        GroovyTemplate template = new GroovyTemplateEngine().createTemplate("app:/groovy/webui/UIFoo.gtmpl", foo,
+                "foo<%= 'bar' %>");
+        assertEquals("app:/groovy/webui/UIFoo.gtmpl", template.getId());
+        assertEquals("foobar", template.render());
+
+        //
+        CompiledGroovyScript bar = read("/groovy/webui/UIBar-lt.gtmpl");
+        assertEquals("UIBar_lt", bar.getClassName());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.groovyscript.text;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.exoplatform.component.test.AbstractGateInTest;
+import org.exoplatform.groovyscript.CompiledGroovyScript;
+import org.exoplatform.groovyscript.GroovyTemplateEngine;
+
+public class TestTemplateClassCache extends AbstractGateInTest {
+
+    /** . */
+    private final GroovyTemplateEngine engine = new GroovyTemplateEngine();
+
+    /** . */
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = new File("target/template-classes");
+        if (dir.exists()) {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+        } else {
+            assertTrue(dir.mkdirs());
+        }
+    }
+
+    public void testPutGet() throws Exception {
+        TemplateClassCache cache = new TemplateClassCache(dir);
+        CompiledGroovyScript script = engine.compileTemplate("app:/foo.gtmpl", "/foo.gtmpl", "a<%= 'b' %>");
+        assertNull(cache.get("app:/foo.gtmpl", script.getHash()));
+        cache.put(script);
+        assertEquals(1, dir.listFiles().length);
+
+        //
+        CompiledGroovyScript copy = cache.get("app:/foo.gtmpl", script.getHash());
+        assertNotNull(copy);
+        assertEquals("ab", engine.createTemplate(copy, "a<%= 'b' %>").render());
+        assertNull(cache.get("app:/foo.gtmpl", CompiledGroovyScript.hash("a")));
+        assertNull(cache.get("app:/bar.gtmpl", script.getHash()));
+    }
+
+    public void testReplace() throws Exception {
+        TemplateClassCache cache = new TemplateClassCache(dir);
+        CompiledGroovyScript foo1 = engine.compileTemplate("app:/foo.gtmpl", "/foo.gtmpl", "1");
+        CompiledGroovyScript foo2 = engine.compileTemplate("app:/foo.gtmpl", "/foo.gtmpl", "2");
+        CompiledGroovyScript fooBar = engine.compileTemplate("app:/foo.gtmpl.bar", "/foo.gtmpl.bar", "3");
+        cache.put(foo1);
+        cache.put(fooBar);
+        cache.put(foo2);
+        assertEquals(2, dir.listFiles().length);
+        assertNull(cache.get("app:/foo.gtmpl", foo1.getHash()));
+        assertNotNull(cache.get("app:/foo.gtmpl", foo2.getHash()));
+        assertNotNull(cache.get("app:/foo.gtmpl.bar", fooBar.getHash()));
+    }
+
+    public void testCorrupted() throws Exception {
+        File corrupted = new File(dir, TemplateClassCache.getFileName("app:/juu.gtmpl"));
+        FileOutputStream out = new FileOutputStream(corrupted);
+        out.write(new byte[] { 0, 0, 0, 1, 0 });
+        out.close();
+
+        // A corrupted file is discarded
+        TemplateClassCache cache = new TemplateClassCache(dir);
+        assertNull(cache.get("app:/juu.gtmpl", CompiledGroovyScript.hash("juu")));
+        assertFalse(corrupted.exists());
+    }
+
+    public void testPrune() throws Exception {
+        TemplateClassCache cache = new TemplateClassCache(dir);
+        CompiledGroovyScript foo = engine.compileTemplate("app:/foo.gtmpl", "/foo.gtmpl", "foo");
+        CompiledGroovyScript bar = engine.compileTemplate("app:/bar.gtmpl", "/bar.gtmpl", "bar");
+        cache.put(foo);
+        cache.put(bar);
+        long old = System.currentTimeMillis() - 2 * 60 * 60 * 1000;
+        for (File file : dir.listFiles()) {
+            assertTrue(file.setLastModified(old));
+        }
+
+        // A template read from the cache is marked as used and is not pruned
+        assertNotNull(cache.get("app:/foo.gtmpl", foo.getHash()));
+        assertEquals(1, cache.prune(60 * 60 * 1000));
+        assertNotNull(cache.get("app:/foo.gtmpl", foo.getHash()));
+        assertNull(cache.get("app:/bar.gtmpl", bar.getHash()));
+    }
+}
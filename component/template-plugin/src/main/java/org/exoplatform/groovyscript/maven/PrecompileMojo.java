@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.groovyscript.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.exoplatform.groovyscript.TemplateCompilationException;
+import org.exoplatform.groovyscript.TemplatePrecompiler;
+
+/**
+ * Precompiles the Groovy templates of a web application in its output directory, the template service uses a
+ * precompiled template instead of compiling the template when the template has not been modified since. The build
+ * fails when a template cannot be compiled.
+ *
+ * @goal precompile
+ * @phase process-classes
+ * @requiresDependencyResolution compile
+ * @threadSafe
+ */
+public class PrecompileMojo extends AbstractMojo {
+
+    /**
+     * @parameter expression="${project}"
+     * @required
+     * @readonly
+     */
+    private MavenProject project;
+
+    /**
+     * The directory of the templates.
+     *
+     * @parameter default-value="${basedir}/src/main/webapp"
+     */
+    private File sourceDirectory;
+
+    /**
+     * The directory of the precompiled templates.
+     *
+     * @parameter default-value="${project.build.outputDirectory}"
+     */
+    private File outputDirectory;
+
+    /**
+     * The encoding of the templates, it should be the encoding used by the server for reading the templates, configured by
+     * the <code>gatein.templates.encoding</code> property and defaulting to UTF-8, otherwise the templates with non ASCII
+     * characters are compiled again by the server.
+     *
+     * @parameter default-value="${project.build.sourceEncoding}"
+     */
+    private String encoding;
+
+    /**
+     * Skip the precompilation.
+     *
+     * @parameter expression="${gtmpl.skip}" default-value="false"
+     */
+    private boolean skip;
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Skipping template precompilation");
+            return;
+        }
+        if (!sourceDirectory.isDirectory()) {
+            getLog().info("No template directory " + sourceDirectory);
+            return;
+        }
+
+        // The templates are compiled against the classes of the application
+        ClassLoader loader = createClassLoader();
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        Map<String, TemplateCompilationException> failures = new LinkedHashMap<String, TemplateCompilationException>();
+        int count;
+        thread.setContextClassLoader(loader);
+        try {
+            count = new TemplatePrecompiler(encoding).precompile(sourceDirectory, outputDirectory, failures);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not precompile the templates of " + sourceDirectory, e);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+
+        //
+        if (failures.size() > 0) {
+            for (Map.Entry<String, TemplateCompilationException> failure : failures.entrySet()) {
+                getLog().error("Could not compile template " + failure.getKey(), failure.getValue());
+            }
+            throw new MojoFailureException("Could not compile " + failures.size() + " templates of " + sourceDirectory);
+        }
+        getLog().info("Precompiled " + count + " templates of " + sourceDirectory);
+    }
+
+    private ClassLoader createClassLoader() throws MojoExecutionException {
+        try {
+            List<?> elements = project.getCompileClasspathElements();
+            URL[] urls = new URL[elements.size()];
+            for (int i = 0; i < urls.length; i++) {
+                urls[i] = new File((String) elements.get(i)).toURI().toURL();
+            }
+            return new URLClassLoader(urls, getClass().getClassLoader());
+        } catch (DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("Could not resolve the compile classpath", e);
+        } catch (MalformedURLException e) {
+            throw new MojoExecutionException("Could not resolve the compile classpath", e);
+        }
+    }
+}
@@ -72,6 +72,10 @@ public class ControllerContext {
         return controller;
     }
 
+    public Router getRouter() {
+        return router;
+    }
+
     public HttpServletRequest getRequest() {
         return request;
     }
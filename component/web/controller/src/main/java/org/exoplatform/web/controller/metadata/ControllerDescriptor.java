@@ -25,6 +25,7 @@ import java.util.List;
 import org.exoplatform.web.controller.router.RegexFactory;
 import org.exoplatform.web.controller.router.Router;
 import org.exoplatform.web.controller.router.RouterConfigException;
+import org.exoplatform.web.controller.router.RoutingMode;
 
 /**
  * Describe a controller.
@@ -40,9 +41,17 @@ public class ControllerDescriptor {
     /** . */
     private char separatorEscape;
 
+    /** . */
+    private RoutingMode routingMode;
+
+    /** . */
+    private RegexFactory regexFactory;
+
     public ControllerDescriptor() {
         this.routes = new ArrayList<RouteDescriptor>();
         this.separatorEscape = '_';
+        this.routingMode = RoutingMode.INTERPRETED;
+        this.regexFactory = RegexFactory.JAVA;
     }
 
     public ControllerDescriptor add(RouteDescriptor... routes) {
@@ -77,6 +86,38 @@ public class ControllerDescriptor {
         this.separatorEscape = separatorEscape;
     }
 
+    public ControllerDescriptor routedBy(RoutingMode routingMode) {
+        setRoutingMode(routingMode);
+        return this;
+    }
+
+    public RoutingMode getRoutingMode() {
+        return routingMode;
+    }
+
+    public void setRoutingMode(RoutingMode routingMode) {
+        if (routingMode == null) {
+            throw new NullPointerException("No null routing mode accepted");
+        }
+        this.routingMode = routingMode;
+    }
+
+    public ControllerDescriptor regexCompiledBy(RegexFactory regexFactory) {
+        setRegexFactory(regexFactory);
+        return this;
+    }
+
+    public RegexFactory getRegexFactory() {
+        return regexFactory;
+    }
+
+    public void setRegexFactory(RegexFactory regexFactory) {
+        if (regexFactory == null) {
+            throw new NullPointerException("No null regex factory accepted");
+        }
+        this.regexFactory = regexFactory;
+    }
+
     public List<RouteDescriptor> getRoutes() {
         return routes;
     }
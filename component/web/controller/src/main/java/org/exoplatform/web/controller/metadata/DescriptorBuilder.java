@@ -26,6 +26,8 @@ import javax.xml.stream.XMLStreamReader;
 
 import org.exoplatform.web.controller.router.ControlMode;
 import org.exoplatform.web.controller.router.EncodingMode;
+import org.exoplatform.web.controller.router.RegexFactory;
+import org.exoplatform.web.controller.router.RoutingMode;
 import org.exoplatform.web.controller.router.ValueMapping;
 import org.exoplatform.web.controller.router.ValueType;
 import org.staxnav.Naming;
@@ -82,6 +84,8 @@ public class DescriptorBuilder {
             char c = s.charAt(0);
             router.setSeparatorEscape(c);
         }
+        router.setRoutingMode(parseRoutingMode(root.getAttribute("routing-mode")));
+        router.setRegexFactory(parseRegexFactory(root.getAttribute("regex-engine")));
 
         //
         if (root.child() != null) {
@@ -169,6 +173,26 @@ public class DescriptorBuilder {
         }
     }
 
+    static RoutingMode parseRoutingMode(String s) {
+        if (s == null || "interpreted".equals(s)) {
+            return RoutingMode.INTERPRETED;
+        } else if ("compiled".equals(s)) {
+            return RoutingMode.COMPILED;
+        } else {
+            throw new UnsupportedOperationException("Handle me gracefully");
+        }
+    }
+
+    static RegexFactory parseRegexFactory(String s) {
+        if (s == null || "java".equals(s)) {
+            return RegexFactory.JAVA;
+        } else if ("linear".equals(s)) {
+            return RegexFactory.LINEAR;
+        } else {
+            throw new UnsupportedOperationException("Handle me gracefully");
+        }
+    }
+
     static ValueMapping parseValueMapping(String s) {
         if (s == null || "canonical".equals(s)) {
             return ValueMapping.CANONICAL;
@@ -122,6 +122,14 @@ public class Quantifier {
         return range.min;
     }
 
+    public Integer getMax() {
+        return range.max;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
     public static Quantifier onceOrNotAtAll(Mode mode) {
         return new Quantifier(mode, 0, 1);
     }
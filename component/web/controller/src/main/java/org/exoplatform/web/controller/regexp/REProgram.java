@@ -0,0 +1,836 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.controller.regexp;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A program compiled from a {@link RENode} tree and executed by a Pike virtual machine: the alternatives of the expression
+ * are simulated in lock step, so the matching never backtracks and its time is linear with the input length for the
+ * expressions without lookaround. A lookaround is evaluated by a nested simulation at each position it is reached: a
+ * lookbehind scans at most its maximum length so the matching remains linear, however a lookahead may scan the remaining
+ * input and the matching time is quadratic with the input length in the worst case.
+ *
+ * The matches follow the leftmost first semantic of the <code>java.util.regex</code> package: the priority of the
+ * alternatives and of the greedy or reluctant quantifiers is the same. The only difference is the captures of the groups
+ * nested in several loops that can match an empty sequence, like <code>(a*)*</code>. The possessive quantifiers, the
+ * unbounded lookbehinds and the capturing groups inside lookarounds are not supported and the compilation fails with an
+ * {@link UnsupportedOperationException}.
+ *
+ * @version $Revision$
+ */
+public final class REProgram {
+
+    /** The maximum number of times a quantified expression is expanded. */
+    private static final int MAX_REPETITION = 256;
+
+    /** . */
+    private static final int CHAR = 0;
+
+    /** . */
+    private static final int ANY = 1;
+
+    /** . */
+    private static final int SET = 2;
+
+    /** . */
+    private static final int SPLIT = 3;
+
+    /** . */
+    private static final int JMP = 4;
+
+    /** . */
+    private static final int SAVE = 5;
+
+    /** . */
+    private static final int BEGIN = 6;
+
+    /** . */
+    private static final int END = 7;
+
+    /** . */
+    private static final int LOOK = 8;
+
+    /** . */
+    private static final int MATCH = 9;
+
+    /** . */
+    private static final int LOOP = 10;
+
+    public static REProgram compile(String pattern) throws SyntaxException, UnsupportedOperationException {
+        REParser parser = new REParser(pattern);
+        RENode root = parser.parse();
+        if (!parser.isDone()) {
+            throw new SyntaxException("Could not parse " + pattern + " at index " + parser.getIndex());
+        }
+        return compile(root);
+    }
+
+    public static REProgram compile(RENode root) throws UnsupportedOperationException {
+        Map<RENode.Group, Integer> groups = new IdentityHashMap<RENode.Group, Integer>();
+        if (root != null) {
+            numberGroups(root, groups);
+        }
+        Compiler compiler = new Compiler(groups);
+        compiler.emit(SAVE, 0, 0);
+        compiler.compile(root);
+        compiler.emit(SAVE, 1, 0);
+        compiler.emit(MATCH, 0, 0);
+        return compiler.build();
+    }
+
+    private static void numberGroups(RENode root, final Map<RENode.Group, Integer> groups) {
+        root.accept(new REVisitor<RuntimeException>() {
+            @Override
+            protected void visit(RENode.Group expr) {
+                if (expr.getType() == GroupType.CAPTURING_GROUP) {
+                    groups.put(expr, groups.size() + 1);
+                }
+                super.visit(expr);
+            }
+        });
+    }
+
+    /** The op codes. */
+    private final int[] ops;
+
+    /** The first argument of each op code. */
+    private final int[] args1;
+
+    /** The second argument of each op code. */
+    private final int[] args2;
+
+    /** The character sets referenced by the {@link #SET} op codes. */
+    private final int[][] sets;
+
+    /** The lookarounds referenced by the {@link #LOOK} op codes. */
+    private final Look[] looks;
+
+    /** The number of capturing groups. */
+    private final int groupCount;
+
+    /** The number of slots of a thread: the group captures followed by the loop registers. */
+    private final int slotCount;
+
+    private REProgram(int[] ops, int[] args1, int[] args2, int[][] sets, Look[] looks, int groupCount, int slotCount) {
+        this.ops = ops;
+        this.args1 = args1;
+        this.args2 = args2;
+        this.sets = sets;
+        this.looks = looks;
+        this.groupCount = groupCount;
+        this.slotCount = slotCount;
+    }
+
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    public Matcher matcher() {
+        return new Matcher();
+    }
+
+    /**
+     * A matcher is not thread safe, it retains the state of the last match.
+     */
+    public final class Matcher {
+
+        /** . */
+        private ThreadList current;
+
+        /** . */
+        private ThreadList next;
+
+        /** The capture scratch array. */
+        private final int[] scratch;
+
+        /** The capture of the last match. */
+        private final int[] result;
+
+        /** The matchers of the lookarounds, lazily created. */
+        private final Matcher[] lookMatchers;
+
+        /** . */
+        private boolean matched;
+
+        private Matcher() {
+            this.current = new ThreadList(ops.length, slotCount);
+            this.next = new ThreadList(ops.length, slotCount);
+            this.scratch = new int[slotCount];
+            this.result = new int[slotCount];
+            this.lookMatchers = new Matcher[looks.length];
+        }
+
+        /**
+         * Attempts to match the entire sequence.
+         *
+         * @param s the sequence
+         * @return true when the sequence matches
+         */
+        public boolean matches(CharSequence s) {
+            return run(s, 0, s.length(), true, s.length());
+        }
+
+        /**
+         * Attempts to find the leftmost match in the sequence.
+         *
+         * @param s the sequence
+         * @return true when a match is found
+         */
+        public boolean find(CharSequence s) {
+            return run(s, 0, s.length(), false, -1);
+        }
+
+        public int groupCount() {
+            return groupCount;
+        }
+
+        /**
+         * Returns the start index of a group of the last match or -1 when the group did not participate in the match.
+         *
+         * @param group the group index, 0 being the whole match
+         * @return the start index
+         * @throws IllegalStateException if the last match failed
+         */
+        public int start(int group) throws IllegalStateException {
+            checkMatched(group);
+            return result[2 * group] != -1 && result[2 * group + 1] != -1 ? result[2 * group] : -1;
+        }
+
+        /**
+         * Returns the end index of a group of the last match or -1 when the group did not participate in the match.
+         *
+         * @param group the group index, 0 being the whole match
+         * @return the end index
+         * @throws IllegalStateException if the last match failed
+         */
+        public int end(int group) throws IllegalStateException {
+            checkMatched(group);
+            return result[2 * group] != -1 && result[2 * group + 1] != -1 ? result[2 * group + 1] : -1;
+        }
+
+        private void checkMatched(int group) {
+            if (!matched) {
+                throw new IllegalStateException("No match available");
+            }
+            if (group < 0 || group > groupCount) {
+                throw new IndexOutOfBoundsException("No group " + group);
+            }
+        }
+
+        /**
+         * Run the program.
+         *
+         * @param s the sequence
+         * @param from the index where matching begins
+         * @param to the index after which no char is consumed
+         * @param anchored true when the match must begin at the from index
+         * @param requiredEnd the index where the match must end or -1 for any index
+         * @return true when a match is found
+         */
+        private boolean run(CharSequence s, int from, int to, boolean anchored, int requiredEnd) {
+            matched = false;
+            current.clear();
+            for (int pos = from;; pos++) {
+                if (!matched && (pos == from || !anchored)) {
+                    for (int i = 0; i < scratch.length; i++) {
+                        scratch[i] = -1;
+                    }
+                    add(current, 0, s, pos, scratch);
+                }
+                if (current.size == 0 && (matched || anchored)) {
+                    break;
+                }
+                boolean consume = pos < to;
+                char c = consume ? s.charAt(pos) : 0;
+                next.clear();
+                for (int i = 0; i < current.size; i++) {
+                    int pc = current.dense[i];
+                    int[] caps = current.caps[pc];
+                    boolean accepted;
+                    switch (ops[pc]) {
+                        case MATCH:
+                            if (requiredEnd == -1 || pos == requiredEnd) {
+                                System.arraycopy(caps, 0, result, 0, result.length);
+                                matched = true;
+
+                                // Cut the threads with a lower priority
+                                i = current.size;
+                            }
+                            continue;
+                        case CHAR:
+                            accepted = consume && c == args1[pc];
+                            break;
+                        case ANY:
+                            accepted = consume && !isLineTerminator(c);
+                            break;
+                        case SET:
+                            accepted = consume && contains(sets[args1[pc]], c);
+                            break;
+                        default:
+                            // Non consuming op codes are only retained to mark them as visited
+                            continue;
+                    }
+                    if (accepted) {
+                        add(next, pc + 1, s, pos + 1, caps);
+                    }
+                }
+                ThreadList tmp = current;
+                current = next;
+                next = tmp;
+                if (!consume) {
+                    break;
+                }
+            }
+            return matched;
+        }
+
+        /**
+         * Add a thread to the list following the non consuming op codes.
+         *
+         * @param list the thread list
+         * @param pc the thread program counter
+         * @param s the sequence
+         * @param pos the current position
+         * @param caps the thread captures
+         */
+        private void add(ThreadList list, int pc, CharSequence s, int pos, int[] caps) {
+            if (list.contains(pc)) {
+                return;
+            }
+            list.add(pc);
+            switch (ops[pc]) {
+                case JMP:
+                    add(list, args1[pc], s, pos, caps);
+                    break;
+                case SPLIT:
+                    add(list, args1[pc], s, pos, caps);
+                    add(list, args2[pc], s, pos, caps);
+                    break;
+                case SAVE:
+                    int slot = args1[pc];
+                    int old = caps[slot];
+                    caps[slot] = pos;
+                    add(list, pc + 1, s, pos, caps);
+                    caps[slot] = old;
+                    break;
+                case LOOP:
+                    // Like java.util.regex, an iteration matching an empty sequence exits the loop
+                    if (caps[args1[pc]] == pos) {
+                        add(list, pc + 1, s, pos, caps);
+                    } else {
+                        add(list, args2[pc], s, pos, caps);
+                    }
+                    break;
+                case BEGIN:
+                    if (pos == 0) {
+                        add(list, pc + 1, s, pos, caps);
+                    }
+                    break;
+                case END:
+                    if (isEnd(s, pos)) {
+                        add(list, pc + 1, s, pos, caps);
+                    }
+                    break;
+                case LOOK:
+                    if (look(args1[pc], s, pos)) {
+                        add(list, pc + 1, s, pos, caps);
+                    }
+                    break;
+                default:
+                    System.arraycopy(caps, 0, list.caps[pc], 0, caps.length);
+                    break;
+            }
+        }
+
+        /**
+         * Evaluates a lookaround at a position, a lookahead runs until the end of the sequence in the worst case.
+         *
+         * @param index the lookaround index
+         * @param s the sequence
+         * @param pos the current position
+         * @return true when the assertion holds
+         */
+        private boolean look(int index, CharSequence s, int pos) {
+            Look look = looks[index];
+            Matcher matcher = lookMatchers[index];
+            if (matcher == null) {
+                matcher = lookMatchers[index] = look.program.matcher();
+            }
+            boolean found = false;
+            if (look.ahead) {
+                found = matcher.run(s, pos, s.length(), true, -1);
+            } else {
+                for (int length = look.min; length <= look.max && !found && length <= pos; length++) {
+                    found = matcher.run(s, pos - length, pos, true, pos);
+                }
+            }
+            return found != look.negated;
+        }
+    }
+
+    /**
+     * An ordered set of threads, the threads are stored in a sparse set indexed by program counter.
+     */
+    private static final class ThreadList {
+
+        /** . */
+        private final int[] dense;
+
+        /** . */
+        private final int[] sparse;
+
+        /** The captures indexed by program counter. */
+        private final int[][] caps;
+
+        /** . */
+        private int size;
+
+        private ThreadList(int length, int capSize) {
+            this.dense = new int[length];
+            this.sparse = new int[length];
+            this.caps = new int[length][capSize];
+            this.size = 0;
+        }
+
+        private boolean contains(int pc) {
+            int index = sparse[pc];
+            return index < size && dense[index] == pc;
+        }
+
+        private void add(int pc) {
+            sparse[pc] = size;
+            dense[size++] = pc;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * A lookaround assertion.
+     */
+    private static final class Look {
+
+        /** . */
+        private final REProgram program;
+
+        /** . */
+        private final boolean ahead;
+
+        /** . */
+        private final boolean negated;
+
+        /** The minimum length of a lookbehind. */
+        private final int min;
+
+        /** The maximum length of a lookbehind. */
+        private final int max;
+
+        private Look(REProgram program, boolean ahead, boolean negated, int min, int max) {
+            this.program = program;
+            this.ahead = ahead;
+            this.negated = negated;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    private static final class Compiler {
+
+        /** . */
+        private final Map<RENode.Group, Integer> groups;
+
+        /** . */
+        private int[] ops;
+
+        /** . */
+        private int[] args1;
+
+        /** . */
+        private int[] args2;
+
+        /** . */
+        private int size;
+
+        /** . */
+        private final List<int[]> sets;
+
+        /** . */
+        private final List<Look> looks;
+
+        /** The number of loop registers. */
+        private int registers;
+
+        private Compiler(Map<RENode.Group, Integer> groups) {
+            this.groups = groups;
+            this.ops = new int[16];
+            this.args1 = new int[16];
+            this.args2 = new int[16];
+            this.size = 0;
+            this.sets = new ArrayList<int[]>();
+            this.looks = new ArrayList<Look>();
+            this.registers = 0;
+        }
+
+        private int emit(int op, int arg1, int arg2) {
+            if (size == ops.length) {
+                int length = size * 2;
+                int[] tmp = new int[length];
+                System.arraycopy(ops, 0, tmp, 0, size);
+                ops = tmp;
+                tmp = new int[length];
+                System.arraycopy(args1, 0, tmp, 0, size);
+                args1 = tmp;
+                tmp = new int[length];
+                System.arraycopy(args2, 0, tmp, 0, size);
+                args2 = tmp;
+            }
+            ops[size] = op;
+            args1[size] = arg1;
+            args2[size] = arg2;
+            return size++;
+        }
+
+        private REProgram build() {
+            int groupCount = groups.size();
+            int[] ops = new int[size];
+            int[] args1 = new int[size];
+            int[] args2 = new int[size];
+            System.arraycopy(this.ops, 0, ops, 0, size);
+            System.arraycopy(this.args1, 0, args1, 0, size);
+            System.arraycopy(this.args2, 0, args2, 0, size);
+            return new REProgram(ops, args1, args2, sets.toArray(new int[sets.size()][]), looks.toArray(new Look[looks
+                    .size()]), groupCount, 2 * (groupCount + 1) + registers);
+        }
+
+        private void compile(RENode node) {
+            if (node == null) {
+                // Empty expression
+            } else if (node instanceof RENode.Disjunction) {
+                RENode.Disjunction disjunction = (RENode.Disjunction) node;
+                if (disjunction.hasNext()) {
+                    int split = emit(SPLIT, 0, 0);
+                    args1[split] = size;
+                    compile(disjunction.getAlternative());
+                    int jmp = emit(JMP, 0, 0);
+                    args2[split] = size;
+                    compile(disjunction.getNext());
+                    args1[jmp] = size;
+                } else {
+                    compile(disjunction.getAlternative());
+                }
+            } else if (node instanceof RENode.Alternative) {
+                for (RENode.Alternative alternative = (RENode.Alternative) node; alternative != null; alternative = alternative
+                        .getNext()) {
+                    compile(alternative.getExpr());
+                }
+            } else if (node instanceof RENode.Expr) {
+                RENode.Expr expr = (RENode.Expr) node;
+                Quantifier quantifier = expr.getQuantifier();
+                if (quantifier == null) {
+                    compileExpr(expr);
+                } else {
+                    compileQuantified(expr, quantifier);
+                }
+            } else {
+                throw new UnsupportedOperationException("Unsupported node " + node);
+            }
+        }
+
+        private void compileQuantified(RENode.Expr expr, Quantifier quantifier) {
+            int min = quantifier.getMin();
+            Integer max = quantifier.getMax();
+            if (quantifier.getMode() == Quantifier.Mode.POSSESSIVE) {
+                throw new UnsupportedOperationException("Possessive quantifiers are not supported");
+            }
+            if (min > MAX_REPETITION || (max != null && max > MAX_REPETITION)) {
+                throw new UnsupportedOperationException("Quantifier " + quantifier + " is too large");
+            }
+            boolean greedy = quantifier.getMode() == Quantifier.Mode.GREEDY;
+
+            //
+            for (int i = 0; i < min; i++) {
+                compileExpr(expr);
+            }
+
+            //
+            if (max == null) {
+                int register = 2 * (groups.size() + 1) + registers++;
+                int split = emit(SPLIT, 0, 0);
+                int body = emit(SAVE, register, 0);
+                compileExpr(expr);
+                emit(LOOP, register, split);
+                setBranches(split, body, size, greedy);
+            } else {
+                List<Integer> splits = new ArrayList<Integer>();
+                for (int i = min; i < max; i++) {
+                    int split = emit(SPLIT, 0, 0);
+                    splits.add(split);
+                    args1[split] = size;
+                    compileExpr(expr);
+                }
+                for (int split : splits) {
+                    setBranches(split, split + 1, size, greedy);
+                }
+            }
+        }
+
+        private void setBranches(int split, int body, int exit, boolean greedy) {
+            if (greedy) {
+                args1[split] = body;
+                args2[split] = exit;
+            } else {
+                args1[split] = exit;
+                args2[split] = body;
+            }
+        }
+
+        private void compileExpr(RENode.Expr expr) {
+            if (expr instanceof RENode.Char) {
+                emit(CHAR, ((RENode.Char) expr).getValue(), 0);
+            } else if (expr instanceof RENode.Any) {
+                emit(ANY, 0, 0);
+            } else if (expr instanceof RENode.CharacterClass) {
+                sets.add(ranges(((RENode.CharacterClass) expr).getExpr()));
+                emit(SET, sets.size() - 1, 0);
+            } else if (expr instanceof RENode.Assertion.Begin) {
+                emit(BEGIN, 0, 0);
+            } else if (expr instanceof RENode.Assertion.End) {
+                emit(END, 0, 0);
+            } else if (expr instanceof RENode.Group) {
+                RENode.Group group = (RENode.Group) expr;
+                switch (group.getType()) {
+                    case CAPTURING_GROUP:
+                        int index = groups.get(group);
+                        emit(SAVE, 2 * index, 0);
+                        compile(group.getDisjunction());
+                        emit(SAVE, 2 * index + 1, 0);
+                        break;
+                    case NON_CAPTURING_GROUP:
+                        compile(group.getDisjunction());
+                        break;
+                    case POSITIVE_LOOKAHEAD:
+                    case NEGATIVE_LOOKAHEAD:
+                    case POSITIVE_LOOKBEHIND:
+                    case NEGATIVE_LOOKBEHIND:
+                        looks.add(look(group));
+                        emit(LOOK, looks.size() - 1, 0);
+                        break;
+                    default:
+                        throw new AssertionError();
+                }
+            } else {
+                throw new UnsupportedOperationException("Unsupported expression " + expr);
+            }
+        }
+
+        private Look look(RENode.Group group) {
+            REProgram program = REProgram.compile(group.getDisjunction());
+            if (program.groupCount > 0) {
+                throw new UnsupportedOperationException("Capturing groups in lookarounds are not supported");
+            }
+            GroupType type = group.getType();
+            boolean negated = type == GroupType.NEGATIVE_LOOKAHEAD || type == GroupType.NEGATIVE_LOOKBEHIND;
+            if (type == GroupType.POSITIVE_LOOKAHEAD || type == GroupType.NEGATIVE_LOOKAHEAD) {
+                return new Look(program, true, negated, 0, 0);
+            } else {
+                int[] length = length(group.getDisjunction());
+                if (length[1] == -1) {
+                    throw new UnsupportedOperationException("Unbounded lookbehinds are not supported");
+                }
+                return new Look(program, false, negated, length[0], length[1]);
+            }
+        }
+    }
+
+    /**
+     * Computes the minimum and maximum length of the sequences matched by a node, -1 meaning unbounded.
+     *
+     * @param node the node
+     * @return the minimum and the maximum lengths
+     */
+    private static int[] length(RENode node) {
+        if (node == null) {
+            return new int[] { 0, 0 };
+        } else if (node instanceof RENode.Disjunction) {
+            RENode.Disjunction disjunction = (RENode.Disjunction) node;
+            int[] length = length(disjunction.getAlternative());
+            if (disjunction.hasNext()) {
+                int[] next = length(disjunction.getNext());
+                length[0] = Math.min(length[0], next[0]);
+                length[1] = length[1] == -1 || next[1] == -1 ? -1 : Math.max(length[1], next[1]);
+            }
+            return length;
+        } else if (node instanceof RENode.Alternative) {
+            int[] length = { 0, 0 };
+            for (RENode.Alternative alternative = (RENode.Alternative) node; alternative != null; alternative = alternative
+                    .getNext()) {
+                int[] expr = length(alternative.getExpr());
+                length[0] += expr[0];
+                length[1] = length[1] == -1 || expr[1] == -1 ? -1 : length[1] + expr[1];
+            }
+            return length;
+        } else {
+            int[] length;
+            if (node instanceof RENode.Atom) {
+                length = new int[] { 1, 1 };
+            } else if (node instanceof RENode.Group) {
+                RENode.Group group = (RENode.Group) node;
+                if (group.getType() == GroupType.CAPTURING_GROUP || group.getType() == GroupType.NON_CAPTURING_GROUP) {
+                    length = length(group.getDisjunction());
+                } else {
+                    length = new int[] { 0, 0 };
+                }
+            } else {
+                length = new int[] { 0, 0 };
+            }
+            Quantifier quantifier = ((RENode.Expr) node).getQuantifier();
+            if (quantifier != null) {
+                Integer max = quantifier.getMax();
+                length[0] *= quantifier.getMin();
+                if (length[1] != 0) {
+                    length[1] = max == null || length[1] == -1 ? -1 : length[1] * max;
+                }
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Computes the sorted disjoint inclusive char ranges of a character class expression.
+     *
+     * @param expr the expression
+     * @return the ranges
+     */
+    private static int[] ranges(RENode.CharacterClassExpr expr) {
+        if (expr instanceof RENode.CharacterClassExpr.Char) {
+            char c = ((RENode.CharacterClassExpr.Char) expr).getValue();
+            return new int[] { c, c };
+        } else if (expr instanceof RENode.CharacterClassExpr.Range) {
+            RENode.CharacterClassExpr.Range range = (RENode.CharacterClassExpr.Range) expr;
+            return new int[] { range.getFrom().getValue(), range.getTo().getValue() };
+        } else if (expr instanceof RENode.CharacterClassExpr.Or) {
+            RENode.CharacterClassExpr.Or or = (RENode.CharacterClassExpr.Or) expr;
+            return union(ranges(or.getLeft()), ranges(or.getRight()));
+        } else if (expr instanceof RENode.CharacterClassExpr.And) {
+            RENode.CharacterClassExpr.And and = (RENode.CharacterClassExpr.And) expr;
+            return complement(union(complement(ranges(and.getLeft())), complement(ranges(and.getRight()))));
+        } else if (expr instanceof RENode.CharacterClassExpr.Not) {
+            return complement(ranges(((RENode.CharacterClassExpr.Not) expr).getNegated()));
+        } else {
+            throw new UnsupportedOperationException("Unsupported character class " + expr);
+        }
+    }
+
+    private static int[] union(int[] left, int[] right) {
+        int[] all = new int[left.length + right.length];
+        System.arraycopy(left, 0, all, 0, left.length);
+        System.arraycopy(right, 0, all, left.length, right.length);
+
+        // Sort the ranges by their lower bound
+        for (int i = 2; i < all.length; i += 2) {
+            for (int j = i; j > 0 && all[j - 2] > all[j]; j -= 2) {
+                int from = all[j], to = all[j + 1];
+                all[j] = all[j - 2];
+                all[j + 1] = all[j - 1];
+                all[j - 2] = from;
+                all[j - 1] = to;
+            }
+        }
+
+        // Merge the overlapping or adjacent ranges
+        int size = 0;
+        for (int i = 0; i < all.length; i += 2) {
+            if (size > 0 && all[i] <= all[size - 1] + 1) {
+                all[size - 1] = Math.max(all[size - 1], all[i + 1]);
+            } else {
+                all[size++] = all[i];
+                all[size++] = all[i + 1];
+            }
+        }
+        int[] ranges = new int[size];
+        System.arraycopy(all, 0, ranges, 0, size);
+        return ranges;
+    }
+
+    private static int[] complement(int[] ranges) {
+        List<Integer> complement = new ArrayList<Integer>();
+        int from = Character.MIN_VALUE;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] > from) {
+                complement.add(from);
+                complement.add(ranges[i] - 1);
+            }
+            from = ranges[i + 1] + 1;
+        }
+        if (from <= Character.MAX_VALUE) {
+            complement.add(from);
+            complement.add((int) Character.MAX_VALUE);
+        }
+        int[] result = new int[complement.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = complement.get(i);
+        }
+        return result;
+    }
+
+    private static boolean contains(int[] ranges, char c) {
+        int low = 0;
+        int high = ranges.length / 2 - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (c < ranges[2 * mid]) {
+                high = mid - 1;
+            } else if (c > ranges[2 * mid + 1]) {
+                low = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * The <code>$</code> semantic of the <code>java.util.regex</code> package: the end of the sequence or before a line
+     * terminator ending the sequence.
+     */
+    private static boolean isEnd(CharSequence s, int pos) {
+        int length = s.length();
+        if (pos == length) {
+            return true;
+        } else if (pos == length - 1) {
+            char c = s.charAt(pos);
+            return isLineTerminator(c) && !(c == '\n' && pos > 0 && s.charAt(pos - 1) == '\r');
+        } else if (pos == length - 2) {
+            return s.charAt(pos) == '\r' && s.charAt(pos + 1) == '\n';
+        } else {
+            return false;
+        }
+    }
+}
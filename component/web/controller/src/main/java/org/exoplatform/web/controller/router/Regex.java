@@ -18,6 +18,9 @@
  */
 package org.exoplatform.web.controller.router;
 
+import org.exoplatform.web.controller.regexp.REProgram;
+import org.exoplatform.web.controller.regexp.SyntaxException;
+
 /** @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a> */
 public abstract class Regex {
 
@@ -126,4 +129,66 @@ public abstract class Regex {
             return pattern.pattern();
         }
     }
+
+    /**
+     * A regex executed by a {@link REProgram}: the matching time is linear with the length of the input.
+     */
+    public static class Linear extends Regex {
+
+        /** . */
+        private final String pattern;
+
+        /** . */
+        private final REProgram program;
+
+        /**
+         * Compile the specified regex.
+         *
+         * @param regex the regex
+         * @throws SyntaxException when the regex cannot be parsed
+         * @throws UnsupportedOperationException when the regex uses a construct not supported by the program
+         */
+        public Linear(String regex) throws SyntaxException, UnsupportedOperationException {
+            this.pattern = regex;
+            this.program = REProgram.compile(regex);
+        }
+
+        @Override
+        public Matcher matcher() {
+            return new Matcher() {
+
+                /** . */
+                private final REProgram.Matcher impl = program.matcher();
+
+                @Override
+                public boolean matches(CharSequence s) {
+                    return impl.matches(s);
+                }
+
+                @Override
+                public Match[] find(CharSequence s) {
+                    if (impl.find(s)) {
+                        Match[] matches = new Match[1 + impl.groupCount()];
+                        for (int i = 0; i <= impl.groupCount(); i++) {
+                            int start = impl.start(i);
+                            if (start != -1) {
+                                int end = impl.end(i);
+                                matches[i] = new Match(start, end, s.subSequence(start, end).toString());
+                            } else {
+                                matches[i] = NULL_MATCH;
+                            }
+                        }
+                        return matches;
+                    } else {
+                        return NO_MATCHES;
+                    }
+                }
+            };
+        }
+
+        @Override
+        public String getPattern() {
+            return pattern;
+        }
+    }
 }
@@ -19,6 +19,8 @@
 
 package org.exoplatform.web.controller.router;
 
+import org.exoplatform.web.controller.regexp.SyntaxException;
+
 /** @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a> */
 public abstract class RegexFactory implements Cloneable {
 
@@ -34,6 +36,28 @@ public abstract class RegexFactory implements Cloneable {
         }
     };
 
+    /**
+     * Compiles the regexes to linear time programs, the regexes using a construct not supported by the programs fall back
+     * to the <code>java.util.regex</code> package.
+     */
+    public static RegexFactory LINEAR = new RegexFactory() {
+        @Override
+        public Regex compile(String pattern) {
+            try {
+                return new Regex.Linear(pattern);
+            } catch (SyntaxException e) {
+                return JAVA.compile(pattern);
+            } catch (UnsupportedOperationException e) {
+                return JAVA.compile(pattern);
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "linear";
+        }
+    };
+
     protected RegexFactory() {
     }
 
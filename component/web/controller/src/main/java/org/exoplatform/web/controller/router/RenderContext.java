@@ -21,6 +21,7 @@ package org.exoplatform.web.controller.router;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.exoplatform.web.controller.QualifiedName;
 
@@ -139,7 +140,7 @@ public class RenderContext {
         return parameters.get(name);
     }
 
-    Iterable<QualifiedName> getNames() {
+    Set<QualifiedName> getNames() {
         return parameters.keySet();
     }
 
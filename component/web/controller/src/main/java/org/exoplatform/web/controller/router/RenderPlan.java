@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.controller.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.exoplatform.web.controller.QualifiedName;
+
+/**
+ * The plan for rendering a set of parameter names: the route chains that can possibly render those names, in the order they
+ * would be tried when searching the route tree. Only the values of the parameters remain to be matched against the few
+ * candidate chains.
+ */
+class RenderPlan {
+
+    /** . */
+    private static final Route[][] EMPTY_CHAINS = new Route[0][];
+
+    static RenderPlan create(Route[] terminals, Route[][] chains, Set<QualifiedName> names) {
+        List<Route[]> candidates = new ArrayList<Route[]>();
+        for (int i = 0; i < terminals.length; i++) {
+            if (terminals[i].accept(names)) {
+                candidates.add(chains[i]);
+            }
+        }
+        return new RenderPlan(candidates.toArray(EMPTY_CHAINS));
+    }
+
+    /** . */
+    private final Route[][] candidates;
+
+    private RenderPlan(Route[][] candidates) {
+        this.candidates = candidates;
+    }
+
+    Route.RouteMatch find(RenderContext context) {
+        for (Route[] candidate : candidates) {
+            Route.RouteMatch match = Route.find(context, candidate);
+            if (match != null) {
+                return match;
+            }
+        }
+        return null;
+    }
+}
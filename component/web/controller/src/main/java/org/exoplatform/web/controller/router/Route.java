@@ -158,6 +158,15 @@ class Route {
     /** . */
     private RequestParam[] requestParamArray;
 
+    /** The named segments of the children hashed by open addressing, only built in compiled mode. */
+    private String[] segmentNames;
+
+    /** The candidate children of the named segments, at the same index than in {@link #segmentNames}. */
+    private Route[][] segmentCandidates;
+
+    /** The candidate children of a segment not found in the segment index, only built in compiled mode. */
+    private Route[] anySegment;
+
     Route(Router router) {
         this.router = router;
         this.parent = null;
@@ -173,9 +182,99 @@ class Route {
         return terminal;
     }
 
+    /**
+     * Index the children of this route and of its descendants by segment name. A named segment route can only match its own
+     * segment, the empty segment routes and the pattern routes can match any segment. Each array retains the declaration order
+     * of the children so the route priority is the same as with the interpreted mode.
+     */
+    final void compile() {
+        Map<String, Route[]> index = new HashMap<String, Route[]>();
+        Route[] any = EMPTY_ROUTE_ARRAY;
+        for (Route child : children) {
+            if (child instanceof SegmentRoute && ((SegmentRoute) child).name.length() > 0) {
+                index.put(((SegmentRoute) child).name, EMPTY_ROUTE_ARRAY);
+            } else {
+                any = Tools.appendTo(any, child);
+            }
+        }
+        for (Map.Entry<String, Route[]> entry : index.entrySet()) {
+            Route[] candidates = EMPTY_ROUTE_ARRAY;
+            for (Route child : children) {
+                if (!(child instanceof SegmentRoute) || ((SegmentRoute) child).name.length() == 0
+                        || ((SegmentRoute) child).name.equals(entry.getKey())) {
+                    candidates = Tools.appendTo(candidates, child);
+                }
+            }
+            entry.setValue(candidates);
+        }
+
+        // The table is at most half full so the probing stops on an empty slot
+        int size = 1;
+        while (size < index.size() * 2) {
+            size <<= 1;
+        }
+        String[] names = new String[size];
+        Route[][] candidates = new Route[size][];
+        for (Map.Entry<String, Route[]> entry : index.entrySet()) {
+            int slot = entry.getKey().hashCode() & (size - 1);
+            while (names[slot] != null) {
+                slot = (slot + 1) & (size - 1);
+            }
+            names[slot] = entry.getKey();
+            candidates[slot] = entry.getValue();
+        }
+
+        //
+        this.segmentNames = names;
+        this.segmentCandidates = candidates;
+        this.anySegment = any;
+
+        //
+        for (Route child : children) {
+            child.compile();
+        }
+    }
+
+    /**
+     * Returns the children that may match the specified path. The segment is looked up in place in the path so the
+     * lookup does not allocate.
+     *
+     * @param path the path starting with a '/'
+     * @return the candidate children
+     */
+    private Route[] getCandidates(Path path) {
+        if (segmentNames == null) {
+            return children;
+        } else if (segmentNames.length == 1 && segmentNames[0] == null) {
+            return anySegment;
+        } else {
+            String value = path.getValue();
+            int end = value.indexOf('/', 1);
+            if (end == -1) {
+                end = value.length();
+            }
+
+            // Same hash than String#hashCode() of the segment
+            int hash = 0;
+            for (int i = 1; i < end; i++) {
+                hash = 31 * hash + value.charAt(i);
+            }
+
+            //
+            int mask = segmentNames.length - 1;
+            for (int slot = hash & mask; segmentNames[slot] != null; slot = (slot + 1) & mask) {
+                String name = segmentNames[slot];
+                if (name.length() == end - 1 && value.regionMatches(1, name, 0, end - 1)) {
+                    return segmentCandidates[slot];
+                }
+            }
+            return anySegment;
+        }
+    }
+
     /*
-     * Ok, so this is not the fastest way to do it, but for now it's OK, it's what is needed, we'll find a way to optimize it
-     * later with some precompilation.
+     * Search the whole route tree, the router uses instead a render plan that only search the route chains that can match the
+     * parameter names. This is kept as the reference implementation.
      */
     final void render(RenderContext context, URIWriter writer) throws IOException {
         RouteMatch r = find(context);
@@ -203,7 +302,7 @@ class Route {
             this.matches = matches;
         }
 
-        private void render(URIWriter writer) throws IOException {
+        void render(URIWriter writer) throws IOException {
             // Append path first
             renderPath(route, writer, false);
 
@@ -322,13 +421,80 @@ class Route {
     }
 
     private RouteMatch _find(RenderContext context) {
+        if (!match(context)) {
+            return null;
+        }
+
+        //
+        if (context.isEmpty() && terminal) {
+            return createMatch(context);
+        }
+
+        //
+        for (Route route : children) {
+            RouteMatch a = route.find(context);
+            if (a != null) {
+                return a;
+            }
+        }
+
+        //
+        return null;
+    }
+
+    /**
+     * Find a match for the specified route chain, it is equivalent to call {@link #find(RenderContext)} on the root route
+     * when the last route of the chain is the only terminal route that can match the context.
+     *
+     * @param context the render context
+     * @param chain the routes from the root route to a terminal route
+     * @return the route match or null
+     */
+    static RouteMatch find(RenderContext context, Route[] chain) {
+        int depth = 0;
+        try {
+            for (Route route : chain) {
+                context.enter();
+                depth++;
+                if (!route.match(context)) {
+                    return null;
+                }
+            }
+            return context.isEmpty() ? chain[chain.length - 1].createMatch(context) : null;
+        } finally {
+            while (depth-- > 0) {
+                context.leave();
+            }
+        }
+    }
+
+    private RouteMatch createMatch(RenderContext context) {
+        Map<QualifiedName, String> matches = Collections.emptyMap();
+        for (QualifiedName name : context.getNames()) {
+            RenderContext.Parameter parameter = context.getParameter(name);
+            if (matches.isEmpty()) {
+                matches = new HashMap<QualifiedName, String>();
+            }
+            String match = parameter.getMatch();
+            matches.put(name, match);
+        }
+        return new RouteMatch(context, this, matches);
+    }
+
+    /**
+     * Match the parameters of this route against the context.
+     *
+     * @param context the render context
+     * @return true when the route parameters are matched
+     */
+    private boolean match(RenderContext context) {
         // Match first the static parameteters
         for (RouteParam param : routeParamArray) {
             RenderContext.Parameter entry = context.getParameter(param.name);
             if (entry != null && !entry.isMatched() && param.value.equals(entry.getValue())) {
                 entry.remove(entry.getValue());
             } else {
-                return null;
+                return false;
             }
         }
 
@@ -350,7 +516,7 @@ class Route {
                         // Do nothing
                         break;
                     case REQUIRED:
-                        return null;
+                        return false;
                     default:
                         throw new AssertionError();
                 }
@@ -383,35 +549,53 @@ class Route {
                 if (matched != null) {
                     s.remove(matched);
                 } else {
-                    return null;
+                    return false;
                 }
             }
         }
 
         //
-        if (context.isEmpty() && terminal) {
-            Map<QualifiedName, String> matches = Collections.emptyMap();
-            for (QualifiedName name : context.getNames()) {
-                RenderContext.Parameter parameter = context.getParameter(name);
-                if (matches.isEmpty()) {
-                    matches = new HashMap<QualifiedName, String>();
-                }
-                String match = parameter.getMatch();
-                matches.put(name, match);
+        return true;
+    }
+
+    /**
+     * Collect the chains of routes from the root route to the terminal routes among this route and its descendants, the chains
+     * are collected in the same order than the one used by {@link #find(RenderContext)}.
+     *
+     * @param chain the chain to this route excluded
+     * @param chains the list collecting the chains
+     */
+    final void findTerminalChains(List<Route> chain, List<Route[]> chains) {
+        chain.add(this);
+        if (terminal) {
+            chains.add(chain.toArray(new Route[chain.size()]));
+        } else {
+            for (Route child : children) {
+                child.findTerminalChains(chain, chains);
             }
-            return new RouteMatch(context, this, matches);
         }
+        chain.remove(chain.size() - 1);
+    }
 
-        //
-        for (Route route : children) {
-            RouteMatch a = route.find(context);
-            if (a != null) {
-                return a;
+    /**
+     * Returns true when the parameter names of a render context can possibly be matched by this terminal route: they should
+     * contain every parameter required by the route chain and nothing more than the parameters of the route chain.
+     *
+     * @param names the parameter names
+     * @return true when the names can be matched
+     */
+    final boolean accept(Set<QualifiedName> names) {
+        List<Param> params = new ArrayList<Param>();
+        findAncestorOrSelfParams(params);
+        int count = 0;
+        for (Param param : params) {
+            if (names.contains(param.name)) {
+                count++;
+            } else if (!(param instanceof RequestParam) || ((RequestParam) param).controlMode == ControlMode.REQUIRED) {
+                return false;
             }
         }
-
-        //
-        return null;
+        return count == names.size();
     }
 
     /**
@@ -455,6 +639,9 @@ class Route {
         /** . */
         private Status status;
 
+        /** The children to iterate in {@link org.exoplatform.web.controller.router.Route.RouteFrame.Status#PROCESS_CHILDREN} status. */
+        private Route[] candidates;
+
         /** The matches. */
         private Map<QualifiedName, String> matches;
 
@@ -477,22 +664,32 @@ class Route {
         }
 
         Map<QualifiedName, String> getParameters() {
-            Map<QualifiedName, String> parameters = null;
+            int size = 0;
             for (RouteFrame frame = this; frame != null; frame = frame.parent) {
                 if (frame.matches != null) {
-                    if (parameters == null) {
-                        parameters = new HashMap<QualifiedName, String>();
-                    }
-                    parameters.putAll(frame.matches);
+                    size += frame.matches.size();
                 }
-                for (RouteParam param : frame.route.routeParamArray) {
-                    if (parameters == null) {
-                        parameters = new HashMap<QualifiedName, String>();
+                size += frame.route.routeParamArray.length;
+            }
+
+            //
+            if (size == 0) {
+                return Collections.emptyMap();
+            } else if (matches != null && matches.size() == size) {
+                // A matched frame is never visited again, its matches are the parameters
+                return Collections.unmodifiableMap(matches);
+            } else {
+                Map<QualifiedName, String> parameters = new HashMap<QualifiedName, String>(size * 2);
+                for (RouteFrame frame = this; frame != null; frame = frame.parent) {
+                    if (frame.matches != null) {
+                        parameters.putAll(frame.matches);
+                    }
+                    for (RouteParam param : frame.route.routeParamArray) {
+                        parameters.put(param.name, param.value);
                     }
-                    parameters.put(param.name, param.value);
                 }
+                return Collections.unmodifiableMap(parameters);
             }
-            return parameters != null ? parameters : Collections.<QualifiedName, String> emptyMap();
         }
     }
 
@@ -616,6 +813,7 @@ class Route {
                         next = RouteFrame.Status.MATCHED;
                     } else {
                         next = RouteFrame.Status.PROCESS_CHILDREN;
+                        current.candidates = current.route.getCandidates(current.path);
                     }
                 } else {
                     next = RouteFrame.Status.END;
@@ -624,8 +822,8 @@ class Route {
                 //
                 current.status = next;
             } else if (current.status == RouteFrame.Status.PROCESS_CHILDREN) {
-                if (current.childIndex < current.route.children.length) {
-                    Route child = current.route.children[current.childIndex++];
+                if (current.childIndex < current.candidates.length) {
+                    Route child = current.candidates[current.childIndex++];
 
                     // The next frame
                     RouteFrame next;
@@ -669,7 +867,7 @@ class Route {
                         PatternRoute patternRoute = (PatternRoute) child;
 
                         //
-                        Regex.Match[] matches = patternRoute.pattern.matcher().find(current.path.getValue());
+                        Regex.Match[] matches = child.router.matcher(patternRoute.pattern).find(current.path.getValue());
 
                         // We match
                         if (matches.length > 0) {
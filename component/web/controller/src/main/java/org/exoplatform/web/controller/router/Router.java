@@ -21,9 +21,14 @@ package org.exoplatform.web.controller.router;
 
 import java.io.IOException;
 import java.util.BitSet;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.exoplatform.web.controller.QualifiedName;
 import org.exoplatform.web.controller.metadata.ControllerDescriptor;
@@ -79,8 +84,26 @@ public class Router {
     /** . */
     private Regex[] regexes;
 
+    /** . */
+    private final RoutingMode routingMode;
+
+    /** The maximum number of render plans retained by the router. */
+    private static final int MAX_RENDER_PLANS = 1024;
+
+    /** The route chains to the terminal routes, in route priority order. */
+    private final Route[][] chains;
+
+    /** The terminal routes, the last route of each chain. */
+    private final Route[] terminals;
+
+    /** The render plans indexed by parameter names, they are discarded with the router when the configuration is reloaded. */
+    private final ConcurrentHashMap<Set<QualifiedName>, RenderPlan> renderPlans;
+
+    /** The per thread matchers used by the compiled routing mode, indexed by {@link Regex#index}. */
+    private final ThreadLocal<Regex.Matcher[]> matchers;
+
     public Router(ControllerDescriptor metaData) throws RouterConfigException {
-        this(metaData, RegexFactory.JAVA);
+        this(metaData, metaData.getRegexFactory());
     }
 
     public Router(ControllerDescriptor metaData, RegexFactory regexFactory) throws RouterConfigException {
@@ -102,11 +125,39 @@ public class Router {
         this.root = new Route(this);
         this.separatorEscape = separtorEscape;
         this.regexes = new Regex[0];
+        this.routingMode = metaData.getRoutingMode();
 
         //
         for (RouteDescriptor routeMetaData : metaData.getRoutes()) {
             root.append(routeMetaData);
         }
+
+        //
+        List<Route[]> chains = new ArrayList<Route[]>();
+        root.findTerminalChains(new ArrayList<Route>(), chains);
+        this.chains = chains.toArray(new Route[chains.size()][]);
+        this.terminals = new Route[this.chains.length];
+        for (int j = 0; j < this.chains.length; j++) {
+            terminals[j] = this.chains[j][this.chains[j].length - 1];
+        }
+        this.renderPlans = new ConcurrentHashMap<Set<QualifiedName>, RenderPlan>();
+
+        //
+        if (routingMode == RoutingMode.COMPILED) {
+            root.compile();
+            matchers = new ThreadLocal<Regex.Matcher[]>() {
+                @Override
+                protected Regex.Matcher[] initialValue() {
+                    return new Regex.Matcher[regexes.length];
+                }
+            };
+        } else {
+            matchers = null;
+        }
+    }
+
+    public RoutingMode getRoutingMode() {
+        return routingMode;
     }
 
     Regex compile(String pattern) {
@@ -121,6 +172,25 @@ public class Router {
         return regex;
     }
 
+    /**
+     * Returns a matcher for the specified regex, in compiled mode the matcher is reused by the current thread.
+     *
+     * @param regex the regex
+     * @return the matcher
+     */
+    Regex.Matcher matcher(Regex regex) {
+        if (matchers != null) {
+            Regex.Matcher[] threadMatchers = matchers.get();
+            Regex.Matcher matcher = threadMatchers[regex.index];
+            if (matcher == null) {
+                matcher = threadMatchers[regex.index] = regex.matcher();
+            }
+            return matcher;
+        } else {
+            return regex.matcher();
+        }
+    }
+
     public void render(Map<QualifiedName, String> parameters, URIWriter writer) throws IOException {
         render(new RenderContext(parameters), writer);
     }
@@ -133,7 +203,28 @@ public class Router {
         if (context.matchers == null) {
             context.matchers = new Regex.Matcher[regexes.length];
         }
-        root.render(context, writer);
+        Route.RouteMatch match = getRenderPlan(context.getNames()).find(context);
+        if (match != null) {
+            match.render(writer);
+        }
+    }
+
+    /**
+     * Returns the render plan for the specified parameter names, the live key set of a render context can be used for the
+     * lookup as it is copied when a new plan is cached.
+     *
+     * @param names the parameter names
+     * @return the render plan
+     */
+    RenderPlan getRenderPlan(Set<QualifiedName> names) {
+        RenderPlan plan = renderPlans.get(names);
+        if (plan == null) {
+            plan = RenderPlan.create(terminals, chains, names);
+            if (renderPlans.size() < MAX_RENDER_PLANS) {
+                renderPlans.putIfAbsent(new HashSet<QualifiedName>(names), plan);
+            }
+        }
+        return plan;
     }
 
     public String render(RenderContext context) {
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.controller.router;
+
+/**
+ * The routing algorithm used by a {@link Router}.
+ */
+public enum RoutingMode {
+
+    /**
+     * The reference algorithm: every child route is tried in order for each path segment.
+     */
+    INTERPRETED,
+
+    /**
+     * The route tree is indexed by segment name when the router is built so only the candidate children of a segment are
+     * tried, pattern matchers are reused per thread and the matched parameters are returned as an immutable map.
+     */
+    COMPILED
+
+}
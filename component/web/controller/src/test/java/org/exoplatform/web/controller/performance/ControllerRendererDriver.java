@@ -59,6 +59,8 @@ public class ControllerRendererDriver extends JapexDriverBase {
             regexFactory = JRegexFactory.INSTANCE;
         } else if (regexFactoryName.equals("java")) {
             regexFactory = RegexFactory.JAVA;
+        } else if (regexFactoryName.equals("linear")) {
+            regexFactory = RegexFactory.LINEAR;
         }
 
         //
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.controller.regexp;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import junit.framework.AssertionFailedError;
+import junit.framework.TestCase;
+
+/**
+ * Check the {@link REProgram} matches against the <code>java.util.regex</code> package.
+ */
+public class TestREProgram extends TestCase {
+
+    /** . */
+    private static final String[] INPUTS = { "", "a", "b", "ab", "abc", "aab", "abab", "aaa", "abcabc", "/", "//", "/a",
+            "/a/", "/a/b", "/portal/classic/home", "/fr/classic", "/fr-FR/classic/", "foo.css", "/foo/bar.png", "a\n", "a\r\n",
+            "a_b", "-", "a-b", "0123", "fr", "fr-BE" };
+
+    /** . */
+    private static final String[] PATTERNS = { "", "a", "ab", "a|b", "a|ab", "ab|a", "(a|ab)(c|bcd)?", "a*", "a+", "a?",
+            "a*?", "a+?", "a??", "(a*)", "(a*?)b", "(a)*", "(a|b)*", "(ab)+", "a{2}", "a{1,2}", "a{1,}", "a{0,2}?", "[ab]",
+            "[^a]", "[a-c]+", "[a-z&&[^b]]+", "[0-9]{2}", ".", ".*", ".+", "^a", "b$", "a$", "^$", "(?:a|b)c", "(a)|(b)",
+            "((a)|b)+", "a(?=b)", "a(?!b)", "(?<=a)b", "(?<!a)b", "(?<=^/)", "^/(?:[^/]*)(?:(?<=^/)|(?=/)|$)",
+            "^/(?:([A-Za-z]{2}(-[A-Za-z]{2})?)?)(?:(?<=^/)|(?=/)|$)", "^/(?:.*\\.(jpg|png|gif|ico|css))(?:(?<=^/)|(?=/)|$)",
+            "^/portal(?:/(.*))?", "\\.", "a\\|b", "[.]", "_|-" };
+
+    /**
+     * The patterns nesting loops that can match an empty sequence, the group captures may differ from the ones of the
+     * backtracking implementation but the match must be the same.
+     */
+    private static final String[] EMPTY_LOOP_PATTERNS = { "(a*)*", "(a|)*b", "(a?)+", "((a*)b?)*" };
+
+    public void testEquivalence() throws Exception {
+        assertEquivalence(PATTERNS, true);
+        assertEquivalence(EMPTY_LOOP_PATTERNS, false);
+    }
+
+    private void assertEquivalence(String[] patterns, boolean groups) throws Exception {
+        for (String pattern : patterns) {
+            Pattern expected = Pattern.compile(pattern);
+            REProgram program = REProgram.compile(pattern);
+            REProgram.Matcher matcher = program.matcher();
+            for (String input : INPUTS) {
+                Matcher expectedMatcher = expected.matcher(input);
+                String message = "Pattern " + pattern + " with input " + input;
+                assertEquals(message, expectedMatcher.matches(), matcher.matches(input));
+                boolean found = expectedMatcher.find(0);
+                assertEquals(message, found, matcher.find(input));
+                if (found) {
+                    assertEquals(message, expectedMatcher.groupCount(), matcher.groupCount());
+                    for (int i = 0; i <= (groups ? expectedMatcher.groupCount() : 0); i++) {
+                        assertEquals(message + " group " + i, expectedMatcher.start(i), matcher.start(i));
+                        assertEquals(message + " group " + i, expectedMatcher.end(i), matcher.end(i));
+                    }
+                }
+            }
+        }
+    }
+
+    public void testUnsupported() throws Exception {
+        assertUnsupported("a*+");
+        assertUnsupported("(?<=a*)b");
+        assertUnsupported("(?=(a))");
+    }
+
+    public void testNoBacktracking() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            sb.append('a');
+        }
+        REProgram program = REProgram.compile("^/(?:(a|aa)*(a*)*b)(?:(?<=^/)|(?=/)|$)");
+        assertFalse(program.matcher().find("/" + sb));
+    }
+
+    public void testLongInputLookaround() throws Exception {
+        StringBuilder sb = new StringBuilder("/");
+        for (int i = 0; i < 5000; i++) {
+            sb.append(i % 7 == 0 ? '/' : 'a');
+        }
+        String input = sb.toString();
+        String[] patterns = { "(?<=/a)a", "(?<!/)a{2}/", "a(?=a*/)", "a(?!a*/)", "^/(?:[^/]*)(?:(?<=^/)|(?=/)|$)" };
+        for (String pattern : patterns) {
+            Matcher expected = Pattern.compile(pattern).matcher(input);
+            REProgram.Matcher matcher = REProgram.compile(pattern).matcher();
+            assertEquals(pattern, expected.matches(), matcher.matches(input));
+            assertEquals(pattern, expected.find(0), matcher.find(input));
+            assertEquals(pattern, expected.start(), matcher.start(0));
+            assertEquals(pattern, expected.end(), matcher.end(0));
+        }
+
+        // The worst case of a lookahead scanning the remaining input at each position
+        sb.setLength(0);
+        for (int i = 0; i < 5000; i++) {
+            sb.append('a');
+        }
+        assertFalse(REProgram.compile("(?=a*b)a").matcher().find(sb));
+    }
+
+    private void assertUnsupported(String pattern) throws SyntaxException {
+        try {
+            REProgram.compile(pattern);
+            throw new AssertionFailedError("Was expecting " + pattern + " to be unsupported");
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.controller.router;
+
+import static org.exoplatform.web.controller.metadata.DescriptorBuilder.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.exoplatform.web.controller.QualifiedName;
+import org.exoplatform.web.url.MimeType;
+
+/**
+ * Check the render plans against the search of the whole route tree which is the reference implementation.
+ */
+public class TestRenderPlan extends AbstractTestController {
+
+    /** . */
+    private Router router;
+
+    @Override
+    protected void setUp() throws Exception {
+        router = router().add(
+                route("/upload").with(routeParam("gtn:handler").withValue("upload")),
+                route("/").with(routeParam("gtn:handler").withValue("portal"))
+                        .sub(route("/groups/{gtn:sitename}{gtn:path}").with(
+                                requestParam("gtn:lang").named("lang").matchedByPattern("[a-z]{2}").neverEmpty(),
+                                routeParam("gtn:sitetype").withValue("group"),
+                                pathParam("gtn:path").matchedBy(".*").preservePath()))
+                        .sub(route("/{gtn:lang}/{gtn:sitename}{gtn:path}").with(routeParam("gtn:sitetype").withValue("portal"),
+                                pathParam("gtn:lang").matchedBy("([A-Za-z]{2})?").preservePath(),
+                                pathParam("gtn:path").matchedBy(".*").preservePath())),
+                route("/{gtn:path}").with(routeParam("gtn:handler").withValue("static"),
+                        pathParam("gtn:path").matchedBy(".*\\.css").preservePath()),
+                route("/").with(routeParam("gtn:handler").withValue("default"))).build();
+    }
+
+    public void testEquivalence() throws Exception {
+        List<Map<QualifiedName, String>> parameters = Arrays.asList(
+                Collections.<QualifiedName, String> emptyMap(),
+                map("gtn:handler", "upload"),
+                map("gtn:handler", "upload", "gtn:sitename", "classic"),
+                map("gtn:handler", "default"),
+                map("gtn:handler", "static", "gtn:path", "skin/foo.css"),
+                map("gtn:handler", "static", "gtn:path", "skin/foo.png"),
+                map("gtn:handler", "portal", "gtn:sitetype", "group", "gtn:sitename", "platform", "gtn:path", "/admin"),
+                map("gtn:handler", "portal", "gtn:sitetype", "group", "gtn:sitename", "platform", "gtn:path", "/admin",
+                        "gtn:lang", "fr"),
+                map("gtn:handler", "portal", "gtn:sitetype", "group", "gtn:sitename", "platform", "gtn:path", "/admin",
+                        "gtn:lang", "french"),
+                map("gtn:handler", "portal", "gtn:sitetype", "portal", "gtn:sitename", "classic", "gtn:path", "/home",
+                        "gtn:lang", "fr"),
+                map("gtn:handler", "portal", "gtn:sitetype", "portal", "gtn:sitename", "classic", "gtn:path", "/home",
+                        "gtn:lang", ""),
+                map("gtn:handler", "portal", "gtn:sitetype", "user", "gtn:sitename", "root", "gtn:path", "/home"));
+        for (int i = 0; i < 2; i++) {
+            for (Map<QualifiedName, String> parameter : parameters) {
+                assertEquals(reference(parameter), router.render(parameter));
+            }
+        }
+    }
+
+    public void testCache() throws Exception {
+        Map<QualifiedName, String> parameters = map("gtn:handler", "portal", "gtn:sitetype", "portal", "gtn:sitename",
+                "classic", "gtn:path", "/home", "gtn:lang", "fr");
+        assertEquals("/fr/classic/home", router.render(parameters));
+        RenderPlan plan = router.getRenderPlan(new HashSet<QualifiedName>(parameters.keySet()));
+        parameters.put(QualifiedName.parse("gtn:sitename"), "mobile");
+        assertEquals("/fr/mobile/home", router.render(parameters));
+        assertSame(plan, router.getRenderPlan(new HashSet<QualifiedName>(parameters.keySet())));
+    }
+
+    private String reference(Map<QualifiedName, String> parameters) throws Exception {
+        RenderContext context = new RenderContext(parameters);
+        // Large enough for the regexes of the router
+        context.matchers = new Regex.Matcher[100];
+        StringBuilder sb = new StringBuilder();
+        router.root.render(context, new URIWriter(sb, MimeType.PLAIN));
+        return sb.toString();
+    }
+
+    private static Map<QualifiedName, String> map(String... entries) {
+        Map<QualifiedName, String> map = new HashMap<QualifiedName, String>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put(QualifiedName.parse(entries[i]), entries[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.controller.router;
+
+import static org.exoplatform.web.controller.metadata.DescriptorBuilder.*;
+
+import java.io.StringReader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.exoplatform.web.controller.QualifiedName;
+import org.exoplatform.web.controller.metadata.ControllerDescriptor;
+import org.exoplatform.web.controller.metadata.DescriptorBuilder;
+
+/**
+ * Check the compiled routing mode against the interpreted one which is the reference implementation.
+ */
+public class TestRoutingMode extends AbstractTestController {
+
+    /** . */
+    private static final String[] PATHS = { "/", "/upload", "/upload/", "/download", "/public", "/public/", "/public/classic",
+            "/public/classic/", "/public/classic/home", "/public/classic/home/foo", "/private/classic/home",
+            "/private/portal/classic/home", "/public/portal/classic/a&b", "/foo.css", "/a/b/foo.png", "/groups/platform/foo",
+            "/users/root/bar", "/fr/classic/home", "/en-GB/classic/home/sub", "/classic/home", "/a", "/a/", "/a/b", "/a/c",
+            "/b", "/b/", "//", "/upload/foo", "/download/bar/juu" };
+
+    /** . */
+    private static final Map<String, String[]>[] QUERIES;
+
+    static {
+        Map<String, String[]> lang = new HashMap<String, String[]>();
+        lang.put("lang", new String[] { "fr" });
+        Map<String, String[]> juu = new HashMap<String, String[]>();
+        juu.put("foo", new String[] { "foo_value" });
+        juu.put("juu", new String[] { "juu" });
+        @SuppressWarnings("unchecked")
+        Map<String, String[]>[] queries = new Map[] { Collections.emptyMap(), lang, juu };
+        QUERIES = queries;
+    }
+
+    public void testDescriptor() throws Exception {
+        String xml = "<controller xmlns=\"http://www.gatein.org/xml/ns/gatein_controller_1_1\" routing-mode=\"compiled\"/>";
+        ControllerDescriptor descriptor = new DescriptorBuilder().build(new StringReader(xml));
+        assertEquals(RoutingMode.COMPILED, descriptor.getRoutingMode());
+        assertEquals(RoutingMode.COMPILED, descriptor.build().getRoutingMode());
+
+        //
+        xml = "<controller xmlns=\"http://www.gatein.org/xml/ns/gatein_controller_1_1\"/>";
+        descriptor = new DescriptorBuilder().build(new StringReader(xml));
+        assertEquals(RoutingMode.INTERPRETED, descriptor.getRoutingMode());
+        assertEquals(RoutingMode.INTERPRETED, descriptor.build().getRoutingMode());
+    }
+
+    public void testRouterConfiguration() throws Exception {
+        assertEquivalent(TestRoutingMode.class.getResource("router.xml"));
+    }
+
+    public void testPortalConfiguration() throws Exception {
+        assertEquivalent(TestRoutingMode.class.getResource("/org/exoplatform/web/controller/performance/controller.xml"));
+    }
+
+    public void testPriority() throws Exception {
+        ControllerDescriptor descriptor = router().add(route("/foo").with(routeParam("a").withValue("a_value")),
+                route("/{b}").with(routeParam("c").withValue("c_value")),
+                route("/foo").with(routeParam("d").withValue("d_value")), route("/").sub(route("/foo")));
+        assertEquivalent(descriptor);
+
+        //
+        Router router = descriptor.routedBy(RoutingMode.COMPILED).build();
+        Map<QualifiedName, String> expectedParameters = new HashMap<QualifiedName, String>();
+        expectedParameters.put(QualifiedName.parse("a"), "a_value");
+        assertEquals(expectedParameters, router.route("/foo"));
+    }
+
+    public void testParametersOwnedByCaller() throws Exception {
+        Router router = router().routedBy(RoutingMode.COMPILED)
+                .add(route("/{a}").with(routeParam("b").withValue("b_value")), route("/{c}")).build();
+        Iterator<Map<QualifiedName, String>> matcher = router.matcher("/foo", Collections.<String, String[]> emptyMap());
+        Map<QualifiedName, String> parameters = matcher.next();
+        assertEquals("foo", parameters.get(QualifiedName.parse("a")));
+        assertEquals("b_value", parameters.get(QualifiedName.parse("b")));
+
+        // Modifying a match does not affect the next one
+        parameters.put(QualifiedName.parse("c"), "c_value");
+        parameters.remove(QualifiedName.parse("a"));
+        Map<QualifiedName, String> expected = new HashMap<QualifiedName, String>();
+        expected.put(QualifiedName.parse("c"), "foo");
+        assertEquals(expected, matcher.next());
+        assertFalse(matcher.hasNext());
+    }
+
+    public void testSegmentIndex() throws Exception {
+        // "Aa" and "BB" have the same hash code
+        ControllerDescriptor descriptor = router().add(route("/Aa").with(routeParam("p").withValue("Aa")),
+                route("/BB").with(routeParam("p").withValue("BB")), route("/Aa/BB").with(routeParam("p").withValue("AaBB")),
+                route("/C").with(routeParam("p").withValue("C")), route("/{q}").with(routeParam("p").withValue("any")));
+        assertEquivalent(descriptor);
+
+        //
+        Router router = descriptor.routedBy(RoutingMode.COMPILED).build();
+        assertEquals("Aa", router.route("/Aa").get(QualifiedName.parse("p")));
+        assertEquals("BB", router.route("/BB").get(QualifiedName.parse("p")));
+        assertEquals("AaBB", router.route("/Aa/BB").get(QualifiedName.parse("p")));
+        assertEquals("C", router.route("/C").get(QualifiedName.parse("p")));
+        assertEquals("any", router.route("/A").get(QualifiedName.parse("p")));
+        assertEquals("any", router.route("/Aaa").get(QualifiedName.parse("p")));
+    }
+
+    public void testLinearRegexEngine() throws Exception {
+        ControllerDescriptor descriptor = new DescriptorBuilder().build(
+                TestRoutingMode.class.getResource("/org/exoplatform/web/controller/performance/controller.xml").openStream());
+        Router java = descriptor.regexCompiledBy(RegexFactory.JAVA).build();
+        Router linear = descriptor.regexCompiledBy(RegexFactory.LINEAR).build();
+        for (String path : PATHS) {
+            for (Map<String, String[]> query : QUERIES) {
+                List<Map<QualifiedName, String>> expected = matches(java, path, query);
+                List<Map<QualifiedName, String>> matches = matches(linear, path, query);
+                assertEquals("Unexpected match count for " + path, expected.size(), matches.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i), matches.get(i));
+                }
+            }
+        }
+    }
+
+    private void assertEquivalent(URL url) throws Exception {
+        assertEquivalent(new DescriptorBuilder().build(url.openStream()));
+    }
+
+    private void assertEquivalent(ControllerDescriptor descriptor) throws Exception {
+        Router interpreted = descriptor.routedBy(RoutingMode.INTERPRETED).build();
+        Router compiled = descriptor.routedBy(RoutingMode.COMPILED).build();
+        for (String path : PATHS) {
+            for (Map<String, String[]> query : QUERIES) {
+                List<Map<QualifiedName, String>> expected = matches(interpreted, path, query);
+                List<Map<QualifiedName, String>> matches = matches(compiled, path, query);
+                assertEquals("Unexpected match count for " + path, expected.size(), matches.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i), matches.get(i));
+                }
+            }
+        }
+    }
+
+    private List<Map<QualifiedName, String>> matches(Router router, String path, Map<String, String[]> query) {
+        List<Map<QualifiedName, String>> matches = new ArrayList<Map<QualifiedName, String>>();
+        for (Iterator<Map<QualifiedName, String>> i = router.matcher(path, query); i.hasNext();) {
+            matches.add(i.next());
+        }
+        return matches;
+    }
+}
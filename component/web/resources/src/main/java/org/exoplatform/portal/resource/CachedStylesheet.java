@@ -28,6 +28,7 @@ import org.exoplatform.commons.utils.CharsetCharEncoder;
 import org.exoplatform.commons.utils.CharsetTextEncoder;
 import org.exoplatform.commons.utils.TableCharEncoder;
 import org.exoplatform.commons.utils.TextEncoder;
+import org.gatein.portal.controller.resource.ResourceRequestHandler;
 
 /**
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
@@ -44,6 +45,9 @@ public class CachedStylesheet {
     /** . */
     private final byte[] bytes;
 
+    /** The gzip compressed bytes or null when compression does not reduce the size. */
+    private final byte[] gzipped;
+
     private long lastModified;
 
     public CachedStylesheet(String text) {
@@ -61,10 +65,20 @@ public class CachedStylesheet {
         //
         this.text = text;
         this.bytes = bytes;
+        this.gzipped = ResourceRequestHandler.gzip(bytes);
         // Remove miliseconds because string of date retrieve from Http header doesn't have miliseconds
         lastModified = (System.currentTimeMillis() / 1000) * 1000;
     }
 
+    /**
+     * Returns an estimation of the memory used by the stylesheet in bytes.
+     *
+     * @return the weight
+     */
+    long getWeight() {
+        return text.length() * 2 + bytes.length + (gzipped != null ? gzipped.length : 0);
+    }
+
     public String getText() {
         return text;
     }
@@ -76,4 +90,26 @@ public class CachedStylesheet {
     public void writeTo(BinaryOutput output) throws IOException {
         output.write(bytes);
     }
+
+    /**
+     * Write the stylesheet to a renderer, the gzip variant is written when the renderer is an
+     * {@link EncodedResourceRenderer} accepting it.
+     *
+     * @param renderer the renderer
+     * @throws IOException any io exception
+     */
+    public void writeTo(ResourceRenderer renderer) throws IOException {
+        if (renderer instanceof EncodedResourceRenderer) {
+            EncodedResourceRenderer encoded = (EncodedResourceRenderer) renderer;
+            if (gzipped != null && encoded.acceptsGzip()) {
+                encoded.setContent(ResourceRequestHandler.GZIP, gzipped.length);
+                renderer.getOutput().write(gzipped);
+            } else {
+                encoded.setContent(null, bytes.length);
+                renderer.getOutput().write(bytes);
+            }
+        } else {
+            renderer.getOutput().write(bytes);
+        }
+    }
 }
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.resource;
+
+/**
+ * A renderer that can receive a resource compressed with a content coding instead of its identity bytes.
+ */
+public interface EncodedResourceRenderer extends ResourceRenderer {
+
+    /**
+     * Returns true if the client accepts the gzip content coding.
+     *
+     * @return true when gzip is accepted
+     */
+    boolean acceptsGzip();
+
+    /**
+     * Describe the bytes about to be written to the output.
+     *
+     * @param encoding the content coding or null for the identity bytes
+     * @param length the length of the bytes
+     */
+    void setContent(String encoding, int length);
+
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.exoplatform.commons.utils.Safe;
+import org.exoplatform.services.resources.Orientation;
+
+/**
+ * <p>
+ * A stylesheet parsed once for both orientations. The comments are skipped, the declarations of the other orientation are
+ * removed and the relative URLs of the background and font face declarations are rebased on the stylesheet path. What
+ * remains is a list of segments for each orientation, a segment is either a text or an import of another stylesheet that
+ * is resolved when the stylesheet is rendered.
+ * </p>
+ *
+ * <p>
+ * The lines that do not declare an orientation are processed once and shared by both orientations, the lines that do not
+ * contain an URL or an import are not processed at all.
+ * </p>
+ */
+class ParsedStylesheet {
+
+    /** . */
+    private static final String LEFT_P = "\\(";
+
+    /** . */
+    private static final String RIGHT_P = "\\)";
+
+    /** Immutable and therefore thread safe. */
+    private static final Pattern IMPORT_PATTERN = Pattern.compile("(@import\\s+" + "url" + LEFT_P + "['\"]?"
+            + ")([^'\";]+.css)(" + "['\"]?" + RIGHT_P + "\\s*;)");
+
+    /** Immutable and therefore thread safe. */
+    private static final Pattern BACKGROUND_PATTERN = Pattern.compile("(background[^;])+([^;]*;)");
+
+    /** Immutable and therefore thread safe. */
+    private static final Pattern FONT_FACE_PATTERN = Pattern.compile("(src[^;])+([^;]*;)");
+
+    /** Immutable and therefore thread safe. */
+    private static final Pattern URL_PATTERN = Pattern.compile("(url" + LEFT_P + "['\"]?)([^'\";" + RIGHT_P + "]+)(['\"]?\\))");
+
+    /** Immutable and therefore thread safe. */
+    private static final Pattern LT = Pattern.compile("[^{;]*;\\s*/\\*\\s*orientation=lt\\s*\\*/");
+
+    /** Immutable and therefore thread safe. */
+    private static final Pattern RT = Pattern.compile("[^{;]*;\\s*/\\*\\s*orientation=rt\\s*\\*/");
+
+    /**
+     * Parse a stylesheet resource.
+     *
+     * @param resource the resource
+     * @return the parsed stylesheet
+     * @throws RenderingException when the resource cannot be read
+     * @throws IOException any io exception
+     */
+    static ParsedStylesheet parse(Resource resource) throws RenderingException, IOException {
+        // The root URL for the entry
+        String basePath = resource.getContextPath() + resource.getParentPath();
+
+        //
+        Reader tmp = resource.read();
+        if (tmp == null) {
+            throw new RenderingException("No skin resolved for path " + resource.getResourcePath());
+        }
+        BufferedReader reader = new SkipCommentReader(tmp, new CommentBlockHandler.OrientationCommentBlockHandler());
+        try {
+            SegmentBuilder lt = new SegmentBuilder();
+            SegmentBuilder rt = new SegmentBuilder();
+            String line = reader.readLine();
+            while (line != null) {
+                if (line.indexOf("orientation=") != -1) {
+                    processLine(removeOrientation(line, RT), basePath, lt);
+                    processLine(removeOrientation(line, LT), basePath, rt);
+                } else {
+                    SegmentBuilder shared = new SegmentBuilder();
+                    processLine(line, basePath, shared);
+                    lt.addAll(shared);
+                    rt.addAll(shared);
+                }
+
+                if ((line = reader.readLine()) != null) {
+                    lt.add("\n");
+                    rt.add("\n");
+                }
+            }
+            return new ParsedStylesheet(basePath + resource.getFileName(), lt.build(), rt.build());
+        } finally {
+            Safe.close(reader);
+        }
+    }
+
+    private static void processLine(String line, String basePath, SegmentBuilder builder) {
+        if (line.indexOf("url(") != -1) {
+            line = processURL(BACKGROUND_PATTERN, line, basePath);
+            line = processURL(FONT_FACE_PATTERN, line, basePath);
+        }
+        if (line.indexOf("@import") != -1) {
+            Matcher matcher = IMPORT_PATTERN.matcher(line);
+            int from = 0;
+            while (matcher.find()) {
+                String includedPath = matcher.group(2);
+                if (!includedPath.startsWith("/")) {
+                    includedPath = basePath + includedPath;
+                }
+                builder.add(line.substring(from, matcher.start()));
+                builder.add(new Import(matcher.group(1), includedPath, matcher.group(3)));
+                from = matcher.end();
+            }
+            builder.add(line.substring(from));
+        } else {
+            builder.add(line);
+        }
+    }
+
+    private static String processURL(Pattern pattern, String line, String basePath) {
+        Matcher patternMatcher = pattern.matcher(line);
+        StringBuffer tmpBuilder = new StringBuffer();
+        while (patternMatcher.find()) {
+            Matcher urlMatcher = URL_PATTERN.matcher(patternMatcher.group());
+            StringBuffer tmpURL = new StringBuffer();
+            while (urlMatcher.find()) {
+                if (!urlMatcher.group(2).startsWith("\"/") && !urlMatcher.group(2).startsWith("'/")
+                        && !urlMatcher.group(2).startsWith("/")) {
+                    StringBuilder urlBuilder = new StringBuilder();
+                    urlBuilder.append(urlMatcher.group(1));
+                    urlBuilder.append(basePath);
+                    urlBuilder.append(urlMatcher.group(2));
+                    urlBuilder.append(urlMatcher.group(3));
+                    urlMatcher.appendReplacement(tmpURL, Matcher.quoteReplacement(urlBuilder.toString()));
+                }
+            }
+            urlMatcher.appendTail(tmpURL);
+            patternMatcher.appendReplacement(tmpBuilder, Matcher.quoteReplacement(tmpURL.toString()));
+        }
+
+        patternMatcher.appendTail(tmpBuilder);
+        return tmpBuilder.toString();
+    }
+
+    private static String removeOrientation(String line, Pattern orientationPattern) {
+        Matcher matcher = orientationPattern.matcher(line);
+        StringBuffer tmpBuilder = new StringBuffer();
+        while (matcher.find()) {
+            matcher.appendReplacement(tmpBuilder, "");
+        }
+        matcher.appendTail(tmpBuilder);
+        return tmpBuilder.toString();
+    }
+
+    /** The path of the stylesheet. */
+    final String path;
+
+    /** . */
+    private final List<Object> lt;
+
+    /** . */
+    private final List<Object> rt;
+
+    private ParsedStylesheet(String path, List<Object> lt, List<Object> rt) {
+        this.path = path;
+        this.lt = lt;
+        this.rt = rt;
+    }
+
+    /**
+     * Returns the segments of the stylesheet for an orientation, a segment is either a <code>String</code> or an
+     * {@link Import}.
+     *
+     * @param orientation the orientation
+     * @return the segments
+     */
+    List<Object> getSegments(Orientation orientation) {
+        return orientation == Orientation.RT ? rt : lt;
+    }
+
+    /**
+     * An import of another stylesheet.
+     */
+    static class Import {
+
+        /** The text before the imported path. */
+        final String prefix;
+
+        /** The path of the imported stylesheet. */
+        final String path;
+
+        /** The text after the imported path. */
+        final String suffix;
+
+        private Import(String prefix, String path, String suffix) {
+            this.prefix = prefix;
+            this.path = path;
+            this.suffix = suffix;
+        }
+    }
+
+    /**
+     * Build a list of segments, the consecutive texts are merged.
+     */
+    private static class SegmentBuilder {
+
+        /** . */
+        private final List<Object> segments = new ArrayList<Object>();
+
+        /** . */
+        private final StringBuilder text = new StringBuilder();
+
+        void add(Object segment) {
+            if (segment instanceof String) {
+                text.append((String) segment);
+            } else {
+                flush();
+                segments.add(segment);
+            }
+        }
+
+        void addAll(SegmentBuilder builder) {
+            for (Object segment : builder.segments) {
+                add(segment);
+            }
+            text.append(builder.text);
+        }
+
+        private void flush() {
+            if (text.length() > 0) {
+                segments.add(text.toString());
+                text.setLength(0);
+            }
+        }
+
+        List<Object> build() {
+            flush();
+            return Collections.unmodifiableList(new ArrayList<Object>(segments));
+        }
+    }
+}
@@ -50,6 +50,11 @@ public class SkinResourceRequestHandler extends WebRequestHandler {
         //
         final HttpServletResponse response = context.getResponse();
 
+        // The minified stylesheets have a gzip variant
+        if (compress) {
+            response.setHeader(ResourceRequestHandler.VARY, ResourceRequestHandler.ACCEPT_ENCODING);
+        }
+
         // Check if cached resource has not been modifed, return 304 code
         long ifModifiedSince = context.getRequest().getDateHeader(IF_MODIFIED_SINCE);
         long cssLastModified = skinService.getLastModified(context);
@@ -78,11 +83,23 @@ public class SkinResourceRequestHandler extends WebRequestHandler {
                     out.write(bytes, off, len);
                 }
             };
-            ResourceRenderer renderer = new ResourceRenderer() {
+            ResourceRenderer renderer = new EncodedResourceRenderer() {
                 public BinaryOutput getOutput() {
                     return output;
                 }
 
+                public boolean acceptsGzip() {
+                    return ResourceRequestHandler.acceptsGzip(context.getRequest().getHeader(
+                            ResourceRequestHandler.ACCEPT_ENCODING));
+                }
+
+                public void setContent(String encoding, int length) {
+                    if (encoding != null) {
+                        response.setHeader(ResourceRequestHandler.CONTENT_ENCODING, encoding);
+                    }
+                    response.setContentLength(length);
+                }
+
                 public void setExpiration(long seconds) {
                     if (seconds > 0) {
                         response.addHeader("Cache-Control", "max-age=" + seconds + ",s-maxage=" + seconds);
@@ -19,9 +19,7 @@
 
 package org.exoplatform.portal.resource;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -32,8 +30,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.ServletContext;
 
@@ -42,7 +41,6 @@ import org.exoplatform.commons.cache.future.Loader;
 import org.exoplatform.commons.utils.BinaryOutput;
 import org.exoplatform.commons.utils.ByteArrayOutput;
 import org.exoplatform.commons.utils.PropertyManager;
-import org.exoplatform.commons.utils.Safe;
 import org.exoplatform.container.ExoContainerContext;
 import org.exoplatform.management.annotations.Impact;
 import org.exoplatform.management.annotations.ImpactType;
@@ -64,6 +62,7 @@ import org.exoplatform.web.controller.router.URIWriter;
 import org.exoplatform.web.url.MimeType;
 import org.gatein.portal.controller.resource.ResourceRequestHandler;
 import org.gatein.wci.ServletContainerFactory;
+import org.gatein.wci.WebApp;
 import org.gatein.wci.WebAppListener;
 import org.picocontainer.Startable;
 
@@ -76,27 +75,6 @@ public class SkinService extends AbstractResourceService implements Startable {
 
     protected static Log log = ExoLogger.getLogger("portal.SkinService");
 
-    private static final String LEFT_P = "\\(";
-
-    private static final String RIGHT_P = "\\)";
-
-    /** Immutable and therefore thread safe. */
-    private static final Pattern IMPORT_PATTERN = Pattern.compile("(@import\\s+" + "url" + LEFT_P + "['\"]?"
-            + ")([^'\";]+.css)(" + "['\"]?" + RIGHT_P + "\\s*;)");
-
-    /** Immutable and therefore thread safe. */
-    private static final Pattern BACKGROUND_PATTERN = Pattern.compile("(background[^;])+([^;]*;)");
-
-    private static final Pattern FONT_FACE_PATTERN = Pattern.compile("(src[^;])+([^;]*;)");
-
-    private static final Pattern URL_PATTERN = Pattern.compile("(url" + LEFT_P + "['\"]?)([^'\";" + RIGHT_P + "]+)(['\"]?\\))");
-
-    /** Immutable and therefore thread safe. */
-    private static final Pattern LT = Pattern.compile("[^{;]*;\\s*/\\*\\s*orientation=lt\\s*\\*/");
-
-    /** Immutable and therefore thread safe. */
-    private static final Pattern RT = Pattern.compile("[^{;]*;\\s*/\\*\\s*orientation=rt\\s*\\*/");
-
     public static final String DEFAULT_SKIN = "Default";
 
     /** The deployer. */
@@ -117,6 +95,12 @@ public class SkinService extends AbstractResourceService implements Startable {
 
     private final Map<String, Set<String>> portletThemes_;
 
+    /** The parsed stylesheets keyed by path, they are shared by the skins importing them. */
+    private final ConcurrentMap<String, ParsedStylesheet> stylesheets;
+
+    /** Incremented when the parsed stylesheets are cleared, a stylesheet parsed before is not cached. */
+    private final AtomicLong stylesheetsGeneration = new AtomicLong();
+
     /**
      * The name of the portal container
      */
@@ -130,6 +114,12 @@ public class SkinService extends AbstractResourceService implements Startable {
 
     private static final long MAX_AGE;
 
+    /** The maximum number of stylesheets cached per orientation, zero means no limit. */
+    private static final int MAX_CACHE_SIZE;
+
+    /** The maximum weight in bytes of the stylesheets cached per orientation, zero means no limit. */
+    private static final long MAX_CACHE_WEIGHT;
+
     static {
         long seconds = 86400;
         String propValue = PropertyManager.getProperty("gatein.assets.css.max-age");
@@ -142,6 +132,35 @@ public class SkinService extends AbstractResourceService implements Startable {
         }
 
         MAX_AGE = seconds;
+        MAX_CACHE_SIZE = (int) getLongProperty("gatein.assets.css.cache.max-size", 0);
+        MAX_CACHE_WEIGHT = getLongProperty("gatein.assets.css.cache.max-weight", 32 * 1024 * 1024);
+    }
+
+    private static long getLongProperty(String name, long defaultValue) {
+        String propValue = PropertyManager.getProperty(name);
+        if (propValue != null) {
+            try {
+                return Long.valueOf(propValue);
+            } catch (NumberFormatException e) {
+                log.warn("The " + name + " property is not set properly.");
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * The stylesheet cache bounded by the encoded size of the stylesheets.
+     */
+    static class StylesheetMap extends FutureMap<String, CachedStylesheet, SkinContext> {
+
+        StylesheetMap(Loader<String, CachedStylesheet, SkinContext> loader) {
+            super(loader, MAX_CACHE_SIZE, MAX_CACHE_WEIGHT);
+        }
+
+        @Override
+        protected long weigh(CachedStylesheet value) {
+            return value.getWeight();
+        }
     }
 
     static class SkinContext {
@@ -163,7 +182,7 @@ public class SkinService extends AbstractResourceService implements Startable {
                     return null;
                 }
 
-                StringBuffer sb = new StringBuffer();
+                StringBuilder sb = new StringBuilder();
                 processCSSRecursively(context.controller, sb, true, skin, context.orientation);
                 String css = sb.toString();
                 try {
@@ -183,9 +202,10 @@ public class SkinService extends AbstractResourceService implements Startable {
         portalSkins_ = new LinkedHashMap<SkinKey, SkinConfig>();
         skinConfigs_ = new LinkedHashMap<SkinKey, SkinConfig>(20);
         availableSkins_ = new HashSet<String>(5);
-        ltCache = new FutureMap<String, CachedStylesheet, SkinContext>(loader);
-        rtCache = new FutureMap<String, CachedStylesheet, SkinContext>(loader);
+        ltCache = new StylesheetMap(loader);
+        rtCache = new StylesheetMap(loader);
         portletThemes_ = new HashMap<String, Set<String>>();
+        stylesheets = new ConcurrentHashMap<String, ParsedStylesheet>();
         portalContainerName = context.getPortalContainerName();
         deployer = new GateInSkinConfigDeployer(portalContainerName, this);
         removal = new GateInSkinConfigRemoval(this);
@@ -263,6 +283,7 @@ public class SkinService extends AbstractResourceService implements Startable {
 
             skinConfig = new SimpleSkin(this, module, skinName, cssPath, priority);
             portalSkins_.put(key, skinConfig);
+            clearStylesheets();
 
             if (log.isDebugEnabled()) {
                 log.debug("Adding Portal skin : Bind " + key + " to " + skinConfig);
@@ -344,6 +365,7 @@ public class SkinService extends AbstractResourceService implements Startable {
 
             skinConfig = new SimpleSkin(this, module, skinName, cssPath, priority);
             skinConfigs_.put(key, skinConfig);
+            clearStylesheets();
 
             if (log.isDebugEnabled()) {
                 log.debug("Adding skin : Bind " + key + " to " + skinConfig);
@@ -370,6 +392,7 @@ public class SkinService extends AbstractResourceService implements Startable {
         }
         ltCache.remove(cssPath);
         rtCache.remove(cssPath);
+        clearStylesheets();
     }
 
     /**
@@ -461,7 +484,7 @@ public class SkinService extends AbstractResourceService implements Startable {
         // Check if it is running under developing mode
         String resource = "/" + context.getParameter(ResourceRequestHandler.RESOURCE_QN) + ".css";
         if (!compress) {
-            StringBuffer sb = new StringBuffer();
+            StringBuilder sb = new StringBuilder();
             Resource skin = getCSSResource(resource, resource);
             if (skin != null) {
                 processCSSRecursively(context, sb, false, skin, orientation);
@@ -474,7 +497,7 @@ public class SkinService extends AbstractResourceService implements Startable {
             CachedStylesheet cachedCss = cache.get(new SkinContext(context, orientation), resource);
             if (cachedCss != null) {
                 renderer.setExpiration(MAX_AGE);
-                cachedCss.writeTo(renderer.getOutput());
+                cachedCss.writeTo(renderer);
                 return true;
             }
         }
@@ -552,6 +575,7 @@ public class SkinService extends AbstractResourceService implements Startable {
     public void invalidatePortalSkinCache(String portalName, String skinName) {
         SkinKey key = new SkinKey(portalName, skinName);
         skinConfigs_.remove(key);
+        clearStylesheets();
     }
 
     /**
@@ -562,6 +586,9 @@ public class SkinService extends AbstractResourceService implements Startable {
     public void invalidateCachedSkin(String path) {
         ltCache.remove(path);
         rtCache.remove(path);
+
+        // The stylesheet may be imported by other stylesheets
+        clearStylesheets();
     }
 
     /**
@@ -738,100 +765,72 @@ public class SkinService extends AbstractResourceService implements Startable {
         if (skin == null) {
             return;
         }
-        // The root URL for the entry
-        String basePath = skin.getContextPath() + skin.getParentPath();
 
         //
-        Reader tmp = skin.read();
-        if (tmp == null) {
-            throw new RenderingException("No skin resolved for path " + skin.getResourcePath());
-        }
-        BufferedReader reader = new SkipCommentReader(tmp, new CommentBlockHandler.OrientationCommentBlockHandler());
-        try {
-            String line = reader.readLine();
-            while (line != null) {
-                line = proccessOrientation(line, orientation);
-                line = processURL(BACKGROUND_PATTERN, line, basePath);
-                line = processURL(FONT_FACE_PATTERN, line, basePath);
-
-                Matcher matcher = IMPORT_PATTERN.matcher(line);
-                while (matcher.find()) {
-                    String includedPath = matcher.group(2);
-                    if (!includedPath.startsWith("/")) {
-                        includedPath = basePath + includedPath;
-                    }
-
-                    StringBuffer strReplace = new StringBuffer();
-                    if (merge) {
-                        Resource ssskin = getCSSResource(includedPath, basePath + skin.getFileName());
-                        processCSSRecursively(context, strReplace, merge, ssskin, orientation);
-                    } else {
-                        // Remove leading '/' and trailing '.css'
-                        String resource = includedPath.substring(1, includedPath.length() - ".css".length());
-
-                        //
-                        Map<QualifiedName, String> params = new HashMap<QualifiedName, String>();
-                        params.put(ResourceRequestHandler.VERSION_QN, ResourceRequestHandler.VERSION);
-                        params.put(ResourceRequestHandler.ORIENTATION_QN, orientation == Orientation.RT ? "rt" : "lt");
-                        params.put(ResourceRequestHandler.COMPRESS_QN, merge ? "min" : "");
-                        params.put(WebAppController.HANDLER_PARAM, "skin");
-                        params.put(ResourceRequestHandler.RESOURCE_QN, resource);
-                        StringBuilder embeddedPath = new StringBuilder();
-                        context.renderURL(params, new URIWriter(embeddedPath, MimeType.PLAIN));
-
-                        //
-                        strReplace.append(matcher.group(1));
-                        strReplace.append(embeddedPath);
-                        strReplace.append(matcher.group(3));
-                    }
-                    String str = strReplace.toString().replaceAll("\\$", "\\\\\\$");
-                    matcher.appendReplacement((StringBuffer) appendable, str);
-                }
-                matcher.appendTail((StringBuffer) appendable);
-
-                if ((line = reader.readLine()) != null) {
-                    appendable.append("\n");
+        ParsedStylesheet stylesheet = getParsedStylesheet(skin);
+        for (Object segment : stylesheet.getSegments(orientation)) {
+            if (segment instanceof ParsedStylesheet.Import) {
+                ParsedStylesheet.Import imported = (ParsedStylesheet.Import) segment;
+                if (merge) {
+                    Resource ssskin = getCSSResource(imported.path, stylesheet.path);
+                    processCSSRecursively(context, appendable, merge, ssskin, orientation);
+                } else {
+                    // Remove leading '/' and trailing '.css'
+                    String resource = imported.path.substring(1, imported.path.length() - ".css".length());
+
+                    //
+                    Map<QualifiedName, String> params = new HashMap<QualifiedName, String>();
+                    params.put(ResourceRequestHandler.VERSION_QN, ResourceRequestHandler.VERSION);
+                    params.put(ResourceRequestHandler.ORIENTATION_QN, orientation == Orientation.RT ? "rt" : "lt");
+                    params.put(ResourceRequestHandler.COMPRESS_QN, merge ? "min" : "");
+                    params.put(WebAppController.HANDLER_PARAM, "skin");
+                    params.put(ResourceRequestHandler.RESOURCE_QN, resource);
+                    StringBuilder embeddedPath = new StringBuilder();
+                    context.renderURL(params, new URIWriter(embeddedPath, MimeType.PLAIN));
+
+                    //
+                    appendable.append(imported.prefix);
+                    appendable.append(embeddedPath);
+                    appendable.append(imported.suffix);
                 }
+            } else {
+                appendable.append((String) segment);
             }
-        } finally {
-            Safe.close(reader);
         }
     }
 
-    private String processURL(Pattern pattern, String line, String basePath) {
-        Matcher patternMatcher = pattern.matcher(line);
-        StringBuffer tmpBuilder = new StringBuffer();
-        while (patternMatcher.find()) {
-            StringBuilder fontFaceReplace = new StringBuilder();
-            Matcher urlMatcher = URL_PATTERN.matcher(patternMatcher.group());
-            StringBuffer tmpURL = new StringBuffer();
-            while(urlMatcher.find()) {
-                if (!urlMatcher.group(2).startsWith("\"/") && !urlMatcher.group(2).startsWith("'/") && !urlMatcher.group(2).startsWith("/") ) {
-                    StringBuilder urlBuilder = new StringBuilder();
-                    urlBuilder.append(urlMatcher.group(1));
-                    urlBuilder.append(basePath);
-                    urlBuilder.append(urlMatcher.group(2));
-                    urlBuilder.append(urlMatcher.group(3));
-                    urlMatcher.appendReplacement(tmpURL, urlBuilder.toString());
+    /**
+     * Returns the parsed stylesheet of a resource, the stylesheets are parsed once and cached unless the portal runs in
+     * developing mode.
+     *
+     * @param skin the resource
+     * @return the parsed stylesheet
+     * @throws RenderingException
+     * @throws IOException
+     */
+    private ParsedStylesheet getParsedStylesheet(Resource skin) throws RenderingException, IOException {
+        if (PropertyManager.isDevelopping()) {
+            return ParsedStylesheet.parse(skin);
+        }
+        String path = skin.getPath();
+        ParsedStylesheet stylesheet = stylesheets.get(path);
+        if (stylesheet == null) {
+            long generation = stylesheetsGeneration.get();
+            stylesheet = ParsedStylesheet.parse(skin);
+            if (generation == stylesheetsGeneration.get()) {
+                stylesheets.put(path, stylesheet);
+                if (generation != stylesheetsGeneration.get()) {
+                    // Lost the race with a clear, the stylesheet may be stale
+                    stylesheets.remove(path, stylesheet);
                 }
             }
-            urlMatcher.appendTail(tmpURL);
-            patternMatcher.appendReplacement(tmpBuilder, tmpURL.toString());
         }
-
-        patternMatcher.appendTail(tmpBuilder);
-        return tmpBuilder.toString();
+        return stylesheet;
     }
 
-    private String proccessOrientation(String line, Orientation orientation) {
-        Pattern orientationPattern = orientation == Orientation.LT ? RT : LT;
-        Matcher matcher = orientationPattern.matcher(line);
-        StringBuffer tmpBuilder = new StringBuffer();
-        while (matcher.find()) {
-            matcher.appendReplacement(tmpBuilder, "");
-        }
-        matcher.appendTail(tmpBuilder);
-        return tmpBuilder.toString();
+    private void clearStylesheets() {
+        stylesheetsGeneration.incrementAndGet();
+        stylesheets.clear();
     }
 
     /**
@@ -864,6 +863,43 @@ public class SkinService extends AbstractResourceService implements Startable {
         // remove all ltCache, rtCache
         ltCache.clear();
         rtCache.clear();
+        clearStylesheets();
+    }
+
+    @Managed
+    @ManagedDescription("The number of cached stylesheets")
+    public int getCacheSize() {
+        return ltCache.getSize() + rtCache.getSize();
+    }
+
+    @Managed
+    @ManagedDescription("The weight in bytes of the cached stylesheets")
+    public long getCacheWeight() {
+        return ltCache.getWeight() + rtCache.getWeight();
+    }
+
+    @Managed
+    @ManagedDescription("The number of stylesheets found in the cache")
+    public long getCacheHitCount() {
+        return ltCache.getHitCount() + rtCache.getHitCount();
+    }
+
+    @Managed
+    @ManagedDescription("The number of stylesheets not found in the cache")
+    public long getCacheMissCount() {
+        return ltCache.getMissCount() + rtCache.getMissCount();
+    }
+
+    @Managed
+    @ManagedDescription("The time spent in milliseconds to build the cached stylesheets")
+    public long getCacheLoadTime() {
+        return ltCache.getLoadTime() + rtCache.getLoadTime();
+    }
+
+    @Managed
+    @ManagedDescription("The number of stylesheets evicted from the cache")
+    public long getCacheEvictionCount() {
+        return ltCache.getEvictionCount() + rtCache.getEvictionCount();
     }
 
     /**
@@ -876,6 +912,19 @@ public class SkinService extends AbstractResourceService implements Startable {
     public void reloadSkin(@ManagedDescription("The skin id") @ManagedName("skinId") String skinId) {
         ltCache.remove(skinId);
         rtCache.remove(skinId);
+        clearStylesheets();
+    }
+
+    @Override
+    public void registerContext(WebApp app) {
+        super.registerContext(app);
+        clearStylesheets();
+    }
+
+    @Override
+    public void unregisterServletContext(WebApp app) {
+        super.unregisterServletContext(app);
+        clearStylesheets();
     }
 
     /**
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.application.javascript;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.exoplatform.commons.utils.Text;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * An immutable snapshot of the RequireJS configuration serialized once, so it can be written in the pages without being
+ * computed again. A snapshot is valid for the version of the script graph it was computed from.
+ */
+public class CachedJSConfig {
+
+    /** . */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** The version of the script graph. */
+    final long version;
+
+    /** . */
+    private final Map<String, String> paths;
+
+    /** . */
+    private final String json;
+
+    /** . */
+    private final Text text;
+
+    CachedJSConfig(long version, JSONObject config) throws JSONException {
+        Map<String, String> paths = new HashMap<String, String>();
+        JSONObject jsonPaths = config.getJSONObject("paths");
+        for (Iterator<?> i = jsonPaths.keys(); i.hasNext();) {
+            String name = (String) i.next();
+            paths.put(name, jsonPaths.getString(name));
+        }
+
+        //
+        String json = config.toString();
+
+        //
+        this.version = version;
+        this.paths = Collections.unmodifiableMap(paths);
+        this.json = json;
+        this.text = Text.create(json.getBytes(UTF_8), UTF_8);
+    }
+
+    /**
+     * Returns the URL of a module without the <code>.js</code> extension.
+     *
+     * @param module the module name
+     * @return the module URL or null
+     */
+    public String getPath(String module) {
+        return paths.get(module);
+    }
+
+    public Map<String, String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * Returns the serialized configuration encoded in UTF-8, it is written as is in the page when the page is encoded in
+     * UTF-8.
+     *
+     * @return the serialized configuration
+     */
+    public Text getText() {
+        return text;
+    }
+
+    /**
+     * Returns a copy of the configuration.
+     *
+     * @return the configuration
+     * @throws JSONException any JSON exception
+     */
+    public JSONObject toJSON() throws JSONException {
+        return new JSONObject(json);
+    }
+
+    @Override
+    public String toString() {
+        return json;
+    }
+}
@@ -91,6 +91,7 @@ public class JavascriptConfigDeployer implements WebAppListener {
                 public void execute(ServletContext scontext, PortalContainer portalContainer) {
                     register(scontext, portalContainer);
                     javascriptService.registerContext(webApp);
+                    javascriptService.precompile(webApp);
                 }
             };
             PortalContainer.addInitTask(webApp.getServletContext(), task, portalContainerName);
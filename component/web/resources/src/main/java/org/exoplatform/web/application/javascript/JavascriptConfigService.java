@@ -22,17 +22,22 @@ package org.exoplatform.web.application.javascript;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -41,15 +46,23 @@ import javax.servlet.ServletContext;
 import org.apache.commons.lang.StringUtils;
 import org.exoplatform.commons.utils.CompositeReader;
 import org.exoplatform.commons.utils.PropertyManager;
+import org.exoplatform.commons.utils.Safe;
 import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.management.annotations.Managed;
+import org.exoplatform.management.annotations.ManagedDescription;
+import org.exoplatform.management.jmx.annotations.NameTemplate;
+import org.exoplatform.management.jmx.annotations.Property;
 import org.exoplatform.portal.resource.AbstractResourceService;
 import org.exoplatform.portal.resource.compressor.ResourceCompressor;
 import org.exoplatform.web.ControllerContext;
+import org.exoplatform.web.controller.router.Router;
 import org.exoplatform.web.controller.router.URIWriter;
+import org.gatein.common.io.IOTools;
 import org.gatein.common.logging.Logger;
 import org.gatein.common.logging.LoggerFactory;
 import org.gatein.portal.controller.resource.ResourceId;
 import org.gatein.portal.controller.resource.ResourceScope;
+import org.gatein.portal.controller.resource.ScriptCache;
 import org.gatein.portal.controller.resource.script.BaseScriptResource;
 import org.gatein.portal.controller.resource.script.FetchMode;
 import org.gatein.portal.controller.resource.script.Module;
@@ -64,6 +77,10 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.picocontainer.Startable;
 
+@Managed
+@NameTemplate({ @Property(key = "view", value = "portal"), @Property(key = "service", value = "management"),
+        @Property(key = "type", value = "javascript") })
+@ManagedDescription("Javascript service")
 public class JavascriptConfigService extends AbstractResourceService implements Startable {
 
     /** Our logger. */
@@ -75,6 +92,15 @@ public class JavascriptConfigService extends AbstractResourceService implements
     /** . */
     private final WebAppListener deployer;
 
+    /** The minified scripts. */
+    private final ScriptCache scriptCache;
+
+    /** The configuration snapshots. */
+    private final ConcurrentMap<JSConfigKey, CachedJSConfig> jsConfigs;
+
+    /** . */
+    private static final int MAX_JS_CONFIGS = 100;
+
     /** . */
     public static final List<String> RESERVED_MODULE = Arrays.asList("require", "exports", "module");
 
@@ -94,6 +120,102 @@ public class JavascriptConfigService extends AbstractResourceService implements
         //
         this.scripts = new ScriptGraph();
         this.deployer = new JavascriptConfigDeployer(context.getPortalContainerName(), this);
+        this.scriptCache = ScriptCache.create();
+        this.jsConfigs = new ConcurrentHashMap<JSConfigKey, CachedJSConfig>();
+    }
+
+    public ScriptCache getScriptCache() {
+        return scriptCache;
+    }
+
+    @Managed
+    @ManagedDescription("The number of cached scripts")
+    public int getCacheSize() {
+        return scriptCache.getResults().getSize();
+    }
+
+    @Managed
+    @ManagedDescription("The weight in bytes of the cached scripts")
+    public long getCacheWeight() {
+        return scriptCache.getResults().getWeight();
+    }
+
+    @Managed
+    @ManagedDescription("The number of scripts found in the cache")
+    public long getCacheHitCount() {
+        return scriptCache.getResults().getHitCount();
+    }
+
+    @Managed
+    @ManagedDescription("The number of scripts not found in the cache")
+    public long getCacheMissCount() {
+        return scriptCache.getResults().getMissCount();
+    }
+
+    @Managed
+    @ManagedDescription("The time spent in milliseconds to load the cached scripts")
+    public long getCacheLoadTime() {
+        return scriptCache.getResults().getLoadTime();
+    }
+
+    @Managed
+    @ManagedDescription("The number of scripts evicted from the cache")
+    public long getCacheEvictionCount() {
+        return scriptCache.getResults().getEvictionCount();
+    }
+
+    /**
+     * Schedule the minification of the scripts contributed by a web application along with the groups containing them, for
+     * the default locale and each supported locale. Nothing is done in developing mode as the scripts are not minified.
+     *
+     * @param webApp the web application
+     */
+    public void precompile(WebApp webApp) {
+        if (PropertyManager.isDevelopping()) {
+            return;
+        }
+
+        //
+        String contextPath = webApp.getContextPath();
+        Set<BaseScriptResource<?>> resources = new LinkedHashSet<BaseScriptResource<?>>();
+        for (ScriptResource resource : getAllResources()) {
+            for (Module module : resource.getModules()) {
+                if (module instanceof Module.Local && contextPath.equals(module.getContextPath())) {
+                    resources.add(resource);
+                    if (resource.getGroup() != null) {
+                        resources.add(resource.getGroup());
+                    }
+                    break;
+                }
+            }
+        }
+
+        //
+        for (BaseScriptResource<?> resource : resources) {
+            precompile(resource.getId(), null);
+            for (Locale locale : resource.getSupportedLocales()) {
+                precompile(resource.getId(), locale);
+            }
+        }
+    }
+
+    private void precompile(final ResourceId id, final Locale locale) {
+        scriptCache.precompile(id.getScope() + "/" + id.getName() + ".js", new Callable<String>() {
+            public String call() throws Exception {
+                Reader script = getScript(id, locale);
+                if (script != null) {
+                    try {
+                        StringWriter code = new StringWriter();
+                        IOTools.copy(script, code);
+                        return code.toString();
+                    } finally {
+                        Safe.close(script);
+                    }
+                } else {
+                    return null;
+                }
+            }
+        });
     }
 
     public Reader getScript(ResourceId resourceId, Locale locale) throws Exception {
@@ -231,6 +353,30 @@ public class JavascriptConfigService extends AbstractResourceService implements
         return scripts.resolve(ids);
     }
 
+    /**
+     * Returns a snapshot of the RequireJS configuration. The snapshot is computed once for a router, a portal context and a
+     * locale, and it is computed again only when the script graph is modified.
+     *
+     * @param controllerContext the controller context
+     * @param locale the locale
+     * @return the configuration snapshot
+     * @throws Exception any exception
+     */
+    public CachedJSConfig getCachedJSConfig(ControllerContext controllerContext, Locale locale) throws Exception {
+        long version = scripts.getVersion();
+        JSConfigKey key = new JSConfigKey(controllerContext.getRouter(), controllerContext.getRequest().getContextPath(),
+                locale);
+        CachedJSConfig config = jsConfigs.get(key);
+        if (config == null || config.version != version) {
+            config = new CachedJSConfig(version, getJSConfig(controllerContext, locale));
+            if (jsConfigs.size() >= MAX_JS_CONFIGS) {
+                jsConfigs.clear();
+            }
+            jsConfigs.put(key, config);
+        }
+        return config;
+    }
+
     public JSONObject getJSConfig(ControllerContext controllerContext, Locale locale) throws Exception {
         JSONObject paths = new JSONObject();
         JSONObject shim = new JSONObject();
@@ -274,6 +420,24 @@ public class JavascriptConfigService extends AbstractResourceService implements
         return config;
     }
 
+    @Managed
+    @ManagedDescription("The number of cached RequireJS configurations")
+    public int getJSConfigCacheSize() {
+        return jsConfigs.size();
+    }
+
+    @Override
+    public void registerContext(WebApp app) {
+        super.registerContext(app);
+        jsConfigs.clear();
+    }
+
+    @Override
+    public void unregisterServletContext(WebApp app) {
+        super.unregisterServletContext(app);
+        jsConfigs.clear();
+    }
+
     public ScriptResource getResource(ResourceId resource) {
         return scripts.getResource(resource);
     }
@@ -298,6 +462,7 @@ public class JavascriptConfigService extends AbstractResourceService implements
     public void stop() {
         log.debug("Unregistering JavascriptConfigService for servlet container events");
         ServletContainerFactory.getServletContainer().removeWebAppListener(deployer);
+        scriptCache.shutdown();
     }
 
     private Reader getJavascript(Module module, Locale locale) {
@@ -362,6 +527,48 @@ public class JavascriptConfigService extends AbstractResourceService implements
         return depBuild.toString();
     }
 
+    /**
+     * The key of a configuration snapshot, the router is compared by identity as the controller creates a new router when
+     * its configuration is reloaded.
+     */
+    private static class JSConfigKey {
+
+        /** . */
+        private final Router router;
+
+        /** . */
+        private final String contextPath;
+
+        /** . */
+        private final Locale locale;
+
+        private JSConfigKey(Router router, String contextPath, Locale locale) {
+            this.router = router;
+            this.contextPath = contextPath;
+            this.locale = locale;
+        }
+
+        @Override
+        public int hashCode() {
+            int hashCode = System.identityHashCode(router);
+            hashCode = hashCode * 31 + (contextPath != null ? contextPath.hashCode() : 0);
+            hashCode = hashCode * 31 + (locale != null ? locale.hashCode() : 0);
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            } else if (obj instanceof JSConfigKey) {
+                JSConfigKey that = (JSConfigKey) obj;
+                return router == that.router && Safe.equals(contextPath, that.contextPath) && Safe.equals(locale, that.locale);
+            } else {
+                return false;
+            }
+        }
+    }
+
     private class NormalizeJSReader extends Reader {
         private boolean finished = false;
         private boolean multiComments = false;
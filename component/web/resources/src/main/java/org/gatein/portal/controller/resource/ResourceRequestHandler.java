@@ -19,21 +19,23 @@
 
 package org.gatein.portal.controller.resource;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Locale;
 import java.util.Properties;
+import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.exoplatform.commons.cache.future.FutureMap;
 import org.exoplatform.commons.utils.I18N;
 import org.exoplatform.commons.utils.PropertyManager;
 import org.exoplatform.commons.utils.Safe;
 import org.exoplatform.portal.application.ResourceRequestFilter;
+import org.exoplatform.web.application.javascript.JavascriptConfigService;
 import org.exoplatform.web.ControllerContext;
 import org.exoplatform.web.WebRequestHandler;
 import org.exoplatform.web.controller.QualifiedName;
@@ -50,6 +52,18 @@ public class ResourceRequestHandler extends WebRequestHandler {
 
     public static final String LAST_MODIFIED = "Last-Modified";
 
+    public static final String IF_NONE_MATCH = "If-None-Match";
+
+    public static final String ETAG = "ETag";
+
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+
+    public static final String VARY = "Vary";
+
+    public static final String GZIP = "gzip";
+
     /** . */
     private static String PATH = "META-INF/maven/org.gatein.portal/exo.portal.component.web.resources/pom.properties";
 
@@ -104,6 +118,64 @@ public class ResourceRequestHandler extends WebRequestHandler {
         MAX_AGE = seconds;
     }
 
+    /**
+     * Returns the gzip compressed form of some bytes when it is smaller than the bytes.
+     *
+     * @param bytes the bytes to compress
+     * @return the compressed bytes or null if compressing does not make the bytes smaller
+     */
+    public static byte[] gzip(byte[] bytes) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 3 + 32);
+            GZIPOutputStream out = new GZIPOutputStream(baos);
+            out.write(bytes);
+            out.close();
+            return baos.size() < bytes.length ? baos.toByteArray() : null;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Returns true if an <code>Accept-Encoding</code> header value accepts the gzip content coding: either gzip is listed
+     * with a non zero quality value or it is not listed and the <code>*</code> coding is accepted.
+     *
+     * @param acceptEncoding the header value, may be null
+     * @return true if gzip is accepted
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding != null) {
+            Boolean gzip = null;
+            Boolean any = null;
+            for (String coding : acceptEncoding.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim();
+                boolean accepted = true;
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            accepted = Float.parseFloat(param.substring(2)) > 0;
+                        } catch (NumberFormatException e) {
+                            accepted = false;
+                        }
+                    }
+                }
+                if (name.equalsIgnoreCase(GZIP) || name.equalsIgnoreCase("x-gzip")) {
+                    gzip = accepted;
+                } else if (name.equals("*")) {
+                    any = accepted;
+                }
+            }
+            if (gzip != null) {
+                return gzip;
+            } else if (any != null) {
+                return any;
+            }
+        }
+        return false;
+    }
+
     /** . */
     public static final QualifiedName VERSION_QN = QualifiedName.create("gtn", "version");
 
@@ -123,10 +195,10 @@ public class ResourceRequestHandler extends WebRequestHandler {
     public static final QualifiedName LANG_QN = QualifiedName.create("gtn", "lang");
 
     /** . */
-    private final FutureMap<ScriptKey, ScriptResult, ControllerContext> cache;
+    private final JavascriptConfigService service;
 
-    public ResourceRequestHandler() {
-        this.cache = new FutureMap<ScriptKey, ScriptResult, ControllerContext>(new ScriptLoader());
+    public ResourceRequestHandler(JavascriptConfigService service) {
+        this.service = service;
     }
 
     @Override
@@ -168,7 +240,7 @@ public class ResourceRequestHandler extends WebRequestHandler {
             ScriptKey key = new ScriptKey(resource, "min".equals(compressParam), locale);
 
             //
-            ScriptResult result = cache.get(context, key);
+            ScriptResult result = service.getScriptCache().get(context, key);
             HttpServletResponse response = context.getResponse();
             HttpServletRequest request = context.getRequest();
 
@@ -182,16 +254,37 @@ public class ResourceRequestHandler extends WebRequestHandler {
 
                 response.setHeader("Cache-Control", "max-age=" + MAX_AGE + ",s-maxage=" + MAX_AGE);
 
-                // Set content length
-                response.setContentLength(resolved.bytes.length);
+                // Select the encoded variant
+                byte[] bytes;
+                String etag;
+                response.setHeader(VARY, ACCEPT_ENCODING);
+                if (resolved.gzipped != null && acceptsGzip(request.getHeader(ACCEPT_ENCODING))) {
+                    response.setHeader(CONTENT_ENCODING, GZIP);
+                    bytes = resolved.gzipped;
+                    etag = resolved.gzippedEtag;
+                } else {
+                    bytes = resolved.bytes;
+                    etag = resolved.etag;
+                }
 
-                long ifModifiedSince = request.getDateHeader(IF_MODIFIED_SINCE);
-                if (resolved.isModified(ifModifiedSince)) {
+                // Set content length
+                response.setContentLength(bytes.length);
+
+                // The entity tag takes precedence over the modification date
+                response.setHeader(ETAG, etag);
+                String ifNoneMatch = request.getHeader(IF_NONE_MATCH);
+                boolean modified;
+                if (ifNoneMatch != null) {
+                    modified = resolved.isModified(ifNoneMatch);
+                } else {
+                    modified = resolved.isModified(request.getDateHeader(IF_MODIFIED_SINCE));
+                }
+                if (modified) {
                     response.setDateHeader(ResourceRequestFilter.LAST_MODIFIED, resolved.lastModified);
                     // Send bytes
                     ServletOutputStream out = response.getOutputStream();
                     try {
-                        out.write(resolved.bytes);
+                        out.write(bytes);
                     } finally {
                         Safe.close(out);
                     }
@@ -0,0 +1,453 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.portal.controller.resource;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.exoplatform.commons.cache.future.FutureMap;
+import org.exoplatform.commons.utils.PropertyManager;
+import org.exoplatform.commons.utils.Safe;
+import org.gatein.common.io.IOTools;
+import org.gatein.common.logging.Logger;
+import org.gatein.common.logging.LoggerFactory;
+import org.exoplatform.web.ControllerContext;
+
+import com.google.javascript.jscomp.CompilationLevel;
+import com.google.javascript.jscomp.Compiler;
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.JSError;
+import com.google.javascript.jscomp.JSSourceFile;
+import com.google.javascript.jscomp.LoggerErrorManager;
+import com.google.javascript.jscomp.Result;
+
+/**
+ * <p>
+ * The minified scripts keyed by the hash of their source and of the compiler settings. A minified script is compiled once
+ * with the Closure compiler and stored in a directory as <code>key.js</code>, so it survives the restarts of the server and
+ * the scripts having the same source, for instance the different locales of a script that is not localized, share the
+ * same entry. Upgrading the compiler or changing its settings changes the keys, the entries that are not used anymore are
+ * pruned after some time.
+ * </p>
+ *
+ * <p>
+ * Scripts can be compiled ahead of the first request with {@link #precompile(String, Callable)}, the compilation then
+ * happens on a bounded pool of background threads. A request that needs a script being compiled waits for the ongoing
+ * compilation instead of compiling the script a second time.
+ * </p>
+ *
+ * <p>
+ * The scripts served by the {@link ResourceRequestHandler} are kept in memory by a map bounded by the number of scripts
+ * and their size in bytes, the least recently used scripts are evicted first.
+ * </p>
+ *
+ */
+public class ScriptCache {
+
+    /** . */
+    private static final Logger log = LoggerFactory.getLogger(ScriptCache.class);
+
+    /** . */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** The minification of a script is not worth more than that number of pending compilations. */
+    private static final int MAX_PENDING = 1000;
+
+    /** The compilation level. */
+    private static final CompilationLevel LEVEL = CompilationLevel.SIMPLE_OPTIMIZATIONS;
+
+    /** Identifies the compiler and its settings, it is part of the key of the minified scripts. */
+    private static final String COMPILER = "1:" + LEVEL.name() + ":" + getCompilerVersion();
+
+    /**
+     * Create a script cache configured with the <code>gatein.assets.script.cache.dir</code> property, defaulting to the
+     * <code>scripts</code> directory of the <code>gatein.data.dir</code> directory or of the temporary directory when it is
+     * not set, and the <code>gatein.assets.script.compiler.threads</code> property, defaulting to one thread. The in memory
+     * scripts are bounded by the <code>gatein.assets.script.cache.max-size</code> property, defaulting to no limit, and the
+     * <code>gatein.assets.script.cache.max-weight</code> property, defaulting to 64MB. The stored scripts not used for the
+     * number of days of the <code>gatein.assets.script.cache.max-age</code> property, defaulting to 30, are pruned in the
+     * background.
+     *
+     * @return the script cache
+     */
+    public static ScriptCache create() {
+        String dir = PropertyManager.getProperty("gatein.assets.script.cache.dir");
+        File cacheDir;
+        if (dir != null) {
+            cacheDir = new File(dir);
+        } else {
+            String dataDir = PropertyManager.getProperty("gatein.data.dir");
+            if (dataDir != null) {
+                cacheDir = new File(dataDir, "scripts");
+            } else {
+                cacheDir = new File(System.getProperty("java.io.tmpdir"), "gatein-scripts");
+            }
+        }
+        int threads = (int) getLongProperty("gatein.assets.script.compiler.threads", 1);
+        int maxSize = (int) getLongProperty("gatein.assets.script.cache.max-size", 0);
+        long maxWeight = getLongProperty("gatein.assets.script.cache.max-weight", 64 * 1024 * 1024);
+        final long maxAge = getLongProperty("gatein.assets.script.cache.max-age", 30) * 24 * 60 * 60 * 1000;
+        final ScriptCache cache = new ScriptCache(cacheDir, threads, maxSize, maxWeight);
+        try {
+            cache.executor.execute(new Runnable() {
+                public void run() {
+                    int count = cache.prune(maxAge);
+                    if (count > 0) {
+                        log.debug("Pruned " + count + " unused minified scripts");
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ignore) {
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the version of the Closure compiler: the release is not exposed by the compiler so the name and the size of
+     * the archive it is loaded from are used.
+     *
+     * @return the version
+     */
+    private static String getCompilerVersion() {
+        try {
+            CodeSource source = Compiler.class.getProtectionDomain().getCodeSource();
+            URL location = source != null ? source.getLocation() : null;
+            if (location != null) {
+                String version = location.getPath();
+                version = version.substring(version.lastIndexOf('/', version.length() - 2) + 1);
+                if ("file".equals(location.getProtocol())) {
+                    version += ":" + new File(location.toURI()).length();
+                }
+                return version;
+            }
+        } catch (Exception e) {
+            log.debug("Could not determine the version of the Closure compiler", e);
+        }
+        return "unknown";
+    }
+
+    private static long getLongProperty(String name, long defaultValue) {
+        String value = PropertyManager.getProperty(name);
+        if (value != null) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                log.warn("The " + name + " property is not set properly.");
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Returns the key of the minified form of a script source, it changes with the compiler and its settings.
+     *
+     * @param source the script source
+     * @return the key
+     */
+    public static String key(String source) {
+        return hash(COMPILER + "\n" + source);
+    }
+
+    /**
+     * Returns the hash of a script source.
+     *
+     * @param source the script source
+     * @return the hexadecimal SHA-1 digest of the UTF-8 source
+     */
+    public static String hash(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes("UTF-8"));
+            char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                chars[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                chars[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /** . */
+    private final File dir;
+
+    /** . */
+    private final ThreadPoolExecutor executor;
+
+    /** The compilations in progress. */
+    private final ConcurrentHashMap<String, FutureTask<ScriptResult>> compilations;
+
+    /** The scripts served. */
+    private final FutureMap<ScriptKey, ScriptResult, ControllerContext> results;
+
+    public ScriptCache(File dir, int threads) throws NullPointerException, IllegalArgumentException {
+        this(dir, threads, 0, 0);
+    }
+
+    public ScriptCache(File dir, int threads, int maxSize, long maxWeight) throws NullPointerException,
+            IllegalArgumentException {
+        if (dir == null) {
+            throw new NullPointerException("No null directory accepted");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads " + threads);
+        }
+
+        //
+        final AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "gatein-script-compiler-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        };
+
+        //
+        this.dir = dir;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(
+                MAX_PENDING), factory, new ThreadPoolExecutor.DiscardPolicy());
+        this.compilations = new ConcurrentHashMap<String, FutureTask<ScriptResult>>();
+        this.results = new FutureMap<ScriptKey, ScriptResult, ControllerContext>(new ScriptLoader(), maxSize, maxWeight) {
+            @Override
+            protected long weigh(ScriptResult value) {
+                return value.getWeight();
+            }
+        };
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    /**
+     * Returns the map of the scripts served, it provides the statistics of the in memory cache.
+     *
+     * @return the scripts
+     */
+    public FutureMap<?, ?, ?> getResults() {
+        return results;
+    }
+
+    ScriptResult get(ControllerContext context, ScriptKey key) {
+        return results.get(context, key);
+    }
+
+    /**
+     * Schedule the minification of a script on the background threads. The source is provided by a callable invoked by the
+     * background thread, when the pending compilations queue is full the script is left to the first request.
+     *
+     * @param sourceName the source name used in the error messages
+     * @param source the source provider
+     */
+    public void precompile(final String sourceName, final Callable<String> source) {
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        String code = source.call();
+                        if (code != null) {
+                            ScriptResult result = minify(sourceName, code);
+                            if (result instanceof ScriptResult.Error) {
+                                log.error("Could not minify script " + sourceName + "\n:" + ((ScriptResult.Error) result).message);
+                            }
+                        }
+                    } catch (Exception e) {
+                        log.error("Could not minify script " + sourceName, e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutdown
+        }
+    }
+
+    /**
+     * Stop the background threads.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Delete the stored scripts that were not used for some time and the temporary files left by an interrupted write.
+     *
+     * @param maxAge the maximum age in milliseconds
+     * @return the number of files deleted
+     */
+    int prune(long maxAge) {
+        File[] files = dir.listFiles();
+        int count = 0;
+        if (files != null) {
+            long limit = System.currentTimeMillis() - maxAge;
+            for (File file : files) {
+                String name = file.getName();
+                if ((name.endsWith(".js") || name.endsWith(".tmp")) && file.lastModified() < limit && file.delete()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    ScriptResult minify(final String sourceName, final String source) throws Exception {
+        final String hash = key(source);
+        File file = new File(dir, hash + ".js");
+        if (file.exists()) {
+            byte[] bytes = read(file);
+            if (bytes != null) {
+                // Mark the script as used, so it is not pruned
+                long lastModified = file.lastModified();
+                file.setLastModified(System.currentTimeMillis());
+                return new ScriptResult.Resolved(bytes, hash, lastModified);
+            }
+        }
+
+        //
+        FutureTask<ScriptResult> task = new FutureTask<ScriptResult>(new Callable<ScriptResult>() {
+            public ScriptResult call() throws Exception {
+                return compile(hash, sourceName, source);
+            }
+        });
+        FutureTask<ScriptResult> existing = compilations.putIfAbsent(hash, task);
+        if (existing == null) {
+            try {
+                task.run();
+            } finally {
+                compilations.remove(hash, task);
+            }
+        } else {
+            task = existing;
+        }
+
+        //
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    private ScriptResult compile(String hash, String sourceName, String source) {
+        CompilerOptions options = new CompilerOptions();
+        LEVEL.setOptionsForCompilationLevel(options);
+        com.google.javascript.jscomp.Compiler compiler = new Compiler();
+        compiler.setErrorManager(new LoggerErrorManager(java.util.logging.Logger.getLogger(ResourceRequestHandler.class
+                .getName())));
+        JSSourceFile[] inputs = new JSSourceFile[] { JSSourceFile.fromCode(sourceName, source) };
+        Result res = compiler.compile(new JSSourceFile[0], inputs, options);
+        if (res.success) {
+            byte[] bytes;
+            try {
+                bytes = compiler.toSource().getBytes("UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                throw new AssertionError(e);
+            }
+            File file = new File(dir, hash + ".js");
+            long lastModified = write(file, bytes) ? file.lastModified() : System.currentTimeMillis();
+            return new ScriptResult.Resolved(bytes, hash, lastModified);
+        } else {
+            StringBuilder msg = new StringBuilder("Handle me gracefully JS errors\n");
+            for (JSError error : res.errors) {
+                msg.append(error.sourceName).append(":").append(error.lineNumber).append(" ").append(error.description)
+                        .append("\n");
+            }
+            return new ScriptResult.Error(msg.toString());
+        }
+    }
+
+    private byte[] read(File file) {
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            return IOTools.getBytes(in);
+        } catch (IOException e) {
+            log.warn("Could not read minified script " + file.getAbsolutePath(), e);
+            return null;
+        } finally {
+            Safe.close(in);
+        }
+    }
+
+    /**
+     * Write the file atomically: the bytes are written to a temporary file renamed once complete, so a concurrent reader
+     * never sees a partial script.
+     *
+     * @param file the file
+     * @param bytes the bytes
+     * @return true if the file was written
+     */
+    private boolean write(File file, byte[] bytes) {
+        if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+            log.warn("Could not create the minified script directory " + dir.getAbsolutePath());
+            return false;
+        }
+        File tmp = null;
+        OutputStream out = null;
+        try {
+            tmp = File.createTempFile(file.getName(), ".tmp", dir);
+            out = new FileOutputStream(tmp);
+            out.write(bytes);
+            out.close();
+            out = null;
+            if (tmp.renameTo(file) || file.exists()) {
+                return true;
+            } else {
+                log.warn("Could not store minified script " + file.getAbsolutePath());
+                return false;
+            }
+        } catch (IOException e) {
+            log.warn("Could not store minified script " + file.getAbsolutePath(), e);
+            return false;
+        } finally {
+            Safe.close(out);
+            if (tmp != null && tmp.exists()) {
+                tmp.delete();
+            }
+        }
+    }
+}
@@ -19,28 +19,16 @@
 
 package org.gatein.portal.controller.resource;
 
-import java.io.ByteArrayOutputStream;
 import java.io.Reader;
-import java.io.StringReader;
 import java.io.StringWriter;
 
 import org.exoplatform.commons.cache.future.Loader;
-import org.exoplatform.commons.utils.CharsetTextEncoder;
 import org.exoplatform.commons.utils.Safe;
-import org.exoplatform.commons.utils.TextEncoder;
 import org.exoplatform.container.PortalContainer;
 import org.exoplatform.web.ControllerContext;
 import org.exoplatform.web.application.javascript.JavascriptConfigService;
 import org.gatein.common.io.IOTools;
 
-import com.google.javascript.jscomp.CompilationLevel;
-import com.google.javascript.jscomp.Compiler;
-import com.google.javascript.jscomp.CompilerOptions;
-import com.google.javascript.jscomp.JSError;
-import com.google.javascript.jscomp.JSSourceFile;
-import com.google.javascript.jscomp.LoggerErrorManager;
-import com.google.javascript.jscomp.Result;
-
 /**
  * @author <a href="mailto:julien.viet@exoplatform.com">Julien Viet</a>
  */
@@ -55,41 +43,21 @@ class ScriptLoader implements Loader<ScriptKey, ScriptResult, ControllerContext>
 
         //
         if (script != null) {
-            if (key.minified) {
-                CompilationLevel level = CompilationLevel.SIMPLE_OPTIMIZATIONS;
-                CompilerOptions options = new CompilerOptions();
-                level.setOptionsForCompilationLevel(options);
-                com.google.javascript.jscomp.Compiler compiler = new Compiler();
-                compiler.setErrorManager(new LoggerErrorManager(java.util.logging.Logger.getLogger(ResourceRequestHandler.class
-                        .getName())));
+            String source;
+            try {
                 StringWriter code = new StringWriter();
                 IOTools.copy(script, code);
-                JSSourceFile[] inputs = new JSSourceFile[] { JSSourceFile.fromCode(sourceName, code.toString()) };
-                Result res = compiler.compile(new JSSourceFile[0], inputs, options);
-                if (res.success) {
-                    script = new StringReader(compiler.toSource());
-                } else {
-                    StringBuilder msg = new StringBuilder("Handle me gracefully JS errors\n");
-                    for (JSError error : res.errors) {
-                        msg.append(error.sourceName).append(":").append(error.lineNumber).append(" ").append(error.description)
-                                .append("\n");
-                    }
-                    return new ScriptResult.Error(msg.toString());
-                }
-            }
-
-            // Encode data
-            try {
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                TextEncoder encoder = CharsetTextEncoder.getUTF8();
-                char[] buffer = new char[256];
-                for (int l = script.read(buffer); l != -1; l = script.read(buffer)) {
-                    encoder.encode(buffer, 0, l, out);
-                }
-                return new ScriptResult.Resolved(out.toByteArray());
+                source = code.toString();
             } finally {
                 Safe.close(script);
             }
+
+            //
+            if (key.minified) {
+                return service.getScriptCache().minify(sourceName, source);
+            } else {
+                return new ScriptResult.Resolved(source.getBytes("UTF-8"), ScriptCache.hash(source), System.currentTimeMillis());
+            }
         }
 
         //
@@ -19,8 +19,6 @@
 
 package org.gatein.portal.controller.resource;
 
-import java.util.Date;
-
 import org.exoplatform.commons.utils.PropertyManager;
 
 /**
@@ -31,18 +29,44 @@ class ScriptResult {
     private ScriptResult() {
     }
 
+    /**
+     * Returns an estimation of the memory used by the result in bytes.
+     *
+     * @return the weight
+     */
+    long getWeight() {
+        return 1;
+    }
+
     static class Resolved extends ScriptResult {
 
         /** . */
         final byte[] bytes;
 
+        /** The gzip compressed bytes or null when compression does not reduce the size. */
+        final byte[] gzipped;
+
+        /** The strong entity tag derived from the hash of the script source. */
+        final String etag;
+
+        /** The strong entity tag of the gzip compressed variant. */
+        final String gzippedEtag;
+
         final long lastModified;
 
-        Resolved(byte[] bytes) {
+        Resolved(byte[] bytes, String hash, long lastModified) {
             this.bytes = bytes;
+            this.gzipped = ResourceRequestHandler.gzip(bytes);
+            this.etag = "\"" + hash + "\"";
+            this.gzippedEtag = "\"" + hash + "-gzip\"";
             // string of date retrieve from Http header doesn't have miliseconds
             // we need to remove miliseconds
-            lastModified = (new Date().getTime() / 1000) * 1000;
+            this.lastModified = (lastModified / 1000) * 1000;
+        }
+
+        @Override
+        long getWeight() {
+            return bytes.length + (gzipped != null ? gzipped.length : 0);
         }
 
         boolean isModified(long ifModifiedSince) {
@@ -52,6 +76,26 @@ class ScriptResult {
                 return lastModified > ifModifiedSince;
             }
         }
+
+        /**
+         * Returns true if none of the entity tags of an <code>If-None-Match</code> header value matches the script.
+         *
+         * @param ifNoneMatch the header value
+         * @return true if the script was modified
+         */
+        boolean isModified(String ifNoneMatch) {
+            if (PropertyManager.isDevelopping()) {
+                return true;
+            } else {
+                for (String tag : ifNoneMatch.split(",")) {
+                    tag = tag.trim();
+                    if (tag.equals("*") || tag.equals(etag) || tag.equals(gzippedEtag)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
     }
 
     static class Error extends ScriptResult {
@@ -62,6 +106,11 @@ class ScriptResult {
         Error(String message) {
             this.message = message;
         }
+
+        @Override
+        long getWeight() {
+            return message != null ? message.length() * 2 : 1;
+        }
     }
 
     static ScriptResult NOT_FOUND = new ScriptResult();
@@ -19,9 +19,11 @@
 
 package org.gatein.portal.controller.resource.script;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.exoplatform.commons.utils.I18N;
 import org.exoplatform.web.WebAppController;
@@ -85,6 +87,10 @@ public class BaseScriptResource<R extends Resource<R>> extends Resource<R> {
         return minified ? minParameters : parameters;
     }
 
+    public Set<Locale> getSupportedLocales() {
+        return Collections.unmodifiableSet(parametersMap.keySet());
+    }
+
     public void addSupportedLocale(Locale locale) {
         if (!parametersMap.containsKey(locale)) {
             Map<QualifiedName, String> localizedParameters = new HashMap<QualifiedName, String>(parameters);
@@ -93,6 +99,13 @@ public class BaseScriptResource<R extends Resource<R>> extends Resource<R> {
             Map<QualifiedName, String> localizedMinParameters = new HashMap<QualifiedName, String>(minParameters);
             localizedMinParameters.put(ResourceRequestHandler.LANG_QN, I18N.toTagIdentifier(locale));
             minParametersMap.put(locale, localizedMinParameters);
+            modified();
+        }
+    }
+
+    void modified() {
+        if (graph != null) {
+            graph.modified();
         }
     }
 }
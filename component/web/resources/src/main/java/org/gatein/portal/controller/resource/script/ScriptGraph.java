@@ -19,13 +19,21 @@
 
 package org.gatein.portal.controller.resource.script;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
@@ -45,6 +53,15 @@ public class ScriptGraph {
     /** . */
     final Map<String, ScriptGroup> loadGroups;
 
+    /** The version incremented on each modification of the graph. */
+    private final AtomicLong version = new AtomicLong();
+
+    /** The dependency index of the current version. */
+    private volatile Index index;
+
+    /** The maximum number of resolutions cached by the index. */
+    private static final int MAX_RESULTS = 1000;
+
     /** . */
     private static final Log log = ExoLogger.getExoLogger(ScriptGraph.class);
 
@@ -63,85 +80,59 @@ public class ScriptGraph {
     /**
      * <p>
      * </p>
-     * Resolve a collection of pair of resource id and fetch mode, each entry of the map will be processed in the order
-     * specified by the iteration of the {@link java.util.Map#entrySet()}. For a given pair the fetch mode may be null or not.
+     * Resolve a collection of pair of resource id and fetch mode. For a given pair the fetch mode may be null or not.
      * When the fetch mode is null, the default fetch mode of the resource is used. When the fetch mode is not null, this fetch
      * mode may override the resource fetch mode if it implies this particular fetch mode. This algorithm tolerates the absence
      * of resources, for instance if a resource is specified (among the pairs or by a transitive dependency) and does not exist,
      * the resource will be skipped.</p>
      *
+     * <p>The resources are sorted so that a resource comes after its dependencies, the order does not depend on the order of
+     * the pairs. The result is cached until the graph is modified and it cannot be modified.</p>
+     *
      * @param pairs the pairs to resolve
      * @return the resources sorted
      */
     public Map<ScriptResource, FetchMode> resolve(Map<ResourceId, FetchMode> pairs) {
-        // Build a fetch graph
-        Map<ResourceId, ScriptFetch> determined = new HashMap<ResourceId, ScriptFetch>();
-        for (Map.Entry<ResourceId, FetchMode> pair : pairs.entrySet()) {
-            traverse(determined, pair.getKey(), pair.getValue());
-        }
+        Index index = getIndex();
 
-        // We remove one by one the nodes of the fetch graph having no dependencies
-        // each node will build the dependency list
-        LinkedHashMap<ScriptResource, FetchMode> result = new LinkedHashMap<ScriptResource, FetchMode>();
-        LinkedList<ScriptFetch> all = new LinkedList<ScriptFetch>(determined.values());
-        while (all.size() > 0) {
-            ScriptFetch next = null;
-            for (Iterator<ScriptFetch> i = all.iterator(); i.hasNext();) {
-                ScriptFetch fetch = i.next();
-                if (fetch.dependencies.size() == 0) {
-                    i.remove();
-                    next = fetch;
-                    for (ScriptFetch dependent : fetch.dependsOnMe) {
-                        dependent.dependencies.remove(fetch);
-                    }
-                    break;
+        // The result does not depend on the iteration order of the pairs
+        Map<ResourceId, FetchMode> key = new HashMap<ResourceId, FetchMode>(pairs);
+        Map<ScriptResource, FetchMode> result = index.results.get(key);
+        if (result == null) {
+            // Merge the closures of the pairs and sort them by rank, the dependencies of a resource have a lower rank
+            Set<ScriptResource> resolved = new HashSet<ScriptResource>();
+            for (Map.Entry<ResourceId, FetchMode> pair : key.entrySet()) {
+                ScriptResource resource = getResource(pair.getKey());
+                if (resource != null && (pair.getValue() == null || resource.fetchMode.equals(pair.getValue()))) {
+                    resolved.addAll(index.getClosure(resource));
                 }
             }
-            if (next == null) {
-                // This should not happen:
-                // we have an DAG, on each iteration we must have at least one node that has no dependencies
-                // we remove it from the graph and update its dependencies
-                // (unless the graph is not correctly constructed above)
-                throw new AssertionError("This is a bug");
-            } else {
-                result.put(next.resource, next.mode);
+            ScriptResource[] sorted = resolved.toArray(new ScriptResource[resolved.size()]);
+            Arrays.sort(sorted, index);
+
+            //
+            LinkedHashMap<ScriptResource, FetchMode> map = new LinkedHashMap<ScriptResource, FetchMode>();
+            for (ScriptResource resource : sorted) {
+                map.put(resource, resource.fetchMode);
             }
+            result = Collections.unmodifiableMap(map);
+            if (index.results.size() >= MAX_RESULTS) {
+                index.results.clear();
+            }
+            index.results.put(key, result);
         }
 
         //
         return result;
     }
 
-    private ScriptFetch traverse(Map<ResourceId, ScriptFetch> map, ResourceId id, FetchMode mode) {
-        ScriptResource resource = getResource(id);
-        if (resource != null) {
-            if (mode != null && !resource.fetchMode.equals(mode)) {
-                return null;
-            } else {
-                mode = resource.fetchMode;
-                ScriptFetch fetch = map.get(id);
-                if (fetch == null) {
-                    fetch = new ScriptFetch(resource, mode);
-                    if (!resource.isEmpty() || ResourceScope.SHARED.equals(resource.getId().getScope())) {
-                        map.put(id, fetch);
-                    }
-
-                    // Recursively add the dependencies
-                    if (FetchMode.IMMEDIATE.equals(mode) || resource.isEmpty()) {
-                        for (ResourceId dependencyId : resource.dependencies.keySet()) {
-                            ScriptFetch dependencyFetch = traverse(map, dependencyId, mode);
-                            if (dependencyFetch != null) {
-                                dependencyFetch.dependsOnMe.add(fetch);
-                                fetch.dependencies.add(dependencyFetch);
-                            }
-                        }
-                    }
-                }
-                return fetch;
-            }
-        } else {
-            return null;
+    private Index getIndex() {
+        long current = version.get();
+        Index index = this.index;
+        if (index == null || index.version != current) {
+            this.index = index = new Index(current);
         }
+        return index;
     }
 
     public ScriptResource getResource(ResourceId id) {
@@ -219,6 +210,7 @@ public class ScriptGraph {
             }
 
             map.put(name, resource = new ScriptResource(this, id, fetchMode, alias, group));
+            modified();
         } else if (!(id.getScope().equals(ResourceScope.SHARED) && JavascriptConfigParser.LEGACY_JAVA_SCRIPT.equals(name))) {
             throw new IllegalStateException("Duplicate ResourceId : " + id + ", later resource definition will be ignored");
         }
@@ -230,6 +222,7 @@ public class ScriptGraph {
         ScriptResource removed = resources.get(id.getScope()).remove(id.getName());
         if (removed != null) {
             removed.graph = null;
+            modified();
         }
         return removed;
     }
@@ -237,4 +230,113 @@ public class ScriptGraph {
     public ScriptGroup getLoadGroup(String groupName) {
         return loadGroups.get(groupName);
     }
+
+    /**
+     * Returns the version of the graph, the version changes each time a resource is added to or removed from the graph or
+     * when a resource of the graph is modified. It allows to cache the data computed from the graph.
+     *
+     * @return the graph version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    void modified() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * The dependency index of a version of the graph, it ranks the resources in a topological order and memoizes the
+     * resources fetched with each resource. The index is built when the graph is resolved for the first time after it has
+     * been modified.
+     */
+    private class Index implements Comparator<ScriptResource> {
+
+        /** . */
+        private final long version;
+
+        /** The rank of the resources, a resource has a rank greater than the rank of its dependencies. */
+        private final Map<ResourceId, Integer> ranks;
+
+        /** The memoized closures. */
+        private final ConcurrentMap<ResourceId, Set<ScriptResource>> closures;
+
+        /** The memoized resolutions. */
+        private final ConcurrentMap<Map<ResourceId, FetchMode>, Map<ScriptResource, FetchMode>> results;
+
+        private Index(long version) {
+            // Visit the resources in a stable order
+            List<ResourceId> ids = new ArrayList<ResourceId>();
+            for (Map<String, ScriptResource> map : resources.values()) {
+                for (ScriptResource resource : map.values()) {
+                    ids.add(resource.getId());
+                }
+            }
+            Collections.sort(ids, new Comparator<ResourceId>() {
+                public int compare(ResourceId o1, ResourceId o2) {
+                    return o1.toString().compareTo(o2.toString());
+                }
+            });
+
+            //
+            Map<ResourceId, Integer> ranks = new HashMap<ResourceId, Integer>(ids.size() * 2);
+            Set<ResourceId> visiting = new HashSet<ResourceId>();
+            for (ResourceId id : ids) {
+                rank(id, ranks, visiting);
+            }
+
+            //
+            this.version = version;
+            this.ranks = ranks;
+            this.closures = new ConcurrentHashMap<ResourceId, Set<ScriptResource>>();
+            this.results = new ConcurrentHashMap<Map<ResourceId, FetchMode>, Map<ScriptResource, FetchMode>>();
+        }
+
+        private void rank(ResourceId id, Map<ResourceId, Integer> ranks, Set<ResourceId> visiting) {
+            ScriptResource resource = getResource(id);
+            if (resource != null && !ranks.containsKey(id) && visiting.add(id)) {
+                for (ResourceId dependencyId : resource.dependencies.keySet()) {
+                    rank(dependencyId, ranks, visiting);
+                }
+                ranks.put(id, ranks.size());
+            }
+        }
+
+        /**
+         * Returns the resources fetched with a resource using the resource fetch mode, the dependencies are fetched when
+         * the resource is fetched immediately or when it is empty, they must have the same fetch mode than the resource.
+         * An empty resource is fetched only when it is shared.
+         *
+         * @param resource the resource
+         * @return the resources
+         */
+        private Set<ScriptResource> getClosure(ScriptResource resource) {
+            Set<ScriptResource> closure = closures.get(resource.getId());
+            if (closure == null) {
+                closure = new HashSet<ScriptResource>();
+                if (!resource.isEmpty() || ResourceScope.SHARED.equals(resource.getId().getScope())) {
+                    closure.add(resource);
+                }
+                if (FetchMode.IMMEDIATE.equals(resource.fetchMode) || resource.isEmpty()) {
+                    for (ResourceId dependencyId : resource.dependencies.keySet()) {
+                        ScriptResource dependency = getResource(dependencyId);
+                        if (dependency != null && dependency.fetchMode.equals(resource.fetchMode)) {
+                            closure.addAll(getClosure(dependency));
+                        }
+                    }
+                }
+                closures.put(resource.getId(), closure);
+            }
+            return closure;
+        }
+
+        public int compare(ScriptResource o1, ScriptResource o2) {
+            return getRank(o1) - getRank(o2);
+        }
+
+        private int getRank(ScriptResource resource) {
+            Integer rank = ranks.get(resource.getId());
+            return rank != null ? rank : Integer.MAX_VALUE / 2;
+        }
+    }
 }
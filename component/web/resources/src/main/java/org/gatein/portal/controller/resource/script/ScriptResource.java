@@ -131,6 +131,7 @@ public class ScriptResource extends BaseScriptResource<ScriptResource> implement
             dependencies.put(dependencyId, infos = new LinkedHashSet<DepInfo>());
         }
         infos.add(new DepInfo(alias, pluginRS));
+        modified();
     }
 
     public Set<ResourceId> getClosure() {
@@ -144,12 +145,14 @@ public class ScriptResource extends BaseScriptResource<ScriptResource> implement
     public Module.Local addLocalModule(String contextPath, Content[] contents, String resourceBundle, int priority) {
         Module.Local module = new Module.Local(this, contextPath, contents, resourceBundle, priority);
         modules.add(module);
+        modified();
         return module;
     }
 
     public Module.Remote addRemoteModule(String contextPath, String path, int priority) {
         Module.Remote module = new Module.Remote(this, contextPath, path, priority);
         modules.add(module);
+        modified();
         return module;
     }
 
@@ -170,6 +173,9 @@ public class ScriptResource extends BaseScriptResource<ScriptResource> implement
                 i.remove();
             }
         }
+        if (removed.size() > 0) {
+            modified();
+        }
         return removed;
     }
 
@@ -247,6 +247,17 @@ public abstract class AbstractSkinServiceTest extends AbstractKernelTest {
                 skinService.getCSS(newControllerContext(getRouter(), skinURL.toString()), false));
     }
 
+    public void testBackslashHack() throws Exception {
+        String resource = "/backslash/hack/file.css";
+        String css = "background-color: #cccccc \\9;\n" + "background: url(images/foo.gif) \\9;";
+
+        resResolver.addResource(resource, css);
+
+        SkinURL skinURL = newSimpleSkin(resource).createURL(controllerCtx);
+        assertEquals("background-color: #cccccc \\9;\n" + "background: url(/backslash/hack/images/foo.gif) \\9;",
+                skinService.getCSS(newControllerContext(getRouter(), skinURL.toString()), false));
+    }
+
     ControllerContext getControllerContext() {
         try {
             return newControllerContext(getRouter());
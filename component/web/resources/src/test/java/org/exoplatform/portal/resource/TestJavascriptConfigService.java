@@ -27,6 +27,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import javax.servlet.ServletContext;
@@ -36,6 +37,7 @@ import org.exoplatform.container.PortalContainer;
 import org.exoplatform.test.mocks.servlet.MockServletContext;
 import org.exoplatform.test.mocks.servlet.MockServletRequest;
 import org.exoplatform.web.ControllerContext;
+import org.exoplatform.web.application.javascript.CachedJSConfig;
 import org.exoplatform.web.application.javascript.JavascriptConfigParser;
 import org.exoplatform.web.application.javascript.JavascriptConfigService;
 import org.exoplatform.web.controller.QualifiedName;
@@ -175,6 +177,25 @@ public class TestJavascriptConfigService extends AbstractWebResourceTest {
         assertEquals("mock_url_of_script2", paths.getString("SHARED/script2"));
     }
 
+    public void testCachedJSConfig() throws Exception {
+        CachedJSConfig config = jsService.getCachedJSConfig(CONTROLLER_CONTEXT, null);
+        assertEquals(jsService.getJSConfig(CONTROLLER_CONTEXT, null).toString(), config.toString());
+        assertEquals("mock_url_of_script1", config.getPath("SHARED/script1"));
+        assertEquals("http://js/remote1", config.getPath("remote1"));
+        StringWriter writer = new StringWriter();
+        config.getText().writeTo(writer);
+        assertEquals(config.toString(), writer.toString());
+
+        // The snapshot is reused until the scripts are modified
+        assertSame(config, jsService.getCachedJSConfig(CONTROLLER_CONTEXT, null));
+        assertNotSame(config, jsService.getCachedJSConfig(CONTROLLER_CONTEXT, Locale.FRENCH));
+        ScriptResource script1 = jsService.getResource(new ResourceId(ResourceScope.SHARED, "script1"));
+        script1.addSupportedLocale(Locale.JAPANESE);
+        CachedJSConfig updated = jsService.getCachedJSConfig(CONTROLLER_CONTEXT, null);
+        assertNotSame(config, updated);
+        assertSame(updated, jsService.getCachedJSConfig(CONTROLLER_CONTEXT, null));
+    }
+
     public void testGenerateURL() throws Exception {
         ResourceId remote1 = new ResourceId(ResourceScope.SHARED, "remote1");
         String remoteURL = jsService.generateURL(CONTROLLER_CONTEXT, remote1, false, false, null);
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.portal.controller.resource;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.exoplatform.commons.utils.BinaryOutput;
+import org.exoplatform.commons.utils.ByteArrayOutput;
+import org.exoplatform.component.test.AbstractGateInTest;
+import org.exoplatform.portal.resource.CachedStylesheet;
+import org.exoplatform.portal.resource.EncodedResourceRenderer;
+import org.gatein.common.io.IOTools;
+
+public class TestResourceRequestHandler extends AbstractGateInTest {
+
+    public void testAcceptsGzip() {
+        assertFalse(ResourceRequestHandler.acceptsGzip(null));
+        assertFalse(ResourceRequestHandler.acceptsGzip(""));
+        assertFalse(ResourceRequestHandler.acceptsGzip("deflate"));
+        assertTrue(ResourceRequestHandler.acceptsGzip("gzip"));
+        assertTrue(ResourceRequestHandler.acceptsGzip("gzip, deflate"));
+        assertTrue(ResourceRequestHandler.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(ResourceRequestHandler.acceptsGzip("x-gzip"));
+        assertTrue(ResourceRequestHandler.acceptsGzip("*"));
+        assertFalse(ResourceRequestHandler.acceptsGzip("gzip;q=0"));
+        assertFalse(ResourceRequestHandler.acceptsGzip("*, gzip;q=0"));
+        assertTrue(ResourceRequestHandler.acceptsGzip("*;q=0, gzip"));
+        assertFalse(ResourceRequestHandler.acceptsGzip("*;q=0"));
+    }
+
+    public void testGzip() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append("var foo").append(i).append(" = 'bar';\n");
+        }
+        byte[] bytes = sb.toString().getBytes("UTF-8");
+        byte[] gzipped = ResourceRequestHandler.gzip(bytes);
+        assertNotNull(gzipped);
+        assertTrue(gzipped.length < bytes.length);
+        assertEquals(sb.toString(), new String(IOTools.getBytes(new GZIPInputStream(new ByteArrayInputStream(gzipped))),
+                "UTF-8"));
+
+        // Not worth compressing
+        assertNull(ResourceRequestHandler.gzip("a".getBytes("UTF-8")));
+    }
+
+    public void testStylesheetVariants() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append(".foo").append(i).append(" { color: red; }\n");
+        }
+        CachedStylesheet stylesheet = new CachedStylesheet(sb.toString());
+        Renderer identity = new Renderer(false);
+        stylesheet.writeTo(identity);
+        assertNull(identity.encoding);
+        assertEquals(sb.toString(), identity.output.getString());
+        assertEquals(identity.output.getBytes().length, identity.length);
+        Renderer gzip = new Renderer(true);
+        stylesheet.writeTo(gzip);
+        assertEquals("gzip", gzip.encoding);
+        assertEquals(gzip.output.getBytes().length, gzip.length);
+        assertEquals(sb.toString(), new String(IOTools.getBytes(new GZIPInputStream(new ByteArrayInputStream(gzip.output
+                .getBytes()))), "UTF-8"));
+    }
+
+    private static class Renderer implements EncodedResourceRenderer {
+
+        /** . */
+        private final boolean acceptsGzip;
+
+        /** . */
+        private final ByteArrayOutput output = new ByteArrayOutput();
+
+        /** . */
+        private String encoding;
+
+        /** . */
+        private int length = -1;
+
+        private Renderer(boolean acceptsGzip) {
+            this.acceptsGzip = acceptsGzip;
+        }
+
+        public boolean acceptsGzip() {
+            return acceptsGzip;
+        }
+
+        public void setContent(String encoding, int length) {
+            this.encoding = encoding;
+            this.length = length;
+        }
+
+        public BinaryOutput getOutput() {
+            return output;
+        }
+
+        public void setExpiration(long seconds) {
+        }
+    }
+}
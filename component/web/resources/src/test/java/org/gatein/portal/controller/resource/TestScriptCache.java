@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.gatein.portal.controller.resource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.exoplatform.component.test.AbstractGateInTest;
+
+public class TestScriptCache extends AbstractGateInTest {
+
+    /** . */
+    private File dir;
+
+    /** . */
+    private ScriptCache cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = File.createTempFile("scripts", "");
+        assertTrue(dir.delete());
+        cache = new ScriptCache(dir, 1);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        cache.shutdown();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    public void testHash() {
+        assertEquals(ScriptCache.hash("var a = 0;"), ScriptCache.hash("var a = 0;"));
+        assertFalse(ScriptCache.hash("var a = 0;").equals(ScriptCache.hash("var a = 1;")));
+        assertEquals(40, ScriptCache.hash("").length());
+    }
+
+    public void testKey() {
+        assertEquals(ScriptCache.key("var a = 0;"), ScriptCache.key("var a = 0;"));
+        assertFalse(ScriptCache.key("var a = 0;").equals(ScriptCache.key("var a = 1;")));
+
+        // The key includes the compiler settings
+        assertFalse(ScriptCache.key("var a = 0;").equals(ScriptCache.hash("var a = 0;")));
+    }
+
+    public void testMinify() throws Exception {
+        String source = "var foo = function(bar) { return bar; };";
+        ScriptResult.Resolved resolved = (ScriptResult.Resolved) cache.minify("foo.js", source);
+        String hash = ScriptCache.key(source);
+        assertEquals("\"" + hash + "\"", resolved.etag);
+        File file = new File(dir, hash + ".js");
+        assertTrue(file.exists());
+
+        // The stored script is served without compilation
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("stored".getBytes("UTF-8"));
+        out.close();
+        resolved = (ScriptResult.Resolved) cache.minify("foo.js", source);
+        assertEquals("stored", new String(resolved.bytes, "UTF-8"));
+        assertEquals("\"" + hash + "\"", resolved.etag);
+    }
+
+    public void testError() throws Exception {
+        String source = "var foo = function(bar) {";
+        ScriptResult result = cache.minify("foo.js", source);
+        assertTrue(result instanceof ScriptResult.Error);
+        assertFalse(new File(dir, ScriptCache.key(source) + ".js").exists());
+    }
+
+    public void testPrecompile() throws Exception {
+        final String source = "var foo = function(bar) { return bar; };";
+        final CountDownLatch latch = new CountDownLatch(1);
+        cache.precompile("foo.js", new Callable<String>() {
+            public String call() throws Exception {
+                latch.countDown();
+                return source;
+            }
+        });
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        File file = new File(dir, ScriptCache.key(source) + ".js");
+        for (int i = 0; i < 100 && !file.exists(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(file.exists());
+    }
+
+    public void testPrune() throws Exception {
+        String source = "var foo = function(bar) { return bar; };";
+        cache.minify("foo.js", source);
+        File used = new File(dir, ScriptCache.key(source) + ".js");
+        File unused = new File(dir, ScriptCache.hash("var old;") + ".js");
+        FileOutputStream out = new FileOutputStream(unused);
+        out.write("var old;".getBytes("UTF-8"));
+        out.close();
+        long old = System.currentTimeMillis() - 10 * 24 * 60 * 60 * 1000L;
+        assertTrue(used.setLastModified(old));
+        assertTrue(unused.setLastModified(old));
+
+        // Serving the script marks it as used
+        cache.minify("foo.js", source);
+        assertEquals(1, cache.prune(24 * 60 * 60 * 1000L));
+        assertTrue(used.exists());
+        assertFalse(unused.exists());
+    }
+
+    public void testIfNoneMatch() throws Exception {
+        ScriptResult.Resolved resolved = new ScriptResult.Resolved(new byte[0], "abc", 0);
+        assertFalse(resolved.isModified("\"abc\""));
+        assertFalse(resolved.isModified("\"def\", \"abc\""));
+        assertFalse(resolved.isModified("*"));
+        assertTrue(resolved.isModified("\"def\""));
+    }
+}
@@ -19,9 +19,12 @@
 
 package org.gatein.portal.controller.resource.script;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
 
 import org.exoplatform.component.test.AbstractGateInTest;
@@ -84,6 +87,33 @@ public class TestScriptGraph extends AbstractGateInTest {
         assertEquals(Collections.emptySet(), c.getClosure());
     }
 
+    public void testVersion() {
+        ScriptGraph graph = new ScriptGraph();
+        long version = graph.getVersion();
+        ScriptResource a = graph.addResource(A);
+        assertTrue(graph.getVersion() > version);
+        version = graph.getVersion();
+        graph.addResource(B);
+        assertTrue(graph.getVersion() > version);
+        version = graph.getVersion();
+        a.addDependency(B);
+        assertTrue(graph.getVersion() > version);
+        version = graph.getVersion();
+        a.addLocalModule("/foo", "/a.js", null, 0);
+        assertTrue(graph.getVersion() > version);
+        version = graph.getVersion();
+        assertEquals(1, a.removeModuleByContextPath("/foo").size());
+        assertTrue(graph.getVersion() > version);
+        version = graph.getVersion();
+        assertEquals(0, a.removeModuleByContextPath("/foo").size());
+        assertEquals(version, graph.getVersion());
+        graph.removeResource(A);
+        assertTrue(graph.getVersion() > version);
+        version = graph.getVersion();
+        a.addSupportedLocale(Locale.FRENCH);
+        assertEquals(version, graph.getVersion());
+    }
+
     /**
      * Closure of any node depends on node relationships in graph but does not depend on the order of building graph nodes
      */
@@ -352,6 +382,40 @@ public class TestScriptGraph extends AbstractGateInTest {
         }
     }
 
+    public void testResolveCache() {
+        ScriptGraph graph = new ScriptGraph();
+        ScriptResource a = graph.addResource(A, FetchMode.IMMEDIATE);
+        ScriptResource b = graph.addResource(B, FetchMode.IMMEDIATE);
+        ScriptResource c = graph.addResource(C, FetchMode.IMMEDIATE);
+        b.addDependency(C);
+
+        //
+        LinkedHashMap<ResourceId, FetchMode> pairs = new LinkedHashMap<ResourceId, FetchMode>();
+        pairs.put(A, null);
+        pairs.put(B, null);
+        Map<ScriptResource, FetchMode> test = graph.resolve(pairs);
+        assertResultOrder(test.keySet());
+        assertEquals(Tools.toSet(a, b, c), test.keySet());
+        try {
+            test.remove(a);
+            fail();
+        } catch (UnsupportedOperationException ignore) {
+        }
+
+        // The same pairs in another order give the same result
+        LinkedHashMap<ResourceId, FetchMode> reversed = new LinkedHashMap<ResourceId, FetchMode>();
+        reversed.put(B, null);
+        reversed.put(A, null);
+        assertSame(test, graph.resolve(reversed));
+
+        // A modification of the graph invalidates the result
+        c.addDependency(A);
+        Map<ScriptResource, FetchMode> updated = graph.resolve(pairs);
+        assertNotSame(test, updated);
+        assertResultOrder(updated.keySet());
+        assertEquals(Arrays.asList(a, c, b), new ArrayList<ScriptResource>(updated.keySet()));
+    }
+
     /**
      * Test that each script of the test collection has no following script that belongs to its closure.
      *
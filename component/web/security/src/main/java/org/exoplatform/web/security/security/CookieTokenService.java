@@ -27,6 +27,9 @@ import org.exoplatform.commons.chromattic.ContextualTask;
 import org.exoplatform.commons.chromattic.SessionContext;
 import org.exoplatform.container.xml.InitParams;
 import org.exoplatform.container.xml.ObjectParameter;
+import org.exoplatform.container.xml.ValueParam;
+import org.exoplatform.management.annotations.Managed;
+import org.exoplatform.management.annotations.ManagedDescription;
 import org.exoplatform.portal.pom.config.Utils;
 import org.exoplatform.web.security.GateInToken;
 import org.exoplatform.web.security.codec.AbstractCodec;
@@ -40,6 +43,10 @@ import org.gatein.wci.security.Credentials;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -89,6 +96,22 @@ import java.util.Date;
  * <p>
  * It should be considered in the future if the password field can be removed altogether from {@link TokenEntry}.
  * </p>
+ * <p>
+ * The tokens can be kept in a bounded in-memory {@link TokenIndex} configured by the {@value #INDEX_SIZE_INIT_PARAM} init
+ * param, the index is warmed when the service starts and the tokens it does not know are still read from the store. The
+ * writes to the store can then be batched and performed asynchronously every {@value #WRITE_BEHIND_PERIOD_INIT_PARAM}
+ * milliseconds. As a node does not see the tokens deleted by the other nodes of a cluster, the index should only be used
+ * when a user is served by a single node.
+ * </p>
+ * <p>
+ * The expired tokens known by the index are removed from the store when the cleanup runs, the other ones, evicted from the
+ * index or created by another node, are removed by a sweep of the whole store performed once per validity period.
+ * </p>
+ * <p>
+ * The asynchronous writes are kept in memory until they are performed, they are lost when the node crashes: the tokens
+ * created during the last period are then unknown after a restart and their users have to log in again, while the tokens
+ * deleted during the last period, for instance when a user logged out, are still valid until they expire.
+ * </p>
  *
  */
 public class CookieTokenService extends AbstractTokenService<GateInToken, String> {
@@ -96,6 +119,11 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
     /** . */
     public static final String LIFECYCLE_NAME = "lifecycle-name";
     public static final String HASH_SERVICE_INIT_PARAM = "hash.service";
+    public static final String INDEX_SIZE_INIT_PARAM = "index.size";
+    public static final String WRITE_BEHIND_PERIOD_INIT_PARAM = "write.behind.period";
+
+    /** The maximum number of writes performed in a single session. */
+    private static final int WRITE_BATCH_SIZE = 100;
 
     /** . */
     private ChromatticLifeCycle chromatticLifeCycle;
@@ -112,6 +140,24 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
 
     private final Logger log = LoggerFactory.getLogger(CookieTokenService.class);
 
+    /** The index of the tokens or null when the tokens are always read from the store. */
+    private final TokenIndex index;
+
+    /** The period of the asynchronous writes in milliseconds, the writes are synchronous when it is zero. */
+    private final long writeBehindPeriod;
+
+    /** . */
+    private final ConcurrentLinkedQueue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<PendingWrite>();
+
+    /** . */
+    private final Object writeLock = new Object();
+
+    /** . */
+    private ScheduledExecutorService writer;
+
+    /** The time of the next sweep of the store when the index is used. */
+    private volatile long nextSweepMillis;
+
     public CookieTokenService(InitParams initParams, ChromatticManager chromatticManager, CodecInitializer codecInitializer)
             throws TokenServiceInitializationException {
         super(initParams);
@@ -130,6 +176,14 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
             saltedHashService = (SaltedHashService) hashServiceParam.getObject();
         }
         this.codec = codecInitializer.getCodec();
+
+        ValueParam indexSizeParam = initParams.getValueParam(INDEX_SIZE_INIT_PARAM);
+        int indexSize = indexSizeParam != null ? Integer.parseInt(indexSizeParam.getValue().trim()) : 0;
+        this.index = indexSize > 0 ? new TokenIndex(indexSize, validityMillis, currentTimeMillis()) : null;
+
+        ValueParam writeBehindParam = initParams.getValueParam(WRITE_BEHIND_PERIOD_INIT_PARAM);
+        long writeBehindPeriod = writeBehindParam != null ? Long.parseLong(writeBehindParam.getValue().trim()) : 0;
+        this.writeBehindPeriod = index != null ? Math.max(0, writeBehindPeriod) : 0;
     }
 
     /*
@@ -154,9 +208,69 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
             }
 
         }.executeWith(chromatticLifeCycle);
+
+        if (index != null) {
+            warmIndex();
+            nextSweepMillis = currentTimeMillis() + validityMillis;
+            if (writeBehindPeriod > 0) {
+                writer = Executors.newSingleThreadScheduledExecutor();
+                writer.scheduleWithFixedDelay(new Runnable() {
+                    public void run() {
+                        try {
+                            flush();
+                        } catch (Throwable t) {
+                            log.warn("Failed to write tokens", t);
+                        }
+                    }
+                }, writeBehindPeriod, writeBehindPeriod, TimeUnit.MILLISECONDS);
+            }
+        }
         super.start();
     }
 
+    @Override
+    public void stop() {
+        super.stop();
+        if (writer != null) {
+            writer.shutdown();
+            writer = null;
+        }
+        flush();
+    }
+
+    /**
+     * Returns the current time, used for the expiration of the tokens.
+     *
+     * @return the current time in milliseconds
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Index the valid tokens of the store and remove the expired ones.
+     */
+    private void warmIndex() {
+        new TokenTask<Void>() {
+            @Override
+            protected Void execute(SessionContext context) {
+                long now = currentTimeMillis();
+                for (TokenEntry en : getTokenContainer().getTokens().values()) {
+                    Date expirationTime = en.getExpirationTime();
+                    if (expirationTime == null || expirationTime.getTime() <= now) {
+                        en.remove();
+                    } else {
+                        TokenIndex.IndexedToken indexed = toIndexedToken(en);
+                        if (indexed != null) {
+                            index.put(en.getId(), indexed);
+                        }
+                    }
+                }
+                return null;
+            }
+        }.executeWith(chromatticLifeCycle);
+    }
+
     public String createToken(final Credentials credentials) {
         if (validityMillis < 0) {
             throw new IllegalArgumentException();
@@ -164,6 +278,9 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
         if (credentials == null) {
             throw new NullPointerException();
         }
+        if (index != null) {
+            return createIndexedToken(credentials);
+        }
         return new TokenTask<String>() {
             @Override
             protected String execute(SessionContext context) {
@@ -175,7 +292,7 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
                     cookieTokenString = new CookieToken(id, randomString).toString();
 
                     String hashedRandomString = hashToken(randomString);
-                    long expirationTimeMillis = System.currentTimeMillis() + validityMillis;
+                    long expirationTimeMillis = currentTimeMillis() + validityMillis;
 
                     /* the symmetric encryption happens here */
                     String encryptedPassword = codec.encode(credentials.getPassword());
@@ -193,6 +310,25 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
         }.executeWith(chromatticLifeCycle);
     }
 
+    private String createIndexedToken(Credentials credentials) {
+        while (true) {
+            String randomString = nextTokenId();
+            String id = nextRandom();
+            String hashedRandomString = hashToken(randomString);
+            long expirationTimeMillis = currentTimeMillis() + validityMillis;
+
+            /* the symmetric encryption happens here */
+            String encryptedPassword = codec.encode(credentials.getPassword());
+
+            TokenIndex.IndexedToken indexed = new TokenIndex.IndexedToken(hashedRandomString, credentials.getUsername(),
+                    encryptedPassword, expirationTimeMillis);
+            if (index.putIfAbsent(id, indexed)) {
+                write(new SaveToken(id, indexed));
+                return new CookieToken(id, randomString).toString();
+            }
+        }
+    }
+
     @Override
     protected String nextTokenId() {
         return nextRandom();
@@ -203,6 +339,9 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
         CookieToken token = null;
         try {
             token = new CookieToken(cookieTokenString);
+            if (index != null) {
+                return getIndexedToken(token, false);
+            }
             return new RemovableGetTokenTask(token, false).executeWith(chromatticLifeCycle);
         } catch (TokenParseException e) {
             log.warn("Could not parse cookie token:"+ e.getMessage());
@@ -215,6 +354,9 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
         CookieToken token = null;
         try {
             token = new CookieToken(cookieTokenString);
+            if (index != null) {
+                return getIndexedToken(token, true);
+            }
             return new RemovableGetTokenTask(token, true).executeWith(chromatticLifeCycle);
         } catch (TokenParseException e) {
             log.warn("Could not parse cookie token:"+ e.getMessage());
@@ -228,6 +370,10 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
      * @param user
      */
     public void deleteTokensOfUser(final String user) {
+        if (index != null) {
+            index.removeUser(user);
+            flush();
+        }
         new TokenTask<Void>() {
             @Override
             protected Void execute(SessionContext context) {
@@ -246,6 +392,10 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
      * Removes all tokens stored in the {@link TokenContainer}.
      */
     public void deleteAll() {
+        if (index != null) {
+            index.clear();
+            flush();
+        }
         new TokenTask<Void>() {
             @Override
             protected Void execute(SessionContext context) {
@@ -258,6 +408,18 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
 
     @Override
     public void cleanExpiredTokens() {
+        if (index != null) {
+            long now = currentTimeMillis();
+            for (String id : index.expire(now)) {
+                write(new RemoveToken(id));
+            }
+            if (now >= nextSweepMillis) {
+                nextSweepMillis = now + validityMillis;
+                flush();
+                sweep(now);
+            }
+            return;
+        }
         new TokenTask<Void>() {
             @Override
             protected Void execute(SessionContext context) {
@@ -267,8 +429,30 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
         }.executeWith(chromatticLifeCycle);
     }
 
+    /**
+     * Remove from the store the tokens expired at the specified time, including the ones unknown to the index.
+     *
+     * @param now the current time in milliseconds
+     */
+    private void sweep(final long now) {
+        new TokenTask<Void>() {
+            @Override
+            protected Void execute(SessionContext context) {
+                for (TokenEntry en : getTokenContainer().getTokens().values()) {
+                    Date expirationTime = en.getExpirationTime();
+                    if (expirationTime == null || expirationTime.getTime() <= now) {
+                        index.remove(en.getId());
+                        en.remove();
+                    }
+                }
+                return null;
+            }
+        }.executeWith(chromatticLifeCycle);
+    }
+
     @Override
     public long size() {
+        flush();
         return new TokenTask<Long>() {
             @Override
             protected Long execute(SessionContext context) {
@@ -277,11 +461,102 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
         }.executeWith(chromatticLifeCycle);
     }
 
+    @Managed
+    @ManagedDescription("The number of indexed tokens")
+    public int getIndexedTokens() {
+        return index != null ? index.size() : 0;
+    }
+
+    @Managed
+    @ManagedDescription("The number of writes waiting to be performed")
+    public int getPendingWrites() {
+        return pendingWrites.size();
+    }
+
     @Override
     protected String decodeKey(String stringKey) {
         return stringKey;
     }
 
+    private GateInToken getIndexedToken(final CookieToken token, boolean remove) {
+        TokenIndex.IndexedToken indexed = index.get(token.getId());
+        if (indexed == null) {
+            // The token was created by another node or evicted from the index
+            flush();
+            indexed = new TokenTask<TokenIndex.IndexedToken>() {
+                @Override
+                protected TokenIndex.IndexedToken execute(SessionContext context) {
+                    TokenEntry en = getTokenContainer().getTokens().get(token.getId());
+                    return en != null ? toIndexedToken(en) : null;
+                }
+            }.executeWith(chromatticLifeCycle);
+            if (indexed == null) {
+                return null;
+            }
+            index.put(token.getId(), indexed);
+        }
+        try {
+            if (saltedHashService.validate(token.getRandomString(), indexed.hashedToken)) {
+                if (remove && index.remove(token.getId()) != null) {
+                    write(new RemoveToken(token.getId()));
+                }
+                Credentials decryptedCredentials = new Credentials(indexed.userName, codec.decode(indexed.encodedPassword));
+                return new GateInToken(indexed.expirationTimeMillis, decryptedCredentials);
+            }
+        } catch (SaltedHashException e) {
+            log.warn("Could not validate cookie token against its salted hash.", e);
+        }
+        return null;
+    }
+
+    private TokenIndex.IndexedToken toIndexedToken(TokenEntry en) {
+        HashedToken hashedToken = chromatticLifeCycle.getContext().getSession().getEmbedded(en, HashedToken.class);
+        if (hashedToken == null || hashedToken.getHashedToken() == null || en.getExpirationTime() == null) {
+            return null;
+        }
+        return new TokenIndex.IndexedToken(hashedToken.getHashedToken(), en.getUserName(), en.getPassword(), en
+                .getExpirationTime().getTime());
+    }
+
+    /**
+     * Queue a write and perform it immediately unless the writes are asynchronous.
+     *
+     * @param write the write
+     */
+    private void write(PendingWrite write) {
+        pendingWrites.add(write);
+        if (writer == null) {
+            flush();
+        }
+    }
+
+    /**
+     * Perform the pending writes in batches.
+     */
+    private void flush() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            while (!pendingWrites.isEmpty()) {
+                new TokenTask<Void>() {
+                    @Override
+                    protected Void execute(SessionContext context) {
+                        TokenContainer container = getTokenContainer();
+                        for (int i = 0; i < WRITE_BATCH_SIZE; i++) {
+                            PendingWrite write = pendingWrites.poll();
+                            if (write == null) {
+                                break;
+                            }
+                            write.execute(context.getSession(), container);
+                        }
+                        return null;
+                    }
+                }.executeWith(chromatticLifeCycle);
+            }
+        }
+    }
+
     private String hashToken(String tokenId) {
         if (saltedHashService != null) {
             try {
@@ -330,6 +605,49 @@ public class CookieTokenService extends AbstractTokenService<GateInToken, String
 
     }
 
+    /**
+     * A write to the store.
+     */
+    private abstract static class PendingWrite {
+        abstract void execute(ChromatticSession session, TokenContainer container);
+    }
+
+    private class SaveToken extends PendingWrite {
+        private final String id;
+        private final TokenIndex.IndexedToken token;
+
+        private SaveToken(String id, TokenIndex.IndexedToken token) {
+            this.id = id;
+            this.token = token;
+        }
+
+        @Override
+        void execute(ChromatticSession session, TokenContainer container) {
+            try {
+                container.saveToken(session, id, token.hashedToken, new Credentials(token.userName, token.encodedPassword),
+                        new Date(token.expirationTimeMillis));
+            } catch (TokenExistsException e) {
+                log.warn("Could not save the cookie token " + id + " as it already exists.");
+            }
+        }
+    }
+
+    private static class RemoveToken extends PendingWrite {
+        private final String id;
+
+        private RemoveToken(String id) {
+            this.id = id;
+        }
+
+        @Override
+        void execute(ChromatticSession session, TokenContainer container) {
+            TokenEntry en = container.getTokens().get(id);
+            if (en != null) {
+                en.remove();
+            }
+        }
+    }
+
     private class RemovableGetTokenTask extends TokenTask<GateInToken> {
         private final CookieToken token;
         private final boolean remove;
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.security.security;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * A bounded in-memory index of the cookie tokens of a {@link CookieTokenService}, the least recently used tokens are
+ * evicted from the index when it is full. The index never holds plain tokens, only their salted hash.
+ * </p>
+ *
+ * <p>
+ * The expirations are tracked by a timer wheel: a token is registered in the slot of its expiration tick and
+ * {@link #expire(long)} only visits the slots elapsed since the last call, so the expiration costs a time proportional to
+ * the number of expired tokens. The wheel covers the validity of the tokens, a later expiration is registered in the last
+ * slot and rescheduled when the slot elapses. The wheel only holds the indexed tokens, a token evicted from the index is
+ * also removed from the wheel and is left to the periodic sweep of the store performed by the service.
+ * </p>
+ */
+class TokenIndex {
+
+    /** The number of slots of the wheel. */
+    private static final int SLOTS = 512;
+
+    /** . */
+    private final int maxSize;
+
+    /** The duration of a tick in milliseconds. */
+    private final long tickMillis;
+
+    /** . */
+    private final LinkedHashMap<String, IndexedToken> tokens;
+
+    /** The indexed tokens per slot. */
+    private final Map<String, IndexedToken>[] wheel;
+
+    /** The last tick whose slot has been visited. */
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    TokenIndex(final int maxSize, long validityMillis, long now) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Invalid index size " + maxSize);
+        }
+
+        //
+        this.maxSize = maxSize;
+        this.tickMillis = Math.max(1, validityMillis / (SLOTS - 1) + 1);
+        this.tokens = new LinkedHashMap<String, IndexedToken>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IndexedToken> eldest) {
+                if (size() > TokenIndex.this.maxSize) {
+                    unschedule(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.wheel = new Map[SLOTS];
+        this.tick = now / tickMillis;
+    }
+
+    synchronized IndexedToken get(String id) {
+        return tokens.get(id);
+    }
+
+    /**
+     * Index a token and schedule its expiration.
+     *
+     * @param id the token id
+     * @param token the token
+     */
+    synchronized void put(String id, IndexedToken token) {
+        IndexedToken previous = tokens.put(id, token);
+        if (previous != null) {
+            unschedule(id, previous);
+        }
+        schedule(id, token);
+    }
+
+    /**
+     * Index a token unless a token with the same id is already indexed.
+     *
+     * @param id the token id
+     * @param token the token
+     * @return true if the token was indexed
+     */
+    synchronized boolean putIfAbsent(String id, IndexedToken token) {
+        if (tokens.containsKey(id)) {
+            return false;
+        }
+        put(id, token);
+        return true;
+    }
+
+    synchronized IndexedToken remove(String id) {
+        IndexedToken token = tokens.remove(id);
+        if (token != null) {
+            unschedule(id, token);
+        }
+        return token;
+    }
+
+    /**
+     * Remove the indexed tokens of a user.
+     *
+     * @param userName the user name
+     */
+    synchronized void removeUser(String userName) {
+        for (Iterator<Map.Entry<String, IndexedToken>> i = tokens.entrySet().iterator(); i.hasNext();) {
+            Map.Entry<String, IndexedToken> entry = i.next();
+            if (userName.equals(entry.getValue().userName)) {
+                unschedule(entry.getKey(), entry.getValue());
+                i.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        tokens.clear();
+        for (int i = 0; i < SLOTS; i++) {
+            wheel[i] = null;
+        }
+    }
+
+    synchronized int size() {
+        return tokens.size();
+    }
+
+    /**
+     * Returns the number of tokens registered in the wheel, it is equal to the size of the index.
+     *
+     * @return the number of scheduled tokens
+     */
+    synchronized int scheduled() {
+        int scheduled = 0;
+        for (Map<String, IndexedToken> entries : wheel) {
+            if (entries != null) {
+                scheduled += entries.size();
+            }
+        }
+        return scheduled;
+    }
+
+    /**
+     * Remove the tokens expired at the specified time from the index.
+     *
+     * @param now the current time in milliseconds
+     * @return the ids of the expired tokens
+     */
+    synchronized List<String> expire(long now) {
+        List<String> expired = new ArrayList<String>();
+        long current = now / tickMillis;
+        long last = Math.min(current - 1, tick + SLOTS - 1);
+        Map<String, IndexedToken> rescheduled = null;
+        for (long t = tick; t <= last; t++) {
+            int slot = (int) (t % SLOTS);
+            Map<String, IndexedToken> entries = wheel[slot];
+            if (entries != null) {
+                wheel[slot] = null;
+                for (Map.Entry<String, IndexedToken> entry : entries.entrySet()) {
+                    String id = entry.getKey();
+                    if (entry.getValue().expirationTimeMillis <= now) {
+                        tokens.remove(id);
+                        expired.add(id);
+                    } else {
+                        if (rescheduled == null) {
+                            rescheduled = new HashMap<String, IndexedToken>();
+                        }
+                        rescheduled.put(id, entry.getValue());
+                    }
+                }
+            }
+        }
+        if (last >= tick) {
+            // When all the slots were visited the wheel is empty and can jump to the current tick
+            tick = last < current - 1 ? current : last + 1;
+        }
+        if (rescheduled != null) {
+            for (Map.Entry<String, IndexedToken> entry : rescheduled.entrySet()) {
+                schedule(entry.getKey(), entry.getValue());
+            }
+        }
+        return expired;
+    }
+
+    private void schedule(String id, IndexedToken token) {
+        long t = Math.max(tick, Math.min(token.expirationTimeMillis / tickMillis, tick + SLOTS - 1));
+        int slot = (int) (t % SLOTS);
+        Map<String, IndexedToken> entries = wheel[slot];
+        if (entries == null) {
+            entries = new HashMap<String, IndexedToken>();
+            wheel[slot] = entries;
+        }
+        entries.put(id, token);
+        token.slot = slot;
+    }
+
+    private void unschedule(String id, IndexedToken token) {
+        Map<String, IndexedToken> entries = wheel[token.slot];
+        if (entries != null && entries.get(id) == token) {
+            entries.remove(id);
+            if (entries.isEmpty()) {
+                wheel[token.slot] = null;
+            }
+        }
+    }
+
+    /**
+     * An indexed token, the password is encoded by the codec of the service.
+     */
+    static class IndexedToken {
+
+        /** . */
+        final String hashedToken;
+
+        /** . */
+        final String userName;
+
+        /** . */
+        final String encodedPassword;
+
+        /** . */
+        final long expirationTimeMillis;
+
+        /** The slot of the wheel holding the token, guarded by the index. */
+        int slot;
+
+        IndexedToken(String hashedToken, String userName, String encodedPassword, long expirationTimeMillis) {
+            this.hashedToken = hashedToken;
+            this.userName = userName;
+            this.encodedPassword = encodedPassword;
+            this.expirationTimeMillis = expirationTimeMillis;
+        }
+    }
+}
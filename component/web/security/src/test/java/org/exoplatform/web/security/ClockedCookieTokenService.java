@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.security;
+
+import org.exoplatform.commons.chromattic.ChromatticManager;
+import org.exoplatform.container.xml.InitParams;
+import org.exoplatform.web.security.codec.CodecInitializer;
+import org.exoplatform.web.security.security.CookieTokenService;
+import org.exoplatform.web.security.security.TokenServiceInitializationException;
+
+/**
+ * CookieTokenService whose clock can be moved forward (testing purposes)
+ */
+public class ClockedCookieTokenService extends CookieTokenService {
+
+    /** . */
+    private volatile long offset;
+
+    public ClockedCookieTokenService(InitParams initParams, ChromatticManager chromatticManager, CodecInitializer codecInitializer)
+            throws TokenServiceInitializationException {
+        super(initParams, chromatticManager, codecInitializer);
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis() + offset;
+    }
+
+    void advance(long millis) {
+        offset += millis;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.security;
+
+import org.exoplatform.container.PortalContainer;
+import org.exoplatform.web.security.security.CookieTokenService;
+import org.gatein.wci.security.Credentials;
+
+/**
+ * Tests the {@link CookieTokenService} keeping an index of the tokens and writing them asynchronously.
+ */
+public class TestIndexedCookieTokenService extends AbstractCookieTokenServiceTest {
+
+    @Override
+    protected CookieTokenService createService() {
+        PortalContainer container = getContainer();
+        return (CookieTokenService) container.getComponentInstance("org.exoplatform.web.security.security.IndexedCookieTokenService");
+    }
+
+    public void testWriteBehind() throws Exception {
+        String tokenId = service.createToken(new Credentials("root", "gtn"));
+        assertEquals(1, service.getIndexedTokens());
+        assertEquals(1, service.getPendingWrites());
+        assertEquals("root", service.getToken(tokenId).getPayload().getUsername());
+
+        // The pending writes are performed before the store is queried
+        assertEquals(1, service.size());
+        assertEquals(0, service.getPendingWrites());
+
+        service.deleteToken(tokenId);
+        assertEquals(0, service.getIndexedTokens());
+        assertNull(service.getToken(tokenId));
+        assertEquals(0, service.size());
+    }
+
+    public void testExpiration() throws Exception {
+        ClockedCookieTokenService clocked = (ClockedCookieTokenService) service;
+        String tokenId = service.createToken(new Credentials("root", "gtn"));
+        assertEquals(1, service.size());
+        clocked.advance(3000);
+        service.cleanExpiredTokens();
+        assertEquals(0, service.getIndexedTokens());
+        assertNull(service.getToken(tokenId));
+        assertEquals(0, service.size());
+    }
+
+    public void testSweep() throws Exception {
+        ClockedCookieTokenService clocked = (ClockedCookieTokenService) service;
+        CookieTokenService plain = (CookieTokenService) getContainer().getComponentInstance(
+                "org.exoplatform.web.security.security.PlainCookieTokenService");
+
+        // A token unknown to the index is removed by the sweep of the store
+        plain.createToken(new Credentials("root", "gtn"));
+        assertEquals(1, service.size());
+        assertEquals(0, service.getIndexedTokens());
+        clocked.advance(3000);
+        service.cleanExpiredTokens();
+        assertEquals(0, service.size());
+    }
+
+    public void testDeleteTokensOfUser() throws Exception {
+        String tokenId1 = service.createToken(new Credentials("user1", "gtn"));
+        String tokenId2 = service.createToken(new Credentials("user2", "gtn"));
+        service.deleteTokensOfUser("user1");
+        assertNull(service.getToken(tokenId1));
+        assertNotNull(service.getToken(tokenId2));
+        assertEquals(1, service.size());
+        service.deleteToken(tokenId2);
+    }
+}
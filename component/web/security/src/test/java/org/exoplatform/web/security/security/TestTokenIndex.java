@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.security.security;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestTokenIndex extends TestCase {
+
+    private static TokenIndex.IndexedToken token(String userName, long expirationTimeMillis) {
+        return new TokenIndex.IndexedToken("hash", userName, "password", expirationTimeMillis);
+    }
+
+    public void testPut() {
+        TokenIndex index = new TokenIndex(10, 1000, 0);
+        assertTrue(index.putIfAbsent("a", token("foo", 1000)));
+        assertFalse(index.putIfAbsent("a", token("bar", 1000)));
+        assertEquals("foo", index.get("a").userName);
+        assertEquals(1, index.size());
+        assertNotNull(index.remove("a"));
+        assertNull(index.get("a"));
+    }
+
+    public void testEviction() {
+        TokenIndex index = new TokenIndex(2, 1000, 0);
+        index.put("a", token("foo", 500));
+        index.put("b", token("foo", 500));
+        index.get("a");
+        index.put("c", token("foo", 500));
+        assertEquals(2, index.size());
+        assertNotNull(index.get("a"));
+        assertNull(index.get("b"));
+        assertNotNull(index.get("c"));
+
+        // The evicted token leaves the wheel
+        assertEquals(2, index.scheduled());
+        assertEquals(new HashSet<String>(Arrays.asList("a", "c")), new HashSet<String>(index.expire(600)));
+        assertEquals(0, index.size());
+        assertEquals(0, index.scheduled());
+    }
+
+    public void testBoundedWheel() {
+        TokenIndex index = new TokenIndex(10, 1000, 0);
+        for (int i = 0; i < 1000; i++) {
+            index.put("token" + i, token("foo", i % 1000));
+        }
+        assertEquals(10, index.size());
+        assertEquals(10, index.scheduled());
+        index.put("token999", token("foo", 500));
+        assertEquals(10, index.scheduled());
+        index.remove("token999");
+        index.removeUser("foo");
+        assertEquals(0, index.scheduled());
+    }
+
+    public void testExpire() {
+        TokenIndex index = new TokenIndex(10, 1000, 0);
+        index.put("a", token("foo", 100));
+        index.put("b", token("foo", 900));
+        assertEquals(0, index.expire(50).size());
+        assertEquals(Arrays.asList("a"), index.expire(200));
+        assertNull(index.get("a"));
+        assertNotNull(index.get("b"));
+        assertEquals(0, index.expire(300).size());
+        assertEquals(Arrays.asList("b"), index.expire(1000));
+        assertEquals(0, index.size());
+    }
+
+    public void testExpireLater() {
+        TokenIndex index = new TokenIndex(10, 1000, 0);
+
+        // A token expiring after the validity is rescheduled until it expires
+        index.put("a", token("foo", 5000));
+        for (long now = 100; now < 5000; now += 100) {
+            assertEquals(0, index.expire(now).size());
+        }
+        assertNotNull(index.get("a"));
+        assertEquals(Arrays.asList("a"), index.expire(5100));
+    }
+
+    public void testExpireAfterIdle() {
+        TokenIndex index = new TokenIndex(10, 1000, 0);
+        index.put("a", token("foo", 500));
+        List<String> expired = index.expire(100000);
+        assertEquals(Arrays.asList("a"), expired);
+        index.put("b", token("foo", 100500));
+        assertEquals(0, index.expire(100200).size());
+        assertEquals(Arrays.asList("b"), index.expire(100600));
+    }
+
+    public void testRemoveUser() {
+        TokenIndex index = new TokenIndex(10, 1000, 0);
+        index.put("a", token("foo", 500));
+        index.put("b", token("bar", 500));
+        index.removeUser("foo");
+        assertNull(index.get("a"));
+        assertNotNull(index.get("b"));
+    }
+}
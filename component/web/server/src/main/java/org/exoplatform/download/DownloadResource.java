@@ -19,6 +19,7 @@
 
 package org.exoplatform.download;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -91,4 +92,42 @@ public abstract class DownloadResource {
 
     public abstract InputStream getInputStream() throws IOException;
 
+    /**
+     * Returns the length of the resource in bytes or -1 when it is not known.
+     *
+     * @return the length
+     */
+    public long getLength() {
+        return -1;
+    }
+
+    /**
+     * Returns the last modification time of the resource in milliseconds or -1 when it is not known.
+     *
+     * @return the last modification time
+     */
+    public long getLastModified() {
+        return -1;
+    }
+
+    /**
+     * Returns a strong validator of the content of the resource used as entity tag or null when the resource has none. The
+     * returned value is quoted as required by the <code>ETag</code> header.
+     *
+     * @return the entity tag
+     */
+    public String getETag() {
+        return null;
+    }
+
+    /**
+     * Returns the file containing the resource or null when the resource is not backed by a file. A resource backed by a
+     * file can be served in ranges.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return null;
+    }
+
 }
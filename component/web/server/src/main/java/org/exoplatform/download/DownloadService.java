@@ -25,6 +25,7 @@ import org.exoplatform.services.cache.ExoCache;
 import org.exoplatform.services.cache.concurrent.ConcurrentFIFOExoCache;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Created by The eXo Platform SARL
@@ -54,8 +55,15 @@ public class DownloadService {
         defaultResources_.put(resource.getDownloadType(), resource);
     }
 
+    /**
+     * Adds a download resource. The resource is kept until it is fully downloaded, so its id is random to prevent other
+     * users from guessing it and downloading the resource meanwhile.
+     *
+     * @param resource the resource
+     * @return the resource id
+     */
     public String addDownloadResource(DownloadResource resource) {
-        String id = Integer.toString(resource.hashCode());
+        String id = UUID.randomUUID().toString();
         if (resource.getDownloadType() != null) {
             id = resource.getDownloadType() + ":/" + id;
         }
@@ -63,10 +71,16 @@ public class DownloadService {
         return id;
     }
 
+    /**
+     * Returns a download resource, it is kept until it is removed or evicted so that it can be requested several times, for
+     * instance in byte ranges.
+     *
+     * @param id the resource id
+     * @return the resource or null
+     */
     public DownloadResource getDownloadResource(String id) {
         DownloadResource resource = downloadResources_.get(id);
         if (resource != null) {
-            downloadResources_.remove(id);
             return resource;
         }
         String[] temp = id.split(":");
@@ -77,6 +91,15 @@ public class DownloadService {
         return resource;
     }
 
+    /**
+     * Removes a download resource, it is called once the resource has been fully downloaded.
+     *
+     * @param id the resource id
+     */
+    public void removeDownloadResource(String id) {
+        downloadResources_.remove(id);
+    }
+
     public String getDownloadLink(String id) {
         return "/" + pinfo_.getContainerName() + "/" + DOWNLOAD_HANDLER_PATH + "?" + "resourceId=" + id;
     }
@@ -19,6 +19,7 @@
 
 package org.exoplatform.download;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -44,4 +45,30 @@ public class FileDownloadResource extends DownloadResource {
         FileInputStream is = new FileInputStream(path_);
         return is;
     }
+
+    @Override
+    public long getLength() {
+        File file = new File(path_);
+        return file.isFile() ? file.length() : -1;
+    }
+
+    @Override
+    public long getLastModified() {
+        long lastModified = new File(path_).lastModified();
+        return lastModified > 0 ? lastModified : -1;
+    }
+
+    @Override
+    public String getETag() {
+        File file = new File(path_);
+        if (!file.isFile()) {
+            return null;
+        }
+        return "\"" + Long.toHexString(file.length()) + "-" + Long.toHexString(file.lastModified()) + "\"";
+    }
+
+    @Override
+    public File getFile() {
+        return new File(path_);
+    }
 }
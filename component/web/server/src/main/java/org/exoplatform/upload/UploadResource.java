@@ -21,6 +21,9 @@ package org.exoplatform.upload;
 
 /**
  * Created by The eXo Platform SARL Author : Tuan Nguyen tuan08@users.sourceforge.net Dec 26, 2005
+ *
+ * The state of a resource is updated by the thread reading the upload and read by the threads reporting its progress, the
+ * uploaded size is only added by the uploading thread.
  */
 public class UploadResource {
 
@@ -32,18 +35,18 @@ public class UploadResource {
 
     private String uploadId_;
 
-    private String fileName_;
+    private volatile String fileName_;
 
-    private String mimeType_;
+    private volatile String mimeType_;
 
-    private String storeLocation_;
+    private volatile String storeLocation_;
 
-    private double uploadedSize_ = 0;
+    private volatile double uploadedSize_ = 0;
 
-    private double estimatedSize_ = 0;
+    private volatile double estimatedSize_ = 0;
 
     // private int limitMB_ = UploadService.uploadLimitMB_;
-    private int status_ = UPLOADING_STATUS;
+    private volatile int status_ = UPLOADING_STATUS;
 
     public UploadResource(String uploadId) {
         uploadId_ = uploadId;
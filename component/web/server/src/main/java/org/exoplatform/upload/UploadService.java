@@ -25,21 +25,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 
-import org.apache.commons.fileupload.FileItem;
-import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
 import org.apache.commons.fileupload.FileUploadException;
-import org.apache.commons.fileupload.ProgressListener;
-import org.apache.commons.fileupload.disk.DiskFileItem;
-import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
+import org.exoplatform.commons.utils.Safe;
 import org.exoplatform.container.xml.InitParams;
 import org.exoplatform.container.xml.PortalContainerInfo;
 import org.gatein.common.logging.Logger;
@@ -51,13 +49,16 @@ public class UploadService {
 
     private List<MimeTypeUploadPlugin> plugins;
 
-    private Map<String, UploadResource> uploadResources = new LinkedHashMap<String, UploadResource>();
+    /** The size of the buffer used to write an uploaded file. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Map<String, UploadResource> uploadResources = new ConcurrentHashMap<String, UploadResource>();
 
     private String uploadLocation_;
 
     private UploadLimit defaultUploadLimitMB_;
 
-    private Map<String, UploadLimit> uploadLimits = new LinkedHashMap<String, UploadLimit>();
+    private Map<String, UploadLimit> uploadLimits = new ConcurrentHashMap<String, UploadLimit>();
 
     public static String UPLOAD_RESOURCES_STACK = "uploadResourcesStack";
 
@@ -96,6 +97,10 @@ public class UploadService {
     }
 
     public void createUploadResource(String uploadId, HttpServletRequest request) throws FileUploadException {
+        if (uploadId == null) {
+            log.debug("No upload id provided, upload ignored");
+            return;
+        }
         UploadResource upResource = new UploadResource(uploadId);
         upResource.setFileName("");// Avoid NPE in UploadHandler
         uploadResources.put(upResource.getUploadId(), upResource);
@@ -109,53 +114,92 @@ public class UploadService {
             return;
         }
 
-        ServletFileUpload servletFileUpload = makeServletFileUpload(upResource);
-        // parse request
-        List<FileItem> itemList = null;
+        ServletFileUpload servletFileUpload = new ServletFileUpload();
+        servletFileUpload.setHeaderEncoding("UTF-8");
+
+        // stream the request, the file is written while it is parsed
         try {
-            itemList = servletFileUpload.parseRequest(request);
-        } catch (FileUploadException uploadEx) {
-            if (uploadEx instanceof FileUploadBase.IOFileUploadException) {
-                log.debug("IOException while upload resource", uploadEx);
-            } else {
-                throw uploadEx;
+            FileItemIterator items = servletFileUpload.getItemIterator(request);
+            FileItemStream item = items.hasNext() ? items.next() : null;
+            if (item == null || item.isFormField()) {
+                log.debug("Please upload 1 file per request");
+                removeUploadResource(uploadId);
+                return;
             }
-        }
 
-        if (itemList == null || itemList.size() != 1 || itemList.get(0).isFormField()) {
-            log.debug("Please upload 1 file per request");
-            removeUploadResource(uploadId);
-            return;
-        }
-
-        DiskFileItem fileItem = (DiskFileItem) itemList.get(0);
-        String fileName = fileItem.getName();
-        if (fileName == null)
-            fileName = uploadId;
-        fileName = fileName.substring(fileName.lastIndexOf('\\') + 1);
-        String storeLocation = uploadLocation_ + "/" + uploadId + "." + fileName;
+            String fileName = item.getName();
+            if (fileName == null)
+                fileName = uploadId;
+            fileName = fileName.substring(fileName.lastIndexOf('\\') + 1);
+            String storeLocation = uploadLocation_ + "/" + uploadId + "." + fileName;
+            File fileStore = new File(storeLocation);
+            upResource.setStoreLocation(storeLocation);
+
+            if (!storeFile(upResource, item.openStream(), fileStore)) {
+                fileStore.delete();
+                return;
+            }
 
-        // commons-fileupload will store the temp file with name *.tmp
-        // we need to rename it to our desired name
-        fileItem.getStoreLocation().renameTo(new File(storeLocation));
-        File fileStore = new File(storeLocation);
-        if (!fileStore.exists())
-            try {
-                fileStore.createNewFile();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+            if (items.hasNext()) {
+                log.debug("Please upload 1 file per request");
+                removeUploadResource(uploadId);
+                return;
             }
 
-        upResource.setFileName(fileName);
-        upResource.setMimeType(fileItem.getContentType());
-        if (plugins != null)
-            for (MimeTypeUploadPlugin plugin : plugins) {
-                String mimeType = plugin.getMimeType(fileName);
-                if (mimeType != null)
-                    upResource.setMimeType(mimeType);
+            upResource.setFileName(fileName);
+            upResource.setMimeType(item.getContentType());
+            if (plugins != null)
+                for (MimeTypeUploadPlugin plugin : plugins) {
+                    String mimeType = plugin.getMimeType(fileName);
+                    if (mimeType != null)
+                        upResource.setMimeType(mimeType);
+                }
+            upResource.setStatus(UploadResource.UPLOADED_STATUS);
+        } catch (IOException e) {
+            log.debug("IOException while upload resource", e);
+            removeUploadResource(uploadId);
+        }
+    }
+
+    /**
+     * Write an uploaded file, the upload is stopped as soon as it exceeds its limit or when the resource is removed, for
+     * instance when the upload is aborted by the user.
+     *
+     * @param upResource the resource
+     * @param in the file content
+     * @param fileStore the file
+     * @return false if the upload was stopped
+     * @throws IOException any IOException
+     */
+    private boolean storeFile(UploadResource upResource, InputStream in, File fileStore) throws IOException {
+        UploadLimit limit = getUploadLimit(upResource);
+        long limitBytes = limit.getLimit() > 0 ? (long) limit.getLimit() * limit.division : Long.MAX_VALUE;
+        FileOutputStream out = new FileOutputStream(fileStore);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long size = 0;
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                size += read;
+                if (size > limitBytes) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Upload cancelled because file bigger than size limit : " + limit.getLimit() + " " + limit.unit);
+                    }
+                    upResource.setStatus(UploadResource.FAILED_STATUS);
+                    return false;
+                }
+                if (uploadResources.get(upResource.getUploadId()) != upResource) {
+                    log.debug("Upload cancelled because the resource was removed");
+                    return false;
+                }
+                out.write(buffer, 0, read);
+                upResource.addUploadedBytes(read);
             }
-        upResource.setStoreLocation(storeLocation);
-        upResource.setStatus(UploadResource.UPLOADED_STATUS);
+            return true;
+        } finally {
+            // The item stream is not closed as closing it reads the rest of the item, a stopped upload leaves the rest of
+            // the request unread
+            Safe.close(out);
+        }
     }
 
     /**
@@ -164,6 +208,10 @@ public class UploadService {
      */
     public void createUploadResource(String uploadId, String encoding, String contentType, double contentLength,
             InputStream inputStream) throws Exception {
+        if (uploadId == null) {
+            log.debug("No upload id provided, upload ignored");
+            return;
+        }
         UploadResource upResource = new UploadResource(uploadId);
         RequestStreamReader reader = new RequestStreamReader(upResource);
         uploadResources.put(upResource.getUploadId(), upResource);
@@ -215,7 +263,7 @@ public class UploadService {
      * @return org.exoplatform.upload.UploadResource of uploadId
      */
     public UploadResource getUploadResource(String uploadId) {
-        return uploadResources.get(uploadId);
+        return uploadId != null ? uploadResources.get(uploadId) : null;
     }
 
     /**
@@ -229,7 +277,7 @@ public class UploadService {
         if (uploadIds != null) {
             for (String id : uploadIds) {
                 removeUploadResource(id);
-                uploadLimits.remove(id);
+                removeUploadLimit(id);
             }
         }
     }
@@ -253,10 +301,8 @@ public class UploadService {
     public void removeUploadResource(String uploadId) {
         if (uploadId == null)
             return;
-        UploadResource upResource = uploadResources.get(uploadId);
+        UploadResource upResource = uploadResources.remove(uploadId);
         if (upResource != null) {
-            uploadResources.remove(uploadId);
-
             if (upResource.getStoreLocation() != null) {
                 File file = new File(upResource.getStoreLocation());
                 file.delete();
@@ -277,7 +323,9 @@ public class UploadService {
     }
 
     public void addUploadLimit(String uploadId, Integer limit, UploadUnit unit) {
-        if (limit == null) {
+        if (uploadId == null) {
+            return;
+        } else if (limit == null) {
             uploadLimits.put(uploadId, defaultUploadLimitMB_);
         } else if (unit == null) {
             uploadLimits.put(uploadId, new UploadLimit(limit, UploadUnit.MB));
@@ -287,7 +335,9 @@ public class UploadService {
     }
 
     public void removeUploadLimit(String uploadId) {
-        uploadLimits.remove(uploadId);
+        if (uploadId != null) {
+            uploadLimits.remove(uploadId);
+        }
     }
 
     /**
@@ -299,37 +349,20 @@ public class UploadService {
         return uploadLimits;
     }
 
-    private ServletFileUpload makeServletFileUpload(final UploadResource upResource) {
-        // Create a factory for disk-based file items
-        DiskFileItemFactory factory = new DiskFileItemFactory();
-
-        // Set factory constraints
-        factory.setSizeThreshold(0);
-        factory.setRepository(new File(uploadLocation_));
-
-        // Create a new file upload handler
-        ServletFileUpload upload = new ServletFileUpload(factory);
-        upload.setHeaderEncoding("UTF-8");
-        ProgressListener listener = new ProgressListener() {
-            public void update(long pBytesRead, long pContentLength, int pItems) {
-                if (pBytesRead == upResource.getUploadedSize())
-                    return;
-                upResource.addUploadedBytes(pBytesRead - upResource.getUploadedSize());
-            }
-        };
-        upload.setProgressListener(listener);
-        return upload;
-    }
-
-    private boolean isLimited(UploadResource upResource, double contentLength) {
+    private UploadLimit getUploadLimit(UploadResource upResource) {
         // by default, use the limit set in the service
         UploadLimit limit = defaultUploadLimitMB_;
         // if the limit is set in the request (specific for this upload) then use
         // this value instead of the default one
-        if (uploadLimits.containsKey(upResource.getUploadId())) {
-            limit = uploadLimits.get(upResource.getUploadId());
+        UploadLimit uploadLimit = upResource.getUploadId() != null ? uploadLimits.get(upResource.getUploadId()) : null;
+        if (uploadLimit != null) {
+            limit = uploadLimit;
         }
+        return limit;
+    }
 
+    private boolean isLimited(UploadResource upResource, double contentLength) {
+        UploadLimit limit = getUploadLimit(upResource);
         double estimatedSize = contentLength / limit.division;
         if (limit.getLimit() > 0 && estimatedSize > limit.getLimit()) { // a limit set to 0 means unlimited
             if (log.isDebugEnabled()) {
@@ -19,9 +19,17 @@
 
 package org.exoplatform.web.handler;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -38,9 +46,19 @@ import org.gatein.common.logging.LoggerFactory;
 
 /**
  * Created by The eXo Platform SARL Author : LeBienThuy thuy.le@exoplatform.com Dec 9, 2006
+ *
+ * The resources providing validators are answered with a <code>304</code> status when the client already has them. The
+ * resources backed by a file are transferred from the file channel and can be requested in one or several byte ranges, such
+ * a resource is therefore kept by the {@link DownloadService} until its full content has been sent or it is evicted.
  */
 public class DownloadHandler extends WebRequestHandler {
 
+    /** The maximum number of ranges of a request, a request with more ranges is answered with the full content. */
+    private static final int MAX_RANGES = 16;
+
+    /** . */
+    private static final String BOUNDARY = "GATEIN_DOWNLOAD_BOUNDARY";
+
     private final Logger log = LoggerFactory.getLogger(DownloadHandler.class);
 
     public String getHandlerName() {
@@ -54,10 +72,14 @@ public class DownloadHandler extends WebRequestHandler {
     }
 
     public void execute(WebAppController controller, HttpServletRequest req, HttpServletResponse res) throws Exception {
-        String resourceId = req.getParameter("resourceId");
-        res.setHeader("Cache-Control", "private max-age=600, s-maxage=120");
         ExoContainer container = ExoContainerContext.getCurrentContainer();
         DownloadService dservice = (DownloadService) container.getComponentInstanceOfType(DownloadService.class);
+        execute(dservice, req, res);
+    }
+
+    void execute(DownloadService dservice, HttpServletRequest req, HttpServletResponse res) throws Exception {
+        String resourceId = req.getParameter("resourceId");
+        res.setHeader("Cache-Control", "private max-age=600, s-maxage=120");
         DownloadResource dresource = dservice.getDownloadResource(resourceId);
         if (dresource == null) {
             res.setContentType("text/plain");
@@ -74,15 +96,247 @@ public class DownloadHandler extends WebRequestHandler {
                         "attachment;filename=\"" + URLEncoder.encode(dresource.getDownloadName(), "UTF-8") + "\"");
             }
         }
-        res.setContentType(dresource.getResourceMimeType());
-        InputStream is = dresource.getInputStream();
+
+        // Conditional request
+        String etag = dresource.getETag();
+        long lastModified = dresource.getLastModified();
+        if (etag != null) {
+            res.setHeader("ETag", etag);
+        }
+        if (lastModified > 0) {
+            res.setDateHeader("Last-Modified", lastModified);
+        }
+        if (isNotModified(req, etag, lastModified)) {
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        //
+        File file = dresource.getFile();
+        if (file != null && file.isFile()) {
+            // The resource stays available for the next ranges until it has been fully sent
+            if (sendFile(req, res, dresource, file, etag, lastModified)) {
+                dservice.removeDownloadResource(resourceId);
+            }
+        } else {
+            dservice.removeDownloadResource(resourceId);
+            res.setContentType(dresource.getResourceMimeType());
+            InputStream is = dresource.getInputStream();
+            try {
+                optimalRead(is, res.getOutputStream());
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            } finally {
+                is.close();
+            }
+        }
+    }
+
+    /**
+     * Send a file, fully or in the requested ranges.
+     *
+     * @return true if the full content of the file was sent
+     */
+    private boolean sendFile(HttpServletRequest req, HttpServletResponse res, DownloadResource dresource, File file, String etag,
+            long lastModified) throws IOException {
+        FileInputStream in = new FileInputStream(file);
         try {
-            optimalRead(is, res.getOutputStream());
-        } catch (Exception e) {
-            log.error(e.getMessage(), e);
+            FileChannel channel = in.getChannel();
+            long length = channel.size();
+            res.setHeader("Accept-Ranges", "bytes");
+
+            // The ranges are ignored when the If-Range validator does not match the current content
+            String rangeHeader = req.getHeader("Range");
+            List<long[]> ranges = null;
+            if (rangeHeader != null && isRangeValid(req, etag, lastModified)) {
+                ranges = parseRanges(rangeHeader, length);
+                if (ranges != null && ranges.isEmpty()) {
+                    res.setHeader("Content-Range", "bytes */" + length);
+                    res.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return false;
+                }
+            }
+
+            //
+            OutputStream out = res.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            try {
+                if (ranges == null) {
+                    res.setContentType(dresource.getResourceMimeType());
+                    setContentLength(res, length);
+                    transfer(channel, 0, length, target);
+                    return true;
+                } else if (ranges.size() == 1) {
+                    long[] range = ranges.get(0);
+                    res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    res.setContentType(dresource.getResourceMimeType());
+                    res.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+                    setContentLength(res, range[1] - range[0] + 1);
+                    transfer(channel, range[0], range[1] - range[0] + 1, target);
+                } else {
+                    res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                    res.setContentType("multipart/byteranges; boundary=" + BOUNDARY);
+                    String contentType = dresource.getResourceMimeType();
+                    for (long[] range : ranges) {
+                        StringBuilder part = new StringBuilder();
+                        part.append("\r\n--").append(BOUNDARY).append("\r\n");
+                        if (contentType != null) {
+                            part.append("Content-Type: ").append(contentType).append("\r\n");
+                        }
+                        part.append("Content-Range: bytes ").append(range[0]).append('-').append(range[1]).append('/')
+                                .append(length).append("\r\n\r\n");
+                        out.write(part.toString().getBytes("ISO-8859-1"));
+                        transfer(channel, range[0], range[1] - range[0] + 1, target);
+                    }
+                    out.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes("ISO-8859-1"));
+                }
+            } catch (IOException e) {
+                // The client usually closed the connection
+                log.debug("Could not send the download " + dresource.getDownloadName(), e);
+            }
+            return false;
         } finally {
-            is.close();
+            in.close();
+        }
+    }
+
+    private static void setContentLength(HttpServletResponse res, long length) {
+        if (length <= Integer.MAX_VALUE) {
+            res.setContentLength((int) length);
+        } else {
+            res.setHeader("Content-Length", Long.toString(length));
+        }
+    }
+
+    private static void transfer(FileChannel channel, long position, long count, WritableByteChannel target)
+            throws IOException {
+        while (count > 0) {
+            long transferred = channel.transferTo(position, count, target);
+            if (transferred <= 0) {
+                throw new IOException("Could not transfer the file");
+            }
+            position += transferred;
+            count -= transferred;
+        }
+    }
+
+    /**
+     * Returns true if the client has the current content of the resource according to the <code>If-None-Match</code> or
+     * <code>If-Modified-Since</code> headers of a request, the former taking precedence.
+     *
+     * @param req the request
+     * @param etag the entity tag of the resource
+     * @param lastModified the last modification time of the resource
+     * @return true if the resource is not modified
+     */
+    static boolean isNotModified(HttpServletRequest req, String etag, long lastModified) {
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (etag == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                candidate = candidate.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals("*") || candidate.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (lastModified > 0) {
+            long ifModifiedSince = getDateHeader(req, "If-Modified-Since");
+            return ifModifiedSince != -1 && lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the <code>If-Range</code> header of a request is absent or matches the current content.
+     *
+     * @param req the request
+     * @param etag the entity tag of the resource
+     * @param lastModified the last modification time of the resource
+     * @return true if the ranges of the request apply
+     */
+    static boolean isRangeValid(HttpServletRequest req, String etag, long lastModified) {
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        long date = getDateHeader(req, "If-Range");
+        return date != -1 && lastModified > 0 && lastModified / 1000 == date / 1000;
+    }
+
+    private static long getDateHeader(HttpServletRequest req, String name) {
+        try {
+            return req.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parse the value of a <code>Range</code> header.
+     *
+     * @param header the header value
+     * @param length the length of the resource
+     * @return the inclusive ranges, an empty list when no range is satisfiable or null when the header is invalid or has too
+     *         many ranges and must be ignored
+     */
+    static List<long[]> parseRanges(String header, long length) {
+        header = header.trim();
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<long[]>(specs.length);
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash == -1) {
+                return null;
+            }
+            long first;
+            long last;
+            try {
+                if (dash == 0) {
+                    // A suffix range
+                    long suffix = Long.parseLong(spec.substring(1));
+                    if (suffix <= 0) {
+                        continue;
+                    }
+                    first = Math.max(0, length - suffix);
+                    last = length - 1;
+                } else {
+                    first = Long.parseLong(spec.substring(0, dash));
+                    if (dash == spec.length() - 1) {
+                        last = length - 1;
+                    } else {
+                        last = Long.parseLong(spec.substring(dash + 1));
+                        if (last < first) {
+                            return null;
+                        }
+                        last = Math.min(last, length - 1);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (first < length && first <= last) {
+                ranges.add(new long[] { first, last });
+            }
         }
+        return ranges;
     }
 
     @Override
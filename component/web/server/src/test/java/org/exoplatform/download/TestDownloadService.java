@@ -64,12 +64,26 @@ public class TestDownloadService extends AbstractKernelTest
    }
 
    @Test
-   public void testCleanningOnGetting()
+   public void testKeptOnGetting()
    {
       DownloadResource s = new MockDownloadResource("blah");
-      service.addDownloadResource(s);
-      assertNotNull(service.getDownloadResource("" + s.hashCode()));
-      assertNull(cache.get("" + s.hashCode()));
+      String id = service.addDownloadResource(s);
+      assertNotNull(service.getDownloadResource(id));
+      assertNotNull(service.getDownloadResource(id));
+      service.removeDownloadResource(id);
+      assertNull(cache.get(id));
+      cache.clearCache();
+   }
+
+   @Test
+   public void testRandomId()
+   {
+      DownloadResource s = new MockDownloadResource("blah");
+      String id1 = service.addDownloadResource(s);
+      String id2 = service.addDownloadResource(s);
+      assertFalse(id1.equals(id2));
+      assertFalse(id1.equals("" + s.hashCode()));
+      assertNull(service.getDownloadResource("" + s.hashCode()));
       cache.clearCache();
    }
 
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.upload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.exoplatform.component.test.AbstractKernelTest;
+import org.exoplatform.component.test.ConfigurationUnit;
+import org.exoplatform.component.test.ConfiguredBy;
+import org.exoplatform.component.test.ContainerScope;
+import org.gatein.common.io.IOTools;
+
+/**
+ * Tests the streaming of the uploads by {@link UploadService}, the service limits the uploads to 1 MB.
+ */
+@ConfiguredBy({ @ConfigurationUnit(scope = ContainerScope.PORTAL, path = "conf/services/upload-service.xml") })
+public class TestUploadService extends AbstractKernelTest {
+
+    /** . */
+    private static final String BOUNDARY = "----gateinboundary";
+
+    /** . */
+    private UploadService service;
+
+    @Override
+    protected void beforeRunBare() {
+        super.beforeRunBare();
+        service = (UploadService) getContainer().getComponentInstanceOfType(UploadService.class);
+    }
+
+    public void testWrite() throws Exception {
+        byte[] content = content(200 * 1024);
+        service.createUploadResource("write", request("write", content, new MultipartStream(content, null, null)));
+
+        UploadResource resource = service.getUploadResource("write");
+        assertEquals(UploadResource.UPLOADED_STATUS, resource.getStatus());
+        assertEquals("test.bin", resource.getFileName());
+        assertEquals((double) content.length, resource.getUploadedSize());
+        FileInputStream in = new FileInputStream(resource.getStoreLocation());
+        try {
+            assertTrue(Arrays.equals(content, IOTools.getBytes(in)));
+        } finally {
+            in.close();
+        }
+
+        service.removeUploadResource("write");
+        assertFalse(new File(resource.getStoreLocation()).exists());
+    }
+
+    public void testLimitMidStream() throws Exception {
+        // The request does not tell its length, the limit is only hit while the file is read
+        byte[] content = content(2 * 1024 * 1024);
+        MultipartStream stream = new MultipartStream(content, null, null);
+        service.createUploadResource("limit", request("limit", null, stream));
+
+        UploadResource resource = service.getUploadResource("limit");
+        assertEquals(UploadResource.FAILED_STATUS, resource.getStatus());
+        assertFalse(new File(resource.getStoreLocation()).exists());
+        assertTrue(stream.read < content.length);
+
+        service.removeUploadResource("limit");
+    }
+
+    public void testLowerLimit() throws Exception {
+        service.addUploadLimit("lower", 10, UploadService.UploadUnit.KB);
+        try {
+            byte[] content = content(20 * 1024);
+            service.createUploadResource("lower", request("lower", null, new MultipartStream(content, null, null)));
+            assertEquals(UploadResource.FAILED_STATUS, service.getUploadResource("lower").getStatus());
+        } finally {
+            service.removeUploadResource("lower");
+            service.removeUploadLimit("lower");
+        }
+    }
+
+    public void testAbort() throws Exception {
+        byte[] content = content(512 * 1024);
+        MultipartStream stream = new MultipartStream(content, "abort", service);
+        service.createUploadResource("abort", request("abort", content, stream));
+
+        // The resource is removed while the file is read, the upload stops and the file is deleted
+        assertNull(service.getUploadResource("abort"));
+        assertTrue(stream.read < content.length);
+        assertFalse(new File(stream.storeLocation).exists());
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] multipart(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(("--" + BOUNDARY + "\r\n" + "Content-Disposition: form-data; name=\"file\"; filename=\"test.bin\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n").getBytes("ISO-8859-1"));
+        out.write(content);
+        out.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes("ISO-8859-1"));
+        return out.toByteArray();
+    }
+
+    /**
+     * Create a multipart request, the content length is not provided when the content is null.
+     */
+    private static HttpServletRequest request(final String uploadId, final byte[] content, final ServletInputStream in)
+            throws IOException {
+        final int contentLength = content != null ? multipart(content).length : -1;
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        final HttpSession session = (HttpSession) Proxy.newProxyInstance(TestUploadService.class.getClassLoader(),
+                new Class[] { HttpSession.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getAttribute")) {
+                            return attributes.get(args[0]);
+                        } else if (method.getName().equals("setAttribute")) {
+                            attributes.put((String) args[0], args[1]);
+                        }
+                        return null;
+                    }
+                });
+        return (HttpServletRequest) Proxy.newProxyInstance(TestUploadService.class.getClassLoader(),
+                new Class[] { HttpServletRequest.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getContentType")) {
+                            return "multipart/form-data; boundary=" + BOUNDARY;
+                        } else if (name.equals("getContentLength")) {
+                            return contentLength;
+                        } else if (name.equals("getInputStream")) {
+                            return in;
+                        } else if (name.equals("getMethod")) {
+                            return "POST";
+                        } else if (name.equals("getParameter")) {
+                            return "uploadId".equals(args[0]) ? uploadId : null;
+                        } else if (name.equals("getSession")) {
+                            return session;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * The body of a multipart request, it can remove an upload resource once half of the file is read.
+     */
+    private static class MultipartStream extends ServletInputStream {
+
+        /** . */
+        private final byte[] body;
+
+        /** . */
+        private final String abortedId;
+
+        /** . */
+        private final UploadService service;
+
+        /** . */
+        private int read;
+
+        /** The store location of the aborted upload. */
+        private String storeLocation;
+
+        private MultipartStream(byte[] content, String abortedId, UploadService service) throws IOException {
+            this.body = multipart(content);
+            this.abortedId = abortedId;
+            this.service = service;
+        }
+
+        @Override
+        public int read() {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (read >= body.length) {
+                return -1;
+            }
+            if (abortedId != null && storeLocation == null && read > body.length / 2) {
+                storeLocation = service.getUploadResource(abortedId).getStoreLocation();
+                service.removeUploadResource(abortedId);
+            }
+            int n = Math.min(Math.min(len, 8192), body.length - read);
+            System.arraycopy(body, read, b, off, n);
+            read += n;
+            return n;
+        }
+    }
+}
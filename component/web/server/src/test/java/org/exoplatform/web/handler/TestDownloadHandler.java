@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.handler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.TestCase;
+
+import org.exoplatform.container.xml.InitParams;
+import org.exoplatform.container.xml.ValueParam;
+import org.exoplatform.download.DownloadResource;
+import org.exoplatform.download.DownloadService;
+import org.exoplatform.download.FileDownloadResource;
+
+/**
+ * Tests that {@link DownloadHandler} keeps a download resource until its full content has been sent.
+ */
+public class TestDownloadHandler extends TestCase {
+
+    /** . */
+    private DownloadService service;
+
+    /** . */
+    private File file;
+
+    /** . */
+    private byte[] content;
+
+    @Override
+    protected void setUp() throws Exception {
+        ValueParam cacheSize = new ValueParam();
+        cacheSize.setName("download.resource.cache.size");
+        cacheSize.setValue("10");
+        InitParams params = new InitParams();
+        params.addParameter(cacheSize);
+        service = new DownloadService(null, params);
+
+        //
+        content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        file = File.createTempFile("download", ".bin");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testFetchTwice() throws Exception {
+        String id = service.addDownloadResource(new FileDownloadResource(file.getAbsolutePath(), "application/octet-stream"));
+
+        // A range leaves the resource available
+        Response response = fetch(id, "bytes=0-99");
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.status);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(content, 0, 100), response.body.toByteArray()));
+        assertNotNull(service.getDownloadResource(id));
+
+        response = fetch(id, "bytes=100-");
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.status);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(content, 100, 1000), response.body.toByteArray()));
+
+        // The full content removes it
+        response = fetch(id, null);
+        assertEquals(HttpServletResponse.SC_OK, response.status);
+        assertTrue(Arrays.equals(content, response.body.toByteArray()));
+        assertNull(service.getDownloadResource(id));
+
+        response = fetch(id, null);
+        assertEquals("text/plain", response.contentType);
+    }
+
+    public void testNotModified() throws Exception {
+        DownloadResource resource = new FileDownloadResource(file.getAbsolutePath(), "application/octet-stream");
+        String id = service.addDownloadResource(resource);
+        Response response = fetch(id, null, "If-None-Match", resource.getETag());
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.status);
+        assertNotNull(service.getDownloadResource(id));
+    }
+
+    public void testStream() throws Exception {
+        String id = service.addDownloadResource(new DownloadResource("application/octet-stream") {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return new ByteArrayInputStream(content);
+            }
+        });
+        Response response = fetch(id, "bytes=0-99");
+        assertTrue(Arrays.equals(content, response.body.toByteArray()));
+        assertNull(service.getDownloadResource(id));
+    }
+
+    private Response fetch(String id, String range, String... headers) throws Exception {
+        final Map<String, String> requestHeaders = new HashMap<String, String>();
+        if (range != null) {
+            requestHeaders.put("Range", range);
+        }
+        for (int i = 0; i < headers.length; i += 2) {
+            requestHeaders.put(headers[i], headers[i + 1]);
+        }
+        final Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put("resourceId", id);
+        HttpServletRequest req = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { HttpServletRequest.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getParameter")) {
+                            return parameters.get(args[0]);
+                        } else if (method.getName().equals("getHeader")) {
+                            return requestHeaders.get(args[0]);
+                        } else if (method.getName().equals("getDateHeader")) {
+                            return -1L;
+                        }
+                        return null;
+                    }
+                });
+        final Response response = new Response();
+        HttpServletResponse res = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { HttpServletResponse.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("setStatus") || name.equals("sendError")) {
+                            response.status = (Integer) args[0];
+                        } else if (name.equals("setContentType")) {
+                            response.contentType = (String) args[0];
+                        } else if (name.equals("getOutputStream")) {
+                            return new ServletOutputStream() {
+                                @Override
+                                public void write(int b) {
+                                    response.body.write(b);
+                                }
+                            };
+                        } else if (name.equals("getWriter")) {
+                            return new PrintWriter(response.body, true);
+                        }
+                        return null;
+                    }
+                });
+        new DownloadHandler().execute(service, req, res);
+        return response;
+    }
+
+    private static class Response {
+
+        /** . */
+        private int status = HttpServletResponse.SC_OK;
+
+        /** . */
+        private String contentType;
+
+        /** . */
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.web.handler;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestDownloadRanges extends TestCase {
+
+    private static void assertRanges(String header, long length, long... expected) {
+        List<long[]> ranges = DownloadHandler.parseRanges(header, length);
+        assertNotNull(ranges);
+        assertEquals(expected.length / 2, ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            assertEquals(expected[i * 2], ranges.get(i)[0]);
+            assertEquals(expected[i * 2 + 1], ranges.get(i)[1]);
+        }
+    }
+
+    public void testSingle() {
+        assertRanges("bytes=0-99", 1000, 0, 99);
+        assertRanges("bytes=100-", 1000, 100, 999);
+        assertRanges("bytes=-100", 1000, 900, 999);
+        assertRanges("bytes=900-2000", 1000, 900, 999);
+        assertRanges("bytes=-2000", 1000, 0, 999);
+    }
+
+    public void testMultiple() {
+        assertRanges("bytes=0-9, 20-29,-5", 100, 0, 9, 20, 29, 95, 99);
+    }
+
+    public void testUnsatisfiable() {
+        assertRanges("bytes=1000-", 1000);
+        assertRanges("bytes=2000-3000", 1000);
+        assertRanges("bytes=-0", 1000);
+    }
+
+    public void testInvalid() {
+        assertNull(DownloadHandler.parseRanges("items=0-9", 1000));
+        assertNull(DownloadHandler.parseRanges("bytes=9-0", 1000));
+        assertNull(DownloadHandler.parseRanges("bytes=a-b", 1000));
+        assertNull(DownloadHandler.parseRanges("bytes=5", 1000));
+        StringBuilder many = new StringBuilder("bytes=0-0");
+        for (int i = 1; i < 20; i++) {
+            many.append(',').append(i).append('-').append(i);
+        }
+        assertNull(DownloadHandler.parseRanges(many.toString(), 1000));
+    }
+}
@@ -19,30 +19,15 @@
 
 package org.exoplatform.portal.application;
 
-import org.gatein.common.concurrent.AtomicPositiveLong;
-import org.gatein.common.concurrent.LongSampler;
-
 /**
  * Created by The eXo Platform SAS Author : tam.nguyen tam.nguyen@exoplatform.com Mar 17, 2009
  */
 
 public class ApplicationStatistic {
 
-    /** . */
-    private static final int ONE_SECOND = 20000;
-
     private final String appId;
 
-    private final LongSampler times = new LongSampler(1000);
-
-    private final LongSampler throughput = new LongSampler(1000);
-
-    private final AtomicPositiveLong maxTime = new AtomicPositiveLong();
-
-    private final AtomicPositiveLong minTime = new AtomicPositiveLong();
-
-    // count variable, store number of request
-    private volatile long countRequest = 0;
+    private final TimeRecorder recorder = new TimeRecorder();
 
     public ApplicationStatistic(String appId) {
         this.appId = appId;
@@ -58,53 +43,42 @@ public class ApplicationStatistic {
      * @param timeMillis the time to log in milliseconds
      */
     public void logTime(long timeMillis) {
-
-        //
-        times.add(timeMillis);
-
-        // add current time to throughput array
-        throughput.add(System.currentTimeMillis());
-
-        // if time > max time then put a new max time value
-        maxTime.setIfGreater(timeMillis);
-
-        // generate first value for min time
-        minTime.setIfLower(timeMillis);
-
-        //
-        countRequest++;
+        recorder.record(timeMillis, System.currentTimeMillis());
     }
 
     public double getMaxTime() {
-        long maxTime = this.maxTime.get();
-        if (maxTime == -1) {
-            return -1;
-        }
-        return maxTime;
+        return recorder.getMax();
     }
 
     public double getMinTime() {
-        long minTime = this.minTime.get();
-        if (minTime == -1) {
-            return -1;
-        }
-        return minTime;
+        return recorder.getMin();
     }
 
     public double getAverageTime() {
-        return times.average();
+        return recorder.getAverage();
+    }
+
+    /**
+     * Returns the time under which a percentage of the executions completed, for instance 99 for the 99th percentile.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the time in milliseconds or -1 when nothing was logged
+     * @throws IllegalArgumentException if the percentile is not between 0 and 100
+     */
+    public double getPercentileTime(double percentile) throws IllegalArgumentException {
+        return recorder.getPercentile(percentile / 100D);
     }
 
     /**
-     * Compute the throughput.
+     * Compute the throughput, the average number of executions per second during the last ten seconds.
      *
      * @return the throughput
      */
     public double getThroughput() {
-        return throughput.countAboveThreshold(System.currentTimeMillis() - ONE_SECOND);
+        return recorder.getThroughput(System.currentTimeMillis());
     }
 
     public long executionCount() {
-        return countRequest;
+        return recorder.getCount();
     }
 }
@@ -22,7 +22,9 @@ package org.exoplatform.portal.application;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -112,6 +114,30 @@ public class ApplicationStatisticService implements Startable {
         return toSeconds(app.getAverageTime());
     }
 
+    /*
+     * return a percentile of the execution time of an specify application
+     */
+    @Managed
+    @ManagedDescription("The time in seconds under which a percentage of the executions of a specified application completed")
+    @Impact(ImpactType.READ)
+    public double getPercentileTime(
+            @ManagedDescription("The application id") @ManagedName("applicationId") String appId,
+            @ManagedDescription("The percentile between 0 and 100") @ManagedName("percentile") double percentile) {
+        ApplicationStatistic app = getApplicationStatistic(appId);
+        return toSeconds(app.getPercentileTime(percentile));
+    }
+
+    /*
+     * return throughput of an specify application
+     */
+    @Managed
+    @ManagedDescription("The number of executions per second of a specified application")
+    @Impact(ImpactType.READ)
+    public double getThroughput(@ManagedDescription("The application id") @ManagedName("applicationId") String appId) {
+        ApplicationStatistic app = getApplicationStatistic(appId);
+        return app.getThroughput();
+    }
+
     /*
      * return count of an specify application
      */
@@ -142,15 +168,18 @@ public class ApplicationStatisticService implements Startable {
     }
 
     private String[] getApplicationsSortedByAverageTime(boolean desc) {
-        List<ApplicationStatistic> list = new ArrayList<ApplicationStatistic>();
+        // Snapshot the times as they keep changing during the sort
+        final Map<ApplicationStatistic, Double> times = new HashMap<ApplicationStatistic, Double>();
         for (ApplicationStatistic app : apps.values()) {
-            if (app.getAverageTime() > 0) {
-                list.add(app);
+            double time = app.getAverageTime();
+            if (time > 0) {
+                times.put(app, time);
             }
         }
+        List<ApplicationStatistic> list = new ArrayList<ApplicationStatistic>(times.keySet());
         Collections.sort(list, new Comparator<ApplicationStatistic>() {
             public int compare(ApplicationStatistic o1, ApplicationStatistic o2) {
-                return (int) Math.signum(o1.getAverageTime() - o2.getAverageTime());
+                return Double.compare(times.get(o1), times.get(o2));
             }
         });
         if (desc) {
@@ -166,15 +195,17 @@ public class ApplicationStatisticService implements Startable {
     @Managed
     @ManagedDescription("The list of the 10 most executed applications")
     public String[] getMostExecutedApplications() {
-        ArrayList<ApplicationStatistic> list = new ArrayList<ApplicationStatistic>();
+        final Map<ApplicationStatistic, Long> counts = new HashMap<ApplicationStatistic, Long>();
         for (ApplicationStatistic app : apps.values()) {
-            if (app.executionCount() > 0) {
-                list.add(app);
+            long count = app.executionCount();
+            if (count > 0) {
+                counts.put(app, count);
             }
         }
+        ArrayList<ApplicationStatistic> list = new ArrayList<ApplicationStatistic>(counts.keySet());
         Collections.sort(list, new Comparator<ApplicationStatistic>() {
             public int compare(ApplicationStatistic o1, ApplicationStatistic o2) {
-                long diff = o1.executionCount() - o2.executionCount();
+                long diff = counts.get(o1) - counts.get(o2);
                 return diff == 0 ? 0 : diff > 0 ? -1 : 1;
             }
         });
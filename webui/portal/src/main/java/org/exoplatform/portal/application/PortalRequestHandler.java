@@ -32,6 +32,7 @@ import org.exoplatform.commons.utils.Safe;
 import org.exoplatform.container.PortalContainer;
 import org.exoplatform.portal.config.DataStorage;
 import org.exoplatform.portal.config.StaleModelException;
+import org.exoplatform.portal.config.UserACL;
 import org.exoplatform.portal.config.model.PortalConfig;
 import org.exoplatform.services.log.ExoLogger;
 import org.exoplatform.services.log.Log;
@@ -169,6 +170,10 @@ public class PortalRequestHandler extends WebRequestHandler {
         UIApplication uiApp = app.getStateManager().restoreUIRootComponent(context);
 
         List<ApplicationLifecycle> lifecycles = app.getApplicationLifecycle();
+
+        // Remember the permission decisions until the end of the request
+        UserACL userACL = (UserACL) app.getApplicationServiceContainer().getComponentInstanceOfType(UserACL.class);
+        userACL.beginRequest();
         try {
             if (context.getUIApplication() != uiApp)
                 context.setUIApplication(uiApp);
@@ -183,6 +188,9 @@ public class PortalRequestHandler extends WebRequestHandler {
                 startRequestPhaseLifecycle(app, context, lifecycles, Phase.ACTION);
                 uiApp.processAction(context);
                 endRequestPhaseLifecycle(app, context, lifecycles, Phase.ACTION);
+
+                // The action may have changed the memberships, the render phase must decide again
+                userACL.clearDecisions();
             }
 
             if (!context.isResponseComplete()) {
@@ -219,6 +227,7 @@ public class PortalRequestHandler extends WebRequestHandler {
             }
             PortalRequestImpl.clearInstance();
             WebuiRequestContext.setCurrentInstance(null);
+            userACL.endRequest();
         }
     }
 
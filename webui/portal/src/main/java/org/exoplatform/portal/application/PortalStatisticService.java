@@ -119,6 +119,17 @@ public class PortalStatisticService implements Startable {
         return toSeconds(getPortalStatistic(id).getAverageTime());
     }
 
+    /*
+     * Return a percentile of the execution time of a specified portal
+     */
+    @Managed
+    @ManagedDescription("The time in seconds under which a percentage of the executions of a specified portal completed")
+    @Impact(ImpactType.READ)
+    public double getPercentileTime(@ManagedDescription("The portal id") @ManagedName("portalId") String id,
+            @ManagedDescription("The percentile between 0 and 100") @ManagedName("percentile") double percentile) {
+        return toSeconds(getPortalStatistic(id).getPercentileTime(percentile));
+    }
+
     /*
      * Return the throughput of a specified portal
      */
@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.application;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Records execution times without locking. The times are counted in a histogram whose buckets grow exponentially: the
+ * times below 32 milliseconds have their own bucket and each following power of two is divided in 16 buckets, so a
+ * percentile is known within about 6% of its value. The recorder also counts the executions of each of the last seconds
+ * to provide the throughput.
+ * </p>
+ *
+ * <p>
+ * The counters are striped by thread so that concurrent executions rarely update the same memory, the stripes are summed
+ * when the statistics are read.
+ * </p>
+ */
+class TimeRecorder {
+
+    /** The number of bits of the sub buckets. */
+    private static final int SUB_BITS = 4;
+
+    /** The number of sub buckets of a power of two. */
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    /** The times below that value have their own bucket. */
+    private static final int LINEAR_COUNT = SUB_COUNT * 2;
+
+    /** The greatest recorded time, about two years. */
+    private static final long MAX_VALUE = (1L << 36) - 1;
+
+    /** . */
+    private static final int BUCKET_COUNT = bucket(MAX_VALUE) + 1;
+
+    /** The index of the sum of the times in a stripe. */
+    private static final int SUM = BUCKET_COUNT;
+
+    /** The index of the maximum time in a stripe. */
+    private static final int MAX = BUCKET_COUNT + 1;
+
+    /** The index of the minimum time in a stripe. */
+    private static final int MIN = BUCKET_COUNT + 2;
+
+    /** The number of seconds kept for the throughput, a power of two. */
+    private static final int SECONDS = 64;
+
+    /** The number of past seconds averaged by the throughput. */
+    static final int THROUGHPUT_PERIOD = 10;
+
+    /** . */
+    private static final int STRIPE_COUNT;
+
+    static {
+        int count = 1;
+        while (count < Runtime.getRuntime().availableProcessors() && count < 8) {
+            count <<= 1;
+        }
+        STRIPE_COUNT = count;
+    }
+
+    /**
+     * Returns the bucket of a time.
+     *
+     * @param value the time
+     * @return the bucket index
+     */
+    static int bucket(long value) {
+        if (value < LINEAR_COUNT) {
+            return (int) value;
+        } else {
+            int magnitude = 63 - Long.numberOfLeadingZeros(value);
+            int shift = magnitude - SUB_BITS;
+            return LINEAR_COUNT + (magnitude - SUB_BITS - 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+        }
+    }
+
+    /**
+     * Returns the lowest time of a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the lowest time
+     */
+    static long lowest(int bucket) {
+        if (bucket < LINEAR_COUNT) {
+            return bucket;
+        } else {
+            int shift = (bucket - LINEAR_COUNT) / SUB_COUNT + 1;
+            long sub = SUB_COUNT + (bucket - LINEAR_COUNT) % SUB_COUNT;
+            return sub << shift;
+        }
+    }
+
+    /**
+     * Returns the highest time of a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the highest time
+     */
+    static long highest(int bucket) {
+        return bucket + 1 < BUCKET_COUNT ? lowest(bucket + 1) - 1 : MAX_VALUE;
+    }
+
+    /** The histogram, sum, max and min of each stripe. */
+    private final AtomicLongArray[] stripes;
+
+    /** The executions per second of each stripe, a slot holds the second in the high bits and the count in the low bits. */
+    private final AtomicLongArray[] seconds;
+
+    TimeRecorder() {
+        this.stripes = new AtomicLongArray[STRIPE_COUNT];
+        this.seconds = new AtomicLongArray[STRIPE_COUNT];
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new AtomicLongArray(BUCKET_COUNT + 3);
+            stripes[i].set(MAX, -1);
+            stripes[i].set(MIN, -1);
+            seconds[i] = new AtomicLongArray(SECONDS);
+        }
+    }
+
+    /**
+     * Record a time.
+     *
+     * @param timeMillis the time in milliseconds
+     * @param now the current time in milliseconds
+     */
+    void record(long timeMillis, long now) {
+        long value = timeMillis < 0 ? 0 : timeMillis > MAX_VALUE ? MAX_VALUE : timeMillis;
+        int stripe = (int) Thread.currentThread().getId() & (STRIPE_COUNT - 1);
+
+        //
+        AtomicLongArray counters = stripes[stripe];
+        counters.incrementAndGet(bucket(value));
+        counters.addAndGet(SUM, value);
+        while (true) {
+            long max = counters.get(MAX);
+            if (value <= max || counters.compareAndSet(MAX, max, value)) {
+                break;
+            }
+        }
+        while (true) {
+            long min = counters.get(MIN);
+            if ((min != -1 && value >= min) || counters.compareAndSet(MIN, min, value)) {
+                break;
+            }
+        }
+
+        //
+        AtomicLongArray slots = seconds[stripe];
+        long second = now / 1000;
+        int slot = (int) second & (SECONDS - 1);
+        while (true) {
+            long current = slots.get(slot);
+            long next = (current >>> 32) == (second & 0xFFFFFFFFL) ? current + 1 : (second << 32) | 1;
+            if (slots.compareAndSet(slot, current, next)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of recorded times.
+     *
+     * @return the count
+     */
+    long getCount() {
+        long count = 0;
+        for (AtomicLongArray counters : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                count += counters.get(i);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the maximum time or -1 when no time was recorded.
+     *
+     * @return the maximum time
+     */
+    long getMax() {
+        long max = -1;
+        for (AtomicLongArray counters : stripes) {
+            max = Math.max(max, counters.get(MAX));
+        }
+        return max;
+    }
+
+    /**
+     * Returns the minimum time or -1 when no time was recorded.
+     *
+     * @return the minimum time
+     */
+    long getMin() {
+        long min = -1;
+        for (AtomicLongArray counters : stripes) {
+            long value = counters.get(MIN);
+            if (value != -1 && (min == -1 || value < min)) {
+                min = value;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Returns the average time or -1 when no time was recorded.
+     *
+     * @return the average time
+     */
+    double getAverage() {
+        long count = 0;
+        long sum = 0;
+        for (AtomicLongArray counters : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                count += counters.get(i);
+            }
+            sum += counters.get(SUM);
+        }
+        return count == 0 ? -1 : (double) sum / count;
+    }
+
+    /**
+     * Returns the time under which a fraction of the recorded times falls, or -1 when no time was recorded. The returned
+     * value is the middle of the bucket containing the percentile, bounded by the minimum and maximum times.
+     *
+     * @param fraction the fraction between 0 and 1, for instance 0.99 for the 99th percentile
+     * @return the percentile
+     * @throws IllegalArgumentException if the fraction is not between 0 and 1
+     */
+    long getPercentile(double fraction) throws IllegalArgumentException {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Invalid fraction " + fraction);
+        }
+        long[] buckets = new long[BUCKET_COUNT];
+        long count = 0;
+        for (AtomicLongArray counters : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long value = counters.get(i);
+                buckets[i] += value;
+                count += value;
+            }
+        }
+        if (count == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                long value = (lowest(i) + highest(i)) / 2;
+                return Math.max(getMin(), Math.min(getMax(), value));
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns the average number of executions per second during the last complete seconds.
+     *
+     * @param now the current time in milliseconds
+     * @return the throughput
+     */
+    double getThroughput(long now) {
+        long second = now / 1000;
+        long count = 0;
+        for (AtomicLongArray slots : seconds) {
+            for (long past = second - THROUGHPUT_PERIOD; past < second; past++) {
+                long value = slots.get((int) past & (SECONDS - 1));
+                if ((value >>> 32) == (past & 0xFFFFFFFFL)) {
+                    count += value & 0xFFFFFFFFL;
+                }
+            }
+        }
+        return (double) count / THROUGHPUT_PERIOD;
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.exoplatform.portal.webui.application;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.exoplatform.commons.utils.PropertyManager;
+import org.exoplatform.container.ExoContainer;
+import org.exoplatform.container.ExoContainerContext;
+import org.exoplatform.container.PortalContainer;
+import org.exoplatform.container.component.RequestLifeCycle;
+import org.exoplatform.portal.application.PortalRequestContext;
+import org.exoplatform.portal.config.UserACL;
+import org.exoplatform.portal.webui.page.UIPageBody;
+import org.exoplatform.portal.webui.portal.UIPortal;
+import org.exoplatform.services.log.ExoLogger;
+import org.exoplatform.services.log.Log;
+import org.exoplatform.services.security.ConversationState;
+import org.exoplatform.web.application.RequestContext;
+import org.exoplatform.webui.core.UIComponent;
+import org.exoplatform.webui.core.UIComponentDecorator;
+import org.exoplatform.webui.core.UIContainer;
+import org.gatein.pc.api.Portlet;
+import org.gatein.pc.api.invocation.RenderInvocation;
+import org.gatein.pc.api.invocation.response.PortletInvocationResponse;
+import org.picocontainer.Startable;
+
+/**
+ * <p>
+ * Renders the remote portlets of a page in parallel. Before the page templates are rendered, the render invocations of the
+ * visible remote portlets are dispatched on a bounded pool of threads, the {@link UIPortletLifecycle} then waits for the
+ * response of each portlet when the template reaches it, so the markup order is unchanged and the page latency becomes the
+ * latency of the slowest remote portlet instead of the sum of their latencies.
+ * </p>
+ *
+ * <p>
+ * Only the remote portlets are rendered in parallel: their invocation is created by the request thread and holds the
+ * request state they need, the rendering thread then only waits for the producer. The local portlets are dispatched to
+ * their application with the servlet request that is not safe to share between threads, they are always rendered by the
+ * request thread. The rendering thread is given the container, the conversation state and the request context of the
+ * request as well as its own request lifecycle and permission decisions, they are restored when the render is done.
+ * </p>
+ *
+ * <p>
+ * The parallel rendering is disabled by default and is configured by the following properties:
+ * <ul>
+ * <li><code>gatein.portlet.render.parallel</code>: <code>remote</code> to render the remote portlets in parallel</li>
+ * <li><code>gatein.portlet.render.parallel.threads</code>: the number of rendering threads, defaulting to 16, when all of
+ * them are busy and too many renders are pending the portlets are rendered by the request thread</li>
+ * <li><code>gatein.portlet.render.parallel.timeout</code>: the time in milliseconds after which a portlet that did not
+ * respond is replaced by a message, defaulting to 10 seconds</li>
+ * </ul>
+ * The rendering threads are started and stopped with the portal container.
+ * </p>
+ */
+public class ParallelPortletRenderer implements Startable {
+
+    /** . */
+    private static final Log log = ExoLogger.getLogger(ParallelPortletRenderer.class);
+
+    /** The request attribute holding the pending renders. */
+    private static final String RENDERS = ParallelPortletRenderer.class.getName() + ".renders";
+
+    /** The number of pending renders above which the portlets are rendered by the request thread. */
+    private static final int MAX_PENDING = 1000;
+
+    private static long getLongProperty(String name, long defaultValue) {
+        String value = PropertyManager.getProperty(name);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("The " + name + " property is not set properly.");
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Returns the renderer of the current container or null when the parallel rendering is disabled.
+     *
+     * @return the renderer
+     */
+    public static ParallelPortletRenderer getInstance() {
+        ExoContainer container = ExoContainerContext.getCurrentContainer();
+        ParallelPortletRenderer renderer = (ParallelPortletRenderer) container
+                .getComponentInstanceOfType(ParallelPortletRenderer.class);
+        return renderer != null && renderer.executor != null ? renderer : null;
+    }
+
+    /** . */
+    private final boolean enabled;
+
+    /** . */
+    private final int threads;
+
+    /** . */
+    private final long timeout;
+
+    /** . */
+    private final int maxPending;
+
+    /** . */
+    private volatile ThreadPoolExecutor executor;
+
+    public ParallelPortletRenderer() {
+        String mode = PropertyManager.getProperty("gatein.portlet.render.parallel");
+        mode = mode != null ? mode.trim() : "none";
+        if ("all".equals(mode)) {
+            log.warn("The local portlets are not rendered in parallel, only the remote portlets are.");
+            mode = "remote";
+        } else if (!"remote".equals(mode) && !"none".equals(mode)) {
+            log.warn("The gatein.portlet.render.parallel property is not set properly.");
+        }
+
+        //
+        this.enabled = "remote".equals(mode);
+        this.threads = Math.max(1, (int) getLongProperty("gatein.portlet.render.parallel.threads", 16));
+        this.timeout = Math.max(1, getLongProperty("gatein.portlet.render.parallel.timeout", 10000));
+        this.maxPending = MAX_PENDING;
+    }
+
+    ParallelPortletRenderer(int threads, long timeout, int maxPending) {
+        this.enabled = true;
+        this.threads = threads;
+        this.timeout = timeout;
+        this.maxPending = maxPending;
+    }
+
+    public void start() {
+        if (enabled) {
+            final AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "gatein-portlet-render-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(
+                    maxPending), factory);
+        }
+    }
+
+    public void stop() {
+        ThreadPoolExecutor current = executor;
+        if (current != null) {
+            executor = null;
+            current.shutdownNow();
+        }
+    }
+
+    /**
+     * Dispatch the render invocations of the visible remote portlets of a component tree.
+     *
+     * @param context the request context
+     * @param root the root of the rendered components
+     */
+    public void prepare(PortalRequestContext context, UIComponent root) {
+        Map<UIPortlet<?, ?>, Render> renders = new IdentityHashMap<UIPortlet<?, ?>, Render>();
+        UIPortletLifecycle.removePublicParameters(context);
+        collect(context, root, renders);
+        if (renders.size() > 0) {
+            context.setAttribute(RENDERS, renders);
+        }
+    }
+
+    private void collect(PortalRequestContext context, UIComponent component, Map<UIPortlet<?, ?>, Render> renders) {
+        if (component == null || !component.isRendered()) {
+            return;
+        }
+        if (component instanceof UIPortlet) {
+            UIPortlet<?, ?> portlet = (UIPortlet<?, ?>) component;
+            if (!UIPortletLifecycle.isHidden(portlet) && UIPortletLifecycle.isViewable(portlet) && isRemote(portlet)) {
+                try {
+                    RenderInvocation invocation = portlet.create(RenderInvocation.class, context);
+                    Render render = dispatch(new PortletRender(context, portlet, invocation));
+                    if (render != null) {
+                        renders.put(portlet, render);
+                    } else {
+                        log.debug("Too many pending portlet renders, " + portlet.getId() + " is rendered by the request thread");
+                    }
+                } catch (Exception e) {
+                    // The request thread will render the portlet and handle the error
+                    log.debug("Could not prepare the render of " + portlet.getId(), e);
+                }
+            }
+        } else if (component instanceof UIPortal && ((UIPortal) component).getMaximizedUIComponent() != null) {
+            collect(context, ((UIPortal) component).getMaximizedUIComponent(), renders);
+        } else if (component instanceof UIPageBody && ((UIPageBody) component).getMaximizedUIComponent() != null) {
+            collect(context, ((UIPageBody) component).getMaximizedUIComponent(), renders);
+        } else if (component instanceof UIComponentDecorator) {
+            collect(context, ((UIComponentDecorator) component).getUIComponent(), renders);
+        } else if (component instanceof UIContainer) {
+            for (UIComponent child : ((UIContainer) component).getChildren()) {
+                collect(context, child, renders);
+            }
+        }
+    }
+
+    private boolean isRemote(UIPortlet<?, ?> uiPortlet) {
+        Portlet portlet = uiPortlet.getProducedOfferedPortlet();
+        return portlet != null && portlet.isRemote();
+    }
+
+    /**
+     * Dispatch a render on the rendering threads.
+     *
+     * @param task the render
+     * @return the dispatched render or null when it must be done by the request thread
+     */
+    Render dispatch(Callable<PortletInvocationResponse> task) {
+        ThreadPoolExecutor current = executor;
+        if (current != null) {
+            try {
+                return new Render(current.submit(task), System.currentTimeMillis() + timeout);
+            } catch (RejectedExecutionException e) {
+                // Too many pending renders or stopped
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wait for the response of a dispatched render until its deadline, the render is cancelled when it is not done by then.
+     *
+     * @param render the render
+     * @return the response or null when the render did not complete before its deadline
+     * @throws Exception the exception thrown by the render
+     */
+    PortletInvocationResponse await(Render render) throws Exception {
+        try {
+            long remaining = render.deadline - System.currentTimeMillis();
+            return render.future.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            render.future.cancel(true);
+            return null;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns true when the render of a portlet was dispatched for the current request.
+     *
+     * @param context the request context
+     * @param portlet the portlet
+     * @return true when the render was dispatched
+     */
+    public boolean isPrepared(PortalRequestContext context, UIPortlet<?, ?> portlet) {
+        Map<UIPortlet<?, ?>, Render> renders = (Map<UIPortlet<?, ?>, Render>) context.getAttribute(RENDERS);
+        return renders != null && renders.containsKey(portlet);
+    }
+
+    /**
+     * Wait for the response of a dispatched portlet render, the render is removed from the request. An exception thrown by
+     * the portlet invocation is rethrown.
+     *
+     * @param context the request context
+     * @param portlet the portlet
+     * @return the response or null when the portlet did not respond before its timeout
+     * @throws Exception the exception thrown by the portlet invocation
+     */
+    public PortletInvocationResponse await(PortalRequestContext context, UIPortlet<?, ?> portlet) throws Exception {
+        Map<UIPortlet<?, ?>, Render> renders = (Map<UIPortlet<?, ?>, Render>) context.getAttribute(RENDERS);
+        Render render = renders != null ? renders.remove(portlet) : null;
+        if (render == null) {
+            throw new IllegalStateException("No render prepared for " + portlet.getId());
+        }
+        PortletInvocationResponse response = await(render);
+        if (response == null) {
+            log.warn("Portlet " + portlet.getId() + " did not render within " + timeout + " ms");
+        }
+        return response;
+    }
+
+    /**
+     * Cancel the dispatched renders that were not used by the request.
+     *
+     * @param context the request context
+     */
+    public void release(PortalRequestContext context) {
+        Map<UIPortlet<?, ?>, Render> renders = (Map<UIPortlet<?, ?>, Render>) context.getAttribute(RENDERS);
+        if (renders != null) {
+            context.setAttribute(RENDERS, null);
+            for (Render render : renders.values()) {
+                render.future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * A dispatched render.
+     */
+    static class Render {
+
+        /** . */
+        private final Future<PortletInvocationResponse> future;
+
+        /** . */
+        private final long deadline;
+
+        private Render(Future<PortletInvocationResponse> future, long deadline) {
+            this.future = future;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * The render of a portlet by a rendering thread, the thread is given the state of the request thread during the
+     * render.
+     */
+    private static class PortletRender implements Callable<PortletInvocationResponse> {
+
+        /** . */
+        private final ExoContainer container;
+
+        /** . */
+        private final ConversationState state;
+
+        /** . */
+        private final PortalRequestContext context;
+
+        /** . */
+        private final UIPortlet<?, ?> portlet;
+
+        /** . */
+        private final RenderInvocation invocation;
+
+        private PortletRender(PortalRequestContext context, UIPortlet<?, ?> portlet, RenderInvocation invocation) {
+            this.container = context.getApplication().getApplicationServiceContainer();
+            this.state = ConversationState.getCurrent();
+            this.context = context;
+            this.portlet = portlet;
+            this.invocation = invocation;
+        }
+
+        public PortletInvocationResponse call() throws Exception {
+            ExoContainerContext.setCurrentContainer(container);
+            if (container instanceof PortalContainer) {
+                PortalContainer.setInstance((PortalContainer) container);
+            }
+            ConversationState.setCurrent(state);
+            RequestContext.setCurrentInstance(context);
+            RequestLifeCycle.begin(container);
+            UserACL userACL = (UserACL) container.getComponentInstanceOfType(UserACL.class);
+            userACL.beginRequest();
+            try {
+                return portlet.invoke(invocation);
+            } finally {
+                userACL.endRequest();
+                RequestLifeCycle.end();
+                RequestContext.setCurrentInstance(null);
+                ConversationState.setCurrent(null);
+                PortalContainer.setInstance(null);
+                ExoContainerContext.setCurrentContainer(null);
+            }
+        }
+    }
+}
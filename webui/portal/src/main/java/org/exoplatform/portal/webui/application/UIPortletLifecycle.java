@@ -167,30 +167,30 @@ public class UIPortletLifecycle<S, C extends Serializable, I> extends Lifecycle<
         Text markup = null;
 
         try {
-            Map<String, String[]> paramMap = prcontext.getRequest().getParameterMap();
-            if (paramMap.containsKey("removePP")) {
-                UIPortal uiPortal = Util.getUIPortal();
-                for (String publicParamName : paramMap.get("removePP")) {
-                    uiPortal.getPublicParameters().remove(publicParamName);
+            ParallelPortletRenderer renderer = ParallelPortletRenderer.getInstance();
+            if (renderer != null && renderer.isPrepared(prcontext, uicomponent)) {
+                // The render was dispatched before the page rendering
+                PortletInvocationResponse response = renderer.await(prcontext, uicomponent);
+                if (response != null) {
+                    markup = uicomponent.generateRenderMarkup(response, prcontext);
+                } else {
+                    markup = Text.create(context.getApplicationResourceBundle().getString("UIPortlet.message.Timeout"));
                 }
-            }
-
-            RenderInvocation renderInvocation = uicomponent.create(RenderInvocation.class, prcontext);
-
-            String appStatus = uicomponent.getProperties().get("appStatus");
-            if ("Window".equals(uicomponent.getPortletStyle()) && !("SHOW".equals(appStatus) || "HIDE".equals(appStatus))) {
-                markup = Text.create("<span></span>");
             } else {
-                int portalMode = Util.getUIPortalApplication().getModeState();
+                removePublicParameters(prcontext);
 
-                // Check mode of portal, portlet and permission for viewable
-                if ((portalMode == UIPortalApplication.NORMAL_MODE || portalMode == UIPortalApplication.APP_VIEW_EDIT_MODE
-                        || portalMode == UIPortalApplication.CONTAINER_VIEW_EDIT_MODE || uicomponent.getCurrentPortletMode()
-                        .equals(PortletMode.EDIT)) && uicomponent.hasPermission()) {
-                    PortletInvocationResponse response = uicomponent.invoke(renderInvocation);
-                    markup = uicomponent.generateRenderMarkup(response, prcontext);
+                RenderInvocation renderInvocation = uicomponent.create(RenderInvocation.class, prcontext);
+
+                if (isHidden(uicomponent)) {
+                    markup = Text.create("<span></span>");
                 } else {
-                    uicomponent.setConfiguredTitle(null);
+                    // Check mode of portal, portlet and permission for viewable
+                    if (isViewable(uicomponent)) {
+                        PortletInvocationResponse response = uicomponent.invoke(renderInvocation);
+                        markup = uicomponent.generateRenderMarkup(response, prcontext);
+                    } else {
+                        uicomponent.setConfiguredTitle(null);
+                    }
                 }
             }
         } catch (Exception e) {
@@ -226,4 +226,44 @@ public class UIPortletLifecycle<S, C extends Serializable, I> extends Lifecycle<
             }
         }
     }
+
+    /**
+     * Remove the public render parameters requested by the <code>removePP</code> request parameter.
+     *
+     * @param prcontext the request context
+     */
+    static void removePublicParameters(PortalRequestContext prcontext) {
+        Map<String, String[]> paramMap = prcontext.getRequest().getParameterMap();
+        if (paramMap.containsKey("removePP")) {
+            UIPortal uiPortal = Util.getUIPortal();
+            for (String publicParamName : paramMap.get("removePP")) {
+                uiPortal.getPublicParameters().remove(publicParamName);
+            }
+        }
+    }
+
+    /**
+     * Returns true when the portlet window is neither shown nor hidden and renders an empty markup.
+     *
+     * @param uicomponent the portlet
+     * @return true when the portlet is hidden
+     */
+    static boolean isHidden(UIPortlet<?, ?> uicomponent) {
+        String appStatus = uicomponent.getProperties().get("appStatus");
+        return "Window".equals(uicomponent.getPortletStyle()) && !("SHOW".equals(appStatus) || "HIDE".equals(appStatus));
+    }
+
+    /**
+     * Returns true when the portal mode, the portlet mode and the permissions allow to display the portlet content.
+     *
+     * @param uicomponent the portlet
+     * @return true when the portlet is viewable
+     */
+    static boolean isViewable(UIPortlet<?, ?> uicomponent) {
+        int portalMode = Util.getUIPortalApplication().getModeState();
+        return (portalMode == UIPortalApplication.NORMAL_MODE || portalMode == UIPortalApplication.APP_VIEW_EDIT_MODE
+                || portalMode == UIPortalApplication.CONTAINER_VIEW_EDIT_MODE || uicomponent.getCurrentPortletMode().equals(
+                PortletMode.EDIT))
+                && uicomponent.hasPermission();
+    }
 }
@@ -28,7 +28,10 @@ import org.exoplatform.container.PortalContainer;
 import org.exoplatform.portal.mop.QueryResult;
 import org.exoplatform.portal.mop.SiteType;
 import org.exoplatform.portal.mop.page.PageContext;
+import org.exoplatform.portal.mop.page.PageKey;
 import org.exoplatform.portal.mop.page.PageService;
+import org.exoplatform.portal.mop.page.PageServiceImpl;
+import org.exoplatform.portal.mop.page.PageServiceWrapper;
 
 /**
  * @author <a href="mailto:haithanh0809@gmail.com">Hai Thanh Nguyen</a>
@@ -48,6 +51,12 @@ public class PageIterator implements Serializable, Iterator<List<?>> {
 
     private int currentIndex = 0;
 
+    /** The key of the last returned page, the next pages are searched after it. */
+    private PageKey last;
+
+    /** Whether the pages are searched after the last returned page, otherwise they are searched by offset. */
+    private boolean keyed = true;
+
     private boolean hasNext = true;
 
     public PageIterator(String ownerType, String ownerId, String name, String title, int pageSize) {
@@ -60,11 +69,7 @@ public class PageIterator implements Serializable, Iterator<List<?>> {
 
     public boolean hasNext() {
         if (hasNext && currentIndex == 0) {
-            ExoContainer container = PortalContainer.getInstance();
-            PageService pageService = (PageService) container.getComponentInstance(PageService.class);
-            QueryResult<PageContext> result = pageService.findPages(0, 1, SiteType.valueOf(ownerType.toUpperCase()), ownerId,
-                    name, title);
-
+            QueryResult<PageContext> result = find(1);
             hasNext = result.getSize() > 0;
         }
 
@@ -77,10 +82,7 @@ public class PageIterator implements Serializable, Iterator<List<?>> {
      * @return Returns a list of pages or returns null if has not any page.
      */
     public List<PageModel> next() {
-        ExoContainer container = PortalContainer.getInstance();
-        PageService pageService = (PageService) container.getComponentInstance(PageService.class);
-        QueryResult<PageContext> result = pageService.findPages(currentIndex, pageSize + 1,
-                SiteType.valueOf(ownerType.toUpperCase()), ownerId, name, title);
+        QueryResult<PageContext> result = find(pageSize + 1);
 
         int size = result.getSize();
         hasNext = size > pageSize;
@@ -92,7 +94,9 @@ public class PageIterator implements Serializable, Iterator<List<?>> {
 
             Iterator<PageContext> iterator = result.iterator();
             while (holder.size() < hsize) {
-                holder.add(new PageModel(iterator.next()));
+                PageContext page = iterator.next();
+                holder.add(new PageModel(page));
+                last = page.getKey();
             }
 
             currentIndex += holder.size();
@@ -102,6 +106,31 @@ public class PageIterator implements Serializable, Iterator<List<?>> {
         }
     }
 
+    /**
+     * Find the pages following the last returned page, the page service implementations search them after the key of the
+     * last page when their index is available, otherwise the pages already returned are skipped.
+     */
+    private QueryResult<PageContext> find(int limit) {
+        ExoContainer container = PortalContainer.getInstance();
+        PageService pageService = (PageService) container.getComponentInstance(PageService.class);
+        SiteType siteType = SiteType.valueOf(ownerType.toUpperCase());
+        if (keyed) {
+            QueryResult<PageContext> result = null;
+            if (pageService instanceof PageServiceWrapper) {
+                result = ((PageServiceWrapper) pageService).findPages(last, limit, siteType, ownerId, name, title);
+            } else if (pageService instanceof PageServiceImpl) {
+                result = ((PageServiceImpl) pageService).findPages(last, limit, siteType, ownerId, name, title);
+            }
+            if (result != null) {
+                return result;
+            }
+
+            // The index is not available, keep the same order until the end of the iteration
+            keyed = false;
+        }
+        return pageService.findPages(currentIndex, limit, siteType, ownerId, name, title);
+    }
+
     @Override
     public void remove() {
         throw new UnsupportedOperationException();
@@ -49,6 +49,7 @@ import org.exoplatform.portal.resource.Skin;
 import org.exoplatform.portal.resource.SkinConfig;
 import org.exoplatform.portal.resource.SkinService;
 import org.exoplatform.portal.resource.SkinURL;
+import org.exoplatform.portal.webui.application.ParallelPortletRenderer;
 import org.exoplatform.portal.webui.application.UIPortlet;
 import org.exoplatform.portal.webui.page.UIPageActionListener.ChangeNodeActionListener;
 import org.exoplatform.portal.webui.page.UISiteBody;
@@ -66,6 +67,7 @@ import org.exoplatform.services.resources.Orientation;
 import org.exoplatform.web.ControllerContext;
 import org.exoplatform.web.application.JavascriptManager;
 import org.exoplatform.web.application.javascript.JavascriptConfigParser;
+import org.exoplatform.web.application.javascript.CachedJSConfig;
 import org.exoplatform.web.application.javascript.JavascriptConfigService;
 import org.exoplatform.web.url.MimeType;
 import org.exoplatform.web.url.navigation.NavigationResource;
@@ -345,9 +347,13 @@ public class UIPortalApplication extends UIApplication {
     }
 
     public JSONObject getJSConfig() throws Exception {
+        return getCachedJSConfig().toJSON();
+    }
+
+    public CachedJSConfig getCachedJSConfig() throws Exception {
         JavascriptConfigService service = getApplicationComponent(JavascriptConfigService.class);
         PortalRequestContext prc = PortalRequestContext.getCurrentInstance();
-        return service.getJSConfig(prc.getControllerContext(), prc.getLocale());
+        return service.getCachedJSConfig(prc.getControllerContext(), prc.getLocale());
     }
 
     public Collection<Skin> getPortalSkins() {
@@ -598,7 +604,18 @@ public class UIPortalApplication extends UIApplication {
             // Need to add bootstrap as immediate since it contains the loader
             jsMan.loadScriptResource(ResourceScope.SHARED, "bootstrap");
 
-            super.processRender(context);
+            // Dispatch the portlet renders before the page is rendered
+            ParallelPortletRenderer renderer = ParallelPortletRenderer.getInstance();
+            if (renderer != null) {
+                renderer.prepare(pcontext, this);
+            }
+            try {
+                super.processRender(context);
+            } finally {
+                if (renderer != null) {
+                    renderer.release(pcontext);
+                }
+            }
         } else {
             UIMaskWorkspace uiMaskWS = getChildById(UIPortalApplication.UI_MASK_WS_ID);
             if (uiMaskWS.isUpdated())
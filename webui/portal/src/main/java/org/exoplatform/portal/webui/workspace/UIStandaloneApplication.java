@@ -37,6 +37,7 @@ import org.exoplatform.portal.resource.SkinService;
 import org.exoplatform.portal.webui.application.UIStandaloneAppContainer;
 import org.exoplatform.services.resources.Orientation;
 import org.exoplatform.web.application.JavascriptManager;
+import org.exoplatform.web.application.javascript.CachedJSConfig;
 import org.exoplatform.web.application.javascript.JavascriptConfigService;
 import org.exoplatform.web.url.MimeType;
 import org.exoplatform.webui.application.WebuiRequestContext;
@@ -164,9 +165,13 @@ public class UIStandaloneApplication extends UIApplication {
     }
 
     public JSONObject getJSConfig() throws Exception {
+        return getCachedJSConfig().toJSON();
+    }
+
+    public CachedJSConfig getCachedJSConfig() throws Exception {
         JavascriptConfigService service = getApplicationComponent(JavascriptConfigService.class);
         StandaloneAppRequestContext context = WebuiRequestContext.getCurrentInstance();
-        return service.getJSConfig(context.getControllerContext(), context.getLocale());
+        return service.getCachedJSConfig(context.getControllerContext(), context.getLocale());
     }
 
     public Collection<Skin> getPortalSkins() {
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.application;
+
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+public class TestTimeRecorder extends TestCase {
+
+    public void testBuckets() {
+        int previous = -1;
+        for (long value = 0; value < 100000; value++) {
+            int bucket = TimeRecorder.bucket(value);
+            assertTrue(bucket == previous || bucket == previous + 1);
+            assertTrue(TimeRecorder.lowest(bucket) <= value);
+            assertTrue(TimeRecorder.highest(bucket) >= value);
+            assertTrue(TimeRecorder.highest(bucket) - TimeRecorder.lowest(bucket) <= value / 16);
+            previous = bucket;
+        }
+    }
+
+    public void testEmpty() {
+        TimeRecorder recorder = new TimeRecorder();
+        assertEquals(0, recorder.getCount());
+        assertEquals(-1, recorder.getMax());
+        assertEquals(-1, recorder.getMin());
+        assertEquals(-1D, recorder.getAverage());
+        assertEquals(-1, recorder.getPercentile(0.5));
+        assertEquals(0D, recorder.getThroughput(0));
+    }
+
+    public void testPercentiles() {
+        TimeRecorder recorder = new TimeRecorder();
+        for (int i = 1; i <= 1000; i++) {
+            recorder.record(i, 0);
+        }
+        assertEquals(1000, recorder.getCount());
+        assertEquals(1000, recorder.getMax());
+        assertEquals(1, recorder.getMin());
+        assertEquals(500.5D, recorder.getAverage());
+        assertEquals(1, recorder.getPercentile(0));
+        assertEquals(1000, recorder.getPercentile(1));
+        assertApproximately(500, recorder.getPercentile(0.5));
+        assertApproximately(900, recorder.getPercentile(0.9));
+        assertApproximately(990, recorder.getPercentile(0.99));
+        assertApproximately(999, recorder.getPercentile(0.999));
+    }
+
+    public void testThroughput() {
+        TimeRecorder recorder = new TimeRecorder();
+        for (int second = 0; second < 20; second++) {
+            for (int i = 0; i < 5; i++) {
+                recorder.record(10, second * 1000 + i * 100);
+            }
+        }
+
+        // The current second is not counted
+        assertEquals(5D, recorder.getThroughput(19500));
+        assertEquals(5D, recorder.getThroughput(20000));
+        assertEquals(4.5D, recorder.getThroughput(21000));
+
+        // Seconds older than the ring are not counted
+        assertEquals(0D, recorder.getThroughput(100000));
+    }
+
+    public void testConcurrentRecord() throws Exception {
+        final TimeRecorder recorder = new TimeRecorder();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < 10000; j++) {
+                            recorder.record(j % 100, 0);
+                        }
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80000, recorder.getCount());
+        assertEquals(99, recorder.getMax());
+        assertEquals(0, recorder.getMin());
+        assertEquals(49.5D, recorder.getAverage());
+    }
+
+    private void assertApproximately(long expected, long value) {
+        assertTrue("Expected " + value + " to be close to " + expected, Math.abs(value - expected) <= expected / 16);
+    }
+}
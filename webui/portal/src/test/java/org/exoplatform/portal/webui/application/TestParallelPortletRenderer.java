@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2012 eXo Platform SAS.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+package org.exoplatform.portal.webui.application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.gatein.pc.api.invocation.response.PortletInvocationResponse;
+
+public class TestParallelPortletRenderer extends TestCase {
+
+    /** . */
+    private ParallelPortletRenderer renderer;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (renderer != null) {
+            renderer.stop();
+            renderer = null;
+        }
+    }
+
+    private ParallelPortletRenderer start(int threads, long timeout, int maxPending) {
+        renderer = new ParallelPortletRenderer(threads, timeout, maxPending);
+        renderer.start();
+        return renderer;
+    }
+
+    public void testOrder() throws Exception {
+        start(4, 10000, 10);
+
+        // The first renders complete last
+        List<ParallelPortletRenderer.Render> renders = new ArrayList<ParallelPortletRenderer.Render>();
+        List<Response> responses = new ArrayList<Response>();
+        for (int i = 0; i < 4; i++) {
+            Response response = new Response();
+            responses.add(response);
+            renders.add(renderer.dispatch(new Task(response, (4 - i) * 100)));
+        }
+
+        // The responses are awaited in the dispatch order and the renders were done concurrently
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < 4; i++) {
+            assertNotNull(renders.get(i));
+            assertSame(responses.get(i), renderer.await(renders.get(i)));
+        }
+        time = System.currentTimeMillis() - time;
+        assertTrue("Expected renders to be concurrent, they took " + time + " ms", time < 1000);
+    }
+
+    public void testFailure() throws Exception {
+        start(1, 10000, 10);
+        final Exception failure = new Exception();
+        ParallelPortletRenderer.Render render = renderer.dispatch(new Callable<PortletInvocationResponse>() {
+            public PortletInvocationResponse call() throws Exception {
+                throw failure;
+            }
+        });
+        try {
+            renderer.await(render);
+            fail();
+        } catch (Exception e) {
+            assertSame(failure, e);
+        }
+    }
+
+    public void testTimeout() throws Exception {
+        start(1, 100, 10);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        ParallelPortletRenderer.Render render = renderer.dispatch(new Callable<PortletInvocationResponse>() {
+            public PortletInvocationResponse call() throws Exception {
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return new Response();
+            }
+        });
+
+        // The render does not respond and is cancelled
+        assertNull(renderer.await(render));
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+
+        // The rendering thread is available again
+        Response response = new Response();
+        assertSame(response, renderer.await(renderer.dispatch(new Task(response, 0))));
+    }
+
+    public void testSerialFallback() throws Exception {
+        start(1, 10000, 1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        Response first = new Response();
+        ParallelPortletRenderer.Render render1 = renderer.dispatch(new Task(first, 0) {
+            @Override
+            public PortletInvocationResponse call() throws Exception {
+                blocked.await();
+                return super.call();
+            }
+        });
+        Response second = new Response();
+        ParallelPortletRenderer.Render render2 = renderer.dispatch(new Task(second, 0));
+        assertNotNull(render1);
+        assertNotNull(render2);
+
+        // The thread is busy and the queue is full, the portlet must be rendered by the request thread
+        assertNull(renderer.dispatch(new Task(new Response(), 0)));
+
+        //
+        blocked.countDown();
+        assertSame(first, renderer.await(render1));
+        assertSame(second, renderer.await(render2));
+    }
+
+    public void testStopped() throws Exception {
+        start(1, 10000, 10);
+        renderer.stop();
+        assertNull(renderer.dispatch(new Task(new Response(), 0)));
+    }
+
+    private static class Response extends PortletInvocationResponse {
+    }
+
+    private static class Task implements Callable<PortletInvocationResponse> {
+
+        /** . */
+        private final Response response;
+
+        /** . */
+        private final long delay;
+
+        private Task(Response response, long delay) {
+            this.response = response;
+            this.delay = delay;
+        }
+
+        public PortletInvocationResponse call() throws Exception {
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            return response;
+        }
+    }
+}